@@ -0,0 +1,96 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Measures UserManager.authenticate throughput as threads are added.
+ * - Registers a pool of accounts, then runs timed rounds at 1, 2, 4, ... up to
+ *   twice the core count, each thread logging in as random accounts.
+ * - Prints operations per second and the speedup over one thread, then the
+ *   hashing pool's latency and rejection counts.
+ * - Usage: java bench.AuthBenchmark [accounts] [seconds per round] [PBKDF2 iterations]
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Pbkdf2Hasher;
+import model.UserManager;
+import store.MusicStore;
+
+public class AuthBenchmark {
+	private static final int WARMUP_SECONDS = 1;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : Pbkdf2Hasher.DEFAULT_ITERATIONS;
+		Path dir = Files.createTempDirectory("auth-bench");
+		MusicStore store = new MusicStore(dir); // Empty catalog; only accounts matter here
+		UserManager manager = new UserManager(store, new File(dir.toFile(), "users.dat"),
+				new File(dir.toFile(), "users.journal"));
+		manager.setPasswordHasher(new Pbkdf2Hasher(iterations));
+
+		String[] names = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			names[i] = "user" + i;
+			manager.createUser(names[i], "password" + i, store);
+		}
+		manager.saveUsers();
+
+		run(manager, names, 1, WARMUP_SECONDS);
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d accounts, %d cores, %d s per round, %d iterations%n", accounts, cores, seconds,
+				iterations);
+		System.out.printf("%8s %14s %8s%n", "threads", "auth/s", "speedup");
+		double base = 0;
+		for (int threads = 1; threads <= cores * 2; threads *= 2) {
+			double rate = run(manager, names, threads, seconds);
+			if (threads == 1) {
+				base = rate;
+			}
+			System.out.printf("%8d %14.0f %7.2fx%n", threads, rate, rate / base);
+		}
+		System.out.println(manager.getHashMetrics());
+		manager.close();
+	}
+
+	// Authentications per second across all threads
+	private static double run(UserManager manager, String[] names, int threads, int seconds)
+			throws InterruptedException {
+		LongAdder operations = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		long[] deadline = new long[1];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				while (System.nanoTime() < deadline[0]) {
+					int i = random.nextInt(names.length);
+					if (!manager.authenticate(names[i], "password" + i)) {
+						throw new IllegalStateException("Login failed for " + names[i]);
+					}
+					operations.increment();
+				}
+			});
+			workers[t].start();
+		}
+		long began = System.nanoTime();
+		deadline[0] = began + seconds * 1_000_000_000L;
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return operations.sum() * 1e9 / (System.nanoTime() - began);
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * A small benchmark harness for the plain-main benchmarks in this package.
+ * - Runs an operation in batches sized to take ~10 ms each, first for a
+ *   warmup period (to let the JIT settle), then for a measurement period.
+ * - Reports mean time per operation with its spread across batches, bytes
+ *   allocated per operation (HotSpot's per-thread allocation counter) and
+ *   the GC count and time during measurement.
+ * - Results go through a volatile sink so the JIT can't drop the work.
+ */
+package bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Harness {
+	private static final long TARGET_BATCH_NANOS = 10_000_000;
+	private static volatile Object sink;
+
+	private long warmupNanos;
+	private long measureNanos;
+	private com.sun.management.ThreadMXBean threads;
+
+	// The benchmarked operation; i counts calls so operations can vary their input
+	public interface Op {
+		Object run(int i) throws Exception;
+	}
+
+	public static class Result {
+		public final String name;
+		public final double nanosPerOp;
+		public final double stddev; // Across batches
+		public final long operations;
+		public final double bytesPerOp; // -1 if the JVM can't tell
+		public final long gcCount;
+		public final long gcMillis;
+
+		Result(String name, double nanosPerOp, double stddev, long operations, double bytesPerOp, long gcCount,
+				long gcMillis) {
+			this.name = name;
+			this.nanosPerOp = nanosPerOp;
+			this.stddev = stddev;
+			this.operations = operations;
+			this.bytesPerOp = bytesPerOp;
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-64s %14s +- %-10s %12d %12s %6d %8d", name, time(nanosPerOp), time(stddev),
+					operations, bytesPerOp < 0 ? "n/a" : String.format("%.0f", bytesPerOp), gcCount, gcMillis);
+		}
+	}
+
+	public static final String HEADER = String.format("%-64s %14s    %-10s %12s %12s %6s %8s", "benchmark", "time/op",
+			"(stddev)", "ops", "B/op", "gcs", "gc ms");
+
+	public Harness(long warmupMillis, long measureMillis) {
+		this.warmupNanos = warmupMillis * 1_000_000;
+		this.measureNanos = measureMillis * 1_000_000;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+	public Result measure(String name, Op op) throws Exception {
+		int[] counter = new int[1];
+		int batch = 1;
+		// Warm up, growing the batch until one takes long enough to time reliably
+		long warmupEnd = System.nanoTime() + warmupNanos;
+		do {
+			long took = runBatch(op, counter, batch);
+			if (took < TARGET_BATCH_NANOS && batch < (1 << 30)) {
+				batch *= 2;
+			}
+		} while (System.nanoTime() < warmupEnd);
+
+		List<Double> samples = new ArrayList<>();
+		long gcCountBefore = gcCount();
+		long gcTimeBefore = gcMillis();
+		long allocatedBefore = allocated();
+		long operations = 0;
+		long elapsed = 0;
+		while (elapsed < measureNanos || samples.size() < 3) {
+			long took = runBatch(op, counter, batch);
+			samples.add((double) took / batch);
+			operations += batch;
+			elapsed += took;
+		}
+		long allocatedAfter = allocated();
+		double mean = elapsed / (double) operations;
+		double variance = 0;
+		for (double sample : samples) {
+			variance += (sample - mean) * (sample - mean);
+		}
+		double bytes = allocatedBefore < 0 ? -1 : (double) (allocatedAfter - allocatedBefore) / operations;
+		return new Result(name, mean, Math.sqrt(variance / samples.size()), operations, bytes,
+				gcCount() - gcCountBefore, gcMillis() - gcTimeBefore);
+	}
+
+	private static long runBatch(Op op, int[] counter, int batch) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < batch; i++) {
+			sink = op.run(counter[0]++);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private long allocated() {
+		return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+	}
+
+	private static long gcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		return total;
+	}
+
+	private static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+
+	static String time(double nanos) {
+		if (nanos < 1_000) {
+			return String.format("%.1f ns", nanos);
+		}
+		if (nanos < 1_000_000) {
+			return String.format("%.2f us", nanos / 1e3);
+		}
+		if (nanos < 1_000_000_000) {
+			return String.format("%.2f ms", nanos / 1e6);
+		}
+		return String.format("%.2f s", nanos / 1e9);
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Benchmarks the store, library and persistence hot paths with Harness.
+ * - Every benchmark runs once per catalog size, and the library benchmarks
+ *   once per library size, so regressions that only show at scale stand out.
+ * - Each line reports time per operation, bytes allocated per operation and
+ *   the collections seen while measuring.
+ * - Usage: java bench.HotPathBenchmarks [catalog=1000,100000] [library=100,10000]
+ *   [filter=regex] [warmup=ms] [time=ms] [iterations=PBKDF2 iterations]
+ *   Sizes up to catalog=10000000 work given a large enough heap (-Xmx).
+ * - The same benchmarks run under JMH from the jmh build module.
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+import model.LibraryModel;
+import model.Pbkdf2Hasher;
+import model.ShuffleIterator;
+import model.SmartShuffle;
+import model.Song;
+import model.SortedSongIndex;
+import model.User;
+import model.UserManager;
+import store.CatalogSnapshot;
+import store.MusicStore;
+import store.SearchIndex;
+
+public class HotPathBenchmarks {
+	static final int PAGE_SIZE = 50;
+	private static final int SHUFFLE_PREFIX = 20; // Songs drawn per shuffle, as a listener would
+	private static final int MAX_LOADED_CATALOG = 1_000_000; // Larger catalogs skip the text load benchmarks
+
+	private Harness harness;
+	private Pattern filter;
+	private int iterations;
+
+	public HotPathBenchmarks(Harness harness, Pattern filter, int iterations) {
+		this.harness = harness;
+		this.filter = filter;
+		this.iterations = iterations;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = SyntheticCatalog.options(args, 0);
+		int[] catalogs = sizes(options.getOrDefault("catalog", "1000,100000"));
+		int[] libraries = sizes(options.getOrDefault("library", "100,10000"));
+		Harness harness = new Harness(Long.parseLong(options.getOrDefault("warmup", "500")),
+				Long.parseLong(options.getOrDefault("time", "1000")));
+		HotPathBenchmarks benchmarks = new HotPathBenchmarks(harness,
+				Pattern.compile(options.getOrDefault("filter", ".*")),
+				Integer.parseInt(options.getOrDefault("iterations", "10000")));
+
+		System.out.println(Harness.HEADER);
+		for (int catalog : catalogs) {
+			SyntheticCatalog generated = SyntheticCatalog.ofSongs(catalog);
+			MusicStore store = benchmarks.storeBenchmarks(generated);
+			for (int library : libraries) {
+				if (library <= store.getSongCount()) {
+					benchmarks.libraryBenchmarks(generated, store, library);
+				}
+			}
+		}
+	}
+
+	private static int[] sizes(String list) {
+		String[] parts = list.split(",");
+		int[] sizes = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			sizes[i] = Integer.parseInt(parts[i].trim());
+		}
+		return sizes;
+	}
+
+	private void run(String name, Harness.Op op) throws Exception {
+		if (filter.matcher(name).find()) {
+			System.out.println(harness.measure(name, op));
+		}
+	}
+
+	// Catalog loading and lookups; returns the store for the library benchmarks
+	private MusicStore storeBenchmarks(SyntheticCatalog catalog) throws Exception {
+		int songs = catalog.getSongCount();
+		String size = "[catalog=" + songs + "]";
+		MusicStore store = catalog.build();
+		Path directory = Files.createTempDirectory("bench-catalog");
+		if (songs <= MAX_LOADED_CATALOG && (filter.matcher("store.loadText").find() || filter.matcher("store.loadSnapshot").find())) {
+			catalog.write(directory);
+			Path snapshot = directory.resolve(CatalogSnapshot.DEFAULT_FILE);
+			CatalogSnapshot.write(store, snapshot, System.currentTimeMillis());
+			run("store.loadText" + size, i -> new MusicStore(directory));
+			run("store.loadSnapshot" + size, i -> CatalogSnapshot.read(snapshot));
+		}
+		int albums = catalog.getAlbumCount();
+		run("store.getAlbum" + size, i -> store.getAlbum(catalog.albumTitle((int) (i * 7919L % albums))));
+		run("store.getSongsByTitle" + size, i -> store.getSongsByTitle(catalog.songTitle(i % songs)));
+		run("store.searchSongs" + size, i -> store.searchSongs(SyntheticCatalog.WORDS[i % SyntheticCatalog.WORDS.length],
+				EnumSet.allOf(SearchIndex.Field.class), null, LibraryModel.MAX_SEARCH_RESULTS));
+		run("store.searchFuzzy" + size, i -> store.searchSongs(typo(i), EnumSet.allOf(SearchIndex.Field.class), null,
+				LibraryModel.MAX_SEARCH_RESULTS));
+		return store;
+	}
+
+	private void libraryBenchmarks(SyntheticCatalog catalog, MusicStore store, int size) throws Exception {
+		String params = "[catalog=" + store.getSongCount() + ",library=" + size + "]";
+		LibraryModel library = library(store, size);
+		List<Song> songs = library.getSongs();
+		SplittableRandom random = new SplittableRandom(42);
+
+		// Adds a catalog song, then takes it out again so the library size holds
+		run("library.addSongFromStore" + params, i -> {
+			String title = catalog.songTitle(random.nextInt(store.getSongCount()));
+			if (library.addSongFromStore(title)) {
+				library.removeSong(store.getSongsByTitle(title).get(0));
+				return true;
+			}
+			return false;
+		});
+		run("library.playSong" + params, i -> {
+			library.playSong(songs.get(random.nextInt(songs.size())));
+			return null;
+		});
+		run("library.getFrequentPlays" + params, i -> library.getFrequentPlays());
+		run("library.getGenrePlaylists" + params, i -> library.getGenrePlaylists());
+		run("library.sortedByTitle" + params, i -> library.getSongsSortedByTitle());
+		run("library.sortedByRating" + params, i -> library.getSongsSortedByRating());
+		run("library.pageByArtist" + params,
+				i -> library.getSongsPage(SortedSongIndex.Order.ARTIST, null, PAGE_SIZE));
+		run("library.searchSongs" + params,
+				i -> library.searchSongs(SyntheticCatalog.WORDS[i % SyntheticCatalog.WORDS.length]));
+		run("library.searchFuzzy" + params, i -> library.searchSongs(typo(i)));
+		run("library.searchSongsByArtist" + params,
+				i -> library.searchSongsByArtist(catalog.artistName(random.nextInt(catalog.getArtistCount()))));
+		run("library.searchArtist" + params, i -> library.searchSongs(
+				catalog.artistName(random.nextInt(catalog.getArtistCount())), SearchIndex.Field.ARTIST));
+		run("shuffle.iterator" + params, i -> drain(new ShuffleIterator(songs, random)));
+		run("shuffle.smart" + params, i -> drain(new SmartShuffle(songs, SmartShuffle.UNIFORM, random)));
+		userBenchmarks(store, size, params);
+	}
+
+	// Journal durability and login cost with a user owning a library of the given size
+	private void userBenchmarks(MusicStore store, int size, String params) throws Exception {
+		File directory = Files.createTempDirectory("bench-users").toFile();
+		UserManager manager = new UserManager(store, new File(directory, "users.dat"),
+				new File(directory, "users.journal"));
+		manager.setPasswordHasher(new Pbkdf2Hasher(iterations));
+		manager.createUser("bench", "password", store);
+		User user = manager.getUser("bench");
+		LibraryModel library = user.getLibrary();
+		for (int id = 0; id < size; id++) {
+			library.addSong(store.getSongById(stride(id, size, store.getSongCount())));
+		}
+		manager.saveUsers();
+		List<Song> songs = library.getSongs();
+		SplittableRandom random = new SplittableRandom(7);
+		// One journaled change per save, as an interactive session produces them
+		run("users.playAndSave" + params, i -> {
+			library.playSong(songs.get(random.nextInt(songs.size())));
+			manager.saveUsers();
+			return null;
+		});
+		run("users.authenticate" + params + "[iterations=" + iterations + "]",
+				i -> manager.authenticate("bench", "password"));
+		manager.close();
+	}
+
+	// A library of size songs spread evenly across the catalog, with some play history
+	static LibraryModel library(MusicStore store, int size) {
+		LibraryModel library = new LibraryModel(store);
+		for (int i = 0; i < size; i++) {
+			library.addSong(store.getSongById(stride(i, size, store.getSongCount())));
+		}
+		List<Song> songs = library.getSongs();
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < size * 4; i++) {
+			Song song = songs.get(random.nextInt(songs.size()));
+			library.playSong(song);
+			if (i % 3 == 0) {
+				library.rateSong(song, 1 + random.nextInt(5));
+			}
+		}
+		return library;
+	}
+
+	// A catalog word with its last letter mistyped, so search falls back to fuzzy matching
+	static String typo(int i) {
+		String word = SyntheticCatalog.WORDS[i % SyntheticCatalog.WORDS.length];
+		return word.length() < 4 ? word + "x" : word.substring(0, word.length() - 1) + "x";
+	}
+
+	static int stride(int i, int size, int catalog) {
+		return (int) ((long) i * catalog / size);
+	}
+
+	static Object drain(Iterator<Song> shuffle) {
+		Song last = null;
+		for (int i = 0; i < SHUFFLE_PREFIX && shuffle.hasNext(); i++) {
+			last = shuffle.next();
+		}
+		return last;
+	}
+}
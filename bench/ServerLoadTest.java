@@ -0,0 +1,310 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Load test for LibraryServer: holds thousands of keep-alive connections
+ * open at once and drives requests over all of them.
+ * - "serve" starts a server over a synthetic catalog and a fresh user
+ *   database. Run it in its own JVM, since every connection costs a file
+ *   descriptor on each side.
+ * - "run" signs up accounts that each add a few albums. It then opens every
+ *   connection before sending anything, so they are all concurrent. Each
+ *   connection sends its requests back to back: mostly library searches,
+ *   with every fourth a play.
+ * - The client is a single selector thread, so it can hold 10k sockets
+ *   without 10k threads. It reports connect time, throughput, latency
+ *   percentiles and failures.
+ * - Usage: java bench.ServerLoadTest serve [port=8081] [songs=100000] [iterations=1000]
+ *          java bench.ServerLoadTest run [host=127.0.0.1] [port=8081] [songs=100000]
+ *          [connections=10000] [requests=5] [users=200] [seconds=300]
+ *   songs must match between the two so plays name real titles.
+ */
+package bench;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import metrics.Histogram;
+import model.Album;
+import model.Pbkdf2Hasher;
+import model.UserManager;
+import server.JsonReader;
+import server.LibraryServer;
+import service.LibraryService;
+import store.MusicStore;
+
+public class ServerLoadTest {
+	private static final int CONNECT_WAVE = 1000; // Connects in flight at once, to stay under the accept backlog
+	private static final int ALBUMS_PER_USER = 3;
+
+	private String host;
+	private int port;
+	private SyntheticCatalog catalog;
+	private int requests;
+	private String[] tokens;
+	private int[][] libraries; // Album numbers each user added
+
+	// One client connection and its request in flight
+	private static class Connection {
+		SocketChannel channel;
+		int user;
+		int sent;
+		long sentAt;
+		ByteBuffer out;
+		byte[] in = new byte[8192];
+		int length;
+	}
+
+	public ServerLoadTest(String host, int port, SyntheticCatalog catalog, int requests) {
+		this.host = host;
+		this.port = port;
+		this.catalog = catalog;
+		this.requests = requests;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0 || !(args[0].equals("serve") || args[0].equals("run"))) {
+			System.err.println("Usage: java bench.ServerLoadTest serve|run [key=value ...]");
+			System.exit(2);
+		}
+		Map<String, String> options = SyntheticCatalog.options(args, 1);
+		int port = Integer.parseInt(options.getOrDefault("port", "8081"));
+		SyntheticCatalog catalog = SyntheticCatalog.ofSongs(Integer.parseInt(options.getOrDefault("songs", "100000")));
+		if (args[0].equals("serve")) {
+			serve(catalog, port, Integer.parseInt(options.getOrDefault("iterations", "1000")));
+			return;
+		}
+		ServerLoadTest test = new ServerLoadTest(options.getOrDefault("host", "127.0.0.1"), port, catalog,
+				Integer.parseInt(options.getOrDefault("requests", "5")));
+		test.signUp(Integer.parseInt(options.getOrDefault("users", "200")));
+		test.run(Integer.parseInt(options.getOrDefault("connections", "10000")),
+				Long.parseLong(options.getOrDefault("seconds", "300")) * 1_000_000_000L);
+	}
+
+	private static void serve(SyntheticCatalog catalog, int port, int iterations) throws IOException {
+		System.setProperty("sun.net.httpserver.maxIdleConnections", "20000");
+		MusicStore store = catalog.build();
+		java.io.File directory = Files.createTempDirectory("load-users").toFile();
+		UserManager users = new UserManager(store, new java.io.File(directory, "users.dat"),
+				new java.io.File(directory, "users.journal"));
+		users.setPasswordHasher(new Pbkdf2Hasher(iterations)); // Sign-ups aren't what's being measured
+		LibraryServer server = new LibraryServer(new LibraryService(users, store), new InetSocketAddress(port));
+		server.start();
+		System.out.printf("Serving %d songs on port %d (%s)%n", store.getSongCount(), server.getPort(),
+				server.usesVirtualThreads() ? "virtual threads" : LibraryServer.POOL_THREADS + " threads");
+	}
+
+	// Accounts (over ordinary HTTP) whose libraries the load requests will use
+	private void signUp(int users) throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		String base = "http://" + host + ":" + port + "/api/";
+		String run = Long.toString(System.currentTimeMillis(), 36); // Fresh names on a reused server
+		tokens = new String[users];
+		libraries = new int[users][ALBUMS_PER_USER];
+		for (int u = 0; u < users; u++) {
+			HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "signup"))
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"username\":\"load-" + run + "-" + u + "\",\"password\":\"pw\"}"))
+					.build(), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IOException("Sign-up failed: " + response.body());
+			}
+			tokens[u] = JsonReader.parseObject(response.body()).get("token");
+			for (int a = 0; a < ALBUMS_PER_USER; a++) {
+				libraries[u][a] = (u * 7919 + a * 104729) % catalog.getAlbumCount();
+				client.send(HttpRequest.newBuilder(URI.create(base + "albums"))
+						.header("Authorization", "Bearer " + tokens[u])
+						.POST(HttpRequest.BodyPublishers.ofString(
+								"{\"title\":\"" + catalog.albumTitle(libraries[u][a]) + "\"}"))
+						.build(), HttpResponse.BodyHandlers.discarding());
+			}
+		}
+		System.out.printf("%d accounts signed up with %d albums each%n", users, ALBUMS_PER_USER);
+	}
+
+	public void run(int connectionCount, long timeoutNanos) throws IOException {
+		Histogram latency = new Histogram();
+		long deadline = System.nanoTime() + timeoutNanos;
+		int failedConnects = 0;
+		int failedRequests = 0;
+		int completed = 0;
+		List<Connection> connections = new ArrayList<>();
+		try (Selector selector = Selector.open()) {
+			// Phase 1: open every connection, a wave at a time
+			long connectStart = System.nanoTime();
+			int opened = 0;
+			int pending = 0;
+			while ((opened < connectionCount || pending > 0) && System.nanoTime() < deadline) {
+				while (opened < connectionCount && pending < CONNECT_WAVE) {
+					Connection connection = new Connection();
+					connection.user = opened % tokens.length;
+					connection.channel = SocketChannel.open();
+					connection.channel.configureBlocking(false);
+					connection.channel.connect(new InetSocketAddress(host, port));
+					connection.channel.register(selector, SelectionKey.OP_CONNECT, connection);
+					opened++;
+					pending++;
+				}
+				selector.select(100);
+				for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext();) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Connection connection = (Connection) key.attachment();
+					pending--;
+					try {
+						connection.channel.finishConnect();
+						key.interestOps(0);
+						connections.add(connection);
+					} catch (IOException e) {
+						failedConnects++;
+						key.cancel();
+						connection.channel.close();
+					}
+				}
+			}
+			long connectNanos = System.nanoTime() - connectStart;
+			System.out.printf("%d of %d connections open at once after %.2f s (%d failed)%n", connections.size(),
+					connectionCount, connectNanos / 1e9, failedConnects);
+
+			// Phase 2: every connection sends its requests back to back
+			long started = System.nanoTime();
+			for (Connection connection : connections) {
+				send(connection, selector);
+			}
+			int active = connections.size();
+			while (active > 0 && System.nanoTime() < deadline) {
+				selector.select(100);
+				for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext();) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Connection connection = (Connection) key.attachment();
+					try {
+						if (key.isWritable()) {
+							connection.channel.write(connection.out);
+							if (!connection.out.hasRemaining()) {
+								key.interestOps(SelectionKey.OP_READ);
+							}
+							continue;
+						}
+						int status = read(connection);
+						if (status == 0) {
+							continue; // Response not complete yet
+						}
+						latency.recordSince(connection.sentAt);
+						completed++;
+						if (status != 200) {
+							failedRequests++;
+						}
+						if (connection.sent < requests) {
+							send(connection, selector);
+						} else {
+							key.interestOps(0); // Done, but held open until everyone finishes
+							active--;
+						}
+					} catch (IOException e) {
+						failedRequests += requests - connection.sent + 1;
+						key.cancel();
+						connection.channel.close();
+						active--;
+					}
+				}
+			}
+			long elapsed = System.nanoTime() - started;
+			Histogram.Snapshot snapshot = latency.snapshot();
+			System.out.printf("%d requests in %.2f s: %.0f req/s, %d failed%s%n", completed, elapsed / 1e9,
+					completed * 1e9 / elapsed, failedRequests, active > 0 ? ", " + active + " connections timed out" : "");
+			System.out.printf("latency p50 %s, p90 %s, p99 %s, max %s%n",
+					Harness.time(snapshot.getValueAtPercentile(0.5)), Harness.time(snapshot.getValueAtPercentile(0.9)),
+					Harness.time(snapshot.getValueAtPercentile(0.99)), Harness.time(snapshot.getMax()));
+		} finally {
+			for (Connection connection : connections) {
+				connection.channel.close();
+			}
+		}
+	}
+
+	private void send(Connection connection, Selector selector) throws IOException {
+		int n = connection.sent++;
+		String token = tokens[connection.user];
+		String request;
+		if (n % 4 == 3) {
+			Album album = catalog.album(libraries[connection.user][n % ALBUMS_PER_USER]);
+			String body = "{\"title\":\"" + album.getSongs().get(0).getTitle() + "\"}";
+			request = "POST /api/play HTTP/1.1\r\nHost: " + host + "\r\nAuthorization: Bearer " + token
+					+ "\r\nContent-Type: application/json\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+		} else {
+			String word = SyntheticCatalog.WORDS[(connection.user + n) % SyntheticCatalog.WORDS.length];
+			request = "GET /api/search?q=" + word + "&field=any HTTP/1.1\r\nHost: " + host
+					+ "\r\nAuthorization: Bearer " + token + "\r\n\r\n";
+		}
+		connection.out = ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8));
+		connection.length = 0;
+		connection.sentAt = System.nanoTime();
+		connection.channel.write(connection.out);
+		connection.channel.register(selector,
+				connection.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ, connection);
+	}
+
+	// Status code once the whole response has arrived, 0 until then
+	private static int read(Connection connection) throws IOException {
+		if (connection.length == connection.in.length) {
+			connection.in = Arrays.copyOf(connection.in, connection.in.length * 2);
+		}
+		int read = connection.channel.read(ByteBuffer.wrap(connection.in, connection.length,
+				connection.in.length - connection.length));
+		if (read < 0) {
+			throw new IOException("Server closed the connection");
+		}
+		connection.length += read;
+		return complete(connection.in, connection.length);
+	}
+
+	static int complete(byte[] in, int length) {
+		String text = new String(in, 0, length, StandardCharsets.ISO_8859_1);
+		int headerEnd = text.indexOf("\r\n\r\n");
+		if (headerEnd < 0) {
+			return 0;
+		}
+		int status = Integer.parseInt(text.substring(9, 12));
+		String headers = text.substring(0, headerEnd).toLowerCase();
+		int body = headerEnd + 4;
+		int lengthAt = headers.indexOf("content-length:");
+		if (lengthAt >= 0) {
+			int end = headers.indexOf("\r\n", lengthAt);
+			int contentLength = Integer.parseInt(
+					headers.substring(lengthAt + "content-length:".length(), end < 0 ? headers.length() : end).trim());
+			return length >= body + contentLength ? status : 0;
+		}
+		// Chunked: walk chunk sizes until the zero-length one
+		int pos = body;
+		while (true) {
+			int lineEnd = text.indexOf("\r\n", pos);
+			if (lineEnd < 0) {
+				return 0;
+			}
+			int size = Integer.parseInt(text.substring(pos, lineEnd).trim(), 16);
+			if (size == 0) {
+				return length >= lineEnd + 4 ? status : 0;
+			}
+			pos = lineEnd + 2 + size + 2;
+			if (pos > length) {
+				return 0;
+			}
+		}
+	}
+}
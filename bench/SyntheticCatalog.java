@@ -0,0 +1,177 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Generates catalogs of any size for benchmarks and workload replays.
+ * - Album, song, artist and genre counts are configurable. Songs are split
+ *   as evenly as possible across albums.
+ * - Every artist gets at least one album. The rest go to artists by Zipfian
+ *   popularity, as do genres, so a few artists and genres dominate the way
+ *   they do in a real catalog.
+ * - Song titles mix words from a small vocabulary, so searches match a
+ *   realistic fraction of the catalog. A number keeps each title unique.
+ * - The same settings and seed always give the same catalog. Albums are
+ *   generated on demand, so huge catalogs can be written without holding them.
+ * - Usage: java bench.SyntheticCatalog directory [albums=N] [songs=N] [artists=N]
+ *   [genres=N] [skew=1.0] [seed=N]
+ */
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import model.Album;
+import model.Song;
+import store.MusicStore;
+
+public class SyntheticCatalog {
+	public static final int SONGS_PER_ALBUM = 10; // Defaults for ofSongs
+	public static final int ALBUMS_PER_ARTIST = 5;
+	public static final int GENRES = 16;
+	public static final double DEFAULT_SKEW = 1.0;
+	public static final String[] WORDS = { "love", "night", "fire", "heart", "river", "dream", "light", "rain",
+			"gold", "shadow", "summer", "blue", "road", "home", "wild", "ghost", "star", "ocean", "city", "stone",
+			"heaven", "silver", "storm", "echo", "dance", "winter", "morning", "sky", "electric", "velvet", "broken",
+			"paper" };
+
+	private int albums;
+	private int songs;
+	private int artists;
+	private int genres;
+	private long seed;
+	private Zipf artistPopularity;
+	private Zipf genrePopularity;
+
+	public SyntheticCatalog(int albums, int songs, int artists, int genres, double skew, long seed) {
+		if (albums < 1 || songs < albums || artists < 1 || artists > albums || genres < 1) {
+			throw new IllegalArgumentException("Need 1 <= artists <= albums <= songs and genres >= 1");
+		}
+		this.albums = albums;
+		this.songs = songs;
+		this.artists = artists;
+		this.genres = genres;
+		this.seed = seed;
+		this.artistPopularity = new Zipf(artists, skew);
+		this.genrePopularity = new Zipf(genres, skew);
+	}
+
+	// About the given number of songs in default-sized albums
+	public static SyntheticCatalog ofSongs(int songs) {
+		int albums = Math.max(1, songs / SONGS_PER_ALBUM);
+		return new SyntheticCatalog(albums, Math.max(songs, albums), Math.max(1, albums / ALBUMS_PER_ARTIST),
+				Math.min(GENRES, albums), DEFAULT_SKEW, 42);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: java bench.SyntheticCatalog directory [albums=N] [songs=N] [artists=N]"
+					+ " [genres=N] [skew=1.0] [seed=N]");
+			System.exit(2);
+		}
+		Map<String, String> options = options(args, 1);
+		int songs = Integer.parseInt(options.getOrDefault("songs", "100000"));
+		int albums = Integer.parseInt(options.getOrDefault("albums", String.valueOf(Math.max(1, songs / SONGS_PER_ALBUM))));
+		SyntheticCatalog catalog = new SyntheticCatalog(albums, songs,
+				Integer.parseInt(options.getOrDefault("artists", String.valueOf(Math.max(1, albums / ALBUMS_PER_ARTIST)))),
+				Integer.parseInt(options.getOrDefault("genres", String.valueOf(GENRES))),
+				Double.parseDouble(options.getOrDefault("skew", String.valueOf(DEFAULT_SKEW))),
+				Long.parseLong(options.getOrDefault("seed", "42")));
+		long started = System.nanoTime();
+		catalog.write(Path.of(args[0]));
+		System.out.printf("%d albums, %d songs, %d artists, %d genres written to %s in %d ms%n", albums, songs,
+				catalog.artists, catalog.genres, args[0], (System.nanoTime() - started) / 1_000_000);
+	}
+
+	// key=value arguments from position first on
+	static Map<String, String> options(String[] args, int first) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = first; i < args.length; i++) {
+			int split = args[i].indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Expected key=value, got " + args[i]);
+			}
+			options.put(args[i].substring(0, split), args[i].substring(split + 1).replace("_", ""));
+		}
+		return options;
+	}
+
+	// A store holding the whole catalog, built in memory
+	public MusicStore build() throws IOException {
+		MusicStore store = new MusicStore(Files.createTempDirectory("catalog")); // Empty catalog
+		for (int a = 0; a < albums; a++) {
+			store.addAlbum(album(a));
+		}
+		return store;
+	}
+
+	// Writes albums.txt and one file per album into directory
+	public void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		try (BufferedWriter index = Files.newBufferedWriter(directory.resolve("albums.txt"),
+				StandardCharsets.UTF_8)) {
+			for (int a = 0; a < albums; a++) {
+				Album album = album(a);
+				index.write(album.getTitle() + "," + album.getArtist());
+				index.newLine();
+				Path file = directory.resolve(album.getTitle() + "_" + album.getArtist() + ".txt");
+				try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+					out.write(album.getTitle() + "," + album.getArtist() + "," + album.getGenre() + ","
+							+ album.getYear());
+					out.newLine();
+					for (Song song : album.getSongs()) {
+						out.write(song.getTitle());
+						out.newLine();
+					}
+				}
+			}
+		}
+	}
+
+	public Album album(int a) {
+		SplittableRandom random = new SplittableRandom(seed * 31 + a);
+		String artist = artistName(a < artists ? a : artistPopularity.sample(random));
+		Album album = new Album(albumTitle(a), artist, "Genre " + genrePopularity.sample(random),
+				1960 + random.nextInt(65));
+		int base = songs / albums;
+		int extra = songs % albums; // The first albums take one more song each
+		int first = a * base + Math.min(a, extra);
+		for (int s = first; s < first + base + (a < extra ? 1 : 0); s++) {
+			album.addSong(new Song(songTitle(s), artist, album.getTitle()));
+		}
+		return album;
+	}
+
+	public String albumTitle(int a) {
+		return "Album " + a;
+	}
+
+	public String artistName(int artist) {
+		return "Artist " + artist;
+	}
+
+	public String songTitle(int song) {
+		return WORDS[song % WORDS.length] + " " + WORDS[(song / WORDS.length) % WORDS.length] + " " + song;
+	}
+
+	public int getAlbumCount() {
+		return albums;
+	}
+
+	public int getSongCount() {
+		return songs;
+	}
+
+	public int getArtistCount() {
+		return artists;
+	}
+
+	public int getGenreCount() {
+		return genres;
+	}
+}
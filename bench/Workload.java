@@ -0,0 +1,184 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Generates user workloads against a catalog and stores them as traces that
+ * WorkloadReplay plays back.
+ * - The workload is a series of sessions. Each starts with a sign-up (for a
+ *   new user) or a login (for a returning one) and ends with a logout.
+ * - Returning users are picked by Zipfian activity. Songs are added by
+ *   Zipfian popularity, so a few hits end up in most libraries.
+ * - Between login and logout, adds, plays, ratings and searches follow a
+ *   configurable mix. Plays and ratings pick songs the user has added.
+ * - A trace has one tab-separated operation per line: type, user, argument
+ *   and a number (a rating, or 0).
+ * - Usage: java bench.Workload catalogDirectory traceFile [operations=N]
+ *   [newUsers=0.05] [sessionLength=12] [mix=add,play,rate,search] [skew=1.0] [seed=N]
+ */
+package bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import store.CatalogSnapshot;
+import store.MusicStore;
+
+public class Workload {
+	public static final String DEFAULT_MIX = "20,50,10,20"; // Adds, plays, ratings, searches
+	private static final long SCATTER = 1_000_000_007; // Prime; maps popularity ranks onto song ids
+
+	public enum Type {
+		SIGNUP, LOGIN, ADD, PLAY, RATE, SEARCH, LOGOUT
+	}
+
+	public static final class Op {
+		public final Type type;
+		public final String user;
+		public final String argument; // Password, song title or search query
+		public final int value; // Rating for RATE
+
+		public Op(Type type, String user, String argument, int value) {
+			this.type = type;
+			this.user = user;
+			this.argument = argument;
+			this.value = value;
+		}
+	}
+
+	private MusicStore store;
+	private double newUsers;
+	private int sessionLength;
+	private int[] mix; // Cumulative weights of ADD, PLAY, RATE, SEARCH
+	private Zipf songPopularity;
+	private double skew;
+	private SplittableRandom random;
+
+	public Workload(MusicStore store, double newUsers, int sessionLength, String mix, double skew, long seed) {
+		if (store.getSongCount() == 0) {
+			throw new IllegalArgumentException("The catalog has no songs");
+		}
+		this.store = store;
+		this.newUsers = newUsers;
+		this.sessionLength = sessionLength;
+		this.mix = new int[4];
+		String[] weights = mix.split(",");
+		for (int i = 0, total = 0; i < this.mix.length; i++) {
+			total += Integer.parseInt(weights[i].trim());
+			this.mix[i] = total;
+		}
+		this.songPopularity = new Zipf(store.getSongCount(), skew);
+		this.skew = skew;
+		this.random = new SplittableRandom(seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java bench.Workload catalogDirectory traceFile [operations=N] [newUsers=0.05]"
+					+ " [sessionLength=12] [mix=add,play,rate,search] [skew=1.0] [seed=N]");
+			System.exit(2);
+		}
+		Map<String, String> options = SyntheticCatalog.options(args, 2);
+		Path catalog = Path.of(args[0]);
+		MusicStore store = MusicStore.open(catalog, catalog.resolve(CatalogSnapshot.DEFAULT_FILE));
+		Workload workload = new Workload(store, Double.parseDouble(options.getOrDefault("newUsers", "0.05")),
+				Integer.parseInt(options.getOrDefault("sessionLength", "12")),
+				options.getOrDefault("mix", DEFAULT_MIX),
+				Double.parseDouble(options.getOrDefault("skew", "1.0")),
+				Long.parseLong(options.getOrDefault("seed", "42")));
+		List<Op> ops = workload.generate(Integer.parseInt(options.getOrDefault("operations", "100000")));
+		write(Path.of(args[1]), ops);
+		System.out.printf("%d operations for %d songs written to %s%n", ops.size(), store.getSongCount(), args[1]);
+	}
+
+	// At least the given number of operations, always ending with whole sessions
+	public List<Op> generate(int operations) {
+		List<Op> ops = new ArrayList<>(operations + sessionLength * 2);
+		List<int[]> libraries = new ArrayList<>(); // Song ids each user has added; slot 0 is the count
+		while (ops.size() < operations) {
+			int user;
+			if (libraries.isEmpty() || random.nextDouble() < newUsers) {
+				user = libraries.size();
+				libraries.add(new int[8]);
+				ops.add(new Op(Type.SIGNUP, userName(user), password(user), 0));
+			} else {
+				// Early sign-ups are the most active
+				user = new Zipf(libraries.size(), skew).sample(random);
+				ops.add(new Op(Type.LOGIN, userName(user), password(user), 0));
+			}
+			int length = 1 + random.nextInt(sessionLength * 2);
+			for (int i = 0; i < length; i++) {
+				ops.add(next(user, libraries));
+			}
+			ops.add(new Op(Type.LOGOUT, userName(user), "", 0));
+		}
+		return ops;
+	}
+
+	private Op next(int user, List<int[]> libraries) {
+		int[] library = libraries.get(user);
+		int pick = random.nextInt(mix[mix.length - 1]);
+		if (pick < mix[0] || library[0] == 0) {
+			int id = popularSong();
+			if (library[0] + 1 == library.length) {
+				library = Arrays.copyOf(library, library.length * 2);
+				libraries.set(user, library);
+			}
+			library[++library[0]] = id;
+			return new Op(Type.ADD, userName(user), store.getSongById(id).getTitle(), 0);
+		}
+		String owned = store.getSongById(library[1 + random.nextInt(library[0])]).getTitle();
+		if (pick < mix[1]) {
+			return new Op(Type.PLAY, userName(user), owned, 0);
+		}
+		if (pick < mix[2]) {
+			return new Op(Type.RATE, userName(user), owned, 1 + random.nextInt(5));
+		}
+		String[] words = store.getSongById(popularSong()).getTitle().split(" ");
+		return new Op(Type.SEARCH, userName(user), words[random.nextInt(words.length)], 0);
+	}
+
+	private int popularSong() {
+		return (int) (songPopularity.sample(random) * SCATTER % store.getSongCount());
+	}
+
+	private static String userName(int user) {
+		return "user" + user;
+	}
+
+	private static String password(int user) {
+		return "secret-" + user;
+	}
+
+	public static void write(Path file, List<Op> ops) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (Op op : ops) {
+				out.write(op.type + "\t" + op.user + "\t" + op.argument + "\t" + op.value);
+				out.newLine();
+			}
+		}
+	}
+
+	public static List<Op> read(Path file) throws IOException {
+		List<Op> ops = new ArrayList<>();
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				if (fields.length != 4) {
+					throw new IOException(file + ": malformed line: " + line);
+				}
+				ops.add(new Op(Type.valueOf(fields[0]), fields[1], fields[2], Integer.parseInt(fields[3])));
+			}
+		}
+		return ops;
+	}
+}
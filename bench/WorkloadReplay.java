@@ -0,0 +1,238 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Replays a Workload trace end to end against a catalog and a fresh user
+ * database, then reports throughput and per-operation latency.
+ * - Operations go through UserManager and LibraryModel as the view would
+ *   drive them. Sessions use login tokens, and every logout waits for
+ *   saveUsers.
+ * - With several threads, each user's operations stay on one thread in
+ *   trace order. Different users run concurrently.
+ * - Latency is reported as mean, median, 90th and 99th percentile and max.
+ *   Failures are counted, for example a play whose song isn't in the library.
+ *   The application's own metrics (MetricsRegistry) are printed afterwards.
+ * - Usage: java bench.WorkloadReplay catalogDirectory traceFile [threads=N]
+ *   [iterations=PBKDF2 iterations]
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import metrics.MetricsRegistry;
+import model.LibraryModel;
+import model.Pbkdf2Hasher;
+import model.Song;
+import model.User;
+import model.UserManager;
+import store.CatalogSnapshot;
+import store.MusicStore;
+
+public class WorkloadReplay {
+	private static final int TYPES = Workload.Type.values().length;
+
+	private MusicStore store;
+	private UserManager manager;
+
+	public WorkloadReplay(MusicStore store, UserManager manager) {
+		this.store = store;
+		this.manager = manager;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: java bench.WorkloadReplay catalogDirectory traceFile [threads=N]"
+					+ " [iterations=PBKDF2 iterations]");
+			System.exit(2);
+		}
+		Map<String, String> options = SyntheticCatalog.options(args, 2);
+		int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+		int iterations = Integer.parseInt(options.getOrDefault("iterations", "10000"));
+
+		Path catalog = Path.of(args[0]);
+		long started = System.nanoTime();
+		MusicStore store = MusicStore.open(catalog, catalog.resolve(CatalogSnapshot.DEFAULT_FILE));
+		System.out.printf("Catalog of %d songs opened in %d ms%n", store.getSongCount(),
+				(System.nanoTime() - started) / 1_000_000);
+		List<Workload.Op> ops = Workload.read(Path.of(args[1]));
+
+		File directory = Files.createTempDirectory("replay-users").toFile();
+		UserManager manager = new UserManager(store, new File(directory, "users.dat"),
+				new File(directory, "users.journal"));
+		manager.setPasswordHasher(new Pbkdf2Hasher(iterations));
+		Stats stats = new WorkloadReplay(store, manager).replay(ops, threads);
+		System.out.printf("%d operations, %d threads, %d PBKDF2 iterations%n", ops.size(), threads, iterations);
+		System.out.print(stats);
+		System.out.println(manager.getHashMetrics());
+		System.out.print(MetricsRegistry.getDefault().toText());
+		manager.close();
+	}
+
+	// Latencies of one run, by operation type
+	public static class Stats {
+		private long[][] latencies = new long[TYPES][];
+		private int[] counts = new int[TYPES];
+		private int[] failures = new int[TYPES];
+		private long elapsedNanos;
+
+		Stats() {
+			for (int t = 0; t < TYPES; t++) {
+				latencies[t] = new long[64];
+			}
+		}
+
+		void record(Workload.Type type, long nanos, boolean ok) {
+			int t = type.ordinal();
+			if (counts[t] == latencies[t].length) {
+				latencies[t] = Arrays.copyOf(latencies[t], counts[t] * 2);
+			}
+			latencies[t][counts[t]++] = nanos;
+			if (!ok) {
+				failures[t]++;
+			}
+		}
+
+		void merge(Stats other) {
+			for (int t = 0; t < TYPES; t++) {
+				for (int i = 0; i < other.counts[t]; i++) {
+					record(Workload.Type.values()[t], other.latencies[t][i], true);
+				}
+				failures[t] += other.failures[t];
+			}
+		}
+
+		public long getOperations() {
+			return Arrays.stream(counts).asLongStream().sum();
+		}
+
+		public double getThroughput() {
+			return getOperations() * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder(String.format("%.0f ops/s over %.2f s%n", getThroughput(),
+					elapsedNanos / 1e9));
+			text.append(String.format("%-8s %9s %9s %10s %10s %10s %10s %10s%n", "op", "count", "failed", "mean",
+					"p50", "p90", "p99", "max"));
+			for (Workload.Type type : Workload.Type.values()) {
+				int t = type.ordinal();
+				if (counts[t] == 0) {
+					continue;
+				}
+				long[] sorted = Arrays.copyOf(latencies[t], counts[t]);
+				Arrays.sort(sorted);
+				double mean = Arrays.stream(sorted).average().orElse(0);
+				text.append(String.format("%-8s %9d %9d %10s %10s %10s %10s %10s%n", type, counts[t], failures[t],
+						Harness.time(mean), Harness.time(percentile(sorted, 0.5)),
+						Harness.time(percentile(sorted, 0.9)), Harness.time(percentile(sorted, 0.99)),
+						Harness.time(sorted[sorted.length - 1])));
+			}
+			return text.toString();
+		}
+
+		private static long percentile(long[] sorted, double p) {
+			return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+		}
+	}
+
+	public Stats replay(List<Workload.Op> ops, int threads) throws InterruptedException {
+		// Each user's operations stay in order on one thread
+		List<List<Workload.Op>> partitions = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (Workload.Op op : ops) {
+			partitions.get(Math.floorMod(op.user.hashCode(), threads)).add(op);
+		}
+		Stats[] results = new Stats[threads];
+		Thread[] workers = new Thread[threads];
+		long started = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			int partition = i;
+			workers[i] = new Thread(() -> results[partition] = run(partitions.get(partition)));
+			workers[i].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		Stats total = new Stats();
+		total.elapsedNanos = System.nanoTime() - started;
+		for (Stats result : results) {
+			total.merge(result);
+		}
+		return total;
+	}
+
+	private Stats run(List<Workload.Op> ops) {
+		Stats stats = new Stats();
+		Map<String, String> tokens = new HashMap<>(); // Open sessions of this thread's users
+		for (Workload.Op op : ops) {
+			long started = System.nanoTime();
+			boolean ok = apply(op, tokens);
+			stats.record(op.type, System.nanoTime() - started, ok);
+		}
+		return stats;
+	}
+
+	private boolean apply(Workload.Op op, Map<String, String> tokens) {
+		switch (op.type) {
+		case SIGNUP -> {
+			boolean created = manager.createUserIfAbsent(op.user, op.argument, store);
+			String token = manager.login(op.user, op.argument);
+			tokens.put(op.user, token);
+			return created && token != null;
+		}
+		case LOGIN -> {
+			String token = manager.login(op.user, op.argument);
+			tokens.put(op.user, token);
+			return token != null;
+		}
+		case LOGOUT -> {
+			String token = tokens.remove(op.user);
+			manager.saveUsers();
+			if (token != null) {
+				manager.logout(token);
+			}
+			return token != null;
+		}
+		default -> {
+			User user = manager.getUserByToken(tokens.get(op.user));
+			return user != null && applyToLibrary(op, user.getLibrary());
+		}
+		}
+	}
+
+	private static boolean applyToLibrary(Workload.Op op, LibraryModel library) {
+		switch (op.type) {
+		case ADD -> {
+			library.addSongFromStore(op.argument); // False for songs already added, which is fine
+			return true;
+		}
+		case PLAY, RATE -> {
+			List<Song> found = library.searchSongsByTitle(op.argument);
+			if (found.isEmpty()) {
+				return false;
+			}
+			if (op.type == Workload.Type.PLAY) {
+				library.playSong(found.get(0));
+				return true;
+			}
+			return library.rateSong(found.get(0), op.value);
+		}
+		case SEARCH -> {
+			library.searchSongs(op.argument);
+			return true;
+		}
+		default -> throw new IllegalArgumentException("Not a library operation: " + op.type);
+		}
+	}
+}
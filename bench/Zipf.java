@@ -0,0 +1,74 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew.
+ * - Uses rejection-inversion (Hoermann and Derflinger), so it needs no table
+ *   and stays O(1) per sample even for ten million ranks.
+ * - A skew of 0 is uniform; around 1 is typical of play counts.
+ */
+package bench;
+
+import java.util.random.RandomGenerator;
+
+public class Zipf {
+	private int n;
+	private double skew;
+	private double hIntegralX1;
+	private double hIntegralN;
+	private double s;
+
+	public Zipf(int n, double skew) {
+		if (n < 1 || skew < 0) {
+			throw new IllegalArgumentException("Need n >= 1 and skew >= 0");
+		}
+		this.n = n;
+		this.skew = skew;
+		this.hIntegralX1 = hIntegral(1.5) - 1;
+		this.hIntegralN = hIntegral(n + 0.5);
+		this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+	}
+
+	public int size() {
+		return n;
+	}
+
+	// 0 is the most popular rank
+	public int sample(RandomGenerator random) {
+		if (skew == 0) {
+			return random.nextInt(n);
+		}
+		while (true) {
+			double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+			double x = hIntegralInverse(u);
+			int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+			if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+				return k - 1;
+			}
+		}
+	}
+
+	private double h(double x) {
+		return Math.exp(-skew * Math.log(x));
+	}
+
+	private double hIntegral(double x) {
+		double log = Math.log(x);
+		return helper2((1 - skew) * log) * log;
+	}
+
+	private double hIntegralInverse(double x) {
+		double t = Math.max(-1, x * (1 - skew));
+		return Math.exp(helper1(t) * x);
+	}
+
+	// log(1 + x) / x, stable near 0
+	private static double helper1(double x) {
+		return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+	}
+
+	// (e^x - 1) / x, stable near 0
+	private static double helper2(double x) {
+		return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * JMH benchmarks for one user's library: adding, playing, sorting, searching
+ * and shuffling.
+ * - Parameterized by catalog and library size; the library is spread evenly
+ *   across the catalog and has some plays and ratings (see HotPathBenchmarks).
+ * - Run through the jmh build module: gradle :jmh:jmh -Pjmh.includes=Library
+ */
+package bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import model.Album;
+import model.LibraryModel;
+import model.ShuffleIterator;
+import model.SmartShuffle;
+import model.Song;
+import model.SortedSongIndex;
+import store.MusicStore;
+import store.SearchIndex;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LibraryBenchmark {
+	@Param({ "1000", "100000" })
+	public int catalog;
+
+	@Param({ "100", "10000" })
+	public int library;
+
+	private SyntheticCatalog generated;
+	private MusicStore store;
+	private LibraryModel model;
+	private List<Song> songs;
+	private SplittableRandom random;
+
+	@Setup
+	public void setUp() throws IOException {
+		generated = SyntheticCatalog.ofSongs(catalog);
+		store = generated.build();
+		model = HotPathBenchmarks.library(store, Math.min(library, store.getSongCount()));
+		songs = model.getSongs();
+		random = new SplittableRandom(42);
+	}
+
+	// Adds a catalog song, then takes it out again so the library size holds
+	@Benchmark
+	public boolean addSongFromStore() {
+		String title = generated.songTitle(random.nextInt(store.getSongCount()));
+		if (model.addSongFromStore(title)) {
+			model.removeSong(store.getSongsByTitle(title).get(0));
+			return true;
+		}
+		return false;
+	}
+
+	@Benchmark
+	public void playSong() {
+		model.playSong(songs.get(random.nextInt(songs.size())));
+	}
+
+	@Benchmark
+	public List<Song> getFrequentPlays() {
+		return model.getFrequentPlays();
+	}
+
+	@Benchmark
+	public Map<String, List<Song>> getGenrePlaylists() {
+		return model.getGenrePlaylists();
+	}
+
+	@Benchmark
+	public List<Song> sortedByTitle() {
+		return model.getSongsSortedByTitle();
+	}
+
+	@Benchmark
+	public List<Song> sortedByRating() {
+		return model.getSongsSortedByRating();
+	}
+
+	@Benchmark
+	public SortedSongIndex.Page pageByArtist() {
+		return model.getSongsPage(SortedSongIndex.Order.ARTIST, null, HotPathBenchmarks.PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Song> searchSongs() {
+		return model.searchSongs(SyntheticCatalog.WORDS[random.nextInt(SyntheticCatalog.WORDS.length)]);
+	}
+
+	@Benchmark
+	public List<Song> searchFuzzy() {
+		return model.searchSongs(HotPathBenchmarks.typo(random.nextInt(SyntheticCatalog.WORDS.length)));
+	}
+
+	@Benchmark
+	public List<Song> searchSongsByArtist() {
+		return model.searchSongsByArtist(generated.artistName(random.nextInt(generated.getArtistCount())));
+	}
+
+	@Benchmark
+	public List<Album> searchAlbumsByTitle() {
+		return model.searchAlbumsByTitle(generated.albumTitle(random.nextInt(generated.getAlbumCount())));
+	}
+
+	@Benchmark
+	public List<Song> searchArtist() {
+		return model.searchSongs(generated.artistName(random.nextInt(generated.getArtistCount())),
+				SearchIndex.Field.ARTIST);
+	}
+
+	@Benchmark
+	public Object shuffleIterator() {
+		return HotPathBenchmarks.drain(new ShuffleIterator(songs, random));
+	}
+
+	@Benchmark
+	public Object smartShuffle() {
+		return HotPathBenchmarks.drain(new SmartShuffle(songs, SmartShuffle.UNIFORM, random));
+	}
+}
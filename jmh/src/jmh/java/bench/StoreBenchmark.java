@@ -0,0 +1,93 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * JMH benchmarks for loading the catalog and looking songs and albums up or
+ * searching for them in it.
+ * - Parameterized by catalog size; the text and snapshot loads read a copy of
+ *   the synthetic catalog written to a temporary directory.
+ * - Run through the jmh build module: gradle :jmh:jmh -Pjmh.includes=Store
+ */
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import model.Album;
+import model.LibraryModel;
+import model.Song;
+import store.CatalogSnapshot;
+import store.MusicStore;
+import store.SearchIndex;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StoreBenchmark {
+	@Param({ "1000", "100000" })
+	public int catalog;
+
+	private SyntheticCatalog generated;
+	private MusicStore store;
+	private Path directory;
+	private Path snapshot;
+	private int next; // Varies the looked-up title between calls
+
+	@Setup
+	public void setUp() throws IOException {
+		generated = SyntheticCatalog.ofSongs(catalog);
+		store = generated.build();
+		directory = Files.createTempDirectory("jmh-catalog");
+		generated.write(directory);
+		snapshot = directory.resolve(CatalogSnapshot.DEFAULT_FILE);
+		CatalogSnapshot.write(store, snapshot, System.currentTimeMillis());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public MusicStore loadText() {
+		return new MusicStore(directory);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public MusicStore loadSnapshot() throws IOException {
+		return CatalogSnapshot.read(snapshot);
+	}
+
+	@Benchmark
+	public Album getAlbum() {
+		return store.getAlbum(generated.albumTitle((int) (next++ * 7919L % generated.getAlbumCount())));
+	}
+
+	@Benchmark
+	public List<Song> getSongsByTitle() {
+		return store.getSongsByTitle(generated.songTitle(next++ % generated.getSongCount()));
+	}
+
+	// Catalog-wide, as the service's store search runs
+	@Benchmark
+	public List<Song> searchSongs() {
+		return store.searchSongs(SyntheticCatalog.WORDS[next++ % SyntheticCatalog.WORDS.length],
+				EnumSet.allOf(SearchIndex.Field.class), null, LibraryModel.MAX_SEARCH_RESULTS);
+	}
+
+	@Benchmark
+	public List<Song> searchFuzzy() {
+		return store.searchSongs(HotPathBenchmarks.typo(next++), EnumSet.allOf(SearchIndex.Field.class), null,
+				LibraryModel.MAX_SEARCH_RESULTS);
+	}
+}
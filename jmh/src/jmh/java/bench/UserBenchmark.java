@@ -0,0 +1,89 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * JMH benchmarks for persistence and login: saving a journaled change and
+ * checking a password.
+ * - Parameterized by library size and PBKDF2 iterations; the users file and
+ *   journal go to a temporary directory.
+ * - Run through the jmh build module: gradle :jmh:jmh -Pjmh.includes=User
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import model.LibraryModel;
+import model.Pbkdf2Hasher;
+import model.Song;
+import model.User;
+import model.UserManager;
+import store.MusicStore;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserBenchmark {
+	@Param({ "100000" })
+	public int catalog;
+
+	@Param({ "100", "10000" })
+	public int library;
+
+	@Param({ "10000" })
+	public int iterations;
+
+	private UserManager manager;
+	private LibraryModel model;
+	private List<Song> songs;
+	private SplittableRandom random;
+
+	@Setup
+	public void setUp() throws IOException {
+		MusicStore store = SyntheticCatalog.ofSongs(catalog).build();
+		File directory = Files.createTempDirectory("jmh-users").toFile();
+		manager = new UserManager(store, new File(directory, "users.dat"), new File(directory, "users.journal"));
+		manager.setPasswordHasher(new Pbkdf2Hasher(iterations));
+		manager.createUser("bench", "password", store);
+		User user = manager.getUser("bench");
+		model = user.getLibrary();
+		int size = Math.min(library, store.getSongCount());
+		for (int i = 0; i < size; i++) {
+			model.addSong(store.getSongById(HotPathBenchmarks.stride(i, size, store.getSongCount())));
+		}
+		manager.saveUsers();
+		songs = model.getSongs();
+		random = new SplittableRandom(7);
+	}
+
+	@TearDown
+	public void tearDown() {
+		manager.close();
+	}
+
+	// One journaled change per save, as an interactive session produces them
+	@Benchmark
+	public void playAndSave() {
+		model.playSong(songs.get(random.nextInt(songs.size())));
+		manager.saveUsers();
+	}
+
+	@Benchmark
+	public boolean authenticate() {
+		return manager.authenticate("bench", "password");
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * A monotonically increasing count, e.g. of errors or cache misses.
+ * - Backed by a LongAdder, so concurrent increments don't contend.
+ */
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+	private LongAdder count = new LongAdder();
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+}
@@ -0,0 +1,13 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * A value read when metrics are reported, e.g. the catalog size.
+ * - Evaluated off the hot path, so it may take a lock or compute a ratio.
+ */
+package metrics;
+
+@FunctionalInterface
+public interface Gauge {
+	double getValue();
+}
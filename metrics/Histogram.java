@@ -0,0 +1,87 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Records a distribution of non-negative values, usually latencies in
+ * nanoseconds, in an HdrHistogram.
+ * - Two significant digits (1% precision) from one nanosecond up to half the
+ *   long range (about 146 years in nanoseconds); anything larger only shows
+ *   in the mean and max.
+ * - record() only does atomic adds on a fixed array (AtomicHistogram, which
+ *   never resizes) and never allocates. Reading makes a snapshot.
+ */
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.AtomicHistogram;
+
+public class Histogram {
+	private static final long HIGHEST = Long.MAX_VALUE / 2; // HdrHistogram's limit
+	private static final int DIGITS = 2;
+
+	private AtomicHistogram histogram;
+	private LongAdder sum;
+	private LongAccumulator max;
+
+	public Histogram() {
+		this.histogram = new AtomicHistogram(1, HIGHEST, DIGITS);
+		this.sum = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0);
+	}
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0; // A clock step backwards; not worth failing the caller over
+		}
+		histogram.recordValue(Math.min(value, HIGHEST));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	// Records the time since a System.nanoTime() reading
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot(histogram.copy(), sum.sum(), max.get());
+	}
+
+	// A consistent-enough copy for reporting; recording may continue meanwhile
+	public static class Snapshot {
+		private AbstractHistogram counts;
+		private long sum;
+		private long max;
+
+		Snapshot(AbstractHistogram counts, long sum, long max) {
+			this.counts = counts;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return counts.getTotalCount();
+		}
+
+		public double getMean() {
+			long count = getCount();
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		// Value at or below which the given fraction (0..1) of recordings fall
+		public long getValueAtPercentile(double fraction) {
+			if (getCount() == 0) {
+				return 0;
+			}
+			long value = counts.getValueAtPercentile(fraction * 100);
+			return value >= HIGHEST ? max : Math.min(value, max);
+		}
+	}
+}
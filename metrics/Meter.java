@@ -0,0 +1,80 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Counts events and tracks their rate, e.g. plays per second.
+ * - The rate is a one-minute exponentially weighted moving average, updated
+ *   in 5 second ticks. The tick runs lazily on whichever thread notices it
+ *   is due, so no timer thread is needed.
+ * - mark() only adds to LongAdders and reads the clock.
+ */
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Meter {
+	private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final double ALPHA = 1 - Math.exp(-5.0 / 60); // Weight of one tick in a one-minute average
+
+	private LongAdder count;
+	private LongAdder uncounted; // Events since the last tick
+	private AtomicLong lastTick;
+	private volatile double rate; // Events per second
+	private volatile boolean ticked;
+	private long started;
+
+	public Meter() {
+		this.count = new LongAdder();
+		this.uncounted = new LongAdder();
+		this.started = System.nanoTime();
+		this.lastTick = new AtomicLong(started);
+	}
+
+	public void mark() {
+		count.increment();
+		uncounted.increment();
+		tickIfDue();
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	// Events per second over roughly the last minute
+	public double getRate() {
+		tickIfDue();
+		return rate;
+	}
+
+	// Events per second since the meter was created
+	public double getMeanRate() {
+		long elapsed = System.nanoTime() - started;
+		return elapsed <= 0 ? 0 : count.sum() * 1e9 / elapsed;
+	}
+
+	private void tickIfDue() {
+		long last = lastTick.get();
+		long age = System.nanoTime() - last;
+		if (age < TICK_NANOS) {
+			return;
+		}
+		// Only the thread that moves lastTick forward applies the ticks
+		if (lastTick.compareAndSet(last, last + age - age % TICK_NANOS)) {
+			for (long ticks = age / TICK_NANOS; ticks > 0; ticks--) {
+				tick();
+			}
+		}
+	}
+
+	private void tick() {
+		double instant = uncounted.sumThenReset() * 1e9 / TICK_NANOS;
+		if (ticked) {
+			rate += ALPHA * (instant - rate);
+		} else {
+			rate = instant;
+			ticked = true;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Names and holds the application's metrics.
+ * - Instrumented classes look their metrics up once (usually into static
+ *   fields) and record into them directly, so the registry is never on a hot
+ *   path.
+ * - Histograms hold durations in nanoseconds and are reported in
+ *   milliseconds.
+ * - getDefault() is the registry the model and store record into; JMX and
+ *   MetricsReporter publish it.
+ */
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricsRegistry {
+	public static final String JMX_NAME = "musiclibrary:type=Metrics";
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private Map<String, Object> metrics;
+
+	public MetricsRegistry() {
+		this.metrics = new ConcurrentHashMap<>();
+	}
+
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	public Counter counter(String name) {
+		return get(name, Counter.class);
+	}
+
+	public Meter meter(String name) {
+		return get(name, Meter.class);
+	}
+
+	public Histogram histogram(String name) {
+		return get(name, Histogram.class);
+	}
+
+	// Replaces any gauge already registered under the name
+	public void gauge(String name, Gauge gauge) {
+		metrics.merge(name, gauge, (old, added) -> {
+			if (!(old instanceof Gauge)) {
+				throw new IllegalArgumentException(name + " is already a " + old.getClass().getSimpleName());
+			}
+			return added;
+		});
+	}
+
+	// Removes the gauge only if it is still the one registered, so an old owner can't remove a newer one
+	public void removeGauge(String name, Gauge gauge) {
+		metrics.remove(name, gauge);
+	}
+
+	private <T> T get(String name, Class<T> type) {
+		Object metric = metrics.computeIfAbsent(name, key -> {
+			try {
+				return type.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException(name + " is already a " + metric.getClass().getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	/**
+	 * Every metric flattened to name/value pairs, sorted by name. Meters
+	 * and histograms contribute several values, e.g. "library.plays.rate" or
+	 * "users.save.p99Millis". This is what JMX and the JSON dump show.
+	 */
+	public Map<String, Number> values() {
+		Map<String, Number> values = new TreeMap<>();
+		new TreeMap<>(metrics).forEach((name, metric) -> {
+			if (metric instanceof Counter counter) {
+				values.put(name, counter.getCount());
+			} else if (metric instanceof Gauge gauge) {
+				values.put(name, gauge.getValue());
+			} else if (metric instanceof Meter meter) {
+				values.put(name + ".count", meter.getCount());
+				values.put(name + ".rate", meter.getRate());
+			} else if (metric instanceof Histogram histogram) {
+				Histogram.Snapshot snapshot = histogram.snapshot();
+				values.put(name + ".count", snapshot.getCount());
+				values.put(name + ".meanMillis", snapshot.getMean() / 1e6);
+				values.put(name + ".p50Millis", snapshot.getValueAtPercentile(0.5) / 1e6);
+				values.put(name + ".p99Millis", snapshot.getValueAtPercentile(0.99) / 1e6);
+				values.put(name + ".maxMillis", snapshot.getMax() / 1e6);
+			}
+		});
+		return values;
+	}
+
+	// One metric per line, for logs and consoles
+	public String toText() {
+		StringBuilder text = new StringBuilder();
+		new TreeMap<>(metrics).forEach((name, metric) -> {
+			text.append(String.format("%-32s ", name));
+			if (metric instanceof Counter counter) {
+				text.append(counter.getCount());
+			} else if (metric instanceof Gauge gauge) {
+				text.append(format(gauge.getValue()));
+			} else if (metric instanceof Meter meter) {
+				text.append(String.format("count=%d rate=%.2f/s mean=%.2f/s", meter.getCount(), meter.getRate(),
+						meter.getMeanRate()));
+			} else if (metric instanceof Histogram histogram) {
+				Histogram.Snapshot snapshot = histogram.snapshot();
+				text.append(String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+						snapshot.getCount(), snapshot.getMean() / 1e6, snapshot.getValueAtPercentile(0.5) / 1e6,
+						snapshot.getValueAtPercentile(0.9) / 1e6, snapshot.getValueAtPercentile(0.99) / 1e6,
+						snapshot.getMax() / 1e6));
+			}
+			text.append('\n');
+		});
+		return text.toString();
+	}
+
+	// A flat JSON object of values()
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{");
+		values().forEach((name, value) -> {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append('"').append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\":");
+			double number = value.doubleValue();
+			json.append(Double.isFinite(number) ? format(number) : "null");
+		});
+		return json.append('}').toString();
+	}
+
+	private static String format(double value) {
+		return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value)
+				: String.valueOf(value);
+	}
+
+	// Publishes the registry as an MBean on the platform server; false if that name is taken
+	public boolean registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(JMX_NAME);
+			if (server.isRegistered(name)) {
+				return false;
+			}
+			server.registerMBean(new MetricsMBean(this), name);
+			return true;
+		} catch (JMException e) {
+			return false;
+		}
+	}
+}
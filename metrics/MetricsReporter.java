@@ -0,0 +1,90 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Periodically writes a registry's metrics as text or JSON.
+ * - Output goes to a file, replaced whole each period so readers never see a
+ *   partial dump, or to a stream (e.g. System.out).
+ * - Runs on one daemon thread. A failed write is skipped and retried next
+ *   period.
+ */
+package metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsReporter implements AutoCloseable {
+	public enum Format {
+		TEXT, JSON
+	}
+
+	private MetricsRegistry registry;
+	private Format format;
+	private Path file; // Either a file or a stream
+	private PrintStream stream;
+	private ScheduledExecutorService timer;
+
+	public MetricsReporter(MetricsRegistry registry, Format format, Path file) {
+		this(registry, format, file, null);
+	}
+
+	public MetricsReporter(MetricsRegistry registry, Format format, PrintStream stream) {
+		this(registry, format, null, stream);
+	}
+
+	private MetricsReporter(MetricsRegistry registry, Format format, Path file, PrintStream stream) {
+		this.registry = registry;
+		this.format = format;
+		this.file = file;
+		this.stream = stream;
+		this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "metrics-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void start(long period, TimeUnit unit) {
+		timer.scheduleAtFixedRate(() -> {
+			try {
+				report();
+			} catch (IOException e) {
+				// Try again next period
+			}
+		}, period, period, unit);
+	}
+
+	public String render() {
+		return format == Format.JSON ? registry.toJson() + "\n" : registry.toText();
+	}
+
+	public void report() throws IOException {
+		String dump = render();
+		if (stream != null) {
+			stream.print(dump);
+			stream.flush();
+			return;
+		}
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.writeString(temp, dump, StandardCharsets.UTF_8);
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Stops the timer after one last report
+	@Override
+	public void close() {
+		timer.shutdown();
+		try {
+			report();
+		} catch (IOException e) {
+			// Nothing left to retry with
+		}
+	}
+}
@@ -9,6 +9,7 @@ package model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class Album {
 	private String title;
@@ -16,6 +17,8 @@ public class Album {
 	private String genre;
 	private int year;
 	private List<Song> songs;
+	private int id = -1; // Dense catalog id, assigned by the store
+	private Consumer<Song> songListener; // Notified on addSong (e.g. store indexes)
 
 	public Album(String title, String artist, String genre, int year) {
 		this.title = title;
@@ -27,9 +30,29 @@ public class Album {
 
 	public void addSong(Song song) {
 		songs.add(song);
+		if (songListener != null) {
+			songListener.accept(song);
+		}
+	}
+
+	// Lets the owning store keep its indexes current when songs are added later
+	public void setSongListener(Consumer<Song> songListener) {
+		this.songListener = songListener;
+	}
+
+	// Called once by the store when the album enters the catalog
+	public void assignId(int id) {
+		if (this.id >= 0 && this.id != id) {
+			throw new IllegalStateException("Album already has id " + this.id);
+		}
+		this.id = id;
 	}
 
 	// Getters
+	public int getId() {
+		return id;
+	}
+
 	public String getTitle() {
 		return title;
 	}
@@ -0,0 +1,53 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. A user's stored password: scheme, salt and hash.
+ * - Immutable; changing a password or upgrading its scheme swaps the object.
+ * - Hashes are compared in constant time.
+ */
+package model;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+public class Credentials {
+	private static final int SALT_BYTES = 16;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private String scheme;
+	private byte[] salt;
+	private String hash; // Base64
+
+	public Credentials(String scheme, byte[] salt, String hash) {
+		this.scheme = scheme;
+		this.salt = salt;
+		this.hash = hash;
+	}
+
+	// Hashes the password with a fresh salt
+	public static Credentials create(PasswordHasher hasher, String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		return new Credentials(hasher.getScheme(), salt, Base64.getEncoder().encodeToString(hasher.hash(password, salt)));
+	}
+
+	public boolean matches(String password) {
+		byte[] expected = Base64.getDecoder().decode(hash);
+		byte[] actual = PasswordHasher.forScheme(scheme).hash(password, salt);
+		return MessageDigest.isEqual(expected, actual);
+	}
+
+	public String getScheme() {
+		return scheme;
+	}
+
+	public byte[] getSalt() {
+		return salt;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+}
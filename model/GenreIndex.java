@@ -0,0 +1,62 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. A library's songs bucketed by genre.
+ * - Updated as songs join or leave the library rather than rebuilt per call.
+ * - Buckets hold catalog song ids; the minimum playlist size is applied only
+ *   when playlists are read, so it costs nothing on updates.
+ * - Written under the library's lock, like the library's other indexes.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+public class GenreIndex {
+	private Map<String, IntSet> buckets;
+
+	public GenreIndex() {
+		this.buckets = new HashMap<>();
+	}
+
+	public void add(String genre, int songId) {
+		buckets.computeIfAbsent(genre, g -> new IntSet()).add(songId);
+	}
+
+	public void remove(String genre, int songId) {
+		IntSet bucket = buckets.get(genre);
+		if (bucket != null && bucket.remove(songId) && bucket.isEmpty()) {
+			buckets.remove(genre);
+		}
+	}
+
+	public int size(String genre) {
+		IntSet bucket = buckets.get(genre);
+		return bucket == null ? 0 : bucket.size();
+	}
+
+	public void clear() {
+		buckets.clear();
+	}
+
+	// Genres with at least minSize songs, each in catalog order
+	public Map<String, List<Song>> playlists(int minSize, IntFunction<Song> songs) {
+		Map<String, List<Song>> result = new HashMap<>();
+		for (Map.Entry<String, IntSet> entry : buckets.entrySet()) {
+			if (entry.getValue().size() < minSize) {
+				continue;
+			}
+			int[] ids = entry.getValue().toSortedArray();
+			List<Song> playlist = new ArrayList<>(ids.length);
+			for (int id : ids) {
+				playlist.add(songs.apply(id));
+			}
+			result.put(entry.getKey(), playlist);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Counters for password hashing in UserManager.
+ * - Hash count, total and maximum latency, and requests turned away because
+ *   the hashing pool was full. Updated without locks.
+ * - Hash latency and rejections also go to the default MetricsRegistry,
+ *   summed across every UserManager.
+ */
+package model;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+public class HashMetrics {
+	private static final Histogram HASH_TIME = MetricsRegistry.getDefault().histogram("users.passwordHash");
+	private static final Counter REJECTED = MetricsRegistry.getDefault().counter("users.hashRejected");
+	private LongAdder hashes = new LongAdder();
+	private LongAdder totalNanos = new LongAdder();
+	private LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private LongAdder rejected = new LongAdder();
+	private LongAdder tokenHits = new LongAdder();
+
+	void recordHash(long nanos) {
+		hashes.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		HASH_TIME.record(nanos);
+	}
+
+	void recordRejected() {
+		rejected.increment();
+		REJECTED.increment();
+	}
+
+	void recordTokenHit() {
+		tokenHits.increment();
+	}
+
+	public long getHashes() {
+		return hashes.sum();
+	}
+
+	public double getMeanMillis() {
+		long count = hashes.sum();
+		return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1e6;
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	// Requests served by a session token instead of a hash
+	public long getTokenHits() {
+		return tokenHits.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d hashes, mean %.1f ms, max %.1f ms, %d rejected, %d token hits", getHashes(),
+				getMeanMillis(), getMaxMillis(), getRejected(), getTokenHits());
+	}
+}
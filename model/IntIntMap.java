@@ -0,0 +1,142 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Open-addressing map from non-negative int keys to ints.
+ * - Used to map catalog ids to per-library slots without boxing.
+ * - Single writer; a resized table is only published once it's fully built, so
+ *   optimistic readers always probe a table that has empty slots.
+ */
+package model;
+
+import java.util.Arrays;
+
+public class IntIntMap {
+	public static final int MISSING = -1;
+	private static final int EMPTY = -1;
+
+	public interface EntryConsumer {
+		void accept(int key, int value);
+	}
+
+	private volatile int[] keys;
+	private int[] values;
+	private int size;
+
+	public IntIntMap() {
+		this(16);
+	}
+
+	public IntIntMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean containsKey(int key) {
+		return key >= 0 && keys[find(key)] == key;
+	}
+
+	// Returns the value, or MISSING if absent
+	public int get(int key) {
+		if (key < 0) {
+			return MISSING;
+		}
+		int index = find(key);
+		return keys[index] == key ? values[index] : MISSING;
+	}
+
+	// Returns the previous value, or MISSING if absent
+	public int put(int key, int value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Negative key: " + key);
+		}
+		int index = find(key);
+		if (keys[index] == key) {
+			int previous = values[index];
+			values[index] = value;
+			return previous;
+		}
+		keys[index] = key;
+		values[index] = value;
+		if (++size * 4 > keys.length * 3) {
+			rehash(keys.length * 2);
+		}
+		return MISSING;
+	}
+
+	// Returns the removed value, or MISSING if absent
+	public int remove(int key) {
+		if (key < 0) {
+			return MISSING;
+		}
+		int index = find(key);
+		if (keys[index] != key) {
+			return MISSING;
+		}
+		int removed = values[index];
+		// Backward-shift deletion keeps probe chains intact without tombstones
+		int mask = keys.length - 1;
+		int hole = index;
+		int next = (hole + 1) & mask;
+		while (keys[next] != EMPTY) {
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		size--;
+		return removed;
+	}
+
+	public void forEach(EntryConsumer action) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				action.accept(keys[i], values[i]);
+			}
+		}
+	}
+
+	private int find(int key) {
+		return find(keys, key);
+	}
+
+	// At most one lap: a table always has free slots, but a lock-free reader racing a writer may not see them
+	private static int find(int[] keys, int key) {
+		int mask = keys.length - 1;
+		int index = mix(key) & mask;
+		for (int probes = 0; keys[index] != EMPTY && keys[index] != key && probes < mask; probes++) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void rehash(int capacity) {
+		int[] newKeys = new int[capacity];
+		int[] newValues = new int[capacity];
+		Arrays.fill(newKeys, EMPTY);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				int index = find(newKeys, keys[i]);
+				newKeys[index] = keys[i];
+				newValues[index] = values[i];
+			}
+		}
+		values = newValues;
+		keys = newKeys;
+	}
+
+	static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Open-addressing set of non-negative ints.
+ * - Lets a library hold catalog ids (4 bytes each) instead of object references.
+ * - Single writer; resized tables are fully built before they're published.
+ */
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+public class IntSet {
+	private static final int EMPTY = -1;
+
+	private volatile int[] slots;
+	private int size;
+
+	public IntSet() {
+		this(16);
+	}
+
+	public IntSet(int expected) {
+		slots = new int[Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1];
+		Arrays.fill(slots, EMPTY);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int value) {
+		return value >= 0 && slots[find(value)] == value;
+	}
+
+	public boolean add(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value: " + value);
+		}
+		int index = find(value);
+		if (slots[index] == value) {
+			return false;
+		}
+		slots[index] = value;
+		if (++size * 4 > slots.length * 3) {
+			rehash(slots.length * 2);
+		}
+		return true;
+	}
+
+	public boolean remove(int value) {
+		if (value < 0) {
+			return false;
+		}
+		int index = find(value);
+		if (slots[index] != value) {
+			return false;
+		}
+		// Backward-shift deletion, as in IntIntMap
+		int mask = slots.length - 1;
+		int hole = index;
+		int next = (hole + 1) & mask;
+		while (slots[next] != EMPTY) {
+			int home = IntIntMap.mix(slots[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				slots[hole] = slots[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		slots[hole] = EMPTY;
+		size--;
+		return true;
+	}
+
+	public void forEach(IntConsumer action) {
+		for (int value : slots) {
+			if (value != EMPTY) {
+				action.accept(value);
+			}
+		}
+	}
+
+	// Members in ascending order
+	public int[] toSortedArray() {
+		int[] result = new int[size];
+		int i = 0;
+		for (int value : slots) {
+			if (value != EMPTY) {
+				result[i++] = value;
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int find(int value) {
+		return find(slots, value);
+	}
+
+	// At most one lap, as in IntIntMap
+	private static int find(int[] slots, int value) {
+		int mask = slots.length - 1;
+		int index = IntIntMap.mix(value) & mask;
+		for (int probes = 0; slots[index] != EMPTY && slots[index] != value && probes < mask; probes++) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void rehash(int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, EMPTY);
+		for (int value : slots) {
+			if (value != EMPTY) {
+				table[find(table, value)] = value;
+			}
+		}
+		slots = table;
+	}
+}
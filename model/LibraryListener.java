@@ -0,0 +1,55 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Receives every change made to a LibraryModel.
+ * - UserManager uses it to journal library mutations as they happen.
+ * - All methods default to no-ops so listeners only override what they need.
+ */
+package model;
+
+import java.util.List;
+
+public interface LibraryListener {
+	default void songAdded(Song song) {
+	}
+
+	default void songRemoved(Song song) {
+	}
+
+	// The album and all of its songs were added
+	default void albumAdded(Album album) {
+	}
+
+	default void albumRemoved(Album album) {
+	}
+
+	default void songRated(Song song, int rating) {
+	}
+
+	default void songPlayed(Song song, long when) {
+	}
+
+	default void playlistCreated(String name) {
+	}
+
+	default void playlistDeleted(String name) {
+	}
+
+	default void playlistRenamed(String name, String newName) {
+	}
+
+	// One call per batch, however many songs it holds
+	default void playlistSongsAdded(String name, List<Song> songs) {
+	}
+
+	default void playlistSongRemoved(String name, Song song) {
+	}
+
+	// Inserted before the song that was at position
+	default void playlistSongInserted(String name, int position, Song song) {
+	}
+
+	default void playlistSongMoved(String name, int from, int to) {
+	}
+}
@@ -3,49 +3,198 @@
  * @author Joshua
  * 
  * Part of the Model for LA#2. This class tracks song plays, playlists, and library data.
- * - Maintains recent/frequent plays and automatic playlists.
- * - Supports sorting songs by title, artist, or rating.
+ * - Maintains recent/frequent plays, automatic playlists and user playlists.
+ * - User playlists are changed through this class so the changes are reported
+ *   (and saved); bulk adds are filtered and applied as one batch.
+ * - Frequent plays are tracked incrementally (top-K heap), recent plays in an O(1) LRU.
+ * - Supports sorting songs by title, artist, or rating, from a SortedSongIndex
+ *   kept current on every add, remove and rating, with cursor-based paging.
+ * - Per-library ratings and play counts live in a columnar SongStats store.
+ * - Songs and albums are referenced by catalog id, not held as object lists.
+ * - Reports every mutation to an optional LibraryListener (used for journaling).
+ * - Safe for concurrent sessions: writers to one library are serialized by its
+ *   own StampedLock. Reads that walk a collection share its read lock, since
+ *   writers change the collections in place; point lookups (a rating, a count)
+ *   are optimistic (lock-free) reads validated against the lock's stamp.
+ *   Recent/frequent plays are published as immutable lists.
+ * - Genre playlists come from a GenreIndex kept current as songs come and go.
+ * - A reverse song-to-playlists index means removing a song only visits the
+ *   playlists that hold it.
+ * - Plays are metered (count, rate and latency) in the default MetricsRegistry.
  */
 package model;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
+import metrics.Histogram;
+import metrics.Meter;
+import metrics.MetricsRegistry;
 import store.MusicStore;
+import store.SearchIndex;
+import store.SearchIndex.Field;
 
 public class LibraryModel {
+	public static final int DEFAULT_RECENT_PLAYS = 10;
+	public static final int DEFAULT_FREQUENT_PLAYS = 10;
+	public static final int MAX_SEARCH_RESULTS = 1000;
+	public static final int MIN_GENRE_PLAYLIST = 10; // Songs a genre needs before it becomes a playlist
+	private static final Meter PLAYS = MetricsRegistry.getDefault().meter("library.plays");
+	private static final Histogram PLAY_TIME = MetricsRegistry.getDefault().histogram("library.playSong");
+
 	private MusicStore store;
-	private List<Song> songs;
-	private List<Album> albums;
-	private List<Playlist> playlists;
-	private List<Song> recentPlays;
-	private List<Song> frequentPlays;
+	private SongStats songs; // Library membership plus this user's ratings/plays
+	private IntSet albums; // Catalog album ids
+	private GenreIndex genres; // Library song ids by their album's genre
+	private SortedSongIndex sorted; // Song ids only; ranks come from the store
+	private Map<String, Playlist> playlists; // By name, ignoring case
+	private Map<Song, Set<Playlist>> playlistsBySong; // Reverse index kept current by the playlists
+	private Playlist.Owner playlistOwner;
+	private SearchIndex.Scope songScope; // Confines catalog search to this library
+	private SearchIndex.Scope albumScope;
+	private RecentPlays recentPlays;
+	private TopPlaysTracker frequentPlays;
+	private volatile List<Song> recentView; // Published after every change to recentPlays
+	private volatile List<Song> frequentView;
+	private volatile LibraryListener listener;
+	private final StampedLock lock; // Guards songs, albums, recentPlays and frequentPlays
 
 	public LibraryModel(MusicStore store) {
 		this.store = store;
-		this.songs = new ArrayList<>();
-		this.albums = new ArrayList<>();
-		this.playlists = new ArrayList<>();
-		this.recentPlays = new ArrayList<>();
-		this.frequentPlays = new ArrayList<>();
+		this.songs = new SongStats(id -> this.store.getSongById(id));
+		this.albums = new IntSet();
+		this.genres = new GenreIndex();
+		this.sorted = new SortedSongIndex(() -> this.store.getSongRanks());
+		this.playlists = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.playlistsBySong = new ConcurrentHashMap<>();
+		this.playlistOwner = new Playlist.Owner() {
+			@Override
+			public void songsAdded(Playlist playlist, Collection<Song> added) {
+				for (Song song : added) {
+					playlistsBySong.computeIfAbsent(song, s -> ConcurrentHashMap.newKeySet()).add(playlist);
+				}
+			}
+
+			@Override
+			public void songRemoved(Playlist playlist, Song song) {
+				playlistsBySong.computeIfPresent(song, (s, containing) -> {
+					containing.remove(playlist);
+					return containing.isEmpty() ? null : containing;
+				});
+			}
+
+			@Override
+			public ToLongFunction<Song> shuffleWeights() {
+				return getShuffleWeights();
+			}
+		};
+		this.songScope = new SearchIndex.Scope() {
+			@Override
+			public boolean test(int id) {
+				return songs.containsId(id);
+			}
+
+			@Override
+			public int size() {
+				return songs.size();
+			}
+
+			@Override
+			public void forEach(IntConsumer action) {
+				songs.forEachId(action);
+			}
+		};
+		this.albumScope = new SearchIndex.Scope() {
+			@Override
+			public boolean test(int id) {
+				return albums.contains(id);
+			}
+
+			@Override
+			public int size() {
+				return albums.size();
+			}
+
+			@Override
+			public void forEach(IntConsumer action) {
+				albums.forEach(action);
+			}
+		};
+		this.recentPlays = new RecentPlays(DEFAULT_RECENT_PLAYS);
+		this.frequentPlays = new TopPlaysTracker(DEFAULT_FREQUENT_PLAYS);
+		this.recentView = Collections.emptyList();
+		this.frequentView = Collections.emptyList();
+		this.lock = new StampedLock();
 	}
 
 	public void setStore(MusicStore store) {
-		this.store = store;
+		long stamp = lock.writeLock();
+		try {
+			this.store = store;
+			genres.clear(); // Genres come from the store's albums
+			for (Song song : songs) {
+				indexGenre(song, true);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public MusicStore getStore() {
+		return store;
+	}
+
+	// Receives every later mutation; null detaches
+	public void setListener(LibraryListener listener) {
+		this.listener = listener;
+	}
+
+	// Changes how many songs the recent plays list keeps
+	public void setRecentPlaysLimit(int limit) {
+		long stamp = lock.writeLock();
+		try {
+			recentPlays.setCapacity(limit);
+			publishPlays();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Changes how many songs the frequent plays list keeps (rebuilds it once)
+	public void setFrequentPlaysLimit(int limit) {
+		long stamp = lock.writeLock();
+		try {
+			frequentPlays = new TopPlaysTracker(limit);
+			for (Song song : songs) {
+				int count = songs.getPlayCount(song);
+				if (count > 0) {
+					frequentPlays.update(song, count);
+				}
+			}
+			publishPlays();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 
 	// Add song from store
 	public boolean addSongFromStore(String title) {
-		for (Album album : store.getAlbums()) {
-			for (Song song : album.getSongs()) {
-				if (song.getTitle().equalsIgnoreCase(title) && !songs.contains(song)) {
-					songs.add(song);
-					return true;
-				}
+		for (Song song : store.getSongsByTitle(title)) {
+			if (addSong(song)) {
+				return true;
 			}
 		}
 		return false;
@@ -55,132 +204,626 @@ public class LibraryModel {
 	public boolean addAlbumFromStore(String title) {
 		Album album = store.getAlbum(title);
 		if (album != null) {
-			songs.addAll(album.getSongs());
-			albums.add(album);
+			addAlbum(album);
 			return true;
 		}
 		return false;
 	}
 
+	// Adds one catalog song; false if it's already in the library
+	public boolean addSong(Song song) {
+		long stamp = lock.writeLock();
+		try {
+			if (!songs.add(song)) {
+				return false;
+			}
+			indexGenre(song, true);
+			sorted.add(song, 0);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.songAdded(song);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Adds a catalog album and all of its songs
+	public boolean addAlbum(Album album) {
+		long stamp = lock.writeLock();
+		try {
+			boolean added = albums.add(album.getId());
+			for (Song song : album.getSongs()) {
+				if (songs.add(song)) {
+					indexGenre(song, true);
+					sorted.add(song, 0);
+					added = true;
+				}
+			}
+			LibraryListener current = listener;
+			if (added && current != null) {
+				current.albumAdded(album);
+			}
+			return added;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
 	// Play a song and update play counts
 	public void playSong(Song song) {
-		song.play();
-		updateRecentPlays(song);
-		updateFrequentPlays();
+		long started = System.nanoTime();
+		song.play(); // Lock-free; the catalog-wide count is shared by every library
+		long when = song.getLastPlayed();
+		long stamp = lock.writeLock();
+		try {
+			recordPlay(song, when);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.songPlayed(song, when);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		PLAYS.mark();
+		PLAY_TIME.recordSince(started);
+	}
+
+	// Caller holds the write lock
+	private void recordPlay(Song song, long when) {
+		recentPlays.touch(song);
+		int count = songs.recordPlay(song, when);
+		if (count > 0) {
+			frequentPlays.update(song, count);
+		}
+		publishPlays();
+	}
+
+	// Rate a song in this library (5 marks it as a favorite)
+	public boolean rateSong(Song song, int rating) {
+		long stamp = lock.writeLock();
+		try {
+			if (!setRating(song, rating)) {
+				return false;
+			}
+			LibraryListener current = listener;
+			if (current != null) {
+				current.songRated(song, rating);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Caller holds the write lock
+	private boolean setRating(Song song, int rating) {
+		int old = songs.getRating(song);
+		if (!songs.setRating(song, rating)) {
+			return false;
+		}
+		sorted.rerate(song, old, songs.getRating(song));
+		return true;
+	}
+
+	// Recovery hooks: rebuild state from persisted records without notifying the listener
+	void replayPlay(Song song, long when) {
+		long stamp = lock.writeLock();
+		try {
+			recordPlay(song, when);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void restoreAlbumLink(Album album) {
+		long stamp = lock.writeLock();
+		try {
+			albums.add(album.getId());
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 
-	private void updateRecentPlays(Song song) {
-		recentPlays.remove(song); // Move to front if already exists
-		recentPlays.add(0, song);
-		if (recentPlays.size() > 10) {
-			recentPlays.remove(10);
+	void restoreStats(Song song, int rating, int playCount, long lastPlayed) {
+		long stamp = lock.writeLock();
+		try {
+			setRating(song, rating);
+			songs.setPlayStats(song, playCount, lastPlayed);
+			if (playCount > 0) {
+				frequentPlays.update(song, playCount);
+			}
+			publishPlays();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 
-	private void updateFrequentPlays() {
-		frequentPlays = new ArrayList<>(songs);
-		frequentPlays.sort((s1, s2) -> Integer.compare(s2.getPlayCount(), s1.getPlayCount()));
-		if (frequentPlays.size() > 10) {
-			frequentPlays = frequentPlays.subList(0, 10);
+	void restoreRecent(Song song) {
+		long stamp = lock.writeLock();
+		try {
+			recentPlays.touch(song);
+			publishPlays();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 
+	// This library's view of a song's statistics
+	public int getRating(Song song) {
+		return (int) lookup(() -> songs.getRating(song));
+	}
+
+	public boolean isFavorite(Song song) {
+		return lookup(() -> songs.isFavorite(song) ? 1 : 0) == 1;
+	}
+
+	public int getPlayCount(Song song) {
+		return (int) lookup(() -> songs.getPlayCount(song));
+	}
+
+	public long getLastPlayed(Song song) {
+		return lookup(() -> songs.getLastPlayed(song));
+	}
+
+	// SmartShuffle weights from this library's ratings and last plays, as of now
+	public ToLongFunction<Song> getShuffleWeights() {
+		return SmartShuffle.ratingAndRecency(this::getRating, this::getLastPlayed, System.currentTimeMillis());
+	}
+
 	// Getters for playlists
 	public List<Song> getRecentPlays() {
-		return new ArrayList<>(recentPlays);
+		return new ArrayList<>(recentView);
 	}
 
 	public List<Song> getFrequentPlays() {
-		return new ArrayList<>(frequentPlays);
+		return new ArrayList<>(frequentView);
 	}
 
 	// Sorting methods
 	public List<Song> getSongsSortedByTitle() {
-		return songs.stream().sorted(Comparator.comparing(Song::getTitle)).collect(Collectors.toList());
+		return read(() -> sorted.all(SortedSongIndex.Order.TITLE));
 	}
 
 	public List<Song> getSongsSortedByArtist() {
-		return songs.stream().sorted(Comparator.comparing(Song::getArtist)).collect(Collectors.toList());
+		return read(() -> sorted.all(SortedSongIndex.Order.ARTIST));
 	}
 
+	// Highest rating first, catalog order within a rating
 	public List<Song> getSongsSortedByRating() {
-		return songs.stream().sorted(Comparator.comparingInt(Song::getRating).reversed()).collect(Collectors.toList());
+		return read(() -> sorted.all(SortedSongIndex.Order.RATING));
 	}
 
-	// Search methods (from LA#1)
+	// One page of a sorted order; pass the previous page's getNext() (null for the first)
+	public SortedSongIndex.Page getSongsPage(SortedSongIndex.Order order, SortedSongIndex.Cursor after, int limit) {
+		return read(() -> sorted.page(order, after, limit));
+	}
+
+	// Search methods (from LA#1): exact, case-insensitive matches from the store's maps, limited to this library
 	public List<Song> searchSongsByTitle(String title) {
-		return songs.stream().filter(s -> s.getTitle().equalsIgnoreCase(title)).collect(Collectors.toList());
+		return read(() -> {
+			List<Song> results = new ArrayList<>();
+			for (Song song : store.getSongsByTitle(title)) {
+				if (songs.contains(song)) {
+					results.add(song);
+				}
+			}
+			return results;
+		});
 	}
 
 	// 1. Search songs in the user's library by artist
 	public List<Song> searchSongsByArtist(String artist) {
-		List<Song> results = new ArrayList<>();
-		for (Song song : songs) {
-			if (song.getArtist().equalsIgnoreCase(artist)) {
-				results.add(song);
+		return read(() -> {
+			Set<Song> results = new LinkedHashSet<>(); // A song can be listed on two of the artist's albums
+			for (Album album : store.getAlbumsByArtist(artist)) {
+				for (Song song : album.getSongs()) {
+					if (songs.contains(song)) {
+						results.add(song);
+					}
+				}
 			}
-		}
-		return results;
+			return new ArrayList<>(results);
+		});
 	}
 
 	// 2. Search albums in the user's library by title
 	public List<Album> searchAlbumsByTitle(String title) {
-		List<Album> results = new ArrayList<>();
-		for (Album album : albums) {
-			if (album.getTitle().equalsIgnoreCase(title)) {
-				results.add(album);
+		return read(() -> {
+			List<Album> results = new ArrayList<>();
+			for (int id : albums.toSortedArray()) {
+				Album album = store.getAlbumById(id);
+				if (album.getTitle().equalsIgnoreCase(title)) {
+					results.add(album);
+				}
 			}
-		}
-		return results;
+			return results;
+		});
 	}
 
 	// 3. Search albums in the user's library by artist
 	public List<Album> searchAlbumsByArtist(String artist) {
-		List<Album> results = new ArrayList<>();
-		for (Album album : albums) {
-			if (album.getArtist().equalsIgnoreCase(artist)) {
-				results.add(album);
+		return read(() -> {
+			List<Album> results = new ArrayList<>();
+			for (Album album : store.getAlbumsByArtist(artist)) {
+				if (albums.contains(album.getId())) {
+					results.add(album);
+				}
 			}
-		}
-		return results;
+			return results;
+		});
+	}
+
+	// Full-text search over any field (title, artist, album, genre), prefix and typo tolerant
+	public List<Song> searchSongs(String query) {
+		return read(() -> store.searchSongs(query, EnumSet.allOf(Field.class), songScope, MAX_SEARCH_RESULTS));
+	}
+
+	// Full-text search over one field, ranked; "in" finds "Rolling in the Deep"
+	public List<Song> searchSongs(String query, Field field) {
+		return read(() -> store.searchSongs(query, EnumSet.of(field), songScope, MAX_SEARCH_RESULTS));
+	}
+
+	public List<Album> searchAlbums(String query, Field field) {
+		return read(() -> store.searchAlbums(query, EnumSet.of(field), albumScope, MAX_SEARCH_RESULTS));
 	}
 
 	// Remove functionality
 	public boolean removeSong(Song song) {
-		boolean removed = songs.remove(song);
-		if (removed) {
-			playlists.forEach(p -> p.removeSong(song));
-			updateRecentPlays(song);
-			updateFrequentPlays();
+		long stamp = lock.writeLock();
+		try {
+			int rating = songs.getRating(song);
+			boolean removed = songs.remove(song);
+			if (removed) {
+				indexGenre(song, false);
+				sorted.remove(song, rating);
+				removeFromPlaylists(song);
+				recentPlays.evict(song);
+				frequentPlays.remove(song, songs, songs::getPlayCount);
+				publishPlays();
+				LibraryListener current = listener;
+				if (current != null) {
+					current.songRemoved(song);
+				}
+			}
+			return removed;
+		} finally {
+			lock.unlockWrite(stamp);
 		}
-		return removed;
 	}
 
 	public boolean removeAlbum(Album album) {
-		boolean removed = albums.remove(album);
-		if (removed) {
-			songs.removeIf(s -> s.getAlbumTitle().equalsIgnoreCase(album.getTitle()));
+		long stamp = lock.writeLock();
+		try {
+			boolean removed = albums.remove(album.getId());
+			if (removed) {
+				for (Song song : album.getSongs()) {
+					int rating = songs.getRating(song);
+					if (!songs.remove(song)) {
+						continue;
+					}
+					indexGenre(song, false);
+					sorted.remove(song, rating);
+					removeFromPlaylists(song);
+					recentPlays.evict(song);
+					frequentPlays.remove(song);
+				}
+				frequentPlays.refill(songs, songs::getPlayCount);
+				publishPlays();
+				LibraryListener current = listener;
+				if (current != null) {
+					current.albumRemoved(album);
+				}
+			}
+			return removed;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Only the playlists holding the song are touched
+	private void removeFromPlaylists(Song song) {
+		Set<Playlist> containing = playlistsBySong.get(song);
+		if (containing != null) {
+			for (Playlist playlist : new ArrayList<>(containing)) {
+				playlist.removeAll(song);
+			}
+		}
+	}
+
+	// Creates an empty playlist; null if the name is taken
+	public Playlist createPlaylist(String name) {
+		Playlist playlist = new Playlist(name);
+		return addPlaylist(playlist) ? playlist : null;
+	}
+
+	// Adopts a playlist with whatever songs it already has; false if the name is taken
+	public boolean addPlaylist(Playlist playlist) {
+		long stamp = lock.writeLock();
+		try {
+			if (playlists.putIfAbsent(playlist.getName(), playlist) != null) {
+				return false;
+			}
+			playlist.setOwner(playlistOwner);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistCreated(playlist.getName());
+				List<Song> tracks = playlist.getTrackList();
+				if (!tracks.isEmpty()) {
+					current.playlistSongsAdded(playlist.getName(), tracks);
+				}
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public boolean deletePlaylist(String name) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.remove(name);
+			if (playlist == null) {
+				return false;
+			}
+			playlist.setOwner(null);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistDeleted(playlist.getName());
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// False if there's no such playlist or another one already has the new name
+	public boolean renamePlaylist(String name, String newName) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.get(name);
+			Playlist existing = playlists.get(newName);
+			if (playlist == null || (existing != null && existing != playlist)) {
+				return false;
+			}
+			String oldName = playlist.getName();
+			playlists.remove(oldName);
+			playlist.setName(newName);
+			playlists.put(newName, playlist);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistRenamed(oldName, newName);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public Playlist getPlaylist(String name) {
+		return playlists.get(name);
+	}
+
+	// Sorted by name
+	public List<Playlist> getPlaylists() {
+		return new ArrayList<>(playlists.values());
+	}
+
+	/**
+	 * Appends the songs that are in this library to the playlist in one batch:
+	 * one playlist update and one listener call however many songs there are.
+	 * Returns how many were added (-1 if there's no such playlist).
+	 */
+	public int addSongsToPlaylist(String name, Collection<Song> candidates) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.get(name);
+			if (playlist == null) {
+				return -1;
+			}
+			List<Song> batch = new ArrayList<>(candidates.size());
+			for (Song song : candidates) {
+				if (songs.contains(song)) {
+					batch.add(song);
+				}
+			}
+			if (batch.isEmpty()) {
+				return 0;
+			}
+			playlist.addSongs(batch);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistSongsAdded(playlist.getName(), batch);
+			}
+			return batch.size();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public boolean addSongToPlaylist(String name, Song song) {
+		return addSongsToPlaylist(name, List.of(song)) == 1;
+	}
+
+	// The album's songs that are in the library
+	public int addAlbumToPlaylist(String name, Album album) {
+		return addSongsToPlaylist(name, album.getSongs());
+	}
+
+	// The artist's songs that are in the library, album by album
+	public int addArtistToPlaylist(String name, String artist) {
+		List<Song> candidates = new ArrayList<>();
+		for (Album album : store.getAlbumsByArtist(artist)) {
+			candidates.addAll(album.getSongs());
 		}
-		return removed;
+		return addSongsToPlaylist(name, candidates);
+	}
+
+	// Inserts before the song now at position (0 to the playlist's size); false if the song isn't in the library
+	public boolean insertPlaylistSong(String name, int position, Song song) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.get(name);
+			if (playlist == null || !songs.contains(song) || position < 0 || position > playlist.size()) {
+				return false;
+			}
+			playlist.insertSong(position, song);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistSongInserted(playlist.getName(), position, song);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Moves the song at one position so it ends up at the other; false if either is out of range
+	public boolean movePlaylistSong(String name, int from, int to) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.get(name);
+			if (playlist == null || Math.min(from, to) < 0 || Math.max(from, to) >= playlist.size()) {
+				return false;
+			}
+			if (from == to) {
+				return true;
+			}
+			playlist.moveSong(from, to);
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistSongMoved(playlist.getName(), from, to);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// Removes the first copy of the song from the playlist
+	public boolean removeSongFromPlaylist(String name, Song song) {
+		long stamp = lock.writeLock();
+		try {
+			Playlist playlist = playlists.get(name);
+			if (playlist == null || !playlist.removeSong(song)) {
+				return false;
+			}
+			LibraryListener current = listener;
+			if (current != null) {
+				current.playlistSongRemoved(playlist.getName(), song);
+			}
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public List<Playlist> getPlaylistsContaining(Song song) {
+		Set<Playlist> containing = playlistsBySong.get(song);
+		return containing == null ? new ArrayList<>() : new ArrayList<>(containing);
+	}
+
+	// Albums in the library, in catalog order
+	public List<Album> getAlbums() {
+		return read(() -> {
+			List<Album> result = new ArrayList<>(albums.size());
+			for (int id : albums.toSortedArray()) {
+				result.add(store.getAlbumById(id));
+			}
+			return result;
+		});
+	}
+
+	// Snapshot of the library songs in the order they were added
+	public List<Song> getSongs() {
+		return read(() -> {
+			List<Song> result = new ArrayList<>(songs.size());
+			for (Song song : songs) {
+				result.add(song);
+			}
+			return result;
+		});
+	}
+
+	public boolean containsSong(Song song) {
+		return lookup(() -> songs.contains(song) ? 1 : 0) == 1;
+	}
+
+	public boolean containsAlbum(Album album) {
+		return lookup(() -> albums.contains(album.getId()) ? 1 : 0) == 1;
+	}
+
+	public int getSongCount() {
+		return (int) lookup(songs::size);
 	}
 
 	// Automatic playlists (LA#2)
 	public List<Song> getFavorites() {
-		return songs.stream().filter(Song::isFavorite).collect(Collectors.toList());
+		return read(songs::getFavorites);
 	}
 
+	// Genres with at least MIN_GENRE_PLAYLIST songs in the library
 	public Map<String, List<Song>> getGenrePlaylists() {
-		Map<String, List<Song>> genreMap = new HashMap<>();
-		for (Song song : songs) {
-			Album album = store.getAlbum(song.getAlbumTitle());
-			genreMap.computeIfAbsent(album.getGenre(), k -> new ArrayList<>()).add(song);
+		return read(() -> genres.playlists(MIN_GENRE_PLAYLIST, store::getSongById));
+	}
+
+	// Caller holds the write lock; songs the store has no album for have no genre
+	private void indexGenre(Song song, boolean add) {
+		Album album = store.getAlbumOfSong(song);
+		if (album == null || album.getGenre() == null) {
+			return;
+		}
+		if (add) {
+			genres.add(album.getGenre(), song.getId());
+		} else {
+			genres.remove(album.getGenre(), song.getId());
 		}
-		return genreMap.entrySet().stream().filter(e -> e.getValue().size() >= 10)
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 	}
 
 	public List<Song> getTopRated() {
-		return songs.stream().filter(s -> s.getRating() >= 4)
-				.sorted(Comparator.comparingInt(Song::getRating).reversed()).collect(Collectors.toList());
+		return read(() -> songs.getSortedByRating(4));
+	}
+
+	// Caller holds the write lock; readers see the lists without locking
+	private void publishPlays() {
+		recentView = Collections.unmodifiableList(recentPlays.snapshot());
+		frequentView = frequentPlays.getTopSongs();
+	}
+
+	// Anything that iterates or copies the library's collections; writers change them in place
+	private <T> T read(Supplier<T> reader) {
+		long stamp = lock.readLock();
+		try {
+			return reader.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * A point lookup without locking, kept if no writer got in meanwhile. Only
+	 * for a few array or hash slot reads returning a number: a racing writer can
+	 * make them wrong (or throw), never loop, and nothing is handed out before
+	 * validate(). Otherwise it's retried under the read lock.
+	 */
+	private long lookup(LongSupplier reader) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				long result = reader.getAsLong();
+				if (lock.validate(stamp)) {
+					return result;
+				}
+			} catch (RuntimeException e) {
+				// Raced with a writer; retried below
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return reader.getAsLong();
+		} finally {
+			lock.unlockRead(stamp);
+		}
 	}
 }
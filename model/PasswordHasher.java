@@ -0,0 +1,27 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. A password hashing scheme.
+ * - Each scheme has an id that is stored with the hash, so verification uses
+ *   the scheme (and cost) the hash was made with.
+ * - forScheme() turns a stored id back into a hasher.
+ */
+package model;
+
+public interface PasswordHasher {
+	// Stored alongside each hash, e.g. "pbkdf2-sha256:210000"
+	String getScheme();
+
+	byte[] hash(String password, byte[] salt);
+
+	static PasswordHasher forScheme(String scheme) {
+		if (scheme.equals(Sha256Hasher.SCHEME)) {
+			return new Sha256Hasher();
+		}
+		if (scheme.startsWith(Pbkdf2Hasher.SCHEME_PREFIX)) {
+			return new Pbkdf2Hasher(Integer.parseInt(scheme.substring(Pbkdf2Hasher.SCHEME_PREFIX.length())));
+		}
+		throw new IllegalArgumentException("Unknown password scheme: " + scheme);
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. PBKDF2-HMAC-SHA256 password hashing from the JDK.
+ * - The iteration count is the cost knob; it is part of the scheme id so
+ *   older hashes keep verifying after the default is raised.
+ */
+package model;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+public class Pbkdf2Hasher implements PasswordHasher {
+	public static final int DEFAULT_ITERATIONS = 210_000;
+	static final String SCHEME_PREFIX = "pbkdf2-sha256:";
+	private static final int KEY_BITS = 256;
+
+	private int iterations;
+
+	public Pbkdf2Hasher() {
+		this(DEFAULT_ITERATIONS);
+	}
+
+	public Pbkdf2Hasher(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+		}
+		this.iterations = iterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public String getScheme() {
+		return SCHEME_PREFIX + iterations;
+	}
+
+	@Override
+	public byte[] hash(String password, byte[] salt) {
+		char[] chars = password.toCharArray();
+		PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, KEY_BITS);
+		try {
+			return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("PBKDF2 is not available", e);
+		} finally {
+			spec.clearPassword();
+			Arrays.fill(chars, '\0');
+		}
+	}
+}
@@ -3,44 +3,346 @@
  * @author Joshua
  * 
  * Part of the Model for LA#2. Represents a playlist in the music library.
- * - Maintains songs in order and supports shuffling via the Iterator pattern.
+ * - Maintains songs in order and supports shuffling via the Iterator pattern,
+ *   either uniformly or with SmartShuffle's artist-spread, weighted order.
+ * - Each song maps to the slots it occupies, so contains() is O(1) and a
+ *   removal just clears a slot; cleared slots are compacted away once they
+ *   outnumber the songs. Inserting or moving by position shifts the tracks.
+ * - Shuffles read the tracks array itself through a read-only view. A change
+ *   made while a view is out copies the array first (copy-on-write); appends
+ *   land past the view's end, so they copy nothing.
+ * - The library owning the playlist is told when a song joins or leaves it;
+ *   addSongs() reports a whole batch at once. It also supplies the ratings and
+ *   plays a weighted shuffle uses, since those are per library.
+ * - Tracks only change through LibraryModel, which locks and journals each
+ *   change, so the mutators are package-private.
  */
 package model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.ToLongFunction;
+import java.util.random.RandomGenerator;
 
 public class Playlist {
-	private String name;
-	private List<Song> trackList;
+	private static final int MIN_COMPACT = 16; // Cleared slots tolerated regardless of size
+	private volatile String name;
+	private Song[] slots; // Tracks in order; null where one was removed
+	private int end; // Slots in use, cleared ones included
+	private int size;
+	private Map<Song, Slots> index; // By identity: a song's slots in ascending order
+	private List<Song> snapshot; // Read-only view of slots for shuffles; null after a change
+	private boolean shared; // A view still reads slots, so copy before changing them
+	private Owner owner;
+
+	// Told when a song's first copy joins the playlist or its last copy leaves
+	interface Owner {
+		void songsAdded(Playlist playlist, Collection<Song> songs);
+
+		void songRemoved(Playlist playlist, Song song);
+
+		// Weighted-shuffle weights from the owner's own ratings and plays
+		ToLongFunction<Song> shuffleWeights();
+	}
+
+	// Fixed-length, read-only window onto a tracks array
+	private static class TrackView extends AbstractList<Song> implements RandomAccess {
+		private final Song[] tracks;
+		private final int length;
+
+		TrackView(Song[] tracks, int length) {
+			this.tracks = tracks;
+			this.length = length;
+		}
+
+		@Override
+		public Song get(int i) {
+			Objects.checkIndex(i, length);
+			return tracks[i];
+		}
+
+		@Override
+		public int size() {
+			return length;
+		}
+	}
+
+	private static class Slots {
+		int[] slots = new int[1];
+		int count;
+
+		void add(int slot) {
+			if (count == slots.length) {
+				slots = Arrays.copyOf(slots, count * 2);
+			}
+			slots[count++] = slot;
+		}
+
+		int removeFirst() {
+			int first = slots[0];
+			System.arraycopy(slots, 1, slots, 0, --count);
+			return first;
+		}
+	}
 
 	public Playlist(String name) {
 		this.name = name;
-		this.trackList = new ArrayList<>();
+		this.slots = new Song[8];
+		this.index = new IdentityHashMap<>();
+	}
+
+	// Starts with these tracks; a library adopting it (LibraryModel.addPlaylist) records them
+	public Playlist(String name, Collection<Song> songs) {
+		this(name);
+		addSongs(songs);
+	}
+
+	synchronized void addSong(Song song) {
+		addSongs(List.of(song));
+	}
+
+	// Appends the songs in order, growing the tracks once
+	synchronized void addSongs(Collection<Song> songs) {
+		if (end + songs.size() > slots.length) {
+			compact();
+			if (end + songs.size() > slots.length) {
+				slots = Arrays.copyOf(slots, Math.max(slots.length * 2, end + songs.size()));
+				shared = false; // Views keep the old array
+			}
+		}
+		List<Song> added = new ArrayList<>();
+		for (Song song : songs) {
+			slots[end] = song;
+			if (track(song, end++)) {
+				added.add(song);
+			}
+			size++;
+		}
+		snapshot = null;
+		if (!added.isEmpty() && owner != null) {
+			owner.songsAdded(this, added);
+		}
+	}
+
+	// Inserts before the song now at position (0 to size())
+	synchronized void insertSong(int position, Song song) {
+		checkPosition(position, size);
+		compact();
+		unshare();
+		if (end == slots.length) {
+			slots = Arrays.copyOf(slots, slots.length * 2);
+		}
+		System.arraycopy(slots, position, slots, position + 1, end - position);
+		slots[position] = song;
+		end++;
+		size++;
+		boolean first = !index.containsKey(song);
+		reindex();
+		snapshot = null;
+		if (first && owner != null) {
+			owner.songsAdded(this, List.of(song));
+		}
 	}
 
-	public void addSong(Song song) {
-		trackList.add(song);
+	// Moves the song at one position so it ends up at the other
+	synchronized void moveSong(int from, int to) {
+		checkPosition(from, size - 1);
+		checkPosition(to, size - 1);
+		compact();
+		unshare();
+		Song song = slots[from];
+		if (from < to) {
+			System.arraycopy(slots, from + 1, slots, from, to - from);
+		} else {
+			System.arraycopy(slots, to, slots, to + 1, from - to);
+		}
+		slots[to] = song;
+		reindex();
+		snapshot = null;
 	}
 
-	public boolean removeSong(Song song) {
-		return trackList.remove(song);
+	// Removes the first copy of the song
+	synchronized boolean removeSong(Song song) {
+		Slots found = index.get(song);
+		if (found == null) {
+			return false;
+		}
+		clear(found.removeFirst());
+		if (found.count == 0) {
+			untrack(song);
+		}
+		afterRemove();
+		return true;
+	}
+
+	// Removes every copy of the song; returns how many there were
+	synchronized int removeAll(Song song) {
+		Slots found = index.get(song);
+		if (found == null) {
+			return 0;
+		}
+		for (int i = 0; i < found.count; i++) {
+			clear(found.slots[i]);
+		}
+		untrack(song);
+		afterRemove();
+		return found.count;
+	}
+
+	public synchronized boolean contains(Song song) {
+		return index.containsKey(song);
+	}
+
+	public synchronized int size() {
+		return size;
 	}
 
 	public String getName() {
 		return name;
 	}
 
-	public List<Song> getTrackList() {
-		return new ArrayList<>(trackList);
+	// Renamed through LibraryModel, which keeps names unique
+	void setName(String name) {
+		this.name = name;
+	}
+
+	public synchronized List<Song> getTrackList() {
+		List<Song> tracks = new ArrayList<>(size);
+		for (int i = 0; i < end; i++) {
+			if (slots[i] != null) {
+				tracks.add(slots[i]);
+			}
+		}
+		return tracks;
 	} // Defensive copy
 
-	// Shuffle iterator (Iterator Pattern)
+	// Shuffle iterator (Iterator Pattern); shuffles the tracks as of this call
 	public Iterator<Song> getShuffledIterator() {
-		List<Song> shuffled = new ArrayList<>(trackList);
-		Collections.shuffle(shuffled);
-		return shuffled.iterator();
+		return new ShuffleIterator(snapshot());
+	}
+
+	// Pass a seeded generator to replay the same order
+	public Iterator<Song> getShuffledIterator(RandomGenerator random) {
+		return new ShuffleIterator(snapshot(), random);
+	}
+
+	/**
+	 * Spreads artists and albums out; weighted favors songs the owning library
+	 * rates highly and hasn't played lately. A playlist outside any library has
+	 * no ratings, so it shuffles uniformly.
+	 */
+	public Iterator<Song> getSmartShuffleIterator(boolean weighted) {
+		Owner current;
+		synchronized (this) {
+			current = owner;
+		}
+		ToLongFunction<Song> weight = weighted && current != null ? current.shuffleWeights() : SmartShuffle.UNIFORM;
+		return getSmartShuffleIterator(weight, new SplittableRandom());
+	}
+
+	public Iterator<Song> getSmartShuffleIterator(ToLongFunction<Song> weight, RandomGenerator random) {
+		return new SmartShuffle(snapshot(), weight, random);
+	}
+
+	// The old owner hears that every song left, the new one that they all arrived
+	synchronized void setOwner(Owner owner) {
+		if (this.owner != null) {
+			for (Song song : index.keySet()) {
+				this.owner.songRemoved(this, song);
+			}
+		}
+		this.owner = owner;
+		if (owner != null && !index.isEmpty()) {
+			owner.songsAdded(this, new ArrayList<>(index.keySet()));
+		}
+	}
+
+	// Shares slots instead of copying them; compacts first so the view has no gaps
+	private synchronized List<Song> snapshot() {
+		if (snapshot == null) {
+			compact();
+			snapshot = new TrackView(slots, end);
+			shared = true;
+		}
+		return snapshot;
+	}
+
+	// Gives this playlist its own slots before changing any a view can see
+	private void unshare() {
+		if (shared) {
+			slots = slots.clone();
+			shared = false;
+		}
+	}
+
+	// True if this is the song's first copy
+	private boolean track(Song song, int slot) {
+		Slots found = index.get(song);
+		boolean first = found == null;
+		if (first) {
+			found = new Slots();
+			index.put(song, found);
+		}
+		found.add(slot);
+		return first;
+	}
+
+	private void untrack(Song song) {
+		index.remove(song);
+		if (owner != null) {
+			owner.songRemoved(this, song);
+		}
+	}
+
+	private void clear(int slot) {
+		unshare();
+		slots[slot] = null;
+		size--;
+	}
+
+	private void afterRemove() {
+		snapshot = null;
+		if (end - size > Math.max(size, MIN_COMPACT)) {
+			compact();
+		}
+	}
+
+	// Squeezes out cleared slots
+	private void compact() {
+		if (end == size) {
+			return;
+		}
+		unshare();
+		int kept = 0;
+		for (int i = 0; i < end; i++) {
+			if (slots[i] != null) {
+				slots[kept++] = slots[i];
+			}
+		}
+		Arrays.fill(slots, kept, end, null);
+		end = kept;
+		reindex();
+	}
+
+	private void reindex() {
+		index.clear();
+		for (int i = 0; i < end; i++) {
+			index.computeIfAbsent(slots[i], s -> new Slots()).add(i);
+		}
+	}
+
+	private static void checkPosition(int position, int max) {
+		if (position < 0 || position > max) {
+			throw new IndexOutOfBoundsException("Position " + position + " out of range 0.." + max);
+		}
 	}
 }
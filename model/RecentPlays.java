@@ -0,0 +1,130 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Access-ordered LRU of recently played songs.
+ * - Identity-keyed hash map over a doubly linked list: touch and evict are O(1).
+ * - Snapshots copy at most the configured capacity.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RecentPlays {
+	private int capacity;
+	private Map<Song, Node> nodes;
+	private Node head; // Most recent
+	private Node tail; // Least recent
+
+	private static class Node {
+		Song song;
+		Node prev;
+		Node next;
+
+		Node(Song song) {
+			this.song = song;
+		}
+	}
+
+	public RecentPlays(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.nodes = new IdentityHashMap<>();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		trim();
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	// Moves the song to the front, evicting the oldest entry if over capacity
+	public void touch(Song song) {
+		Node node = nodes.get(song);
+		if (node == null) {
+			node = new Node(song);
+			nodes.put(song, node);
+		} else if (node == head) {
+			return;
+		} else {
+			unlink(node);
+		}
+		linkFirst(node);
+		trim();
+	}
+
+	// Drops the song without touching the order of the rest
+	public boolean evict(Song song) {
+		Node node = nodes.remove(song);
+		if (node == null) {
+			return false;
+		}
+		unlink(node);
+		return true;
+	}
+
+	public void clear() {
+		nodes.clear();
+		head = null;
+		tail = null;
+	}
+
+	// Most recent first
+	public List<Song> snapshot() {
+		List<Song> result = new ArrayList<>(nodes.size());
+		for (Node node = head; node != null; node = node.next) {
+			result.add(node.song);
+		}
+		return result;
+	}
+
+	private void trim() {
+		while (nodes.size() > capacity) {
+			Node oldest = tail;
+			nodes.remove(oldest.song);
+			unlink(oldest);
+		}
+	}
+
+	private void linkFirst(Node node) {
+		node.prev = null;
+		node.next = head;
+		if (head != null) {
+			head.prev = node;
+		}
+		head = node;
+		if (tail == null) {
+			tail = node;
+		}
+	}
+
+	private void unlink(Node node) {
+		if (node.prev != null) {
+			node.prev.next = node.next;
+		} else {
+			head = node.next;
+		}
+		if (node.next != null) {
+			node.next.prev = node.prev;
+		} else {
+			tail = node.prev;
+		}
+		node.prev = null;
+		node.next = null;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Short-lived session tokens issued after a login.
+ * - A valid token stands in for the password, so requests within a session
+ *   don't pay for another password hash.
+ * - Tokens are random 256-bit values; expired ones are dropped on lookup and
+ *   swept periodically.
+ * - Expiry slides: each successful validate() gives the session another full
+ *   TTL, so only idle sessions expire.
+ */
+package model;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+public class SessionTokens {
+	public static final long DEFAULT_TTL_MILLIS = 15 * 60 * 1000;
+	private static final int SWEEP_INTERVAL = 1024; // Issues between sweeps of expired tokens
+	private static final int TOKEN_BYTES = 32;
+
+	private static class Session {
+		final String username;
+		volatile long expires; // Pushed back on every use
+
+		Session(String username, long expires) {
+			this.username = username;
+			this.expires = expires;
+		}
+	}
+
+	private Map<String, Session> sessions;
+	private long ttlMillis;
+	private LongSupplier clock;
+	private SecureRandom random;
+	private AtomicInteger issued;
+
+	public SessionTokens(long ttlMillis) {
+		this(ttlMillis, System::currentTimeMillis);
+	}
+
+	public SessionTokens(long ttlMillis, LongSupplier clock) {
+		this.sessions = new ConcurrentHashMap<>();
+		this.ttlMillis = ttlMillis;
+		this.clock = clock;
+		this.random = new SecureRandom();
+		this.issued = new AtomicInteger();
+	}
+
+	public String issue(String username) {
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		sessions.put(token, new Session(username, clock.getAsLong() + ttlMillis));
+		if (issued.incrementAndGet() % SWEEP_INTERVAL == 0) {
+			sweep();
+		}
+		return token;
+	}
+
+	// The token's username, or null if it's unknown or expired; renews the session
+	public String validate(String token) {
+		if (token == null) {
+			return null;
+		}
+		Session session = sessions.get(token);
+		if (session == null) {
+			return null;
+		}
+		long now = clock.getAsLong();
+		if (session.expires <= now) {
+			sessions.remove(token, session);
+			return null;
+		}
+		session.expires = now + ttlMillis;
+		return session.username;
+	}
+
+	public void revoke(String token) {
+		if (token != null) {
+			sessions.remove(token);
+		}
+	}
+
+	// Ends every session of the user (e.g. after a password change)
+	public void revokeAll(String username) {
+		sessions.values().removeIf(session -> session.username.equals(username));
+	}
+
+	public int size() {
+		return sessions.size();
+	}
+
+	private void sweep() {
+		long now = clock.getAsLong();
+		sessions.values().removeIf(session -> session.expires <= now);
+	}
+}
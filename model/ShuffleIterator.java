@@ -3,35 +3,63 @@
  * @author Joshua
  * 
  * Part of the Model for LA#2. Implements the Iterator pattern for shuffled playlists.
- * - Uses Collections.shuffle() to randomize song order.
+ * - Shuffles lazily: each next() does one Fisher-Yates step, so the cost
+ *   follows the songs actually played rather than the playlist's length.
+ * - Only swapped positions are remembered, in a sparse map, so starting a
+ *   shuffle allocates nothing proportional to the playlist either.
+ * - Reads songs from the given list by index instead of copying it; the list
+ *   must not change while iterating.
+ * - Takes a RandomGenerator so a seeded one replays the same order.
  */
 package model;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException; 
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class ShuffleIterator implements Iterator<Song> {
-    private List<Song> shuffledList;
-    private int index = 0;
+	private List<Song> songs;
+	private RandomGenerator random;
+	private int size;
+	private IntIntMap swapped; // Index now at each swapped position; absent means the position itself
+	private int index = 0;
 
-    public ShuffleIterator(List<Song> songs) {
-        this.shuffledList = new ArrayList<>(songs);
-        Collections.shuffle(shuffledList);
-    }
+	public ShuffleIterator(List<Song> songs) {
+		this(songs, new SplittableRandom());
+	}
 
-    @Override
-    public boolean hasNext() {
-        return index < shuffledList.size();
-    }
+	public ShuffleIterator(List<Song> songs, RandomGenerator random) {
+		this.songs = songs;
+		this.random = random;
+		this.size = songs.size();
+		this.swapped = new IntIntMap();
+	}
 
-    @Override
-    public Song next() {
-        if (!hasNext()) {
-            throw new NoSuchElementException("No more elements in the playlist."); 
-        }
-        return shuffledList.get(index++);
-    }
+	@Override
+	public boolean hasNext() {
+		return index < size;
+	}
+
+	@Override
+	public Song next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more elements in the playlist."); 
+		}
+		// Pick from the unplayed positions and move what was at index into its place
+		int pick = index + random.nextInt(size - index);
+		int chosen = at(pick);
+		if (pick != index) {
+			swapped.put(pick, at(index));
+		}
+		swapped.remove(index); // Played positions are never read again
+		index++;
+		return songs.get(chosen);
+	}
+
+	private int at(int position) {
+		int stored = swapped.get(position);
+		return stored == IntIntMap.MISSING ? position : stored;
+	}
 }
@@ -0,0 +1,198 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. A balanced shuffle that spreads artists and albums out.
+ * - Songs are grouped artist -> album -> song. Like Spotify's balanced
+ *   shuffle, each artist (and each album within an artist) is given slots
+ *   spaced by its share of what's left, starting at a random offset and with
+ *   a little jitter; the group whose slot comes first plays next. The same
+ *   group never plays twice in a row while another one has songs left.
+ * - Song weights (see ratingAndRecency()) decide which of an album's songs
+ *   fills each slot, and a heavier artist or album gets closer slots.
+ * - Slots are kept in a heap and album songs in a Fenwick tree, so a pick
+ *   costs O(log n) and nothing is ordered up front.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.random.RandomGenerator;
+
+public class SmartShuffle implements Iterator<Song> {
+	public static final ToLongFunction<Song> UNIFORM = song -> 1;
+	public static final long RECENCY_WINDOW_MILLIS = 24 * 60 * 60 * 1000; // Played within it: less likely
+	private static final long[] RATING_WEIGHTS = { 4, 1, 2, 4, 6, 8 }; // Unrated counts as 3 stars
+	private static final int RECENT_FLOOR_PERCENT = 10; // A song just played keeps this much of its weight
+	private static final double JITTER = 0.1; // Slots drift up to this fraction of their spacing
+
+	private Group root;
+
+	// Songs left under an artist or album, and their total weight
+	private abstract static class Group {
+		int count;
+		long total;
+
+		abstract Song next();
+	}
+
+	// An album's songs, drawn by weight without replacement
+	private static class Tracks extends Group {
+		Song[] songs;
+		long[] weights;
+		long[] tree; // Fenwick tree over weights
+		RandomGenerator random;
+
+		Tracks(List<Song> songs, ToLongFunction<Song> weight, RandomGenerator random) {
+			this.songs = songs.toArray(new Song[0]);
+			this.weights = new long[this.songs.length];
+			this.tree = new long[weights.length + 1];
+			this.random = random;
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = Math.max(1, weight.applyAsLong(this.songs[i]));
+				tree[i + 1] += weights[i];
+				int parent = (i + 1) + ((i + 1) & -(i + 1));
+				if (parent < tree.length) {
+					tree[parent] += tree[i + 1];
+				}
+				total += weights[i];
+			}
+			this.count = weights.length;
+		}
+
+		@Override
+		Song next() {
+			// Find the song whose range of the total weight holds the target
+			long target = random.nextLong(total);
+			int position = 0;
+			for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+				int next = position + step;
+				if (next < tree.length && tree[next] <= target) {
+					position = next;
+					target -= tree[next];
+				}
+			}
+			long weight = weights[position];
+			weights[position] = 0;
+			for (int i = position + 1; i < tree.length; i += i & -i) {
+				tree[i] -= weight;
+			}
+			total -= weight;
+			count--;
+			return songs[position];
+		}
+	}
+
+	// Artists or albums, each played at the next of its slots
+	private static class Spread extends Group {
+		Group[] children;
+		double[] due; // Next slot of each child, in picks
+		PriorityQueue<Integer> slots;
+		RandomGenerator random;
+		int clock; // Picks made so far
+		int last = -1;
+
+		Spread(List<Group> children, RandomGenerator random) {
+			this.children = children.toArray(new Group[0]);
+			this.due = new double[this.children.length];
+			this.slots = new PriorityQueue<>(Math.max(1, due.length), (a, b) -> Double.compare(due[a], due[b]));
+			this.random = random;
+			for (Group child : this.children) {
+				total += child.total;
+				count += child.count;
+			}
+			for (int i = 0; i < due.length; i++) {
+				due[i] = random.nextDouble() * spacing(i);
+				slots.add(i);
+			}
+		}
+
+		// Picks between a child's slots: the group's weight over the child's
+		private double spacing(int child) {
+			return (double) total / children[child].total;
+		}
+
+		@Override
+		Song next() {
+			int index = slots.poll();
+			if (index == last && !slots.isEmpty()) {
+				int other = slots.poll();
+				slots.add(index);
+				index = other;
+			}
+			Group child = children[index];
+			long before = child.total;
+			Song song = child.next();
+			total -= before - child.total;
+			count--;
+			clock++;
+			last = index;
+			if (child.count > 0) {
+				due[index] = clock + spacing(index) * (1 + JITTER * (2 * random.nextDouble() - 1));
+				slots.add(index);
+			}
+			return song;
+		}
+	}
+
+	public SmartShuffle(List<Song> songs) {
+		this(songs, UNIFORM, new SplittableRandom());
+	}
+
+	public SmartShuffle(List<Song> songs, ToLongFunction<Song> weight, RandomGenerator random) {
+		Map<String, Map<String, List<Song>>> artists = new LinkedHashMap<>();
+		for (Song song : songs) {
+			String album = song.getAlbumTitle() == null ? "" : song.getAlbumTitle();
+			artists.computeIfAbsent(song.getArtist(), a -> new LinkedHashMap<>())
+					.computeIfAbsent(album, a -> new ArrayList<>()).add(song);
+		}
+		List<Group> artistGroups = new ArrayList<>(artists.size());
+		for (Map<String, List<Song>> albums : artists.values()) {
+			List<Group> albumGroups = new ArrayList<>(albums.size());
+			for (List<Song> tracks : albums.values()) {
+				albumGroups.add(new Tracks(tracks, weight, random));
+			}
+			artistGroups.add(albumGroups.size() == 1 ? albumGroups.get(0) : new Spread(albumGroups, random));
+		}
+		this.root = new Spread(artistGroups, random);
+	}
+
+	/**
+	 * Favors higher-rated songs and holds back ones played within the last
+	 * RECENCY_WINDOW_MILLIS (linearly, down to RECENT_FLOOR_PERCENT).
+	 */
+	public static ToLongFunction<Song> ratingAndRecency(ToIntFunction<Song> rating, ToLongFunction<Song> lastPlayed,
+			long now) {
+		return song -> {
+			long weight = RATING_WEIGHTS[Math.max(0, Math.min(5, rating.applyAsInt(song)))] * 100;
+			long played = lastPlayed.applyAsLong(song);
+			long age = now - played;
+			if (played > 0 && age < RECENCY_WINDOW_MILLIS) {
+				long percent = Math.max(RECENT_FLOOR_PERCENT, Math.max(0, age) * 100 / RECENCY_WINDOW_MILLIS);
+				weight = weight * percent / 100;
+			}
+			return weight;
+		};
+	}
+
+	@Override
+	public boolean hasNext() {
+		return root.count > 0;
+	}
+
+	@Override
+	public Song next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more elements in the playlist.");
+		}
+		return root.next();
+	}
+}
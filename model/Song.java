@@ -4,17 +4,29 @@
  * 
  * Part of the Model for LA#2. Represents a song in the music library.
  * - Tracks play count, rating, and favorite status.
+ * - Songs are shared by every session, so play() is lock-free (atomic field
+ *   updater) and the mutable fields are volatile.
+ * - Title and artist sort keys (see SortKeys) are computed on first use and
+ *   kept, so sorting never re-collates a string.
  */
 package model;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 public class Song {
+	private static final AtomicIntegerFieldUpdater<Song> PLAY_COUNT = AtomicIntegerFieldUpdater.newUpdater(Song.class,
+			"playCount");
+
 	private String title;
 	private String artist;
 	private String albumTitle;
-	private int rating;
-	private boolean favorite;
-	private int playCount;
-	private long lastPlayed;
+	private volatile int rating;
+	private volatile boolean favorite;
+	private volatile int playCount;
+	private volatile long lastPlayed;
+	private int id = -1; // Dense catalog id, assigned by the store
+	private volatile byte[] titleKey; // Racy but idempotent caches
+	private volatile byte[] artistKey;
 
 	public Song(String title, String artist, String albumTitle) {
 		this.title = title;
@@ -27,6 +39,10 @@ public class Song {
 	}
 
 	// Getters
+	public int getId() {
+		return id;
+	}
+
 	public String getTitle() {
 		return title;
 	}
@@ -55,6 +71,37 @@ public class Song {
 		return lastPlayed;
 	}
 
+	public String getSortArtist() {
+		return SortKeys.sortArtist(artist);
+	}
+
+	// Collation key bytes; compare with SortKeys.compare
+	public byte[] getTitleSortKey() {
+		byte[] key = titleKey;
+		if (key == null) {
+			key = SortKeys.key(title);
+			titleKey = key;
+		}
+		return key;
+	}
+
+	public byte[] getArtistSortKey() {
+		byte[] key = artistKey;
+		if (key == null) {
+			key = SortKeys.key(getSortArtist());
+			artistKey = key;
+		}
+		return key;
+	}
+
+	// Called once by the store when the song enters the catalog
+	public void assignId(int id) {
+		if (this.id >= 0 && this.id != id) {
+			throw new IllegalStateException("Song already has id " + this.id);
+		}
+		this.id = id;
+	}
+
 	// Setter for rating (updates favorite status)
 	public void setRating(int rating) {
 		if (rating >= 0 && rating <=5) {
@@ -67,7 +114,7 @@ public class Song {
 
 	// Track plays
 	public void play() {
-		playCount++;
+		PLAY_COUNT.incrementAndGet(this);
 		lastPlayed = System.currentTimeMillis();
 	}
 }
@@ -0,0 +1,182 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Every catalog song's place in title and artist order.
+ * - Sorted once per catalog by collation key (see SortKeys), ties by song id,
+ *   so a library orders its songs by comparing two ints instead of keys.
+ * - Shared by every library; each one keeps only song ids (SortedSongIndex).
+ * - A catalog that grows gets new ranks from extend(): only the new songs are
+ *   sorted and searched into place, and songs already ranked keep their
+ *   relative order, so orders built from older ranks stay sorted.
+ * - Immutable; the store publishes a new one as the catalog grows. The orders
+ *   are saved in the catalog snapshot so a boot doesn't sort again.
+ */
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+public final class SongRanks {
+	private static final Comparator<Song> BY_TITLE = Comparator
+			.comparing(Song::getTitleSortKey, SortKeys::compare).thenComparingInt(Song::getId);
+	private static final Comparator<Song> BY_ARTIST = Comparator
+			.comparing(Song::getArtistSortKey, SortKeys::compare).thenComparingInt(Song::getId);
+	private final Song[] songs; // By id; null for ids with no song
+	private final int[] titleOrder; // Ids in title order
+	private final int[] artistOrder;
+	private final int[] titleRanks; // By id
+	private final int[] artistRanks;
+
+	// The table is indexed by song id, as the store's is
+	public SongRanks(List<Song> table) {
+		this(table.toArray(new Song[0]), null, null);
+	}
+
+	// Sorts the songs for any order not given
+	private SongRanks(Song[] songs, int[] titleOrder, int[] artistOrder) {
+		this.songs = songs;
+		this.titleOrder = titleOrder != null ? titleOrder : sort(songs, BY_TITLE);
+		this.artistOrder = artistOrder != null ? artistOrder : sort(songs, BY_ARTIST);
+		this.titleRanks = ranks(songs.length, this.titleOrder);
+		this.artistRanks = ranks(songs.length, this.artistOrder);
+	}
+
+	public int size() {
+		return songs.length;
+	}
+
+	public Song song(int id) {
+		return songs[id];
+	}
+
+	public int titleRank(int id) {
+		return titleRanks[id];
+	}
+
+	public int artistRank(int id) {
+		return artistRanks[id];
+	}
+
+	/**
+	 * Ranks for the table after songs were added past the ids ranked here. The
+	 * new songs are sorted among themselves and binary-searched into the old
+	 * orders, so the catalog isn't sorted again; the rest is copying ints.
+	 */
+	public SongRanks extend(List<Song> table) {
+		if (table.size() == songs.length) {
+			return this;
+		}
+		Song[] grown = table.toArray(new Song[0]);
+		List<Song> added = new ArrayList<>();
+		for (int id = songs.length; id < grown.length; id++) {
+			if (grown[id] != null) {
+				added.add(grown[id]);
+			}
+		}
+		return new SongRanks(grown, merge(grown, titleOrder, added, BY_TITLE),
+				merge(grown, artistOrder, added, BY_ARTIST));
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		writeOrder(out, titleOrder);
+		writeOrder(out, artistOrder);
+	}
+
+	// Ranks saved by writeTo() for the same table
+	public static SongRanks readFrom(ByteBuffer in, List<Song> table) {
+		Song[] songs = table.toArray(new Song[0]);
+		int[] titleOrder = readOrder(in, songs);
+		int[] artistOrder = readOrder(in, songs);
+		return new SongRanks(songs, titleOrder, artistOrder);
+	}
+
+	private static int[] sort(Song[] songs, Comparator<Song> byKey) {
+		Song[] sorted = Arrays.stream(songs).filter(Objects::nonNull).toArray(Song[]::new);
+		Arrays.sort(sorted, byKey);
+		int[] order = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			order[i] = sorted[i].getId();
+		}
+		return order;
+	}
+
+	// Rank of each id in the order; -1 where there's no song
+	private static int[] ranks(int size, int[] order) {
+		int[] ranks = new int[size];
+		Arrays.fill(ranks, -1);
+		for (int rank = 0; rank < order.length; rank++) {
+			ranks[order[rank]] = rank;
+		}
+		return ranks;
+	}
+
+	// The old order with the added songs placed among it; only they are compared
+	private static int[] merge(Song[] songs, int[] order, List<Song> added, Comparator<Song> byKey) {
+		Song[] sorted = added.toArray(new Song[0]);
+		Arrays.sort(sorted, byKey);
+		int[] merged = new int[order.length + sorted.length];
+		int from = 0;
+		int to = 0;
+		for (Song song : sorted) {
+			int at = insertionPoint(songs, order, from, song, byKey);
+			System.arraycopy(order, from, merged, to, at - from);
+			to += at - from;
+			from = at;
+			merged[to++] = song.getId();
+		}
+		System.arraycopy(order, from, merged, to, order.length - from);
+		return merged;
+	}
+
+	// First index at or after from whose song sorts after this one
+	private static int insertionPoint(Song[] songs, int[] order, int from, Song song, Comparator<Song> byKey) {
+		int low = from;
+		int high = order.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (byKey.compare(songs[order[mid]], song) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private static void writeOrder(DataOutputStream out, int[] order) throws IOException {
+		out.writeInt(order.length);
+		for (int id : order) {
+			out.writeInt(id);
+		}
+	}
+
+	// Every song exactly once, or the ranks would disagree with the table
+	private static int[] readOrder(ByteBuffer in, Song[] songs) {
+		int length = in.getInt();
+		if (length < 0 || length > songs.length) {
+			throw new IllegalArgumentException("Song order has " + length + " songs for a table of " + songs.length);
+		}
+		int[] order = new int[length];
+		boolean[] seen = new boolean[songs.length];
+		for (int i = 0; i < order.length; i++) {
+			int id = in.getInt();
+			if (id < 0 || id >= songs.length || songs[id] == null || seen[id]) {
+				throw new IllegalArgumentException("Song order doesn't match the table at id " + id);
+			}
+			seen[id] = true;
+			order[i] = id;
+		}
+		long present = Arrays.stream(songs).filter(Objects::nonNull).count();
+		if (present != order.length) {
+			throw new IllegalArgumentException("Song order has " + order.length + " of " + present + " songs");
+		}
+		return order;
+	}
+}
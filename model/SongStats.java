@@ -0,0 +1,248 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Columnar per-library song statistics.
+ * - Songs are held by catalog id; each gets a dense slot, and rating, play count
+ *   and last played live in primitive arrays with favorites in a bitset.
+ * - Song objects are resolved through the store only when a query returns them.
+ * - Bulk queries (top rated, favorites, by rating) scan arrays instead of
+ *   chasing Song objects. Slot order follows insertion order.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+public class SongStats implements Iterable<Song> {
+	public static final int MAX_RATING = 5;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int FREE = -1;
+
+	private IntFunction<Song> resolver; // Catalog id -> Song
+	private int[] songIds; // Slot -> catalog id, FREE once removed
+	private byte[] ratings;
+	private int[] playCounts;
+	private long[] lastPlayed;
+	private BitSet favorites;
+	private IntIntMap slots; // Catalog id -> slot
+	private int end; // Slots handed out so far
+	private int size; // Live slots
+
+	public SongStats(IntFunction<Song> resolver) {
+		this.resolver = resolver;
+		songIds = new int[INITIAL_CAPACITY];
+		ratings = new byte[INITIAL_CAPACITY];
+		playCounts = new int[INITIAL_CAPACITY];
+		lastPlayed = new long[INITIAL_CAPACITY];
+		favorites = new BitSet();
+		slots = new IntIntMap();
+	}
+
+	// Adds a catalogued song with empty statistics (Song counters are shared by every library)
+	public boolean add(Song song) {
+		if (song.getId() < 0 || slots.containsKey(song.getId())) {
+			return false;
+		}
+		if (end == songIds.length) {
+			if (size < end / 2) {
+				compact();
+			} else {
+				grow();
+			}
+		}
+		int slot = end++;
+		songIds[slot] = song.getId();
+		ratings[slot] = 0;
+		playCounts[slot] = 0;
+		lastPlayed[slot] = 0;
+		favorites.clear(slot);
+		slots.put(song.getId(), slot);
+		size++;
+		return true;
+	}
+
+	public boolean remove(Song song) {
+		int slot = slots.remove(song.getId());
+		if (slot == IntIntMap.MISSING) {
+			return false;
+		}
+		songIds[slot] = FREE;
+		favorites.clear(slot);
+		size--;
+		return true;
+	}
+
+	public boolean contains(Song song) {
+		return slots.containsKey(song.getId());
+	}
+
+	public boolean containsId(int songId) {
+		return slots.containsKey(songId);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Catalog ids of the live songs, in slot order
+	public void forEachId(IntConsumer action) {
+		for (int slot = 0; slot < end; slot++) {
+			if (songIds[slot] != FREE) {
+				action.accept(songIds[slot]);
+			}
+		}
+	}
+
+	public int getRating(Song song) {
+		int slot = slots.get(song.getId());
+		return slot == IntIntMap.MISSING ? 0 : ratings[slot];
+	}
+
+	public boolean isFavorite(Song song) {
+		int slot = slots.get(song.getId());
+		return slot != IntIntMap.MISSING && favorites.get(slot);
+	}
+
+	public int getPlayCount(Song song) {
+		int slot = slots.get(song.getId());
+		return slot == IntIntMap.MISSING ? 0 : playCounts[slot];
+	}
+
+	public long getLastPlayed(Song song) {
+		int slot = slots.get(song.getId());
+		return slot == IntIntMap.MISSING ? 0 : lastPlayed[slot];
+	}
+
+	// Same rules as Song.setRating: 5 marks a favorite, out of range resets to 0
+	public boolean setRating(Song song, int rating) {
+		int slot = slots.get(song.getId());
+		if (slot == IntIntMap.MISSING) {
+			return false;
+		}
+		if (rating >= 0 && rating <= MAX_RATING) {
+			ratings[slot] = (byte) rating;
+			favorites.set(slot, rating == MAX_RATING);
+		} else {
+			ratings[slot] = 0;
+		}
+		return true;
+	}
+
+	// Returns the new play count, or -1 if the song isn't tracked
+	public int recordPlay(Song song, long when) {
+		int slot = slots.get(song.getId());
+		if (slot == IntIntMap.MISSING) {
+			return -1;
+		}
+		lastPlayed[slot] = when;
+		return ++playCounts[slot];
+	}
+
+	// Used when restoring persisted state
+	public boolean setPlayStats(Song song, int playCount, long when) {
+		int slot = slots.get(song.getId());
+		if (slot == IntIntMap.MISSING) {
+			return false;
+		}
+		playCounts[slot] = playCount;
+		lastPlayed[slot] = when;
+		return true;
+	}
+
+	public List<Song> getFavorites() {
+		List<Song> result = new ArrayList<>(favorites.cardinality());
+		for (int slot = favorites.nextSetBit(0); slot >= 0; slot = favorites.nextSetBit(slot + 1)) {
+			result.add(resolver.apply(songIds[slot]));
+		}
+		return result;
+	}
+
+	// Highest rating first, insertion order within a rating (counting sort over the column)
+	public List<Song> getSortedByRating(int minRating) {
+		int[] buckets = new int[MAX_RATING + 2];
+		for (int slot = 0; slot < end; slot++) {
+			if (songIds[slot] != FREE && ratings[slot] >= minRating) {
+				buckets[MAX_RATING - ratings[slot] + 1]++;
+			}
+		}
+		for (int i = 1; i < buckets.length; i++) {
+			buckets[i] += buckets[i - 1];
+		}
+		Song[] sorted = new Song[buckets[buckets.length - 1]];
+		for (int slot = 0; slot < end; slot++) {
+			if (songIds[slot] != FREE && ratings[slot] >= minRating) {
+				sorted[buckets[MAX_RATING - ratings[slot]]++] = resolver.apply(songIds[slot]);
+			}
+		}
+		return Arrays.asList(sorted);
+	}
+
+	// Iterates live songs in slot (insertion) order
+	@Override
+	public Iterator<Song> iterator() {
+		return new Iterator<Song>() {
+			private int next = advance(0);
+
+			private int advance(int from) {
+				while (from < end && songIds[from] == FREE) {
+					from++;
+				}
+				return from;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < end;
+			}
+
+			@Override
+			public Song next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Song song = resolver.apply(songIds[next]);
+				next = advance(next + 1);
+				return song;
+			}
+		};
+	}
+
+	// Closes the gaps left by removals, keeping relative order
+	private void compact() {
+		int to = 0;
+		BitSet packedFavorites = new BitSet();
+		for (int from = 0; from < end; from++) {
+			if (songIds[from] == FREE) {
+				continue;
+			}
+			if (favorites.get(from)) {
+				packedFavorites.set(to);
+			}
+			songIds[to] = songIds[from];
+			ratings[to] = ratings[from];
+			playCounts[to] = playCounts[from];
+			lastPlayed[to] = lastPlayed[from];
+			slots.put(songIds[to], to);
+			to++;
+		}
+		Arrays.fill(songIds, to, end, FREE);
+		favorites = packedFavorites;
+		end = to;
+	}
+
+	private void grow() {
+		int capacity = songIds.length * 2;
+		songIds = Arrays.copyOf(songIds, capacity);
+		ratings = Arrays.copyOf(ratings, capacity);
+		playCounts = Arrays.copyOf(playCounts, capacity);
+		lastPlayed = Arrays.copyOf(lastPlayed, capacity);
+	}
+}
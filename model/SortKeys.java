@@ -0,0 +1,50 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Locale-aware sort keys for titles and artists.
+ * - Keys are CollationKey bytes (root locale, case-insensitive, accents as a
+ *   secondary difference), so sorting compares bytes instead of running the
+ *   collator on every comparison.
+ * - Sort artists drop a leading article: "The Heavy" sorts as "Heavy, The".
+ */
+package model;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class SortKeys {
+	private static final String[] ARTICLES = { "The ", "A ", "An " };
+	// Collators aren't thread-safe
+	private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> {
+		Collator collator = Collator.getInstance(Locale.ROOT);
+		collator.setStrength(Collator.SECONDARY);
+		collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+		return collator;
+	});
+
+	private SortKeys() {
+	}
+
+	public static byte[] key(String text) {
+		return COLLATOR.get().getCollationKey(text == null ? "" : text).toByteArray();
+	}
+
+	// Keys from key() order the same way their strings collate
+	public static int compare(byte[] a, byte[] b) {
+		return Arrays.compareUnsigned(a, b);
+	}
+
+	public static String sortArtist(String artist) {
+		if (artist == null) {
+			return "";
+		}
+		for (String article : ARTICLES) {
+			if (artist.length() > article.length() && artist.regionMatches(true, 0, article, 0, article.length())) {
+				return artist.substring(article.length()) + ", " + artist.substring(0, article.length() - 1);
+			}
+		}
+		return artist;
+	}
+}
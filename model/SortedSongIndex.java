@@ -0,0 +1,397 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. A library's songs kept sorted by title, artist and rating.
+ * - Keeps only song ids: one B+ tree in title order, one in artist order and
+ *   one per rating in id order, 12 to 24 bytes a song. Title and artist order
+ *   come from the catalog-wide ranks in SongRanks, shared by every library.
+ * - Updated as songs are added, removed or re-rated instead of sorting on
+ *   every read; an update is O(log n), so loading a library is O(n log n).
+ * - Reads are paged: a page resumes after the cursor of the previous one in
+ *   O(log n + limit), and never copy the rest of the library.
+ * - Single writer; the library's lock keeps readers consistent with it.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+public class SortedSongIndex {
+	public enum Order {
+		TITLE, ARTIST, RATING
+	}
+
+	// A song's place in one order; pass the last one of a page to get the next page
+	public static final class Cursor {
+		private final Order order;
+		private final int id;
+		private final int rating;
+
+		private Cursor(Order order, int id, int rating) {
+			this.order = order;
+			this.id = id;
+			this.rating = rating;
+		}
+
+		public Order getOrder() {
+			return order;
+		}
+
+		// Text form for clients paging over the wire; parse() reads it back
+		@Override
+		public String toString() {
+			return id + "." + rating;
+		}
+
+		public static Cursor parse(Order order, String text) {
+			int dot = text.indexOf('.');
+			try {
+				int id = Integer.parseInt(text.substring(0, Math.max(dot, 0)));
+				int rating = Integer.parseInt(text.substring(dot + 1));
+				if (id >= 0 && rating >= 0 && rating <= SongStats.MAX_RATING) {
+					return new Cursor(order, id, rating);
+				}
+			} catch (NumberFormatException e) {
+				// Reported below
+			}
+			throw new IllegalArgumentException("Not a page cursor: " + text);
+		}
+	}
+
+	// Up to limit songs, and the cursor to continue from (null after the last page)
+	public static final class Page {
+		private final List<Song> songs;
+		private final Cursor next;
+
+		private Page(List<Song> songs, Cursor next) {
+			this.songs = songs;
+			this.next = next;
+		}
+
+		public List<Song> getSongs() {
+			return songs;
+		}
+
+		public Cursor getNext() {
+			return next;
+		}
+	}
+
+	/**
+	 * Song ids in ascending order of some int key, in a B+ tree: an update
+	 * touches one node per level, and a page walks down once and then along.
+	 * A branch routes by the lowest id each child had when it was added; that
+	 * stays a lower bound as ids come and go. Full nodes split in half, empty
+	 * ones are dropped and part-full ones are left as they are.
+	 */
+	private static final class IdTree {
+		private static final int FANOUT = 128;
+		private Node root = new Node(true, 8);
+		private int size;
+		private boolean changed; // Whether the last insert or remove found its id
+
+		private static final class Node {
+			int[] ids; // A leaf's ids, or a branch's lowest id of each child
+			final Node[] children; // Null in a leaf
+			int count;
+
+			// Leaves start small and grow to FANOUT, so a small library stays small
+			Node(boolean leaf, int capacity) {
+				ids = new int[leaf ? capacity : FANOUT];
+				children = leaf ? null : new Node[FANOUT];
+			}
+		}
+
+		boolean insert(Order order, SongRanks ranks, int id) {
+			changed = false;
+			Node split = insert(root, order, ranks, key(order, ranks, id), id);
+			if (split != null) {
+				Node top = new Node(false, FANOUT);
+				top.ids[0] = root.ids[0];
+				top.children[0] = root;
+				top.ids[1] = split.ids[0];
+				top.children[1] = split;
+				top.count = 2;
+				root = top;
+			}
+			if (changed) {
+				size++;
+			}
+			return changed;
+		}
+
+		boolean remove(Order order, SongRanks ranks, int id) {
+			changed = false;
+			remove(root, order, ranks, key(order, ranks, id));
+			if (changed) {
+				size--;
+				while (root.children != null && root.count <= 1) {
+					root = root.count == 0 ? new Node(true, 8) : root.children[0];
+				}
+			}
+			return changed;
+		}
+
+		void clear() {
+			root = new Node(true, 8);
+			size = 0;
+		}
+
+		// Visits ids in order (only those past the key when from is set) until visit returns false
+		boolean visit(Order order, SongRanks ranks, boolean from, int key, IntPredicate visit) {
+			return visit(root, order, ranks, from, key, visit);
+		}
+
+		// Returns the new right half if the node split
+		private Node insert(Node node, Order order, SongRanks ranks, int key, int id) {
+			if (node.children == null) {
+				int found = search(node, order, ranks, key);
+				if (found >= 0) {
+					return null;
+				}
+				changed = true;
+				return add(node, -(found + 1), id, null);
+			}
+			int at = route(node, order, ranks, key);
+			Node split = insert(node.children[at], order, ranks, key, id);
+			return split == null ? null : add(node, at + 1, split.ids[0], split);
+		}
+
+		private void remove(Node node, Order order, SongRanks ranks, int key) {
+			if (node.children == null) {
+				int at = search(node, order, ranks, key);
+				if (at >= 0) {
+					cut(node, at);
+					changed = true;
+				}
+				return;
+			}
+			int at = route(node, order, ranks, key);
+			Node child = node.children[at];
+			remove(child, order, ranks, key);
+			if (child.count == 0) {
+				cut(node, at);
+			}
+		}
+
+		private static boolean visit(Node node, Order order, SongRanks ranks, boolean from, int key,
+				IntPredicate visit) {
+			if (node.children == null) {
+				int start = 0;
+				if (from) {
+					int found = search(node, order, ranks, key);
+					start = found >= 0 ? found + 1 : -(found + 1);
+				}
+				for (int i = start; i < node.count; i++) {
+					if (!visit.test(node.ids[i])) {
+						return false;
+					}
+				}
+				return true;
+			}
+			int start = from ? route(node, order, ranks, key) : 0;
+			for (int i = start; i < node.count; i++) {
+				if (!visit(node.children[i], order, ranks, from && i == start, key, visit)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// Index of the id with this key in a leaf, or -(insertion point) - 1
+		private static int search(Node leaf, Order order, SongRanks ranks, int key) {
+			int low = 0;
+			int high = leaf.count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int midKey = key(order, ranks, leaf.ids[mid]);
+				if (midKey < key) {
+					low = mid + 1;
+				} else if (midKey > key) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		// The child whose range holds the key: the last one whose lowest id is at or below it
+		private static int route(Node branch, Order order, SongRanks ranks, int key) {
+			int low = 1;
+			int high = branch.count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (key(order, ranks, branch.ids[mid]) <= key) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return low - 1;
+		}
+
+		// Puts the id (and its child, in a branch) at the index; a full node splits first
+		private static Node add(Node node, int at, int id, Node child) {
+			if (node.count < FANOUT) {
+				place(node, at, id, child);
+				return null;
+			}
+			boolean leaf = node.children == null;
+			Node right = new Node(leaf, FANOUT);
+			int half = FANOUT / 2;
+			System.arraycopy(node.ids, half, right.ids, 0, FANOUT - half);
+			if (!leaf) {
+				System.arraycopy(node.children, half, right.children, 0, FANOUT - half);
+				Arrays.fill(node.children, half, FANOUT, null);
+			}
+			right.count = FANOUT - half;
+			node.count = half;
+			if (at <= half) {
+				place(node, at, id, child);
+			} else {
+				place(right, at - half, id, child);
+			}
+			return right;
+		}
+
+		private static void place(Node node, int at, int id, Node child) {
+			if (node.count == node.ids.length) {
+				node.ids = Arrays.copyOf(node.ids, Math.min(node.count * 2, FANOUT));
+			}
+			System.arraycopy(node.ids, at, node.ids, at + 1, node.count - at);
+			node.ids[at] = id;
+			if (node.children != null) {
+				System.arraycopy(node.children, at, node.children, at + 1, node.count - at);
+				node.children[at] = child;
+			}
+			node.count++;
+		}
+
+		private static void cut(Node node, int at) {
+			System.arraycopy(node.ids, at + 1, node.ids, at, node.count - at - 1);
+			if (node.children != null) {
+				System.arraycopy(node.children, at + 1, node.children, at, node.count - at - 1);
+				node.children[node.count - 1] = null;
+			}
+			node.count--;
+		}
+	}
+
+	private final Supplier<SongRanks> ranks; // Current ranks of the catalog
+	private final IdTree byTitle;
+	private final IdTree byArtist;
+	private final IdTree[] byRating; // Ids of each rating; read highest rating first
+
+	public SortedSongIndex(Supplier<SongRanks> ranks) {
+		this.ranks = ranks;
+		this.byTitle = new IdTree();
+		this.byArtist = new IdTree();
+		this.byRating = new IdTree[SongStats.MAX_RATING + 1];
+		for (int i = 0; i < byRating.length; i++) {
+			byRating[i] = new IdTree();
+		}
+	}
+
+	public void add(Song song, int rating) {
+		SongRanks current = ranks.get();
+		if (byTitle.insert(Order.TITLE, current, song.getId())) {
+			byArtist.insert(Order.ARTIST, current, song.getId());
+			byRating[rating].insert(Order.RATING, current, song.getId());
+		}
+	}
+
+	public void remove(Song song, int rating) {
+		SongRanks current = ranks.get();
+		if (byTitle.remove(Order.TITLE, current, song.getId())) {
+			byArtist.remove(Order.ARTIST, current, song.getId());
+			byRating[rating].remove(Order.RATING, current, song.getId());
+		}
+	}
+
+	// Only the rating order depends on the rating
+	public void rerate(Song song, int oldRating, int newRating) {
+		if (oldRating != newRating && byRating[oldRating].remove(Order.RATING, null, song.getId())) {
+			byRating[newRating].insert(Order.RATING, null, song.getId());
+		}
+	}
+
+	public void clear() {
+		byTitle.clear();
+		byArtist.clear();
+		for (IdTree ids : byRating) {
+			ids.clear();
+		}
+	}
+
+	public int size() {
+		return byTitle.size;
+	}
+
+	// The first page when after is null
+	public Page page(Order order, Cursor after, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Page limit must be positive: " + limit);
+		}
+		if (after != null && after.order != order) {
+			throw new IllegalArgumentException("Cursor is for " + after.order + " order, not " + order);
+		}
+		SongRanks current = ranks.get();
+		if (after != null && after.id >= current.size()) {
+			throw new IllegalArgumentException("Cursor is for an unknown song");
+		}
+		List<Song> songs = new ArrayList<>(Math.min(limit, 64));
+		int[] last = new int[2]; // Id and rating of the last song on the page
+		// Title and artist have one tree; rating runs down the ratings from the cursor's
+		int top = order != Order.RATING ? 0 : after == null ? SongStats.MAX_RATING : after.rating;
+		for (int rating = top; rating >= 0; rating--) {
+			int songRating = rating;
+			boolean from = after != null && rating == top;
+			boolean more = ids(order, rating).visit(order, current, from, from ? key(order, current, after.id) : 0,
+					id -> {
+						if (songs.size() == limit) {
+							return false;
+						}
+						last[0] = id;
+						last[1] = songRating;
+						songs.add(current.song(id));
+						return true;
+					});
+			if (!more) {
+				return new Page(songs, new Cursor(order, last[0], last[1]));
+			}
+		}
+		return new Page(songs, null);
+	}
+
+	public List<Song> all(Order order) {
+		return page(order, null, Math.max(1, size())).getSongs();
+	}
+
+	private IdTree ids(Order order, int rating) {
+		switch (order) {
+		case TITLE:
+			return byTitle;
+		case ARTIST:
+			return byArtist;
+		default:
+			return byRating[rating];
+		}
+	}
+
+	// Ranks for title and artist order; rating order sorts each rating by id
+	private static int key(Order order, SongRanks ranks, int id) {
+		switch (order) {
+		case TITLE:
+			return ranks.titleRank(id);
+		case ARTIST:
+			return ranks.artistRank(id);
+		default:
+			return id;
+		}
+	}
+}
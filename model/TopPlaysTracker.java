@@ -0,0 +1,187 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Keeps the K most played songs of a library.
+ * - Indexed min-heap: a play count bump is O(log K) instead of re-sorting the library.
+ * - Songs tied on count keep the order in which they reached it.
+ * - Removing a top song leaves its slot empty until refill(), so removing
+ *   many songs (an album) rescans the library once, not once per song.
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+public class TopPlaysTracker {
+	private int capacity;
+	private Song[] heap; // heap[0] is the weakest entry
+	private int[] counts;
+	private long[] stamps; // When the entry reached its count (tie-breaker)
+	private int size;
+	private long clock;
+	private Map<Song, Integer> positions; // Song -> heap slot
+	private boolean depleted; // A tracked song was removed; refill() may have songs to pull in
+	private List<Song> snapshot; // Cached read view, null when stale
+
+	public TopPlaysTracker(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.heap = new Song[capacity];
+		this.counts = new int[capacity];
+		this.stamps = new long[capacity];
+		this.positions = new IdentityHashMap<>();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	// Record that a song now has the given play count (counts only grow between removals)
+	public void update(Song song, int count) {
+		Integer pos = positions.get(song);
+		if (pos != null) {
+			counts[pos] = count;
+			stamps[pos] = clock++;
+			siftDown(pos);
+		} else if (size < capacity) {
+			place(size++, song, count, clock++);
+			siftUp(size - 1);
+		} else if (count > counts[0]) {
+			positions.remove(heap[0]);
+			place(0, song, count, clock++);
+			siftDown(0);
+		} else {
+			return;
+		}
+		snapshot = null;
+	}
+
+	// Drops a song (e.g. removed from the library); true if it was in the top K
+	public boolean remove(Song song) {
+		Integer pos = positions.remove(song);
+		if (pos == null) {
+			return false;
+		}
+		int last = --size;
+		if (pos != last) {
+			Song moved = heap[last];
+			place(pos, moved, counts[last], stamps[last]);
+			heap[last] = null;
+			siftUp(pos);
+			siftDown(positions.get(moved));
+		} else {
+			heap[last] = null;
+		}
+		snapshot = null;
+		depleted = true;
+		return true;
+	}
+
+	/**
+	 * Pulls the best remaining candidates into the slots removals left empty.
+	 * One linear pass however many songs were removed, and none if no tracked
+	 * song was; candidates must no longer include the removed songs.
+	 */
+	public void refill(Iterable<Song> candidates, ToIntFunction<Song> countOf) {
+		if (!depleted) {
+			return;
+		}
+		depleted = false;
+		// Every untracked song is at most as played as the weakest tracked one,
+		// so offering them all can only fill the empty slots
+		for (Song candidate : candidates) {
+			if (!positions.containsKey(candidate)) {
+				int count = countOf.applyAsInt(candidate);
+				if (count > 0) {
+					update(candidate, count);
+				}
+			}
+		}
+	}
+
+	// A single removal and its refill
+	public void remove(Song song, Iterable<Song> candidates, ToIntFunction<Song> countOf) {
+		if (remove(song)) {
+			refill(candidates, countOf);
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(heap, null);
+		positions.clear();
+		size = 0;
+		snapshot = null;
+		depleted = false;
+	}
+
+	// Most played first; only the K tracked entries are ever sorted
+	public List<Song> getTopSongs() {
+		if (snapshot == null) {
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> weaker(b, a) ? -1 : weaker(a, b) ? 1 : 0);
+			List<Song> top = new ArrayList<>(size);
+			for (int i : order) {
+				top.add(heap[i]);
+			}
+			snapshot = Collections.unmodifiableList(top);
+		}
+		return snapshot;
+	}
+
+	private void place(int pos, Song song, int count, long stamp) {
+		heap[pos] = song;
+		counts[pos] = count;
+		stamps[pos] = stamp;
+		positions.put(song, pos);
+	}
+
+	// Lower count is weaker; on a tie the later arrival is weaker
+	private boolean weaker(int a, int b) {
+		return counts[a] < counts[b] || (counts[a] == counts[b] && stamps[a] > stamps[b]);
+	}
+
+	private void siftUp(int pos) {
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (!weaker(pos, parent)) {
+				break;
+			}
+			swap(pos, parent);
+			pos = parent;
+		}
+	}
+
+	private void siftDown(int pos) {
+		while (true) {
+			int left = 2 * pos + 1;
+			if (left >= size) {
+				return;
+			}
+			int child = left + 1 < size && weaker(left + 1, left) ? left + 1 : left;
+			if (!weaker(child, pos)) {
+				return;
+			}
+			swap(pos, child);
+			pos = child;
+		}
+	}
+
+	private void swap(int a, int b) {
+		Song song = heap[a];
+		int count = counts[a];
+		long stamp = stamps[a];
+		place(a, heap[b], counts[b], stamps[b]);
+		place(b, song, count, stamp);
+	}
+}
@@ -3,46 +3,92 @@
  * @author Joshua
  * 
  * Part of the Model for LA#2. This class handles user accounts and password security.
- * - Uses SHA-256 hashing with salt to store passwords securely.
+ * - Stores a salted password hash made by a PasswordHasher (PBKDF2 by
+ *   default); the scheme is kept with it so it can be upgraded later.
  * - Manages user-specific libraries.
+ * - Accounts restored from disk load their library on first use, through a
+ *   LibraryLoader that decides how long it stays in memory. Only a load
+ *   takes this user's lock; getting a library that's in memory takes none.
  */
 package model;
 
-import java.security.MessageDigest;
-import java.security.SecureRandom;
+import java.lang.ref.WeakReference;
 import java.util.Base64;
 
 import store.MusicStore;
 
 public class User {
 	private String username;
-	private byte[] salt;
-	private String hashedPassword;
-	private LibraryModel library;
+	private volatile Credentials credentials; // Replaced whole when the hash is upgraded
+	private volatile LibraryModel library; // Held directly unless a loader manages it
+	private volatile LibraryLoader loader;
+	private volatile WeakReference<LibraryModel> loaded; // Alive while anyone still uses the library
+
+	// Builds a user's library on demand and keeps recently used ones cached
+	interface LibraryLoader {
+		LibraryModel load(User user);
+
+		void accessed(User user, LibraryModel library);
+	}
 
 	public User(String username, String password, MusicStore store) {
+		this(username, password, store, new Pbkdf2Hasher());
+	}
+
+	public User(String username, String password, MusicStore store, PasswordHasher hasher) {
+		this(username, Credentials.create(hasher, password), store);
+	}
+
+	// An account whose password was already hashed (e.g. on UserManager's hashing pool)
+	User(String username, Credentials credentials, MusicStore store) {
 		this.username = username;
-		this.salt = generateSalt();
-		this.hashedPassword = hashPassword(password, salt);
+		this.credentials = credentials;
 		this.library = new LibraryModel(store); // Pass MusicStore to LibraryModel
 	}
 
-	private byte[] generateSalt() {
-		SecureRandom random = new SecureRandom();
-		byte[] salt = new byte[16];
-		random.nextBytes(salt);
-		return salt;
+	// Restores an account from its stored credentials; needs a loader before use
+	User(String username, Credentials credentials) {
+		this.username = username;
+		this.credentials = credentials;
 	}
 
-	public String hashPassword(String password, byte[] salt) {
-		try {
-			MessageDigest md = MessageDigest.getInstance("SHA-256");
-			md.update(salt);
-			byte[] hashedBytes = md.digest(password.getBytes());
-			return Base64.getEncoder().encodeToString(hashedBytes);
-		} catch (Exception e) {
-			throw new RuntimeException("Error hashing password", e);
+	// Hands the library over to the loader, which may drop and rebuild it
+	synchronized void setLoader(LibraryLoader loader) {
+		if (library != null) {
+			loaded = new WeakReference<>(library);
+			loader.accessed(this, library);
 		}
+		this.loader = loader;
+		library = null; // Last, so getLibrary() sees either the library or the loader
+	}
+
+	// The library if it's in memory, without loading it (lock-free so compaction can call it)
+	LibraryModel peekLibrary() {
+		WeakReference<LibraryModel> current = loaded;
+		LibraryModel held = library;
+		if (held != null) {
+			return held;
+		}
+		return current == null ? null : current.get();
+	}
+
+	// Hashes with this user's scheme
+	public String hashPassword(String password, byte[] salt) {
+		byte[] hash = PasswordHasher.forScheme(credentials.getScheme()).hash(password, salt);
+		return Base64.getEncoder().encodeToString(hash);
+	}
+
+	// Constant-time check against the stored hash
+	public boolean checkPassword(String password) {
+		return credentials.matches(password);
+	}
+
+	Credentials getCredentials() {
+		return credentials;
+	}
+
+	void setCredentials(Credentials credentials) {
+		this.credentials = credentials;
 	}
 
 	// Getters
@@ -51,14 +97,39 @@ public class User {
 	}
 
 	public byte[] getSalt() {
-		return salt;
+		return credentials.getSalt();
 	}
 
 	public String getHashedPassword() {
-		return hashedPassword;
+		return credentials.getHash();
+	}
+
+	public String getPasswordScheme() {
+		return credentials.getScheme();
 	}
 
 	public LibraryModel getLibrary() {
-		return library;
+		LibraryModel held = library; // Read before the loader; see setLoader()
+		LibraryLoader current = loader;
+		if (current == null) {
+			return held;
+		}
+		WeakReference<LibraryModel> reference = loaded;
+		held = reference == null ? null : reference.get();
+		if (held == null) {
+			held = load(current);
+		}
+		current.accessed(this, held);
+		return held;
+	}
+
+	// Locked so concurrent first uses build the library once
+	private synchronized LibraryModel load(LibraryLoader current) {
+		LibraryModel held = loaded == null ? null : loaded.get();
+		if (held == null) {
+			held = current.load(this);
+			loaded = new WeakReference<>(held);
+		}
+		return held;
 	}
 }
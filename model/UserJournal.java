@@ -0,0 +1,702 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Append-only write-ahead journal for user data.
+ * - Records are framed as [length][crc32][payload]; a torn or corrupt tail is
+ *   cut off during recovery.
+ * - Appends are buffered and written by one flusher thread, which fsyncs each
+ *   batch once (group commit). sync() waits until a batch is durable. The
+ *   write and fsync run outside the journal lock, so appends keep queuing
+ *   behind a batch that is on its way to disk.
+ * - compact() folds the journal into a snapshot file. Both files carry a
+ *   generation number so a crash mid-compaction never replays records twice,
+ *   and the snapshot's rename is made durable before the journal is emptied.
+ * - Recovery only discards a journal that a valid snapshot provably folded
+ *   (an older generation). An unreadable snapshot, or a journal newer than
+ *   the snapshot, fails recovery and leaves both files as they are.
+ * - beginCompaction() lets the snapshot be written while appends go on: the
+ *   records appended meanwhile are copied across in commit(), the only step
+ *   that needs appends held off.
+ * - A failed write or fsync is final: queued records are dropped and later
+ *   appends throw, rather than buffering without bound behind a dead disk.
+ * - Every record has a location (file and offset) so single records can be
+ *   read back later without replaying everything. readChain() follows
+ *   records that point back at earlier ones, so a caller can find a group of
+ *   records from just its newest location.
+ */
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+public class UserJournal implements Closeable {
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5;
+	// Changed with the record layout (now "MLJ2"/"MLS2": chained records) so old files are refused, not misread
+	private static final int JOURNAL_MAGIC = 0x4D4C4A32;
+	private static final int SNAPSHOT_MAGIC = 0x4D4C5332;
+	private static final int HEADER_SIZE = 12; // magic + generation
+	private static final int MAX_RECORD = 64 * 1024 * 1024;
+	private static final long SNAPSHOT_LOCATION = 1L << 62; // Flag for offsets into the snapshot
+
+	public interface RecordHandler {
+		void accept(DataInputStream record, long location) throws IOException;
+	}
+
+	// Emits the records that make up a compacted snapshot
+	public interface SnapshotSource {
+		void writeTo(RecordWriter out) throws IOException;
+	}
+
+	public interface RecordWriter {
+		// Returns the record's location in the new snapshot
+		long write(byte[] payload) throws IOException;
+	}
+
+	// Adjusts a record in place (keeping its length) as it's copied into a snapshot
+	public interface RecordRewriter {
+		void rewrite(byte[] payload);
+	}
+
+	private File journalFile;
+	private volatile File snapshotFile;
+	private FileChannel channel;
+	private long generation;
+	private long flushIntervalMillis;
+
+	// Guarded by this
+	private QueueBuffer pending = new QueueBuffer();
+	private byte[] inFlight; // The batch being written and fsynced, still readable from here
+	private long inFlightOffset;
+	private long endOffset; // Where the next record goes, counting queued bytes
+	private long appendedSeq;
+	private long durableSeq;
+	private IOException failure; // First write error; the journal accepts nothing after it
+	private boolean closed;
+	private boolean compacting;
+
+	private final Object flushLock = new Object(); // One batch in flight at a time; never taken while holding this
+	private Thread flusher;
+
+	public UserJournal(File journalFile, long flushIntervalMillis) throws IOException {
+		this.journalFile = journalFile;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (channel.tryLock() == null) {
+				throw new OverlappingFileLockException();
+			}
+		} catch (OverlappingFileLockException e) {
+			channel.close();
+			throw new IOException("Journal is in use: " + journalFile); // One writer per journal
+		}
+	}
+
+	/**
+	 * Recovery: replays the snapshot and then the journal records written since
+	 * it. Stops at the first torn or corrupt journal record and truncates there.
+	 * Throws, touching neither file, if the snapshot can't be read or the journal
+	 * doesn't follow it. Must be called once before appending; starts the
+	 * flusher thread.
+	 */
+	public synchronized void recover(File snapshot, RecordHandler handler) throws IOException {
+		snapshotFile = snapshot;
+		try {
+			long snapshotGeneration = readSnapshot(snapshot, handler); // 0 when there is none yet
+			if (channel.size() == 0) {
+				resetJournal(snapshotGeneration); // New journal
+				return;
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			channel.read(header, 0);
+			header.flip();
+			if (header.remaining() != HEADER_SIZE || header.getInt() != JOURNAL_MAGIC) {
+				throw new IOException("Not a user journal: " + journalFile);
+			}
+			long journalGeneration = header.getLong();
+			if (journalGeneration == snapshotGeneration) {
+				long end = replay(handler);
+				channel.truncate(end);
+				endOffset = end;
+				generation = journalGeneration;
+			} else if (journalGeneration < snapshotGeneration) {
+				resetJournal(snapshotGeneration); // Already folded into the snapshot
+			} else {
+				// The snapshot these records follow is missing or was replaced by an older one
+				throw new IOException("Journal generation " + journalGeneration + " is newer than snapshot generation "
+						+ snapshotGeneration + ": " + snapshot);
+			}
+		} finally {
+			startFlusher(); // Even on failure, so a following compact() leaves a usable journal
+		}
+	}
+
+	// Queues a record and returns its location; it becomes durable with the next group commit
+	public synchronized long append(byte[] payload) {
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException("Journal write failed earlier", failure);
+		}
+		long location = endOffset;
+		writeFrame(pending, payload);
+		endOffset += 8 + payload.length;
+		appendedSeq++;
+		notifyAll();
+		return location;
+	}
+
+	// Waits until everything appended so far is on disk
+	public synchronized void sync() throws IOException {
+		long target = appendedSeq;
+		while (durableSeq < target && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted waiting for journal sync", e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// Bytes currently in the journal file (excluding queued records)
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	/**
+	 * Reads back the records at the given locations, in order. Records not yet
+	 * written come from memory, so reading never waits for a write or fsync.
+	 * Locations are only valid until the next compact().
+	 */
+	public void read(long[] locations, int count, RecordHandler handler) throws IOException {
+		FileChannel snapshot = null;
+		try {
+			for (int i = 0; i < count; i++) {
+				long location = locations[i];
+				byte[] payload;
+				if ((location & SNAPSHOT_LOCATION) != 0) {
+					if (snapshot == null) {
+						snapshot = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+					}
+					payload = readFrame(snapshot, location & ~SNAPSHOT_LOCATION);
+				} else {
+					payload = readJournal(location);
+				}
+				if (payload == null) {
+					throw new IOException("No record at " + location);
+				}
+				handler.accept(new DataInputStream(new ByteArrayInputStream(payload)), location);
+			}
+		} finally {
+			if (snapshot != null) {
+				snapshot.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads back the chain of records ending at head, where previous() gives the
+	 * location of the record before each one and a negative location ends the
+	 * chain. Records are handed over oldest first. Locations are only valid until
+	 * the next compact().
+	 */
+	public void readChain(long head, ToLongFunction<byte[]> previous, RecordHandler handler) throws IOException {
+		List<byte[]> payloads = new ArrayList<>();
+		long[] locations = new long[16];
+		FileChannel snapshot = null;
+		try {
+			for (long location = head; location >= 0;) {
+				boolean inSnapshot = (location & SNAPSHOT_LOCATION) != 0;
+				if (inSnapshot && snapshot == null) {
+					snapshot = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+				}
+				byte[] payload = inSnapshot ? readFrame(snapshot, location & ~SNAPSHOT_LOCATION) : readJournal(location);
+				if (payload == null) {
+					throw new IOException("No record at " + location);
+				}
+				if (payloads.size() == locations.length) {
+					locations = Arrays.copyOf(locations, locations.length * 2);
+				}
+				locations[payloads.size()] = location;
+				payloads.add(payload);
+				long next = previous.applyAsLong(payload);
+				// Journal records point back into the journal or the snapshot, snapshot records only into the snapshot
+				boolean backwards = next < 0 || ((next & SNAPSHOT_LOCATION) != 0 ? !inSnapshot || next < location
+						: !inSnapshot && next < location);
+				if (!backwards) {
+					throw new IOException("Record chain loops at " + location);
+				}
+				location = next;
+			}
+		} finally {
+			if (snapshot != null) {
+				snapshot.close();
+			}
+		}
+		for (int i = payloads.size() - 1; i >= 0; i--) {
+			handler.accept(new DataInputStream(new ByteArrayInputStream(payloads.get(i))), locations[i]);
+		}
+	}
+
+	/**
+	 * Writes a new snapshot from the source, then starts an empty journal of the
+	 * next generation. Records appended while this runs are carried over, but
+	 * their locations are only remapped by callers using beginCompaction().
+	 */
+	public void compact(File snapshot, SnapshotSource source) throws IOException {
+		try (Compaction compaction = beginCompaction(snapshot)) {
+			source.writeTo(compaction);
+			compaction.commit();
+		}
+	}
+
+	// Starts a new snapshot generation; everything appended from here on is the tail commit() copies
+	public Compaction beginCompaction(File snapshot) throws IOException {
+		synchronized (this) {
+			if (compacting) {
+				throw new IllegalStateException("A compaction is already running");
+			}
+			compacting = true;
+		}
+		try {
+			return new Compaction(snapshot);
+		} catch (IOException | RuntimeException e) {
+			synchronized (this) {
+				compacting = false;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * A snapshot being written alongside live appends. Records before the cut
+	 * are the caller's to rewrite (reading them back is fine meanwhile); records
+	 * after it are copied verbatim by commit(). Closing without committing
+	 * abandons the new snapshot and leaves the journal as it was.
+	 */
+	public class Compaction implements RecordWriter, Closeable {
+		private File snapshot;
+		private File temp;
+		private FileOutputStream file;
+		private DataOutputStream out;
+		private ByteArrayOutputStream frame;
+		private long next;
+		private long cut; // Journal offset where the tail starts
+		private long tailStart = -1; // Snapshot offset the tail was copied to, once committed
+		private boolean done;
+
+		private Compaction(File snapshot) throws IOException {
+			this.snapshot = snapshot;
+			this.temp = new File(snapshot.getPath() + ".tmp");
+			this.frame = new ByteArrayOutputStream();
+			synchronized (UserJournal.this) {
+				next = generation + 1;
+				cut = endOffset;
+			}
+			file = new FileOutputStream(temp);
+			out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(next);
+		}
+
+		// Location of the record in the new snapshot
+		@Override
+		public long write(byte[] payload) throws IOException {
+			long location = SNAPSHOT_LOCATION | out.size();
+			frame.reset();
+			writeFrame(frame, payload);
+			frame.writeTo(out);
+			return location;
+		}
+
+		// True for a journal location appended after the cut, which relocate() maps once committed
+		public boolean isTail(long location) {
+			return (location & SNAPSHOT_LOCATION) == 0 && location >= cut;
+		}
+
+		/**
+		 * Copies the tail into the snapshot, makes it durable, and starts an empty
+		 * journal of the next generation. Appends must be held off while this runs;
+		 * afterwards relocate() maps tail locations into the snapshot.
+		 */
+		public void commit() throws IOException {
+			commit(null);
+		}
+
+		// As commit(), passing each tail record through the rewriter (which may already use relocate())
+		public void commit(RecordRewriter rewriter) throws IOException {
+			synchronized (flushLock) {
+				synchronized (UserJournal.this) {
+					flush();
+					tailStart = out.size();
+					if (rewriter == null) {
+						copy(cut, endOffset);
+					} else {
+						copyRewritten(cut, endOffset, rewriter);
+					}
+					out.flush();
+					file.getFD().sync();
+					out.close();
+					Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+					syncDirectory(snapshot); // Durable rename before the journal empties
+					snapshotFile = snapshot;
+					resetJournal(next);
+					done = true;
+				}
+			}
+		}
+
+		public long relocate(long location) {
+			if (tailStart < 0 || (location & SNAPSHOT_LOCATION) != 0 || location < cut) {
+				throw new IllegalArgumentException("Not a tail location: " + location);
+			}
+			return SNAPSHOT_LOCATION | (tailStart + location - cut);
+		}
+
+		// Raw frames [from, to) of the journal, already checksummed
+		private void copy(long from, long to) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			for (long offset = from; offset < to;) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), to - offset));
+				int read = channel.read(buffer, offset);
+				if (read < 0) {
+					throw new EOFException("Journal ended at " + offset + ", expected " + to);
+				}
+				out.write(buffer.array(), 0, read);
+				offset += read;
+			}
+		}
+
+		// Frames [from, to) of the journal one at a time, rewritten and checksummed again
+		private void copyRewritten(long from, long to, RecordRewriter rewriter) throws IOException {
+			for (long offset = from; offset < to;) {
+				byte[] payload = readFrame(channel, offset);
+				if (payload == null) {
+					throw new IOException("No record at " + offset);
+				}
+				rewriter.rewrite(payload);
+				frame.reset();
+				writeFrame(frame, payload);
+				frame.writeTo(out);
+				offset += 8 + payload.length;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (!done) {
+					out.close();
+					Files.deleteIfExists(temp.toPath());
+				}
+			} finally {
+				synchronized (UserJournal.this) {
+					compacting = false;
+				}
+			}
+		}
+	}
+
+	// Refuses further appends, writes whatever is queued and releases the file
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		if (flusher != null) {
+			try {
+				flusher.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void startFlusher() {
+		if (flusher != null) {
+			return;
+		}
+		flusher = new Thread(this::runFlusher, "user-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	private void runFlusher() {
+		while (true) {
+			synchronized (this) {
+				while (pending.size() == 0 && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+			}
+			try {
+				Thread.sleep(flushIntervalMillis); // Let concurrent appends join this batch
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				flush();
+			} catch (IOException e) {
+				// Kept in failure; sync() reports it
+			}
+		}
+	}
+
+	/**
+	 * Writes and fsyncs everything queued. The journal lock is held only to
+	 * take the batch and again to publish it as durable, never across the disk
+	 * I/O, so appenders (who hold their library's write lock) don't wait on fsync.
+	 */
+	private void flush() throws IOException {
+		synchronized (flushLock) {
+			byte[] batch;
+			long offset;
+			long target;
+			synchronized (this) {
+				if (failure != null) {
+					throw failure;
+				}
+				if (pending.size() == 0) {
+					return;
+				}
+				batch = pending.toByteArray();
+				pending.reset();
+				offset = endOffset - batch.length;
+				target = appendedSeq;
+				inFlight = batch;
+				inFlightOffset = offset;
+			}
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(batch);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, offset + buffer.position());
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					pending.reset(); // Nothing more will be written; don't hold on to it
+					inFlight = null;
+					notifyAll();
+				}
+				throw e;
+			}
+			synchronized (this) {
+				durableSeq = target;
+				inFlight = null;
+				notifyAll();
+			}
+		}
+	}
+
+	// Makes a rename in the file's directory durable; skipped where directories can't be opened (Windows)
+	private static void syncDirectory(File file) throws IOException {
+		FileChannel directory;
+		try {
+			directory = FileChannel.open(file.getAbsoluteFile().getParentFile().toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try (directory) {
+			directory.force(true);
+		}
+	}
+
+	private void resetJournal(long generation) throws IOException {
+		channel.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(JOURNAL_MAGIC).putLong(generation).flip();
+		channel.write(header, 0);
+		channel.force(true);
+		endOffset = HEADER_SIZE;
+		this.generation = generation;
+	}
+
+	// Returns the offset just past the last good record
+	private long replay(RecordHandler handler) throws IOException {
+		long offset = HEADER_SIZE;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(journalFile.toPath()), 1 << 16))) {
+			in.skipNBytes(HEADER_SIZE);
+			byte[] payload;
+			while ((payload = readFrame(in)) != null) {
+				handler.accept(new DataInputStream(new ByteArrayInputStream(payload)), offset);
+				offset += 8 + payload.length;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the snapshot generation, or 0 when there is no snapshot yet. A
+	 * snapshot is written whole and renamed into place, so anything short of
+	 * that (bad header, corrupt or torn record) means it can't be trusted.
+	 */
+	private static long readSnapshot(File snapshot, RecordHandler handler) throws IOException {
+		if (!snapshot.exists()) {
+			return 0;
+		}
+		long length = snapshot.length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot), 1 << 16))) {
+			if (length < HEADER_SIZE || in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("Not a user snapshot: " + snapshot);
+			}
+			long snapshotGeneration = in.readLong();
+			long offset = HEADER_SIZE;
+			byte[] payload;
+			while ((payload = readFrame(in)) != null) {
+				handler.accept(new DataInputStream(new ByteArrayInputStream(payload)), SNAPSHOT_LOCATION | offset);
+				offset += 8 + payload.length;
+			}
+			if (offset != length) {
+				throw new IOException("Corrupt user snapshot record at " + offset + ": " + snapshot);
+			}
+			return snapshotGeneration;
+		}
+	}
+
+	// A journal record, from memory while it's queued or being written, so reads never wait on the disk
+	private byte[] readJournal(long offset) throws IOException {
+		byte[] queued = queued(offset);
+		return queued != null ? queued : readFrame(channel, offset);
+	}
+
+	// Copied out under the lock; null once the record is in the file
+	private synchronized byte[] queued(long offset) {
+		long pendingStart = endOffset - pending.size();
+		if (offset >= pendingStart) {
+			return readFrame(pending.array(), offset - pendingStart, pending.size());
+		}
+		if (inFlight != null && offset >= inFlightOffset) {
+			return readFrame(inFlight, offset - inFlightOffset, inFlight.length);
+		}
+		return null;
+	}
+
+	// Queued frames, readable in place
+	private static class QueueBuffer extends ByteArrayOutputStream {
+		byte[] array() {
+			return buf;
+		}
+	}
+
+	private static void writeFrame(ByteArrayOutputStream out, byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putInt(payload.length).putInt((int) crc.getValue());
+		out.write(header.array(), 0, 8);
+		out.write(payload, 0, payload.length);
+	}
+
+	// One record by positional read; null if it's torn or corrupt
+	private static byte[] readFrame(FileChannel source, long offset) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(8);
+		readFully(source, header, offset);
+		header.flip();
+		if (header.remaining() < 8) {
+			return null;
+		}
+		int length = header.getInt();
+		int checksum = header.getInt();
+		if (length < 0 || length > MAX_RECORD) {
+			return null;
+		}
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		readFully(source, payload, offset + 8);
+		if (payload.hasRemaining()) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload.array());
+		return (int) crc.getValue() == checksum ? payload.array() : null;
+	}
+
+	// One record from a batch of frames in memory; null if it's not wholly there
+	private static byte[] readFrame(byte[] frames, long offset, int end) {
+		if (offset < 0 || offset + 8 > end) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(frames, (int) offset, end - (int) offset);
+		int length = buffer.getInt();
+		buffer.getInt(); // Checksum; the bytes never left memory
+		if (length < 0 || length > buffer.remaining()) {
+			return null;
+		}
+		byte[] payload = new byte[length];
+		buffer.get(payload);
+		return payload;
+	}
+
+	private static void readFully(FileChannel source, ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (source.read(buffer, offset + buffer.position()) < 0) {
+				return;
+			}
+		}
+	}
+
+	// Null at end of data or at a torn/corrupt record
+	private static byte[] readFrame(DataInputStream in) throws IOException {
+		try {
+			int length = in.readInt();
+			int checksum = in.readInt();
+			if (length < 0 || length > MAX_RECORD) {
+				return null;
+			}
+			byte[] payload = in.readNBytes(length);
+			if (payload.length != length) {
+				return null;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			return (int) crc.getValue() == checksum ? payload : null;
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+}
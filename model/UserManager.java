@@ -4,71 +4,730 @@
  * 
  * Part of the Model for LA#2. This class manages user accounts and persistence.
  * - Handles authentication and saving user data to a file.
+ * - Every account and library change is appended to a journal as it happens;
+ *   saveUsers() only waits for it to reach disk.
+ * - The journal is folded into the users.dat snapshot once it grows large, on
+ *   a background thread; writers only wait while the last appends are copied
+ *   over and record locations are swapped.
+ * - Credentials are loaded at startup; a library is rebuilt from its records
+ *   on first use and kept in a bounded LRU cache, so memory follows active
+ *   users rather than registered ones. Each account keeps only the location
+ *   of its newest record; the records chain back from there (UserRecords).
+ * - The cache is a ConcurrentHashMap stamped from an access clock: a hit
+ *   takes no lock and never touches the disk, and eviction writes nothing
+ *   back, since every change is already queued in the journal.
+ * - Safe for concurrent use: accounts live in a ConcurrentHashMap (striped by
+ *   key), creation is atomic per username, authentication takes no locks, and
+ *   callers never wait for the disk (the journal commits in the background).
+ * - Password hashing is deliberately slow, so it runs on a small bounded pool:
+ *   a login storm queues there (or is turned away) instead of tying up every
+ *   caller's CPU. Hashes made with an older scheme are upgraded at login, and
+ *   login() issues a session token that later requests use instead.
+ * - Save and compaction times, library cache hits and errors are recorded in
+ *   the default MetricsRegistry; errors are logged rather than printed.
  */
 package model;
 
+import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import metrics.Counter;
+import metrics.Gauge;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import store.MusicStore;
 
 public class UserManager {
+	public static final long COMPACT_THRESHOLD = 1 << 20; // Journal bytes before saveUsers() starts a compaction
+	public static final int DEFAULT_CACHE_SIZE = 256; // Libraries kept in memory
+	public static final int HASH_QUEUE_SIZE = 1024; // Hashes waiting for a thread before logins are refused
+	private static final System.Logger LOG = System.getLogger(UserManager.class.getName());
+	private static final Histogram SAVE_TIME = MetricsRegistry.getDefault().histogram("users.save");
+	private static final Histogram COMPACT_TIME = MetricsRegistry.getDefault().histogram("users.compact");
+	private static final Counter LIBRARY_ACCESSES = MetricsRegistry.getDefault().counter("users.libraryAccesses");
+	private static final Counter LIBRARY_LOADS = MetricsRegistry.getDefault().counter("users.libraryLoads"); // Misses
+	private static final Counter ERRORS = MetricsRegistry.getDefault().counter("users.errors");
 	private Map<String, User> users;
-	private File userDatabase;
+	private Map<String, RecordChain> records; // Where each user's library records are
+	private Map<String, CachedLibrary> cache; // Recently used libraries, evicted least recently used first
+	private int cacheSize;
+	private AtomicLong accessClock; // Orders cache accesses
+	private AtomicBoolean evicting; // One thread evicts at a time
+	private File userDatabase; // Compacted snapshot
+	private volatile UserJournal journal; // Null when persistence is unavailable
+	private MusicStore store;
+	private User.LibraryLoader loader;
+	// Appends and library reads share it; compaction takes it exclusively while locations move
+	private ReadWriteLock persistLock;
+	private final Object compactLock = new Object(); // One compaction at a time
+	private AtomicBoolean compacting; // A background compaction is queued or running
+	private volatile Thread compactor;
+	private volatile PasswordHasher hasher; // Used for new hashes; older schemes still verify
+	private volatile Credentials decoy; // Hashed against for unknown users, so timing doesn't reveal them
+	private ThreadPoolExecutor hashPool;
+	private HashMetrics hashMetrics;
+	private SessionTokens sessions;
+	private Gauge accountsGauge;
+	private Gauge cachedGauge;
+
+	// A cached library and when it was last used
+	private static class CachedLibrary {
+		final LibraryModel library;
+		volatile long used;
+
+		CachedLibrary(LibraryModel library, long used) {
+			this.library = library;
+			this.used = used;
+		}
+	}
+
+	// Where a user's newest library record is; each record points back at the one before
+	private static class RecordChain {
+		final User user; // The account these records belong to (a replaced account starts a new chain)
+		long head = UserRecords.NO_PREVIOUS; // Guarded by this; compaction moves it under the persist write lock
+
+		RecordChain(User user) {
+			this.user = user;
+		}
+
+		synchronized long head() {
+			return head;
+		}
+	}
 
 	public UserManager(MusicStore store) {
-		this.userDatabase = new File("users.dat");
-		this.users = new HashMap<>();
-		loadUsers(store); // Load users with MusicStore dependency
+		this(store, new File("users.dat"), new File("users.journal"));
+	}
+
+	public UserManager(MusicStore store, File userDatabase, File journalFile) {
+		this(store, userDatabase, journalFile, DEFAULT_CACHE_SIZE);
+	}
+
+	public UserManager(MusicStore store, File userDatabase, File journalFile, int cacheSize) {
+		this.userDatabase = userDatabase;
+		this.store = store;
+		this.users = new ConcurrentHashMap<>();
+		this.records = new ConcurrentHashMap<>();
+		this.persistLock = new ReentrantReadWriteLock();
+		this.compacting = new AtomicBoolean();
+		this.hasher = new Pbkdf2Hasher();
+		this.hashMetrics = new HashMetrics();
+		this.sessions = new SessionTokens(SessionTokens.DEFAULT_TTL_MILLIS);
+		int threads = Runtime.getRuntime().availableProcessors();
+		this.hashPool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(HASH_QUEUE_SIZE), task -> {
+					Thread thread = new Thread(task, "password-hash");
+					thread.setDaemon(true);
+					return thread;
+				});
+		hashPool.allowCoreThreadTimeOut(true);
+		this.cache = new ConcurrentHashMap<>();
+		this.cacheSize = cacheSize;
+		this.accessClock = new AtomicLong();
+		this.evicting = new AtomicBoolean();
+		this.loader = new User.LibraryLoader() {
+			@Override
+			public LibraryModel load(User user) {
+				LIBRARY_LOADS.increment();
+				LibraryModel library = readLibrary(user);
+				attach(user.getUsername(), library);
+				return library;
+			}
+
+			@Override
+			public void accessed(User user, LibraryModel library) {
+				LIBRARY_ACCESSES.increment();
+				long now = accessClock.incrementAndGet();
+				CachedLibrary cached = cache.get(user.getUsername());
+				if (cached != null && cached.library == library) {
+					cached.used = now; // The common case: a stamp, no lock
+					return;
+				}
+				cache.put(user.getUsername(), new CachedLibrary(library, now));
+				evictLeastRecent();
+			}
+		};
+		loadUsers(journalFile); // Credentials only; libraries load on first use
+		registerGauges();
+	}
+
+	// The newest manager's gauges win; close() removes them
+	private void registerGauges() {
+		MetricsRegistry registry = MetricsRegistry.getDefault();
+		accountsGauge = users::size;
+		cachedGauge = this::getCachedLibraryCount;
+		registry.gauge("users.accounts", accountsGauge);
+		registry.gauge("users.cachedLibraries", cachedGauge);
+		registry.gauge("users.cacheHitRate", () -> {
+			long accesses = LIBRARY_ACCESSES.getCount();
+			return accesses == 0 ? 0 : 1 - (double) LIBRARY_LOADS.getCount() / accesses;
+		});
+	}
+
+	// Failures are counted and logged; callers carry on without persistence
+	private static void error(String message, Exception e) {
+		ERRORS.increment();
+		LOG.log(System.Logger.Level.ERROR, message, e);
 	}
 
-	private void loadUsers(MusicStore store) {
-		if (!userDatabase.exists()) {
+	private void loadUsers(File journalFile) {
+		try {
+			journal = new UserJournal(journalFile, UserJournal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+		} catch (IOException e) {
+			error("Error opening user journal. Changes will not be saved.", e);
 			return;
 		}
-
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(userDatabase))) {
-			users = (Map<String, User>) ois.readObject();
-			// Reinitialize libraries with the MusicStore
+		try {
+			journal.recover(userDatabase, this::index);
+		} catch (IOException | RuntimeException e) {
+			// The files are left as they are for repair; writing over them would lose every account
+			error("Error loading user data. Starting empty; changes will not be saved.", e);
+			users.clear();
+			records.clear();
+			closeJournal();
+		}
+		if (journal != null) {
 			for (User user : users.values()) {
-				user.getLibrary().setStore(store); 
+				user.setLoader(loader);
 			}
-		} catch (IOException | ClassNotFoundException e) {
-			System.err.println("Error loading user data. Starting fresh.");
-			users = new HashMap<>();
 		}
 	}
 
+	// Recovery pass: keeps credentials and remembers where everything else is
+	private void index(DataInputStream record, long location) throws IOException {
+		byte type = UserRecords.readType(record);
+		String username = UserRecords.readUsername(record);
+		if (type == UserRecords.USER_CREATED) {
+			User user = UserRecords.readUser(username, record);
+			users.put(username, user);
+			records.put(username, new RecordChain(user));
+		} else if (type == UserRecords.CREDENTIALS) {
+			User user = users.get(username);
+			if (user != null) {
+				user.setCredentials(UserRecords.readCredentials(record));
+			}
+		} else if (records.containsKey(username)) {
+			records.get(username).head = location; // Records arrive oldest first
+		}
+	}
+
+	// Rebuilds a library by replaying its records; not cached or journaled
+	private LibraryModel readLibrary(User user) {
+		persistLock.readLock().lock();
+		try {
+			RecordChain chain = records.get(user.getUsername());
+			return readLibrary(chain == null ? UserRecords.NO_PREVIOUS : chain.head());
+		} catch (IOException e) {
+			error("Error loading library for " + user.getUsername() + ".", e);
+			return new LibraryModel(store);
+		} finally {
+			persistLock.readLock().unlock();
+		}
+	}
+
+	private LibraryModel readLibrary(long head) throws IOException {
+		LibraryModel library = new LibraryModel(store);
+		UserJournal current = journal;
+		if (current != null && head != UserRecords.NO_PREVIOUS) {
+			current.readChain(head, UserRecords::previous, (record, location) -> {
+				byte type = UserRecords.readType(record);
+				UserRecords.readUsername(record);
+				UserRecords.apply(type, record, library, store);
+			});
+		}
+		return library;
+	}
+
+	/**
+	 * Drops the least recently used libraries until the cache fits, scanning the
+	 * entries; only a newly cached library gets here. Nothing is written back:
+	 * a library's records are already queued in the journal, whose flusher
+	 * thread makes them durable.
+	 */
+	private void evictLeastRecent() {
+		while (cache.size() > cacheSize && evicting.compareAndSet(false, true)) {
+			try {
+				while (cache.size() > cacheSize) {
+					Map.Entry<String, CachedLibrary> oldest = null;
+					for (Map.Entry<String, CachedLibrary> entry : cache.entrySet()) {
+						if (oldest == null || entry.getValue().used < oldest.getValue().used) {
+							oldest = entry;
+						}
+					}
+					if (oldest != null) {
+						cache.remove(oldest.getKey(), oldest.getValue());
+					}
+				}
+			} finally {
+				evicting.set(false);
+			}
+		}
+	}
+
+	// Waits for journaled changes to be durable; a large journal is compacted in the background
 	public void saveUsers() {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(userDatabase))) {
-			oos.writeObject(users);
+		UserJournal current = journal;
+		if (current == null) {
+			return;
+		}
+		long started = System.nanoTime();
+		try {
+			current.sync();
+			if (current.size() > COMPACT_THRESHOLD) {
+				compactInBackground();
+			}
+			SAVE_TIME.recordSince(started);
 		} catch (IOException e) {
-			System.err.println("Error saving user data.");
+			error("Error saving user data.", e);
 		}
 	}
 
+	// Starts compact() on its own thread unless one is already under way
+	private void compactInBackground() {
+		if (!compacting.compareAndSet(false, true)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				compact();
+			} catch (IOException | RuntimeException e) {
+				error("Error compacting user data.", e);
+			} finally {
+				compacting.set(false);
+			}
+		}, "user-journal-compactor");
+		thread.setDaemon(true);
+		compactor = thread;
+		thread.start();
+	}
+
+	/**
+	 * Writes every user to a new snapshot and empties the journal. Each library
+	 * is rebuilt from the records it had when compaction began, without holding
+	 * off anyone, so it never waits on a library lock. Appends made meanwhile are
+	 * carried over at the end, the only step that blocks writers.
+	 */
+	public void compact() throws IOException {
+		synchronized (compactLock) {
+			UserJournal current = journal;
+			if (current == null) {
+				return;
+			}
+			long started = System.nanoTime();
+			Map<RecordChain, Long> captured = new IdentityHashMap<>(); // Each chain's head at the cut
+			UserJournal.Compaction compaction;
+			persistLock.writeLock().lock(); // Just long enough to fix the cut and what precedes it
+			try {
+				compaction = current.beginCompaction(userDatabase);
+				for (RecordChain chain : records.values()) {
+					captured.put(chain, chain.head);
+				}
+			} finally {
+				persistLock.writeLock().unlock();
+			}
+			try (compaction) {
+				Map<RecordChain, Long> rewritten = new IdentityHashMap<>(); // Head of each chain in the new snapshot
+				Map<Long, Long> moved = new HashMap<>(); // Old head -> new head, for tail records pointing at it
+				for (Map.Entry<RecordChain, Long> entry : captured.entrySet()) {
+					long head = writeUser(entry.getKey().user, readLibrary(entry.getValue()), compaction);
+					rewritten.put(entry.getKey(), head);
+					moved.put(entry.getValue(), head);
+				}
+				persistLock.writeLock().lock();
+				try {
+					// Records appended since the cut move to the end of the snapshot, pointing into it
+					compaction.commit(record -> {
+						long previous = UserRecords.previous(record);
+						if (compaction.isTail(previous)) {
+							UserRecords.link(record, compaction.relocate(previous));
+						} else if (previous != UserRecords.NO_PREVIOUS) {
+							UserRecords.link(record, moved.getOrDefault(previous, UserRecords.NO_PREVIOUS));
+						}
+					});
+					for (RecordChain chain : records.values()) {
+						if (compaction.isTail(chain.head)) {
+							chain.head = compaction.relocate(chain.head);
+						} else if (rewritten.containsKey(chain)) {
+							chain.head = rewritten.get(chain);
+						}
+					}
+				} finally {
+					persistLock.writeLock().unlock();
+				}
+			}
+			COMPACT_TIME.recordSince(started);
+		}
+	}
+
+	public void close() {
+		hashPool.shutdown();
+		Thread running = compactor; // A background compaction finishes before the journal closes under it
+		if (running != null) {
+			try {
+				running.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		closeJournal();
+		MetricsRegistry.getDefault().removeGauge("users.accounts", accountsGauge);
+		MetricsRegistry.getDefault().removeGauge("users.cachedLibraries", cachedGauge);
+	}
+
+	// Scheme for new passwords; existing ones move to it as their users log in
+	public void setPasswordHasher(PasswordHasher hasher) {
+		this.hasher = hasher;
+		this.decoy = null;
+	}
+
+	public PasswordHasher getPasswordHasher() {
+		return hasher;
+	}
+
+	public HashMetrics getHashMetrics() {
+		return hashMetrics;
+	}
+
+	// Blocks until the hashing pool has checked the password; false if it's full
 	public boolean authenticate(String username, String password) {
+		return authenticateAsync(username, password).join();
+	}
+
+	// Completes with false for a wrong password or when the hashing pool is full
+	public CompletableFuture<Boolean> authenticateAsync(String username, String password) {
+		return hashAsync(() -> verify(username, password)).exceptionally(e -> false);
+	}
+
+	// A session token for the user, or null if the login failed
+	public String login(String username, String password) {
+		return authenticate(username, password) ? sessions.issue(username) : null;
+	}
+
+	// The token's user without hashing anything; null once it has expired or been revoked
+	public User getUserByToken(String token) {
+		String username = sessions.validate(token);
+		if (username == null) {
+			return null;
+		}
+		hashMetrics.recordTokenHit();
+		return users.get(username);
+	}
+
+	public void logout(String token) {
+		sessions.revoke(token);
+	}
+
+	// Runs on a hashing thread
+	private boolean verify(String username, String password) {
 		User user = users.get(username);
 		if (user == null) {
+			Credentials current = decoy;
+			if (current == null) {
+				current = Credentials.create(hasher, "");
+				decoy = current;
+			}
+			current.matches(password);
+			return false;
+		}
+		Credentials stored = user.getCredentials();
+		if (!stored.matches(password)) {
 			return false;
 		}
-		String inputHash = user.hashPassword(password, user.getSalt());
-		return inputHash.equals(user.getHashedPassword());
+		PasswordHasher target = hasher;
+		if (!stored.getScheme().equals(target.getScheme())) {
+			upgrade(user, stored, Credentials.create(target, password));
+		}
+		return true;
+	}
+
+	// Swaps in the rehashed password unless the account changed meanwhile
+	private void upgrade(User user, Credentials stored, Credentials upgraded) {
+		users.computeIfPresent(user.getUsername(), (name, current) -> {
+			if (current == user && user.getCredentials() == stored) {
+				user.setCredentials(upgraded);
+				appendCredentials(name, upgraded);
+			}
+			return current;
+		});
+	}
+
+	private <T> CompletableFuture<T> hashAsync(Supplier<T> task) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				long start = System.nanoTime();
+				try {
+					return task.get();
+				} finally {
+					hashMetrics.recordHash(System.nanoTime() - start);
+				}
+			}, hashPool);
+		} catch (RejectedExecutionException e) {
+			hashMetrics.recordRejected();
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	// Hashes a new password on the pool; throws RejectedExecutionException if it's full
+	private Credentials hashNew(String password) {
+		PasswordHasher target = hasher;
+		try {
+			return hashAsync(() -> Credentials.create(target, password)).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
 	}
 
+	// Creates or replaces the account; returns once it's journaled, not once it's on disk
 	public void createUser(String username, String password, MusicStore store) {
-		User newUser = new User(username, password, store);
-		users.put(username, newUser);
-		saveUsers();
+		User newUser = new User(username, hashNew(password), store); // Hash outside any lock
+		users.compute(username, (name, replaced) -> register(newUser, replaced));
+		sessions.revokeAll(username); // Old sessions belonged to the replaced account
+		manage(newUser);
+	}
+
+	// Atomic sign-up: false (and nothing written) if the username is taken
+	public boolean createUserIfAbsent(String username, String password, MusicStore store) {
+		if (users.containsKey(username)) {
+			return false;
+		}
+		User newUser = new User(username, hashNew(password), store);
+		if (users.computeIfAbsent(username, name -> register(newUser, null)) != newUser) {
+			return false;
+		}
+		manage(newUser);
+		return true;
+	}
+
+	// Sign-up that opens a session on success (hashing once); null if the username is taken
+	public String signUp(String username, String password, MusicStore store) {
+		return createUserIfAbsent(username, password, store) ? sessions.issue(username) : null;
+	}
+
+	// Runs inside the map's per-key lock, so records for one username are journaled in order
+	private User register(User newUser, User replaced) {
+		String name = newUser.getUsername();
+		if (replaced != null && replaced.peekLibrary() != null) {
+			replaced.peekLibrary().setListener(null); // Its records no longer apply
+		}
+		UserJournal current = journal;
+		if (current != null) {
+			persistLock.readLock().lock();
+			try {
+				appendTo(current, UserRecords.userCreated(newUser));
+				records.put(name, new RecordChain(newUser));
+			} finally {
+				persistLock.readLock().unlock();
+			}
+			cache.remove(name);
+			attach(name, newUser.getLibrary());
+		}
+		return newUser;
+	}
+
+	// Hands the new account's library to the cache, outside the map's per-key lock
+	private void manage(User user) {
+		if (journal != null) {
+			user.setLoader(loader);
+		}
+	}
+
+	// Number of libraries currently cached in memory
+	public int getCachedLibraryCount() {
+		return cache.size();
 	}
 
 	public User getUser(String username) {
 		return users.get(username);
 	}
+
+	// Journals each change the user's library makes from now on
+	private void attach(String name, LibraryModel library) {
+		library.setListener(new LibraryListener() {
+			@Override
+			public void songAdded(Song song) {
+				append(name, UserRecords.song(UserRecords.SONG_ADDED, name, song));
+			}
+
+			@Override
+			public void songRemoved(Song song) {
+				append(name, UserRecords.song(UserRecords.SONG_REMOVED, name, song));
+			}
+
+			@Override
+			public void albumAdded(Album album) {
+				append(name, UserRecords.album(UserRecords.ALBUM_ADDED, name, album));
+			}
+
+			@Override
+			public void albumRemoved(Album album) {
+				append(name, UserRecords.album(UserRecords.ALBUM_REMOVED, name, album));
+			}
+
+			@Override
+			public void songRated(Song song, int rating) {
+				append(name, UserRecords.songRated(name, song, rating));
+			}
+
+			@Override
+			public void songPlayed(Song song, long when) {
+				append(name, UserRecords.songPlayed(name, song, when));
+			}
+
+			@Override
+			public void playlistCreated(String playlist) {
+				append(name, UserRecords.playlist(UserRecords.PLAYLIST_CREATED, name, playlist));
+			}
+
+			@Override
+			public void playlistDeleted(String playlist) {
+				append(name, UserRecords.playlist(UserRecords.PLAYLIST_DELETED, name, playlist));
+			}
+
+			@Override
+			public void playlistRenamed(String playlist, String newName) {
+				append(name, UserRecords.playlistRenamed(name, playlist, newName));
+			}
+
+			@Override
+			public void playlistSongsAdded(String playlist, List<Song> songs) {
+				append(name, UserRecords.playlistSongsAdded(name, playlist, songs));
+			}
+
+			@Override
+			public void playlistSongRemoved(String playlist, Song song) {
+				append(name, UserRecords.playlistSongRemoved(name, playlist, song));
+			}
+
+			@Override
+			public void playlistSongInserted(String playlist, int position, Song song) {
+				append(name, UserRecords.playlistSongInserted(name, playlist, position, song));
+			}
+
+			@Override
+			public void playlistSongMoved(String playlist, int from, int to) {
+				append(name, UserRecords.playlistSongMoved(name, playlist, from, to));
+			}
+		});
+	}
+
+	// Not part of any library, so no location is kept; compaction rewrites USER_CREATED instead
+	private void appendCredentials(String username, Credentials credentials) {
+		UserJournal current = journal;
+		if (current == null) {
+			return;
+		}
+		persistLock.readLock().lock();
+		try {
+			appendTo(current, UserRecords.credentials(UserRecords.CREDENTIALS, username, credentials));
+		} finally {
+			persistLock.readLock().unlock();
+		}
+	}
+
+	private void append(String username, byte[] record) {
+		UserJournal current = journal;
+		if (current == null) {
+			return;
+		}
+		persistLock.readLock().lock();
+		try {
+			RecordChain chain = records.get(username);
+			if (chain == null) {
+				return;
+			}
+			synchronized (chain) {
+				UserRecords.link(record, chain.head);
+				long location = appendTo(current, record);
+				if (location >= 0) {
+					chain.head = location;
+				}
+			}
+		} finally {
+			persistLock.readLock().unlock();
+		}
+	}
+
+	// The record's location, or -1 once the journal has failed (the change then lives only in memory)
+	private static long appendTo(UserJournal journal, byte[] record) {
+		try {
+			return journal.append(record);
+		} catch (UncheckedIOException e) {
+			error("Error saving user data. Changes will not be saved.", e);
+			return -1;
+		}
+	}
+
+	/**
+	 * Credentials, library songs, album links, playlists, stats, then recent
+	 * plays oldest first. Returns the location of the last library record, the
+	 * head of the new chain.
+	 */
+	private static long writeUser(User user, LibraryModel library, UserJournal.RecordWriter out) throws IOException {
+		String name = user.getUsername();
+		out.write(UserRecords.userCreated(user));
+		long head = UserRecords.NO_PREVIOUS;
+		for (Song song : library.getSongs()) {
+			head = chain(out, UserRecords.song(UserRecords.SONG_ADDED, name, song), head);
+		}
+		for (Album album : library.getAlbums()) {
+			head = chain(out, UserRecords.album(UserRecords.ALBUM_LINK, name, album), head);
+		}
+		for (Playlist playlist : library.getPlaylists()) {
+			head = chain(out, UserRecords.playlist(UserRecords.PLAYLIST_CREATED, name, playlist.getName()), head);
+			List<Song> tracks = playlist.getTrackList();
+			if (!tracks.isEmpty()) {
+				head = chain(out, UserRecords.playlistSongsAdded(name, playlist.getName(), tracks), head);
+			}
+		}
+		for (Song song : library.getSongs()) {
+			int rating = library.getRating(song);
+			int plays = library.getPlayCount(song);
+			if (rating != 0 || plays != 0) {
+				head = chain(out, UserRecords.stats(name, song, rating, plays, library.getLastPlayed(song)), head);
+			}
+		}
+		List<Song> recent = library.getRecentPlays();
+		for (int i = recent.size() - 1; i >= 0; i--) {
+			head = chain(out, UserRecords.song(UserRecords.RECENT, name, recent.get(i)), head);
+		}
+		return head;
+	}
+
+	private static long chain(UserJournal.RecordWriter out, byte[] record, long previous) throws IOException {
+		UserRecords.link(record, previous);
+		return out.write(record);
+	}
+
+	private void closeJournal() {
+		if (journal == null) {
+			return;
+		}
+		try {
+			journal.close();
+		} catch (IOException e) {
+			error("Error closing user journal.", e);
+		}
+		journal = null;
+	}
 }
@@ -0,0 +1,321 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Part of the Model for LA#2. Encodes and applies the records kept in the UserJournal.
+ * - Every record starts with a type byte, the location of the previous record
+ *   of the same library, and the username it belongs to. Following those
+ *   back-pointers from a user's newest record finds the whole library, so
+ *   only that one location needs to stay in memory.
+ * - Songs are stored by (title, artist, album) and albums by (title, artist),
+ *   so records stay valid when catalog ids change between runs.
+ * - The STATS, ALBUM_LINK and RECENT types only appear in compacted snapshots.
+ * - PLAYLIST_ADDED carries a whole batch of songs, so a bulk add is one record.
+ *   PLAYLIST_INSERTED and PLAYLIST_MOVED carry positions, so replaying them in
+ *   order rebuilds the track order.
+ * - Credentials are read on their own so libraries can be loaded later.
+ *   CREDENTIALS records replace them (e.g. a hash upgraded at login) and are
+ *   never part of a library.
+ */
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import store.MusicStore;
+
+public class UserRecords {
+	static final byte USER_CREATED = 1;
+	static final byte SONG_ADDED = 2;
+	static final byte SONG_REMOVED = 3;
+	static final byte ALBUM_ADDED = 4;
+	static final byte ALBUM_REMOVED = 5;
+	static final byte SONG_RATED = 6;
+	static final byte SONG_PLAYED = 7;
+	static final byte ALBUM_LINK = 8;
+	static final byte STATS = 9;
+	static final byte RECENT = 10;
+	static final byte CREDENTIALS = 11;
+	static final byte PLAYLIST_CREATED = 12;
+	static final byte PLAYLIST_DELETED = 13;
+	static final byte PLAYLIST_RENAMED = 14;
+	static final byte PLAYLIST_ADDED = 15;
+	static final byte PLAYLIST_REMOVED = 16;
+	static final byte PLAYLIST_INSERTED = 17;
+	static final byte PLAYLIST_MOVED = 18;
+	static final long NO_PREVIOUS = -1; // First record of a library, or not part of one
+	private static final int PREVIOUS_OFFSET = 1; // Just after the type byte
+
+	private UserRecords() {
+	}
+
+	public static byte[] userCreated(User user) {
+		return credentials(USER_CREATED, user.getUsername(), user.getCredentials());
+	}
+
+	public static byte[] credentials(byte type, String username, Credentials credentials) {
+		return encode(type, username, out -> {
+			out.writeShort(credentials.getSalt().length);
+			out.write(credentials.getSalt());
+			out.writeUTF(credentials.getHash());
+			out.writeUTF(credentials.getScheme());
+		});
+	}
+
+	public static byte[] song(byte type, String username, Song song) {
+		return encode(type, username, out -> writeSong(out, song));
+	}
+
+	public static byte[] album(byte type, String username, Album album) {
+		return encode(type, username, out -> writeAlbum(out, album));
+	}
+
+	public static byte[] songRated(String username, Song song, int rating) {
+		return encode(SONG_RATED, username, out -> {
+			writeSong(out, song);
+			out.writeByte(rating);
+		});
+	}
+
+	public static byte[] songPlayed(String username, Song song, long when) {
+		return encode(SONG_PLAYED, username, out -> {
+			writeSong(out, song);
+			out.writeLong(when);
+		});
+	}
+
+	public static byte[] stats(String username, Song song, int rating, int playCount, long lastPlayed) {
+		return encode(STATS, username, out -> {
+			writeSong(out, song);
+			out.writeByte(rating);
+			out.writeInt(playCount);
+			out.writeLong(lastPlayed);
+		});
+	}
+
+	// PLAYLIST_CREATED or PLAYLIST_DELETED
+	public static byte[] playlist(byte type, String username, String name) {
+		return encode(type, username, out -> out.writeUTF(name));
+	}
+
+	public static byte[] playlistRenamed(String username, String name, String newName) {
+		return encode(PLAYLIST_RENAMED, username, out -> {
+			out.writeUTF(name);
+			out.writeUTF(newName);
+		});
+	}
+
+	public static byte[] playlistSongsAdded(String username, String name, List<Song> songs) {
+		return encode(PLAYLIST_ADDED, username, out -> {
+			out.writeUTF(name);
+			out.writeInt(songs.size());
+			for (Song song : songs) {
+				writeSong(out, song);
+			}
+		});
+	}
+
+	public static byte[] playlistSongRemoved(String username, String name, Song song) {
+		return encode(PLAYLIST_REMOVED, username, out -> {
+			out.writeUTF(name);
+			writeSong(out, song);
+		});
+	}
+
+	public static byte[] playlistSongInserted(String username, String name, int position, Song song) {
+		return encode(PLAYLIST_INSERTED, username, out -> {
+			out.writeUTF(name);
+			out.writeInt(position);
+			writeSong(out, song);
+		});
+	}
+
+	public static byte[] playlistSongMoved(String username, String name, int from, int to) {
+		return encode(PLAYLIST_MOVED, username, out -> {
+			out.writeUTF(name);
+			out.writeInt(from);
+			out.writeInt(to);
+		});
+	}
+
+	// Every record starts with its type, then the back-pointer (skipped here; see previous()), then the username
+	public static byte readType(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		in.readLong();
+		return type;
+	}
+
+	// Location of the library's record before this one, or NO_PREVIOUS
+	public static long previous(byte[] record) {
+		long previous = 0;
+		for (int i = PREVIOUS_OFFSET; i < PREVIOUS_OFFSET + Long.BYTES; i++) {
+			previous = previous << 8 | (record[i] & 0xFF);
+		}
+		return previous;
+	}
+
+	// Points the record at the library's record before it; the record keeps its length
+	public static void link(byte[] record, long previous) {
+		for (int i = PREVIOUS_OFFSET + Long.BYTES - 1; i >= PREVIOUS_OFFSET; i--) {
+			record[i] = (byte) previous;
+			previous >>>= 8;
+		}
+	}
+
+	public static String readUsername(DataInputStream in) throws IOException {
+		return in.readUTF();
+	}
+
+	// Body of a USER_CREATED record: the account's credentials, without a library
+	public static User readUser(String username, DataInputStream in) throws IOException {
+		return new User(username, readCredentials(in));
+	}
+
+	// Records written before schemes were stored end after the hash and are SHA-256
+	public static Credentials readCredentials(DataInputStream in) throws IOException {
+		byte[] salt = new byte[in.readUnsignedShort()];
+		in.readFully(salt);
+		String hash = in.readUTF();
+		String scheme = in.available() > 0 ? in.readUTF() : Sha256Hasher.SCHEME;
+		return new Credentials(scheme, salt, hash);
+	}
+
+	/**
+	 * Applies the body of one library record. Records naming a song or album no
+	 * longer in the catalog are skipped.
+	 */
+	public static void apply(byte type, DataInputStream in, LibraryModel library, MusicStore store)
+			throws IOException {
+		switch (type) {
+		case PLAYLIST_CREATED:
+			library.createPlaylist(in.readUTF());
+			return;
+		case PLAYLIST_DELETED:
+			library.deletePlaylist(in.readUTF());
+			return;
+		case PLAYLIST_RENAMED:
+			library.renamePlaylist(in.readUTF(), in.readUTF());
+			return;
+		case PLAYLIST_ADDED:
+			String name = in.readUTF();
+			int count = in.readInt();
+			List<Song> batch = new ArrayList<>(Math.min(count, 1 << 16));
+			for (int i = 0; i < count; i++) {
+				Song found = readSong(in, store);
+				if (found != null) {
+					batch.add(found);
+				}
+			}
+			library.addSongsToPlaylist(name, batch);
+			return;
+		case PLAYLIST_REMOVED:
+			String playlist = in.readUTF();
+			Song removed = readSong(in, store);
+			if (removed != null) {
+				library.removeSongFromPlaylist(playlist, removed);
+			}
+			return;
+		case PLAYLIST_INSERTED:
+			String into = in.readUTF();
+			int position = in.readInt();
+			Song inserted = readSong(in, store);
+			if (inserted != null) {
+				library.insertPlaylistSong(into, position, inserted);
+			}
+			return;
+		case PLAYLIST_MOVED:
+			library.movePlaylistSong(in.readUTF(), in.readInt(), in.readInt());
+			return;
+		case ALBUM_ADDED:
+		case ALBUM_REMOVED:
+		case ALBUM_LINK:
+			Album album = readAlbum(in, store);
+			if (album == null) {
+				return;
+			}
+			if (type == ALBUM_ADDED) {
+				library.addAlbum(album);
+			} else if (type == ALBUM_REMOVED) {
+				library.removeAlbum(album);
+			} else {
+				library.restoreAlbumLink(album);
+			}
+			return;
+		default:
+			break;
+		}
+		Song song = readSong(in, store);
+		if (song == null) {
+			return;
+		}
+		switch (type) {
+		case SONG_ADDED:
+			library.addSong(song);
+			break;
+		case SONG_REMOVED:
+			library.removeSong(song);
+			break;
+		case SONG_RATED:
+			library.rateSong(song, in.readByte());
+			break;
+		case SONG_PLAYED:
+			library.replayPlay(song, in.readLong());
+			break;
+		case STATS:
+			library.restoreStats(song, in.readByte(), in.readInt(), in.readLong());
+			break;
+		case RECENT:
+			library.restoreRecent(song);
+			break;
+		default:
+			throw new IOException("Unknown journal record type " + type);
+		}
+	}
+
+	private interface Body {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private static byte[] encode(byte type, String username, Body body) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(type);
+			out.writeLong(NO_PREVIOUS); // Set by link() as the record is appended
+			out.writeUTF(username);
+			body.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Not thrown by in-memory streams
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeSong(DataOutputStream out, Song song) throws IOException {
+		out.writeUTF(song.getTitle());
+		out.writeUTF(song.getArtist());
+		out.writeUTF(song.getAlbumTitle() == null ? "" : song.getAlbumTitle());
+	}
+
+	private static void writeAlbum(DataOutputStream out, Album album) throws IOException {
+		out.writeUTF(album.getTitle());
+		out.writeUTF(album.getArtist());
+	}
+
+	private static Song readSong(DataInputStream in, MusicStore store) throws IOException {
+		return store.getSong(in.readUTF(), in.readUTF(), in.readUTF());
+	}
+
+	private static Album readAlbum(DataInputStream in, MusicStore store) throws IOException {
+		String title = in.readUTF();
+		for (Album album : store.getAlbumsByArtist(in.readUTF())) {
+			if (album.getTitle().equalsIgnoreCase(title)) {
+				return album;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Parses the small, flat JSON objects the server accepts as request bodies.
+ * - Values may be strings, numbers, booleans or null. They come back as
+ *   strings (null stays null). Nested objects and arrays are rejected.
+ * - Malformed input throws IllegalArgumentException, which the server
+ *   answers with 400.
+ */
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class JsonReader {
+	private String text;
+	private int pos;
+
+	private JsonReader(String text) {
+		this.text = text;
+	}
+
+	public static Map<String, String> parseObject(String text) {
+		JsonReader reader = new JsonReader(text);
+		Map<String, String> fields = new HashMap<>();
+		reader.skipSpace();
+		if (reader.pos == text.length()) {
+			return fields; // An empty body counts as {}
+		}
+		reader.expect('{');
+		reader.skipSpace();
+		if (!reader.consume('}')) {
+			do {
+				reader.skipSpace();
+				String name = reader.string();
+				reader.skipSpace();
+				reader.expect(':');
+				reader.skipSpace();
+				fields.put(name, reader.scalar());
+				reader.skipSpace();
+			} while (reader.consume(','));
+			reader.expect('}');
+		}
+		reader.skipSpace();
+		if (reader.pos != text.length()) {
+			throw reader.error("trailing characters");
+		}
+		return fields;
+	}
+
+	private String scalar() {
+		if (pos >= text.length()) {
+			throw error("value expected");
+		}
+		char c = text.charAt(pos);
+		if (c == '"') {
+			return string();
+		}
+		if (c == '{' || c == '[') {
+			throw error("only flat objects are accepted");
+		}
+		int start = pos;
+		while (pos < text.length() && ",} \t\r\n".indexOf(text.charAt(pos)) < 0) {
+			pos++;
+		}
+		String literal = text.substring(start, pos);
+		if (literal.equals("null")) {
+			return null;
+		}
+		if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+			return literal;
+		}
+		throw error("bad literal '" + literal + "'");
+	}
+
+	private String string() {
+		expect('"');
+		StringBuilder value = new StringBuilder();
+		while (true) {
+			if (pos >= text.length()) {
+				throw error("unterminated string");
+			}
+			char c = text.charAt(pos++);
+			if (c == '"') {
+				return value.toString();
+			}
+			if (c != '\\') {
+				value.append(c);
+				continue;
+			}
+			if (pos >= text.length()) {
+				throw error("unterminated escape");
+			}
+			char escaped = text.charAt(pos++);
+			switch (escaped) {
+			case '"', '\\', '/' -> value.append(escaped);
+			case 'b' -> value.append('\b');
+			case 'f' -> value.append('\f');
+			case 'n' -> value.append('\n');
+			case 'r' -> value.append('\r');
+			case 't' -> value.append('\t');
+			case 'u' -> {
+				if (pos + 4 > text.length()) {
+					throw error("short unicode escape");
+				}
+				try {
+					value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("bad unicode escape");
+				}
+				pos += 4;
+			}
+			default -> throw error("bad escape \\" + escaped);
+			}
+		}
+	}
+
+	private void skipSpace() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private boolean consume(char c) {
+		if (pos < text.length() && text.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!consume(c)) {
+			throw error("'" + c + "' expected");
+		}
+	}
+
+	private IllegalArgumentException error(String problem) {
+		return new IllegalArgumentException("Malformed JSON at " + pos + ": " + problem);
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Writes JSON straight to a Writer, one token at a time.
+ * - Large lists are serialized element by element into the response
+ *   stream, never built up as one string.
+ * - value(Object) knows the service DTOs, lists, maps, strings, numbers
+ *   and booleans.
+ */
+package server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import service.AlbumInfo;
+import service.PlaylistInfo;
+import service.SongInfo;
+import service.SongPage;
+
+public class JsonWriter {
+	private Writer out;
+	private Deque<Boolean> first; // Per open container: nothing written in it yet
+	private boolean afterName;
+
+	public JsonWriter(Writer out) {
+		this.out = out;
+		this.first = new ArrayDeque<>();
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		separate();
+		out.write('{');
+		first.push(true);
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		first.pop();
+		out.write('}');
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		separate();
+		out.write('[');
+		first.push(true);
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		first.pop();
+		out.write(']');
+		return this;
+	}
+
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		string(name);
+		out.write(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String text) throws IOException {
+		if (text == null) {
+			return nullValue();
+		}
+		separate();
+		string(text);
+		return this;
+	}
+
+	public JsonWriter value(long number) throws IOException {
+		separate();
+		out.write(Long.toString(number));
+		return this;
+	}
+
+	public JsonWriter value(boolean flag) throws IOException {
+		separate();
+		out.write(flag ? "true" : "false");
+		return this;
+	}
+
+	public JsonWriter nullValue() throws IOException {
+		separate();
+		out.write("null");
+		return this;
+	}
+
+	public JsonWriter value(Object value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		} else if (value instanceof String text) {
+			return value(text);
+		} else if (value instanceof Integer || value instanceof Long) {
+			return value(((Number) value).longValue());
+		} else if (value instanceof Boolean flag) {
+			return value(flag.booleanValue());
+		} else if (value instanceof SongInfo song) {
+			return song(song);
+		} else if (value instanceof AlbumInfo album) {
+			return album(album);
+		} else if (value instanceof SongPage page) {
+			return beginObject().name("songs").value(page.getSongs()).name("next").value(page.getNext()).endObject();
+		} else if (value instanceof PlaylistInfo playlist) {
+			return beginObject().name("name").value(playlist.getName()).name("songs").value(playlist.getSongs())
+					.endObject();
+		} else if (value instanceof Iterable<?> items) {
+			beginArray();
+			for (Object item : items) {
+				value(item);
+			}
+			return endArray();
+		} else if (value instanceof Map<?, ?> map) {
+			beginObject();
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				name(String.valueOf(entry.getKey())).value(entry.getValue());
+			}
+			return endObject();
+		}
+		throw new IllegalArgumentException("No JSON form for " + value.getClass().getName());
+	}
+
+	private JsonWriter song(SongInfo song) throws IOException {
+		return beginObject().name("id").value(song.getId()).name("title").value(song.getTitle()).name("artist")
+				.value(song.getArtist()).name("album").value(song.getAlbum()).name("genre").value(song.getGenre())
+				.name("rating").value(song.getRating()).name("favorite").value(song.isFavorite()).name("playCount")
+				.value(song.getPlayCount()).endObject();
+	}
+
+	private JsonWriter album(AlbumInfo album) throws IOException {
+		return beginObject().name("id").value(album.getId()).name("title").value(album.getTitle()).name("artist")
+				.value(album.getArtist()).name("genre").value(album.getGenre()).name("year").value(album.getYear())
+				.name("songs").value(album.getSongs()).endObject();
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	// Commas go before every value in a container but the first; a value right after its name needs none
+	private void separate() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (!first.isEmpty()) {
+			if (first.peek()) {
+				first.pop();
+				first.push(false);
+			} else {
+				out.write(',');
+			}
+		}
+	}
+
+	private void string(String text) throws IOException {
+		out.write('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"' -> out.write("\\\"");
+			case '\\' -> out.write("\\\\");
+			case '\n' -> out.write("\\n");
+			case '\r' -> out.write("\\r");
+			case '\t' -> out.write("\\t");
+			default -> {
+				if (c < 0x20) {
+					out.write(String.format("\\u%04x", (int) c));
+				} else {
+					out.write(c);
+				}
+			}
+			}
+		}
+		out.write('"');
+	}
+}
@@ -0,0 +1,443 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Serves LibraryService over HTTP/JSON with the JDK's built-in HttpServer.
+ * - Each request runs on its own virtual thread when the JVM has them
+ *   (looked up reflectively, so the code still builds and runs on 17).
+ *   Otherwise a bounded platform pool runs them. When its queue is full the
+ *   dispatcher answers 503 itself without routing the request, so a burst
+ *   of logins can't stall the accept loop on password hashing.
+ * - Sign up or log in for a token, then send it as "Authorization: Bearer
+ *   <token>". Bodies are flat JSON objects. Lists are streamed with chunked
+ *   encoding as they are serialized.
+ * - Status codes follow the service Status: 200 (OK or UNCHANGED), 400,
+ *   401, 404, 409 and 503. Unknown paths are 404 and wrong methods are 405.
+ * - Routes (all under /api):
+ *   POST signup, login {username, password} -> {token}; POST logout
+ *   GET songs?sort=title|artist|rating; POST songs {title}; DELETE songs/{title}
+ *   GET songs?sort=&limit=&after= -> {songs, next}: a page, resumed by passing next as after
+ *   GET albums; POST albums {title}; DELETE albums/{title}
+ *   GET search?q=&field=title|artist|any&type=songs|albums; GET store/search?q=&limit=
+ *   POST play {title}; POST rate {title, rating}
+ *   GET plays/recent, plays/frequent, favorites, genres
+ *   GET playlists; POST playlists {name}; GET, DELETE playlists/{name}
+ *   POST playlists/{name}/rename {name}
+ *   POST playlists/{name}/songs {title | album | artist | query} -> {added}
+ *   DELETE playlists/{name}/songs/{title}
+ * - Usage: java server.LibraryServer [port]; serves the catalog in the
+ *   working directory and the same users.dat/users.journal as the console.
+ */
+package server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import model.SortedSongIndex;
+import model.UserManager;
+import service.LibraryService;
+import service.LibraryService.SearchField;
+import service.Response;
+import service.Status;
+import store.CatalogSnapshot;
+import store.MusicStore;
+
+public class LibraryServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 8080;
+	public static final int BACKLOG = 4096; // Pending connections the kernel queues for us
+	public static final int MAX_BODY = 64 * 1024;
+	public static final int POOL_THREADS = Math.max(32, Runtime.getRuntime().availableProcessors() * 16);
+	public static final int STORE_SEARCH_LIMIT = 50;
+	public static final int SONG_PAGE_LIMIT = 100; // Default page size
+	private static final System.Logger LOG = System.getLogger(LibraryServer.class.getName());
+	private static final Histogram LATENCY = MetricsRegistry.getDefault().histogram("server.requests");
+	private static final Counter FAILURES = MetricsRegistry.getDefault().counter("server.failures"); // 5xx
+	private static final Counter SHED = MetricsRegistry.getDefault().counter("server.shed"); // 503 when the pool is full
+	// Set while the dispatcher runs an exchange the pool turned away
+	private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+
+	private LibraryService service;
+	private HttpServer server;
+	private ExecutorService executor;
+	private boolean virtualThreads;
+
+	// Thrown by routing for answers that aren't a service Status (404 route, 405)
+	private static class HttpError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final int code;
+
+		HttpError(int code, String message) {
+			super(message);
+			this.code = code;
+		}
+	}
+
+	public LibraryServer(LibraryService service, InetSocketAddress address) throws IOException {
+		this(service, address, POOL_THREADS, POOL_THREADS * 64);
+	}
+
+	// Threads and queued requests of the pool used when there are no virtual threads
+	public LibraryServer(LibraryService service, InetSocketAddress address, int threads, int queued)
+			throws IOException {
+		this.service = service;
+		this.server = HttpServer.create(address, BACKLOG);
+		this.executor = virtualThreadExecutor();
+		this.virtualThreads = executor != null;
+		if (executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(queued), task -> {
+						Thread thread = new Thread(task, "http-worker");
+						thread.setDaemon(true);
+						return thread;
+					}, LibraryServer::shed);
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		server.setExecutor(executor);
+		server.createContext("/api/", this::handle);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		// The JDK server closes idle keep-alive connections beyond this many; allow one per client
+		System.setProperty("sun.net.httpserver.maxIdleConnections",
+				System.getProperty("sun.net.httpserver.maxIdleConnections", "20000"));
+		MetricsRegistry.getDefault().registerMBean();
+		MusicStore store = MusicStore.open(Path.of(""), Path.of(CatalogSnapshot.DEFAULT_FILE));
+		UserManager users = new UserManager(store);
+		LibraryServer server = new LibraryServer(new LibraryService(users, store), new InetSocketAddress(port));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			users.close(); // Flush the journal on exit
+		}));
+		server.start();
+		System.out.printf("Serving %d songs on http://localhost:%d/api/ (%s)%n", store.getSongCount(),
+				server.getPort(), server.usesVirtualThreads() ? "virtual threads" : POOL_THREADS + " threads");
+	}
+
+	// Executors.newVirtualThreadPerTaskExecutor() where it exists (Java 21+), else null
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	// The exchange still has to run to read the request, but handle() only answers 503 to it
+	private static void shed(Runnable exchange, ThreadPoolExecutor pool) {
+		SHEDDING.set(true);
+		try {
+			exchange.run();
+		} finally {
+			SHEDDING.set(false);
+		}
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	// Stops accepting, gives running requests a second to finish, then stops the workers
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) {
+		long started = System.nanoTime();
+		try {
+			if (SHEDDING.get()) {
+				SHED.increment();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				sendQuietly(exchange, 503, error(Status.BUSY.name(), "Server busy. Try again shortly."));
+				return;
+			}
+			List<String> path = segments(exchange.getRequestURI().getRawPath());
+			Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+			Map<String, String> body = exchange.getRequestMethod().equals("POST") ? body(exchange) : Map.of();
+			Response<?> response = route(exchange.getRequestMethod(), path, query, body, token(exchange));
+			if (response.getStatus() == Status.OK || response.getStatus() == Status.UNCHANGED) {
+				send(exchange, 200, response.getValue() != null ? response.getValue() : Map.of("ok", true));
+			} else {
+				send(exchange, code(response.getStatus()), error(response.getStatus().name(), response.getMessage()));
+			}
+		} catch (HttpError e) {
+			sendQuietly(exchange, e.code, error(e.code == 405 ? "METHOD_NOT_ALLOWED" : "NOT_FOUND", e.getMessage()));
+		} catch (IllegalArgumentException e) {
+			sendQuietly(exchange, 400, error(Status.INVALID.name(), e.getMessage()));
+		} catch (IOException e) {
+			// The client went away mid-response; nothing to tell it
+		} catch (RuntimeException e) {
+			FAILURES.increment();
+			LOG.log(System.Logger.Level.ERROR, "Request failed: " + exchange.getRequestURI(), e);
+			sendQuietly(exchange, 500, error("INTERNAL", "Internal error."));
+		} finally {
+			exchange.close();
+			LATENCY.recordSince(started);
+		}
+	}
+
+	private Response<?> route(String method, List<String> path, Map<String, String> query, Map<String, String> body,
+			String token) {
+		String resource = path.isEmpty() ? "" : path.get(0);
+		switch (resource) {
+		case "signup" -> {
+			allow(method, "POST");
+			return tokenResponse(service.signUp(body.get("username"), body.get("password")));
+		}
+		case "login" -> {
+			allow(method, "POST");
+			return tokenResponse(service.login(body.get("username"), body.get("password")));
+		}
+		case "logout" -> {
+			allow(method, "POST");
+			return service.logout(token);
+		}
+		case "songs" -> {
+			if (path.size() == 2) {
+				allow(method, "DELETE");
+				return service.removeSong(token, path.get(1));
+			}
+			if (method.equals("POST")) {
+				return service.addSong(token, body.get("title"));
+			}
+			allow(method, "GET");
+			SortedSongIndex.Order order = order(query.getOrDefault("sort", "title"));
+			if (query.containsKey("limit") || query.containsKey("after")) {
+				int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(SONG_PAGE_LIMIT)));
+				return service.getSongsPage(token, order, query.get("after"), limit);
+			}
+			return service.getSongs(token, order);
+		}
+		case "albums" -> {
+			if (path.size() == 2) {
+				allow(method, "DELETE");
+				return service.removeAlbum(token, path.get(1));
+			}
+			if (method.equals("POST")) {
+				return service.addAlbum(token, body.get("title"));
+			}
+			allow(method, "GET");
+			return service.getAlbums(token);
+		}
+		case "search" -> {
+			allow(method, "GET");
+			SearchField field = SearchField.valueOf(query.getOrDefault("field", "any").toUpperCase());
+			return query.getOrDefault("type", "songs").equals("albums")
+					? service.searchAlbums(token, field, query.get("q"))
+					: service.searchSongs(token, field, query.get("q"));
+		}
+		case "store" -> {
+			expect(path, 2, "search");
+			allow(method, "GET");
+			int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(STORE_SEARCH_LIMIT)));
+			return service.searchStore(token, query.get("q"), limit);
+		}
+		case "play" -> {
+			allow(method, "POST");
+			return service.play(token, body.get("title"));
+		}
+		case "rate" -> {
+			allow(method, "POST");
+			String rating = body.get("rating");
+			if (rating == null) {
+				throw new IllegalArgumentException("A rating is required.");
+			}
+			return service.rate(token, body.get("title"), Integer.parseInt(rating));
+		}
+		case "plays" -> {
+			allow(method, "GET");
+			if (path.size() == 2 && path.get(1).equals("recent")) {
+				return service.getRecentPlays(token);
+			}
+			expect(path, 2, "frequent");
+			return service.getFrequentPlays(token);
+		}
+		case "favorites" -> {
+			allow(method, "GET");
+			return service.getFavorites(token);
+		}
+		case "genres" -> {
+			allow(method, "GET");
+			return service.getGenrePlaylists(token);
+		}
+		case "playlists" -> {
+			return playlists(method, path, body, token);
+		}
+		default -> throw new HttpError(404, "No such resource: /api/" + String.join("/", path));
+		}
+	}
+
+	private Response<?> playlists(String method, List<String> path, Map<String, String> body, String token) {
+		if (path.size() == 1) {
+			if (method.equals("POST")) {
+				return service.createPlaylist(token, body.get("name"));
+			}
+			allow(method, "GET");
+			return service.getPlaylists(token);
+		}
+		String name = path.get(1);
+		if (path.size() == 2) {
+			if (method.equals("DELETE")) {
+				return service.deletePlaylist(token, name);
+			}
+			allow(method, "GET");
+			return service.getPlaylist(token, name);
+		}
+		if (path.get(2).equals("rename")) {
+			expect(path, 3, "rename");
+			allow(method, "POST");
+			return service.renamePlaylist(token, name, body.get("name"));
+		}
+		if (path.size() == 4 && path.get(2).equals("songs")) {
+			allow(method, "DELETE");
+			return service.removeSongFromPlaylist(token, name, path.get(3));
+		}
+		expect(path, 3, "songs");
+		allow(method, "POST");
+		Response<Integer> added;
+		if (body.containsKey("title")) {
+			added = service.addSongToPlaylist(token, name, body.get("title"));
+		} else if (body.containsKey("album")) {
+			added = service.addAlbumToPlaylist(token, name, body.get("album"));
+		} else if (body.containsKey("artist")) {
+			added = service.addArtistToPlaylist(token, name, body.get("artist"));
+		} else {
+			added = service.addSearchResultsToPlaylist(token, name, body.get("query"));
+		}
+		return added.isOk() ? Response.ok(Map.of("added", added.getValue())) : added;
+	}
+
+	private static Map<String, String> error(String error, String message) {
+		Map<String, String> body = new LinkedHashMap<>();
+		body.put("error", error);
+		body.put("message", message);
+		return body;
+	}
+
+	private static Response<?> tokenResponse(Response<String> response) {
+		return response.isOk() ? Response.ok(Map.of("token", response.getValue())) : response;
+	}
+
+	private static SortedSongIndex.Order order(String sort) {
+		return SortedSongIndex.Order.valueOf(sort.toUpperCase());
+	}
+
+	private static void allow(String method, String allowed) {
+		if (!method.equals(allowed)) {
+			throw new HttpError(405, method + " not allowed here; use " + allowed + ".");
+		}
+	}
+
+	// The path has exactly size segments and the last one is the given word
+	private static void expect(List<String> path, int size, String last) {
+		if (path.size() != size || !path.get(size - 1).equals(last)) {
+			throw new HttpError(404, "No such resource: /api/" + String.join("/", path));
+		}
+	}
+
+	static int code(Status status) {
+		return switch (status) {
+		case OK, UNCHANGED -> 200;
+		case INVALID -> 400;
+		case UNAUTHORIZED -> 401;
+		case NOT_FOUND -> 404;
+		case CONFLICT -> 409;
+		case BUSY -> 503;
+		};
+	}
+
+	// Path segments after /api/, URL-decoded
+	private static List<String> segments(String rawPath) {
+		List<String> segments = new ArrayList<>();
+		for (String segment : rawPath.substring("/api/".length()).split("/")) {
+			if (!segment.isEmpty()) {
+				segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+			}
+		}
+		return segments;
+	}
+
+	private static Map<String, String> query(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int split = pair.indexOf('=');
+			String key = split < 0 ? pair : pair.substring(0, split);
+			String value = split < 0 ? "" : pair.substring(split + 1);
+			query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+
+	private static Map<String, String> body(HttpExchange exchange) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			byte[] bytes = in.readNBytes(MAX_BODY + 1);
+			if (bytes.length > MAX_BODY) {
+				throw new IllegalArgumentException("Request body over " + MAX_BODY + " bytes.");
+			}
+			return JsonReader.parseObject(new String(bytes, StandardCharsets.UTF_8));
+		}
+	}
+
+	private static String token(HttpExchange exchange) {
+		String header = exchange.getRequestHeaders().getFirst("Authorization");
+		return header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : null;
+	}
+
+	// Chunked, so a long list goes out as it is written instead of after
+	private static void send(HttpExchange exchange, int code, Object value) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, 0);
+		BufferedWriter out = new BufferedWriter(
+				new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+		JsonWriter json = new JsonWriter(out);
+		json.value(value);
+		json.flush();
+	}
+
+	private static void sendQuietly(HttpExchange exchange, int code, Object value) {
+		try {
+			send(exchange, code, value);
+		} catch (IOException | RuntimeException e) {
+			// Headers may already be out; the connection is closed either way
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * An album and its track titles, detached from the model.
+ */
+package service;
+
+import java.util.List;
+
+public final class AlbumInfo {
+	private final int id;
+	private final String title;
+	private final String artist;
+	private final String genre;
+	private final int year;
+	private final List<String> songs;
+
+	public AlbumInfo(int id, String title, String artist, String genre, int year, List<String> songs) {
+		this.id = id;
+		this.title = title;
+		this.artist = artist;
+		this.genre = genre;
+		this.year = year;
+		this.songs = List.copyOf(songs);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getArtist() {
+		return artist;
+	}
+
+	public String getGenre() {
+		return genre;
+	}
+
+	public int getYear() {
+		return year;
+	}
+
+	// Track titles in album order
+	public List<String> getSongs() {
+		return songs;
+	}
+
+	@Override
+	public String toString() {
+		return title + " by " + artist;
+	}
+}
@@ -0,0 +1,405 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Headless facade over UserManager, LibraryModel and MusicStore.
+ * - Every operation after login takes the session token that login() or
+ *   signUp() returned, and answers with a Response of detached DTOs. No
+ *   model object leaks to clients, and a client needs no console.
+ * - Holds no per-session state of its own. Sessions are UserManager's
+ *   tokens and libraries do their own locking, so one service can serve
+ *   many concurrent sessions (the CLI is just one client).
+ * - Songs and albums are named by exact title (ignoring case), resolved the
+ *   way the console always has: the catalog for adds, the user's library for
+ *   everything else. Only the search endpoints match partially.
+ */
+package service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import model.Album;
+import model.LibraryModel;
+import model.Playlist;
+import model.Song;
+import model.SortedSongIndex;
+import model.User;
+import model.UserManager;
+import store.MusicStore;
+import store.SearchIndex;
+
+public class LibraryService {
+	public static final int MAX_RATING = 5;
+	public static final int MAX_PAGE = 1000; // Songs per getSongsPage call
+
+	public enum SearchField {
+		TITLE, ARTIST, ANY
+	}
+
+	private UserManager users;
+	private MusicStore store;
+
+	public LibraryService(UserManager users, MusicStore store) {
+		this.users = users;
+		this.store = store;
+	}
+
+	// Accounts and sessions
+
+	public Response<String> login(String username, String password) {
+		if (isBlank(username) || password == null) {
+			return Response.error(Status.INVALID, "Username and password are required.");
+		}
+		String token = users.login(username, password);
+		return token != null ? Response.ok(token) : Response.error(Status.UNAUTHORIZED, "Invalid credentials.");
+	}
+
+	public Response<String> signUp(String username, String password) {
+		if (isBlank(username) || password == null) {
+			return Response.error(Status.INVALID, "Username and password are required.");
+		}
+		try {
+			String token = users.signUp(username, password, store);
+			return token != null ? Response.ok(token) : Response.error(Status.CONFLICT, "Username already taken.");
+		} catch (RejectedExecutionException e) {
+			return Response.error(Status.BUSY, "Too many sign-ups right now. Try again shortly.");
+		}
+	}
+
+	// Saves pending changes, then ends the session; they're saved even if it had already expired
+	public Response<Void> logout(String token) {
+		boolean active = users.getUserByToken(token) != null;
+		users.saveUsers();
+		users.logout(token);
+		return active ? Response.ok(null)
+				: Response.error(Status.UNAUTHORIZED, "Session had already expired; your changes were saved.");
+	}
+
+	public Response<String> getUsername(String token) {
+		return withUser(token, user -> Response.ok(user.getUsername()));
+	}
+
+	// Searching
+
+	public Response<List<SongInfo>> searchSongs(String token, SearchField field, String term) {
+		if (term == null) {
+			return Response.error(Status.INVALID, "A search term is required.");
+		}
+		return withLibrary(token, library -> Response.ok(songs(library, switch (field) {
+		case TITLE -> library.searchSongs(term, SearchIndex.Field.TITLE);
+		case ARTIST -> library.searchSongs(term, SearchIndex.Field.ARTIST);
+		case ANY -> library.searchSongs(term);
+		})));
+	}
+
+	public Response<List<AlbumInfo>> searchAlbums(String token, SearchField field, String term) {
+		if (term == null) {
+			return Response.error(Status.INVALID, "A search term is required.");
+		}
+		return withLibrary(token, library -> {
+			Set<Album> found = new LinkedHashSet<>();
+			if (field != SearchField.ARTIST) {
+				found.addAll(library.searchAlbums(term, SearchIndex.Field.TITLE));
+			}
+			if (field != SearchField.TITLE) {
+				found.addAll(library.searchAlbums(term, SearchIndex.Field.ARTIST));
+			}
+			return Response.ok(albums(found));
+		});
+	}
+
+	// The whole catalog, for finding songs to add
+	public Response<List<SongInfo>> searchStore(String token, String query, int limit) {
+		if (query == null || limit < 1) {
+			return Response.error(Status.INVALID, "A query and a positive limit are required.");
+		}
+		int capped = Math.min(limit, LibraryModel.MAX_SEARCH_RESULTS);
+		return withLibrary(token, library -> Response.ok(
+				songs(library, store.searchSongs(query, EnumSet.allOf(SearchIndex.Field.class), null, capped))));
+	}
+
+	// Library contents
+
+	public Response<SongInfo> addSong(String token, String title) {
+		return withLibrary(token, library -> {
+			List<Song> matches = store.getSongsByTitle(title);
+			if (matches.isEmpty()) {
+				return Response.error(Status.NOT_FOUND, "Song not found in store.");
+			}
+			if (!library.addSongFromStore(title)) {
+				return Response.of(Status.UNCHANGED, info(library, matches.get(0)));
+			}
+			Song added = findSong(library, title);
+			return Response.ok(info(library, added != null ? added : matches.get(0)));
+		});
+	}
+
+	public Response<AlbumInfo> addAlbum(String token, String title) {
+		return withLibrary(token, library -> {
+			Album album = store.getAlbum(title);
+			if (album == null) {
+				return Response.error(Status.NOT_FOUND, "Album not found in store.");
+			}
+			return Response.of(library.addAlbum(album) ? Status.OK : Status.UNCHANGED, info(album));
+		});
+	}
+
+	public Response<Void> removeSong(String token, String title) {
+		return withLibrary(token, library -> {
+			Song song = findSong(library, title);
+			return song != null && library.removeSong(song) ? Response.ok(null)
+					: Response.error(Status.NOT_FOUND, "Song not found.");
+		});
+	}
+
+	public Response<Void> removeAlbum(String token, String title) {
+		return withLibrary(token, library -> {
+			Album album = findAlbum(library, title);
+			return album != null && library.removeAlbum(album) ? Response.ok(null)
+					: Response.error(Status.NOT_FOUND, "Album not found.");
+		});
+	}
+
+	public Response<SongInfo> play(String token, String title) {
+		return withLibrary(token, library -> {
+			Song song = findSong(library, title);
+			if (song == null) {
+				return Response.error(Status.NOT_FOUND, "Song not found.");
+			}
+			library.playSong(song);
+			return Response.ok(info(library, song));
+		});
+	}
+
+	// 1 to 5; 5 also marks the song a favorite
+	public Response<SongInfo> rate(String token, String title, int rating) {
+		if (rating < 1 || rating > MAX_RATING) {
+			return Response.error(Status.INVALID, "Ratings go from 1 to " + MAX_RATING + ".");
+		}
+		return withLibrary(token, library -> {
+			Song song = findSong(library, title);
+			if (song == null || !library.rateSong(song, rating)) {
+				return Response.error(Status.NOT_FOUND, "Song not found.");
+			}
+			return Response.ok(info(library, song));
+		});
+	}
+
+	public Response<List<SongInfo>> getSongs(String token, SortedSongIndex.Order order) {
+		return withLibrary(token, library -> Response.ok(songs(library, switch (order) {
+		case TITLE -> library.getSongsSortedByTitle();
+		case ARTIST -> library.getSongsSortedByArtist();
+		case RATING -> library.getSongsSortedByRating();
+		})));
+	}
+
+	// One page in the given order; after is the previous page's getNext(), null for the first page
+	public Response<SongPage> getSongsPage(String token, SortedSongIndex.Order order, String after, int limit) {
+		if (limit < 1) {
+			return Response.error(Status.INVALID, "A positive limit is required.");
+		}
+		return withLibrary(token, library -> {
+			SortedSongIndex.Page page;
+			try {
+				SortedSongIndex.Cursor cursor = after == null ? null : SortedSongIndex.Cursor.parse(order, after);
+				page = library.getSongsPage(order, cursor, Math.min(limit, MAX_PAGE));
+			} catch (IllegalArgumentException e) {
+				return Response.error(Status.INVALID, e.getMessage());
+			}
+			SortedSongIndex.Cursor next = page.getNext();
+			return Response.ok(new SongPage(songs(library, page.getSongs()), next != null ? next.toString() : null));
+		});
+	}
+
+	public Response<List<AlbumInfo>> getAlbums(String token) {
+		return withLibrary(token, library -> Response.ok(albums(library.getAlbums())));
+	}
+
+	// Automatic playlists
+
+	public Response<List<SongInfo>> getRecentPlays(String token) {
+		return withLibrary(token, library -> Response.ok(songs(library, library.getRecentPlays())));
+	}
+
+	public Response<List<SongInfo>> getFrequentPlays(String token) {
+		return withLibrary(token, library -> Response.ok(songs(library, library.getFrequentPlays())));
+	}
+
+	public Response<List<SongInfo>> getFavorites(String token) {
+		return withLibrary(token, library -> Response.ok(songs(library, library.getFavorites())));
+	}
+
+	public Response<Map<String, List<SongInfo>>> getGenrePlaylists(String token) {
+		return withLibrary(token, library -> {
+			Map<String, List<SongInfo>> genres = new LinkedHashMap<>();
+			library.getGenrePlaylists().forEach((genre, songs) -> genres.put(genre, songs(library, songs)));
+			return Response.ok(genres);
+		});
+	}
+
+	// User playlists
+
+	public Response<List<PlaylistInfo>> getPlaylists(String token) {
+		return withLibrary(token, library -> {
+			List<PlaylistInfo> playlists = new ArrayList<>();
+			for (Playlist playlist : library.getPlaylists()) {
+				playlists.add(info(library, playlist));
+			}
+			return Response.ok(playlists);
+		});
+	}
+
+	public Response<PlaylistInfo> getPlaylist(String token, String name) {
+		return withLibrary(token, library -> {
+			Playlist playlist = library.getPlaylist(name);
+			return playlist != null ? Response.ok(info(library, playlist))
+					: Response.error(Status.NOT_FOUND, "Playlist not found.");
+		});
+	}
+
+	public Response<Void> createPlaylist(String token, String name) {
+		if (isBlank(name)) {
+			return Response.error(Status.INVALID, "A playlist name is required.");
+		}
+		return withLibrary(token, library -> library.createPlaylist(name) != null ? Response.ok(null)
+				: Response.error(Status.CONFLICT, "Playlist already exists."));
+	}
+
+	public Response<Void> deletePlaylist(String token, String name) {
+		return withLibrary(token, library -> library.deletePlaylist(name) ? Response.ok(null)
+				: Response.error(Status.NOT_FOUND, "Playlist not found."));
+	}
+
+	public Response<Void> renamePlaylist(String token, String name, String newName) {
+		if (isBlank(newName)) {
+			return Response.error(Status.INVALID, "A new name is required.");
+		}
+		return withLibrary(token, library -> {
+			if (library.getPlaylist(name) == null) {
+				return Response.error(Status.NOT_FOUND, "Playlist not found.");
+			}
+			return library.renamePlaylist(name, newName) ? Response.ok(null)
+					: Response.error(Status.CONFLICT, "Playlist name already taken.");
+		});
+	}
+
+	// Each of these answers with the number of songs added
+	public Response<Integer> addSongToPlaylist(String token, String name, String title) {
+		return withLibrary(token, library -> {
+			Song song = findSong(library, title);
+			return song == null ? Response.error(Status.NOT_FOUND, "Song not found.")
+					: added(library.addSongsToPlaylist(name, List.of(song)));
+		});
+	}
+
+	public Response<Integer> addAlbumToPlaylist(String token, String name, String albumTitle) {
+		return withLibrary(token, library -> {
+			Album album = findAlbum(library, albumTitle);
+			return album == null ? Response.error(Status.NOT_FOUND, "Album not found.")
+					: added(library.addAlbumToPlaylist(name, album));
+		});
+	}
+
+	public Response<Integer> addArtistToPlaylist(String token, String name, String artist) {
+		return withLibrary(token, library -> added(library.addArtistToPlaylist(name, artist)));
+	}
+
+	public Response<Integer> addSearchResultsToPlaylist(String token, String name, String query) {
+		if (query == null) {
+			return Response.error(Status.INVALID, "A search term is required.");
+		}
+		return withLibrary(token, library -> added(library.addSongsToPlaylist(name, library.searchSongs(query))));
+	}
+
+	public Response<Void> removeSongFromPlaylist(String token, String name, String title) {
+		return withLibrary(token, library -> {
+			Song song = findSong(library, title);
+			return song != null && library.removeSongFromPlaylist(name, song) ? Response.ok(null)
+					: Response.error(Status.NOT_FOUND, "Song not found in playlist.");
+		});
+	}
+
+	// Helpers
+
+	private <T> Response<T> withUser(String token, Function<User, Response<T>> action) {
+		User user = users.getUserByToken(token);
+		if (user == null) {
+			return Response.error(Status.UNAUTHORIZED, "Not logged in, or the session expired.");
+		}
+		return action.apply(user);
+	}
+
+	private <T> Response<T> withLibrary(String token, Function<LibraryModel, Response<T>> action) {
+		return withUser(token, user -> action.apply(user.getLibrary()));
+	}
+
+	private static Response<Integer> added(int count) {
+		return count < 0 ? Response.error(Status.NOT_FOUND, "Playlist not found.") : Response.ok(count);
+	}
+
+	// The first catalog song with exactly this title (ignoring case) that's in the library
+	private Song findSong(LibraryModel library, String title) {
+		if (title == null) {
+			return null;
+		}
+		for (Song song : store.getSongsByTitle(title)) {
+			if (library.containsSong(song)) {
+				return song;
+			}
+		}
+		return null;
+	}
+
+	// The catalog album with exactly this title (ignoring case), if it's in the library
+	private Album findAlbum(LibraryModel library, String title) {
+		Album album = store.getAlbum(title);
+		return album != null && library.containsAlbum(album) ? album : null;
+	}
+
+	private SongInfo info(LibraryModel library, Song song) {
+		Album album = store.getAlbumOfSong(song);
+		return new SongInfo(song.getId(), song.getTitle(), song.getArtist(), song.getAlbumTitle(),
+				album != null ? album.getGenre() : null, library.getRating(song), library.isFavorite(song),
+				library.getPlayCount(song));
+	}
+
+	private List<SongInfo> songs(LibraryModel library, List<Song> songs) {
+		List<SongInfo> infos = new ArrayList<>(songs.size());
+		for (Song song : songs) {
+			infos.add(info(library, song));
+		}
+		return infos;
+	}
+
+	private static AlbumInfo info(Album album) {
+		List<String> titles = new ArrayList<>();
+		for (Song song : album.getSongs()) {
+			titles.add(song.getTitle());
+		}
+		return new AlbumInfo(album.getId(), album.getTitle(), album.getArtist(), album.getGenre(), album.getYear(),
+				titles);
+	}
+
+	private static List<AlbumInfo> albums(Iterable<Album> albums) {
+		List<AlbumInfo> infos = new ArrayList<>();
+		for (Album album : albums) {
+			infos.add(info(album));
+		}
+		return infos;
+	}
+
+	private PlaylistInfo info(LibraryModel library, Playlist playlist) {
+		return new PlaylistInfo(playlist.getName(), songs(library, playlist.getTrackList()));
+	}
+
+	private static boolean isBlank(String text) {
+		return text == null || text.isBlank();
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * A playlist's name and tracks at the time it was read.
+ */
+package service;
+
+import java.util.List;
+
+public final class PlaylistInfo {
+	private final String name;
+	private final List<SongInfo> songs;
+
+	public PlaylistInfo(String name, List<SongInfo> songs) {
+		this.name = name;
+		this.songs = List.copyOf(songs);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<SongInfo> getSongs() {
+		return songs;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + songs.size() + " songs)";
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * The result of a LibraryService call: a Status, a value on success and a
+ * message for the user otherwise.
+ * - Immutable, so it can be handed across threads freely.
+ */
+package service;
+
+public final class Response<T> {
+	private final Status status;
+	private final T value;
+	private final String message;
+
+	private Response(Status status, T value, String message) {
+		this.status = status;
+		this.value = value;
+		this.message = message;
+	}
+
+	public static <T> Response<T> ok(T value) {
+		return new Response<>(Status.OK, value, null);
+	}
+
+	public static <T> Response<T> of(Status status, T value) {
+		return new Response<>(status, value, null);
+	}
+
+	public static <T> Response<T> error(Status status, String message) {
+		return new Response<>(status, null, message);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isOk() {
+		return status == Status.OK;
+	}
+
+	// Null unless the call succeeded
+	public T getValue() {
+		return value;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return status + (message != null ? ": " + message : value != null ? " " + value : "");
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * A song as one user's library sees it, detached from the model.
+ * - Rating, favorite and play count are that library's, not catalog-wide.
+ */
+package service;
+
+public final class SongInfo {
+	private final int id;
+	private final String title;
+	private final String artist;
+	private final String album;
+	private final String genre;
+	private final int rating;
+	private final boolean favorite;
+	private final int playCount;
+
+	public SongInfo(int id, String title, String artist, String album, String genre, int rating, boolean favorite,
+			int playCount) {
+		this.id = id;
+		this.title = title;
+		this.artist = artist;
+		this.album = album;
+		this.genre = genre;
+		this.rating = rating;
+		this.favorite = favorite;
+		this.playCount = playCount;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getArtist() {
+		return artist;
+	}
+
+	public String getAlbum() {
+		return album;
+	}
+
+	// Null for songs outside the catalog
+	public String getGenre() {
+		return genre;
+	}
+
+	public int getRating() {
+		return rating;
+	}
+
+	public boolean isFavorite() {
+		return favorite;
+	}
+
+	public int getPlayCount() {
+		return playCount;
+	}
+
+	@Override
+	public String toString() {
+		return title + " by " + artist;
+	}
+}
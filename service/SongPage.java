@@ -0,0 +1,33 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * One page of a sorted song listing, and the cursor for the next page.
+ */
+package service;
+
+import java.util.List;
+
+public final class SongPage {
+	private final List<SongInfo> songs;
+	private final String next;
+
+	public SongPage(List<SongInfo> songs, String next) {
+		this.songs = List.copyOf(songs);
+		this.next = next;
+	}
+
+	public List<SongInfo> getSongs() {
+		return songs;
+	}
+
+	// Pass to the next getSongsPage call; null after the last page
+	public String getNext() {
+		return next;
+	}
+
+	@Override
+	public String toString() {
+		return songs.size() + " songs" + (next != null ? ", more after " + next : "");
+	}
+}
@@ -0,0 +1,18 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Outcome of a LibraryService call.
+ * - Clients map these to their own messages (the CLI) or status codes (HTTP).
+ */
+package service;
+
+public enum Status {
+	OK, // Done
+	UNCHANGED, // Valid, but there was nothing to do (e.g. the song was already in the library)
+	NOT_FOUND, // No such song, album, playlist or account
+	CONFLICT, // The name is taken
+	UNAUTHORIZED, // Bad credentials, or the session expired or was never opened
+	INVALID, // A missing or malformed argument
+	BUSY // The server is shedding load (e.g. the password hashing queue is full)
+}
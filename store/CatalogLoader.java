@@ -0,0 +1,271 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Loads the catalog text files for the MusicStore.
+ * - Album files are read concurrently on a bounded pool; results are handed
+ *   back in albums.txt order so catalog ids stay deterministic.
+ * - Files are scanned as bytes (memory-mapped when large) with a reusable
+ *   line buffer instead of BufferedReader/String.split.
+ * - Failures are collected per file in the returned LoadStats.
+ */
+package store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Album;
+import model.Song;
+
+public class CatalogLoader {
+	public static final String INDEX_FILE = "albums.txt";
+	public static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	private static final long MAP_THRESHOLD = 64 * 1024; // Smaller files are cheaper to read than to map
+
+	private Path directory;
+	private int threads;
+	private SymbolTable symbols;
+
+	// Results of one load: throughput and per-file errors
+	public static class LoadStats {
+		private int files;
+		private long bytes;
+		private long elapsedNanos;
+		private List<String> errors = new ArrayList<>();
+		private List<String> sources = new ArrayList<>(); // Every file the load depended on
+
+		public int getFiles() {
+			return files;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public List<String> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+
+		public List<String> getSources() {
+			return Collections.unmodifiableList(sources);
+		}
+
+		void addError(String error) {
+			errors.add(error);
+		}
+
+		public double getFilesPerSecond() {
+			return elapsedNanos == 0 ? 0 : files * 1e9 / elapsedNanos;
+		}
+
+		public double getBytesPerSecond() {
+			return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d files, %d bytes in %.1f ms (%.0f files/s, %.0f bytes/s), %d errors", files, bytes,
+					elapsedNanos / 1e6, getFilesPerSecond(), getBytesPerSecond(), errors.size());
+		}
+	}
+
+	// What one worker produced for one album file
+	private static class FileResult {
+		Album album;
+		long bytes;
+		String error;
+	}
+
+	public CatalogLoader(Path directory, int threads, SymbolTable symbols) {
+		this.directory = directory;
+		this.threads = Math.max(1, threads);
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Reads albums.txt and every album file it lists. Albums come back in index
+	 * order; unreadable files are skipped and reported in the stats.
+	 */
+	public List<Album> load(LoadStats stats) {
+		long start = System.nanoTime();
+		List<Album> albums = new ArrayList<>();
+		List<String[]> entries = new ArrayList<>();
+		stats.sources.add(INDEX_FILE);
+		try {
+			LineScanner index = new LineScanner(read(directory.resolve(INDEX_FILE)));
+			stats.bytes += index.buffer.limit();
+			String line;
+			while ((line = index.nextLine()) != null) {
+				int comma = line.indexOf(',');
+				if (comma < 0) {
+					stats.errors.add(INDEX_FILE + ": malformed line '" + line + "'");
+					continue;
+				}
+				String[] entry = { symbols.intern(line.substring(0, comma).trim()),
+						symbols.intern(line.substring(comma + 1).trim()) };
+				entries.add(entry);
+				stats.sources.add(fileName(entry[0], entry[1]));
+			}
+		} catch (IOException e) {
+			stats.errors.add(INDEX_FILE + ": " + e);
+			stats.elapsedNanos = System.nanoTime() - start;
+			return albums;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, entries.size())));
+		try {
+			List<Future<FileResult>> results = new ArrayList<>(entries.size());
+			for (String[] entry : entries) {
+				results.add(pool.submit(() -> loadAlbumFile(entry[0], entry[1])));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				FileResult result;
+				try {
+					result = results.get(i).get();
+				} catch (ExecutionException e) {
+					result = new FileResult();
+					result.error = fileName(entries.get(i)[0], entries.get(i)[1]) + ": " + e.getCause();
+				}
+				stats.files++;
+				stats.bytes += result.bytes;
+				if (result.error != null) {
+					stats.errors.add(result.error);
+				} else {
+					albums.add(result.album);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stats.errors.add("Interrupted while loading album files");
+		} finally {
+			pool.shutdownNow();
+		}
+		stats.elapsedNanos = System.nanoTime() - start;
+		return albums;
+	}
+
+	public static String fileName(String albumTitle, String artist) {
+		return albumTitle + "_" + artist + ".txt";
+	}
+
+	private FileResult loadAlbumFile(String albumTitle, String artist) {
+		FileResult result = new FileResult();
+		String filename = fileName(albumTitle, artist);
+		try {
+			LineScanner scanner = new LineScanner(read(directory.resolve(filename)));
+			result.bytes = scanner.buffer.limit();
+			String header = scanner.nextLine();
+			int[] commas = header == null ? null : commas(header, 3);
+			if (commas == null) {
+				result.error = filename + ": invalid header";
+				return result;
+			}
+			String genre = header.substring(commas[1] + 1, commas[2]).trim();
+			String yearText = header.substring(commas[2] + 1);
+			int yearEnd = yearText.indexOf(',');
+			int year = Integer.parseInt((yearEnd < 0 ? yearText : yearText.substring(0, yearEnd)).trim());
+
+			Album album = new Album(symbols.intern(header.substring(0, commas[0]).trim()),
+					symbols.intern(header.substring(commas[0] + 1, commas[1]).trim()), symbols.intern(genre), year);
+			String songTitle;
+			while ((songTitle = scanner.nextLine()) != null) {
+				album.addSong(new Song(songTitle, artist, albumTitle));
+			}
+			result.album = album;
+		} catch (IOException | NumberFormatException e) {
+			result.error = filename + ": " + e;
+		}
+		return result;
+	}
+
+	// Positions of the first n commas, or null if there are fewer
+	private static int[] commas(String line, int n) {
+		int[] positions = new int[n];
+		int from = 0;
+		for (int i = 0; i < n; i++) {
+			positions[i] = line.indexOf(',', from);
+			if (positions[i] < 0) {
+				return null;
+			}
+			from = positions[i] + 1;
+		}
+		return positions;
+	}
+
+	private static ByteBuffer read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size >= MAP_THRESHOLD) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Keep reading until full or EOF
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	/**
+	 * Walks a byte buffer line by line. Line bytes are copied into one reused
+	 * array, so the only allocation per line is the resulting (trimmed) String.
+	 * Blank lines are skipped.
+	 */
+	static class LineScanner {
+		private ByteBuffer buffer;
+		private byte[] line = new byte[256];
+
+		LineScanner(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		String nextLine() {
+			while (buffer.hasRemaining()) {
+				int length = 0;
+				while (buffer.hasRemaining()) {
+					byte b = buffer.get();
+					if (b == '\n') {
+						break;
+					}
+					if (length == line.length) {
+						line = Arrays.copyOf(line, length * 2);
+					}
+					line[length++] = b;
+				}
+				int start = 0;
+				int end = length;
+				while (start < end && (line[start] & 0xFF) <= ' ') {
+					start++;
+				}
+				while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+					end--;
+				}
+				if (start == 0 && end >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB
+						&& line[2] == (byte) 0xBF) {
+					start = 3; // UTF-8 byte order mark
+				}
+				if (end > start) {
+					return new String(line, start, end - start, StandardCharsets.UTF_8);
+				}
+			}
+			return null;
+		}
+	}
+}
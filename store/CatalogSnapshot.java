@@ -0,0 +1,229 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Versioned binary snapshot of the whole MusicStore catalog for fast cold starts.
+ * - Layout: header (magic, version, source stamp, source files), string table,
+ *   album records, song records, the prebuilt song and album search indexes,
+ *   then the songs in title and artist order (see SongRanks).
+ * - Read back through a memory-mapped buffer; only the hash lookups are rebuilt.
+ * - Stale once albums.txt or any album file is modified after the stamp.
+ */
+package store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Album;
+import model.Song;
+import model.SongRanks;
+
+public class CatalogSnapshot {
+	public static final String DEFAULT_FILE = "catalog.snap";
+	private static final int MAGIC = 0x4D4C4353; // "MLCS"
+	private static final int VERSION = 2;
+	private static final long MTIME_GRANULARITY = 2000; // Some file systems round mtimes to seconds
+
+	private CatalogSnapshot() {
+	}
+
+	/**
+	 * Writes the store's catalog. The stamp is when the text files were read, so
+	 * anything modified afterwards makes the snapshot stale.
+	 */
+	public static void write(MusicStore store, Path file, long sourceStamp) throws IOException {
+		List<Album> albums = store.getAlbums();
+		List<Song> songs = store.songTable();
+		Map<String, Integer> table = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+		for (Album album : albums) {
+			symbol(table, strings, album.getTitle());
+			symbol(table, strings, album.getArtist());
+			symbol(table, strings, album.getGenre());
+		}
+		for (Song song : songs) {
+			symbol(table, strings, song.getTitle());
+			symbol(table, strings, song.getArtist());
+			symbol(table, strings, song.getAlbumTitle());
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(sourceStamp);
+			List<String> sources = store.getLoadStats().getSources();
+			out.writeInt(sources.size());
+			for (String source : sources) {
+				writeString(out, source);
+			}
+
+			out.writeInt(strings.size());
+			for (String string : strings) {
+				writeString(out, string);
+			}
+
+			out.writeInt(albums.size());
+			for (Album album : albums) {
+				out.writeInt(ref(table, album.getTitle()));
+				out.writeInt(ref(table, album.getArtist()));
+				out.writeInt(ref(table, album.getGenre()));
+				out.writeInt(album.getYear());
+				List<Song> albumSongs = album.getSongs();
+				out.writeInt(albumSongs.size());
+				for (Song song : albumSongs) {
+					out.writeInt(song.getId());
+				}
+			}
+
+			out.writeInt(songs.size());
+			for (Song song : songs) {
+				out.writeInt(ref(table, song.getTitle()));
+				out.writeInt(ref(table, song.getArtist()));
+				out.writeInt(ref(table, song.getAlbumTitle()));
+			}
+
+			store.songIndex().writeTo(out);
+			store.albumIndex().writeTo(out);
+			store.getSongRanks().writeTo(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static MusicStore read(Path file) throws IOException {
+		ByteBuffer in = map(file);
+		readHeader(in);
+		skipSources(in);
+
+		SymbolTable symbols = new SymbolTable();
+		String[] strings = new String[in.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = readString(in);
+		}
+
+		int albumCount = in.getInt();
+		List<Album> albums = new ArrayList<>(albumCount);
+		int[][] albumSongs = new int[albumCount][];
+		for (int i = 0; i < albumCount; i++) {
+			Album album = new Album(symbols.intern(string(strings, in.getInt())),
+					symbols.intern(string(strings, in.getInt())), symbols.intern(string(strings, in.getInt())),
+					in.getInt());
+			album.assignId(i);
+			albums.add(album);
+			albumSongs[i] = new int[in.getInt()];
+			for (int j = 0; j < albumSongs[i].length; j++) {
+				albumSongs[i][j] = in.getInt();
+			}
+		}
+
+		int songCount = in.getInt();
+		List<Song> songs = new ArrayList<>(songCount);
+		for (int i = 0; i < songCount; i++) {
+			Song song = new Song(string(strings, in.getInt()), string(strings, in.getInt()),
+					string(strings, in.getInt()));
+			song.assignId(i);
+			songs.add(song);
+		}
+		for (int i = 0; i < albumCount; i++) {
+			for (int id : albumSongs[i]) {
+				albums.get(i).addSong(songs.get(id));
+			}
+		}
+
+		SearchIndex songIndex = SearchIndex.readFrom(in);
+		SearchIndex albumIndex = SearchIndex.readFrom(in);
+		SongRanks ranks = SongRanks.readFrom(in, songs);
+		MusicStore store = new MusicStore(symbols);
+		store.restore(albums, songs, songIndex, albumIndex, ranks);
+		return store;
+	}
+
+	// True if the snapshot exists, has this format version and no source file is newer
+	public static boolean isFresh(Path file, Path catalogDirectory) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		ByteBuffer in = map(file);
+		long stamp;
+		try {
+			stamp = readHeader(in);
+		} catch (IOException e) {
+			return false;
+		}
+		int sources = in.getInt();
+		for (int i = 0; i < sources; i++) {
+			Path source = catalogDirectory.resolve(readString(in));
+			if (Files.exists(source) && Files.getLastModifiedTime(source).toMillis() > stamp - MTIME_GRANULARITY) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void symbol(Map<String, Integer> table, List<String> strings, String value) {
+		if (value != null && !table.containsKey(value)) {
+			table.put(value, strings.size());
+			strings.add(value);
+		}
+	}
+
+	// String table index, -1 for null
+	private static int ref(Map<String, Integer> table, String value) {
+		return value == null ? -1 : table.get(value);
+	}
+
+	private static String string(String[] strings, int ref) {
+		return ref < 0 ? null : strings[ref];
+	}
+
+	// Returns the source stamp after checking magic and version
+	private static long readHeader(ByteBuffer in) throws IOException {
+		if (in.remaining() < 16 || in.getInt() != MAGIC) {
+			throw new IOException("Not a catalog snapshot");
+		}
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		return in.getLong();
+	}
+
+	private static void skipSources(ByteBuffer in) {
+		int sources = in.getInt();
+		for (int i = 0; i < sources; i++) {
+			int length = in.getInt();
+			in.position(in.position() + length);
+		}
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
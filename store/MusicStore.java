@@ -3,80 +3,312 @@
  * @author Joshua
  * 
  * Simulates the music store database for LA#1/LA#2.
- * - Loads albums from text files.
+ * - Loads albums from text files (in parallel, with load stats).
  * - Provides search functionality for songs/albums.
+ * - Keeps case-folded hash indexes so lookups don't scan the catalog.
+ * - Assigns dense int ids to songs and albums and interns shared strings.
+ * - Maintains an inverted full-text index for song/album search.
+ * - Can boot from a binary catalog snapshot (see CatalogSnapshot).
+ * - Remembers each song's album by id, so its genre is one array read away.
+ * - Ranks every song by title and artist once at load (or reads the ranks
+ *   from the snapshot), for all libraries to share; songs added later are
+ *   ranked into place on the next read instead of sorting the catalog again.
+ * - Times loads and searches into the default MetricsRegistry; the store
+ *   opened by open() also reports the catalog size.
  */
 package store;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
 
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import model.Album;
 import model.Song;
+import model.SongRanks;
 
 public class MusicStore {
-	private List<Album> albums;
+	private static final Histogram LOAD_TIME = MetricsRegistry.getDefault().histogram("store.load");
+	private static final Histogram SNAPSHOT_READ_TIME = MetricsRegistry.getDefault().histogram("store.snapshotRead");
+	private static final Counter LOAD_ERRORS = MetricsRegistry.getDefault().counter("store.loadErrors");
+	private static final Histogram SONG_SEARCH_TIME = MetricsRegistry.getDefault().histogram("store.searchSongs");
+	private static final Histogram ALBUM_SEARCH_TIME = MetricsRegistry.getDefault().histogram("store.searchAlbums");
+	private List<Album> albums; // Also the album id table
+	private List<Song> songs; // Song id table
+	private int[] songAlbums; // Album id of each song id (its first album)
+	private SymbolTable symbols;
+	private CatalogLoader.LoadStats loadStats;
+	// Catalog indexes, keyed by case-folded strings
+	private Map<String, Album> albumsByTitle;
+	private Map<String, List<Album>> albumsByArtist;
+	private Map<String, List<Song>> songsByTitle;
+	private Map<String, Song> songsByKey;
+	private SearchIndex songIndex; // Doc ids are song ids
+	private SearchIndex albumIndex; // Doc ids are album ids
+	private volatile SongRanks ranks; // Extended once the catalog grows
 
 	public MusicStore() {
+		this(Path.of(""));
+	}
+
+	// Loads the catalog from albums.txt and album files in the given directory
+	public MusicStore(Path catalogDirectory) {
+		this(new SymbolTable());
+		loadAlbums(catalogDirectory);
+	}
+
+	// Empty store; used by the constructors above and by snapshot loading
+	MusicStore(SymbolTable symbols) {
+		this.symbols = symbols;
 		albums = new ArrayList<>();
-		loadAlbums();
+		songs = new ArrayList<>();
+		songAlbums = new int[64];
+		albumsByTitle = new HashMap<>();
+		albumsByArtist = new HashMap<>();
+		songsByTitle = new HashMap<>();
+		songsByKey = new HashMap<>();
+		songIndex = new SearchIndex();
+		albumIndex = new SearchIndex();
+		ranks = new SongRanks(songs);
 	}
 
-	private void loadAlbums() {
-		try (BufferedReader br = new BufferedReader(new FileReader("albums.txt"))) {
-			String line;
-			while ((line = br.readLine()) != null) {
-				String[] parts = line.split(",");
-				String albumTitle = parts[0].trim();
-				String artist = parts[1].trim();
-				loadAlbumFile(albumTitle, artist);
+	/**
+	 * Boots from the snapshot file when it is newer than albums.txt and every
+	 * album file; otherwise parses the text catalog and rewrites the snapshot.
+	 * A snapshot that can't be read or written just falls back to the text files.
+	 */
+	public static MusicStore open(Path catalogDirectory, Path snapshotFile) {
+		MusicStore store = null;
+		try {
+			if (CatalogSnapshot.isFresh(snapshotFile, catalogDirectory)) {
+				long started = System.nanoTime();
+				store = CatalogSnapshot.read(snapshotFile);
+				SNAPSHOT_READ_TIME.recordSince(started);
 			}
-		} catch (IOException e) {
-			System.err.println("Error loading albums.txt");
+		} catch (IOException | RuntimeException e) {
+			// Corrupt or incompatible snapshot: rebuild it below
 		}
+		if (store == null) {
+			long started = System.currentTimeMillis();
+			store = new MusicStore(catalogDirectory);
+			try {
+				CatalogSnapshot.write(store, snapshotFile, started);
+			} catch (IOException e) {
+				store.loadStats.addError(snapshotFile + ": snapshot not written (" + e + ")");
+				LOAD_ERRORS.increment();
+			}
+		}
+		MusicStore opened = store;
+		MetricsRegistry.getDefault().gauge("store.songs", opened::getSongCount);
+		MetricsRegistry.getDefault().gauge("store.albums", opened::getAlbumCount);
+		return store;
 	}
 
-	private void loadAlbumFile(String albumTitle, String artist) {
-		String filename = albumTitle + "_" + artist + ".txt";
-		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-			String header = br.readLine();
-			if (header == null || header.split(",").length < 4) {
-				System.err.println("Invalid header in file: " + filename);
-				return;
-			}
+	// Loads albums.txt and the album files it lists (in parallel, see CatalogLoader)
+	private void loadAlbums(Path directory) {
+		long started = System.nanoTime();
+		CatalogLoader loader = new CatalogLoader(directory, CatalogLoader.DEFAULT_THREADS, symbols);
+		loadStats = new CatalogLoader.LoadStats();
+		for (Album album : loader.load(loadStats)) {
+			addAlbum(album);
+		}
+		ranks = new SongRanks(songs); // One sort for the whole catalog
+		LOAD_TIME.recordSince(started);
+		LOAD_ERRORS.add(loadStats.getErrors().size());
+	}
 
-			String[] headerParts = header.split(",");
-			String genre = headerParts[2].trim();
-			int year = Integer.parseInt(headerParts[3].trim());
+	// Throughput and per-file errors from the last catalog load
+	public CatalogLoader.LoadStats getLoadStats() {
+		return loadStats;
+	}
+
+	public void addAlbum(Album album) {
+		album.assignId(albums.size());
+		this.albums.add(album);
+		indexAlbumKeys(album);
+		albumIndex.add(album.getId(), SearchIndex.Field.TITLE, album.getTitle());
+		albumIndex.add(album.getId(), SearchIndex.Field.ARTIST, album.getArtist());
+		albumIndex.add(album.getId(), SearchIndex.Field.GENRE, album.getGenre());
+		for (Song song : album.getSongs()) {
+			indexSong(album, song);
+		}
+		album.setSongListener(song -> indexSong(album, song)); // Songs added later are indexed too
+	}
 
-			Album album = new Album(headerParts[0].trim(), headerParts[1].trim(), genre, year);
-			String songTitle;
-			while ((songTitle = br.readLine()) != null) {
-				if (!songTitle.trim().isEmpty()) {
-					Song song = new Song(songTitle.trim(), artist, albumTitle);
-					album.addSong(song);
+	// Installs prebuilt tables, search indexes and ranks (ids already assigned), rebuilding only the hash maps
+	void restore(List<Album> albumTable, List<Song> songTable, SearchIndex songIndex, SearchIndex albumIndex,
+			SongRanks songRanks) {
+		this.songIndex = songIndex;
+		this.albumIndex = albumIndex;
+		this.ranks = songRanks;
+		for (Album album : albumTable) {
+			albums.add(album);
+			indexAlbumKeys(album);
+			album.setSongListener(song -> indexSong(album, song));
+		}
+		for (Song song : songTable) {
+			songs.add(song);
+			indexSongKeys(song);
+		}
+		songAlbums = new int[Math.max(64, songs.size())];
+		Arrays.fill(songAlbums, -1);
+		for (Album album : albumTable) {
+			for (Song song : album.getSongs()) {
+				int id = song.getId();
+				if (id >= 0 && id < songs.size() && songAlbums[id] < 0) {
+					songAlbums[id] = album.getId();
 				}
 			}
-			albums.add(album);
-		} catch (IOException | NumberFormatException e) {
-			System.err.println("Error loading album file: " + filename);
 		}
+		loadStats = new CatalogLoader.LoadStats();
 	}
 
-	public void addAlbum(Album album) {
-	    this.albums.add(album);
+	private void indexAlbumKeys(Album album) {
+		albumsByTitle.putIfAbsent(fold(album.getTitle()), album); // First album wins, as with the old scan
+		albumsByArtist.computeIfAbsent(fold(album.getArtist()), k -> new ArrayList<>()).add(album);
 	}
-	
-	public Album getAlbum(String title) {
-		for (Album album : albums) {
-			if (album.getTitle().equalsIgnoreCase(title)) {
-				return album;
+
+	private void indexSongKeys(Song song) {
+		songsByTitle.computeIfAbsent(fold(song.getTitle()), k -> new ArrayList<>()).add(song);
+		songsByKey.putIfAbsent(songKey(song.getTitle(), song.getArtist(), song.getAlbumTitle()), song);
+	}
+
+	private void indexSong(Album album, Song song) {
+		if (song.getId() >= 0 && song.getId() < songs.size() && songs.get(song.getId()) == song) {
+			return; // Already catalogued (e.g. listed on two albums)
+		}
+		song.assignId(songs.size());
+		songs.add(song);
+		if (song.getId() == songAlbums.length) {
+			songAlbums = Arrays.copyOf(songAlbums, songAlbums.length * 2);
+		}
+		songAlbums[song.getId()] = album.getId();
+		songIndex.add(song.getId(), SearchIndex.Field.TITLE, song.getTitle());
+		songIndex.add(song.getId(), SearchIndex.Field.ARTIST, song.getArtist());
+		songIndex.add(song.getId(), SearchIndex.Field.ALBUM, song.getAlbumTitle());
+		songIndex.add(song.getId(), SearchIndex.Field.GENRE, album.getGenre());
+		indexSongKeys(song);
+	}
+
+	// Read-only access for the snapshot writer
+	List<Song> songTable() {
+		return songs;
+	}
+
+	SearchIndex songIndex() {
+		return songIndex;
+	}
+
+	SearchIndex albumIndex() {
+		return albumIndex;
+	}
+
+	public Song getSongById(int id) {
+		return id >= 0 && id < songs.size() ? songs.get(id) : null;
+	}
+
+	public Album getAlbumById(int id) {
+		return id >= 0 && id < albums.size() ? albums.get(id) : null;
+	}
+
+	// The catalog album a song was listed on; null for songs not in this store
+	public Album getAlbumOfSong(Song song) {
+		int id = song.getId();
+		if (id < 0 || id >= songs.size() || songs.get(id) != song || songAlbums[id] < 0) {
+			return null;
+		}
+		return albums.get(songAlbums[id]);
+	}
+
+	public int getSongCount() {
+		return songs.size();
+	}
+
+	public int getAlbumCount() {
+		return albums.size();
+	}
+
+	// Title and artist ranks of every catalog song; ones added since the last call are ranked into place
+	public SongRanks getSongRanks() {
+		SongRanks current = ranks;
+		if (current.size() != songs.size()) {
+			synchronized (this) {
+				current = ranks;
+				if (current.size() != songs.size()) {
+					current = current.extend(songs);
+					ranks = current;
+				}
 			}
 		}
-		return null;
+		return current;
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	// Ranked full-text song search; filter (may be null) restricts song ids; a library passes a
+	// SearchIndex.Scope so a small library is walked instead of catalog postings
+	public List<Song> searchSongs(String query, Set<SearchIndex.Field> fields, IntPredicate filter, int limit) {
+		long started = System.nanoTime();
+		List<Song> results = new ArrayList<>();
+		for (int id : songIndex.search(query, fields, filter, limit)) {
+			results.add(songs.get(id));
+		}
+		SONG_SEARCH_TIME.recordSince(started);
+		return results;
+	}
+
+	public List<Album> searchAlbums(String query, Set<SearchIndex.Field> fields, IntPredicate filter, int limit) {
+		long started = System.nanoTime();
+		List<Album> results = new ArrayList<>();
+		for (int id : albumIndex.search(query, fields, filter, limit)) {
+			results.add(albums.get(id));
+		}
+		ALBUM_SEARCH_TIME.recordSince(started);
+		return results;
+	}
+
+	// Typeahead suggestions for the last word of a partial query
+	public List<String> suggest(String prefix, int limit) {
+		return songIndex.complete(prefix, limit);
+	}
+
+	public Album getAlbum(String title) {
+		return title == null ? null : albumsByTitle.get(fold(title));
+	}
+
+	public List<Album> getAlbumsByArtist(String artist) {
+		List<Album> result = artist == null ? null : albumsByArtist.get(fold(artist));
+		return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+	}
+
+	// All catalog songs with this title, in catalog order
+	public List<Song> getSongsByTitle(String title) {
+		List<Song> result = title == null ? null : songsByTitle.get(fold(title));
+		return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+	}
+
+	public Song getSong(String title, String artist, String albumTitle) {
+		return songsByKey.get(songKey(title, artist, albumTitle));
+	}
+
+	private static String songKey(String title, String artist, String albumTitle) {
+		return fold(title) + '\u0000' + fold(artist) + '\u0000' + fold(albumTitle);
+	}
+
+	private static String fold(String s) {
+		return s == null ? "" : s.toLowerCase(Locale.ROOT);
 	}
 
 	public List<Album> getAlbums() {
@@ -0,0 +1,419 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Inverted full-text index used by the MusicStore for song and album search.
+ * - Text is normalized (case, accents, punctuation) and split into tokens.
+ * - Each token keeps a sorted posting list of document ids per field.
+ * - Queries match every query token exactly, by prefix (typeahead) or within a
+ *   small edit distance, and results are ranked by match quality.
+ * - Fuzzy candidates come from an index of each token's letter pairs: a token
+ *   within k edits shares all but 2k of the query's pairs, so only tokens
+ *   sharing enough pairs get the edit-distance check.
+ * - A search scoped to a small set of ids (one library) looks its ids up in
+ *   the postings instead of walking postings for the whole catalog.
+ */
+package store;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+import model.IntIntMap;
+
+public class SearchIndex {
+	public enum Field {
+		TITLE, ARTIST, ALBUM, GENRE
+	}
+
+	// Match quality per query token; the whole-field bonus ranks exact titles first
+	private static final int EXACT_SCORE = 4;
+	private static final int PREFIX_SCORE = 2;
+	private static final int FUZZY_SCORE = 1;
+	private static final int FULL_FIELD_BONUS = 8;
+	private static final int MAX_PREFIX_EXPANSIONS = 64;
+	private static final char PAD = '\0'; // Marks the ends of a token in its letter pairs
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private NavigableMap<String, Postings> vocabulary;
+	private List<String> tokens; // Vocabulary by ordinal, in the order first seen
+	private IntIntMap gramSlots; // Letter pair -> slot in tokensByGram
+	private int[][] tokensByGram; // Slot -> ascending ordinals of the tokens containing the pair
+	private int[] gramSizes;
+	private byte[][] fieldLengths; // Field -> doc -> token count
+
+	// Ids a search is confined to; size() and forEach() let a small scope be walked instead of postings
+	public interface Scope extends IntPredicate {
+		int size();
+
+		void forEach(IntConsumer action);
+	}
+
+	private static class Postings {
+		int[][] docs = new int[Field.values().length][];
+		int[] sizes = new int[Field.values().length];
+
+		void add(int field, int doc) {
+			int size = sizes[field];
+			int[] list = docs[field];
+			if (list == null) {
+				list = docs[field] = new int[2];
+			} else if (list[size - 1] == doc) {
+				return; // Token repeated within the field
+			} else if (size == list.length) {
+				list = docs[field] = Arrays.copyOf(list, size * 2);
+			}
+			list[size] = doc;
+			sizes[field]++;
+		}
+	}
+
+	public SearchIndex() {
+		vocabulary = new TreeMap<>();
+		tokens = new ArrayList<>();
+		gramSlots = new IntIntMap();
+		tokensByGram = new int[16][];
+		gramSizes = new int[16];
+		fieldLengths = new byte[Field.values().length][16];
+	}
+
+	// Indexes one field of a document; documents should be added in ascending id order
+	public void add(int doc, Field field, String text) {
+		String[] tokens = tokenize(text);
+		int f = field.ordinal();
+		if (doc >= fieldLengths[f].length) {
+			fieldLengths[f] = Arrays.copyOf(fieldLengths[f], Math.max(doc + 1, fieldLengths[f].length * 2));
+		}
+		fieldLengths[f][doc] = (byte) Math.min(tokens.length, Byte.MAX_VALUE);
+		for (String token : tokens) {
+			Postings postings = vocabulary.get(token);
+			if (postings == null) {
+				postings = new Postings();
+				addToken(token, postings);
+			}
+			postings.add(f, doc);
+		}
+	}
+
+	public int[] search(String query, Field field, IntPredicate filter, int limit) {
+		return search(query, EnumSet.of(field), filter, limit);
+	}
+
+	/**
+	 * Returns matching document ids, best first. Every query token must match
+	 * (exactly, as a prefix, or fuzzily) in one of the given fields. A filter
+	 * that is a Scope is walked instead of any posting list longer than it.
+	 */
+	public int[] search(String query, Set<Field> fields, IntPredicate filter, int limit) {
+		String[] tokens = tokenize(query);
+		if (tokens.length == 0 || limit <= 0) {
+			return new int[0];
+		}
+		IntIntMap scores = null;
+		for (String token : tokens) {
+			IntIntMap tokenScores = scoreToken(token, fields, filter);
+			scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+			if (scores.size() == 0) {
+				return new int[0];
+			}
+		}
+		return rank(scores, tokens.length, fields, limit);
+	}
+
+	// Vocabulary completions for typeahead, shortest first
+	public List<String> complete(String prefix, int limit) {
+		String[] tokens = tokenize(prefix);
+		if (tokens.length == 0) {
+			return Collections.emptyList();
+		}
+		String last = tokens[tokens.length - 1];
+		List<String> result = new ArrayList<>();
+		for (String token : vocabulary.subMap(last, true, last + Character.MAX_VALUE, false).keySet()) {
+			result.add(token);
+			if (result.size() == MAX_PREFIX_EXPANSIONS) {
+				break;
+			}
+		}
+		result.sort((a, b) -> a.length() != b.length() ? a.length() - b.length() : a.compareTo(b));
+		return result.size() > limit ? result.subList(0, limit) : result;
+	}
+
+	// Serialized form for catalog snapshots: vocabulary in order, postings per field, field lengths
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(vocabulary.size());
+		for (Map.Entry<String, Postings> entry : vocabulary.entrySet()) {
+			CatalogSnapshot.writeString(out, entry.getKey());
+			Postings postings = entry.getValue();
+			for (int f = 0; f < postings.sizes.length; f++) {
+				out.writeInt(postings.sizes[f]);
+				for (int i = 0; i < postings.sizes[f]; i++) {
+					out.writeInt(postings.docs[f][i]);
+				}
+			}
+		}
+		for (byte[] lengths : fieldLengths) {
+			out.writeInt(lengths.length);
+			out.write(lengths);
+		}
+	}
+
+	static SearchIndex readFrom(ByteBuffer in) {
+		SearchIndex index = new SearchIndex();
+		int tokens = in.getInt();
+		for (int t = 0; t < tokens; t++) {
+			String token = CatalogSnapshot.readString(in);
+			Postings postings = new Postings();
+			for (int f = 0; f < postings.sizes.length; f++) {
+				int size = in.getInt();
+				if (size > 0) {
+					postings.docs[f] = new int[size];
+					in.asIntBuffer().get(postings.docs[f]);
+					in.position(in.position() + size * Integer.BYTES);
+					postings.sizes[f] = size;
+				}
+			}
+			index.addToken(token, postings);
+		}
+		for (int f = 0; f < index.fieldLengths.length; f++) {
+			index.fieldLengths[f] = new byte[in.getInt()];
+			in.get(index.fieldLengths[f]);
+		}
+		return index;
+	}
+
+	public int getVocabularySize() {
+		return vocabulary.size();
+	}
+
+	// Lowercase, accent-free, punctuation-free tokens
+	public static String[] tokenize(String text) {
+		if (text == null) {
+			return new String[0];
+		}
+		String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		String cleaned = NON_WORD.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+		return cleaned.isEmpty() ? new String[0] : cleaned.split(" ");
+	}
+
+	private void addToken(String token, Postings postings) {
+		vocabulary.put(token, postings);
+		int ordinal = tokens.size();
+		tokens.add(token);
+		for (int gram : grams(token)) {
+			int slot = gramSlots.get(gram);
+			if (slot == IntIntMap.MISSING) {
+				slot = gramSlots.size();
+				gramSlots.put(gram, slot);
+				if (slot == tokensByGram.length) {
+					tokensByGram = Arrays.copyOf(tokensByGram, slot * 2);
+					gramSizes = Arrays.copyOf(gramSizes, slot * 2);
+				}
+				tokensByGram[slot] = new int[4];
+			}
+			int size = gramSizes[slot];
+			if (size == tokensByGram[slot].length) {
+				tokensByGram[slot] = Arrays.copyOf(tokensByGram[slot], size * 2);
+			}
+			tokensByGram[slot][size] = ordinal;
+			gramSizes[slot]++;
+		}
+	}
+
+	// Distinct letter pairs of the token padded at both ends, each packed into an int
+	private static int[] grams(String token) {
+		IntIntMap seen = new IntIntMap(token.length() + 1);
+		int[] grams = new int[token.length() + 1];
+		int count = 0;
+		char previous = PAD;
+		for (int i = 0; i <= token.length(); i++) {
+			char next = i < token.length() ? token.charAt(i) : PAD;
+			// Sign bit dropped for IntIntMap; a rare collision only lets an extra candidate through
+			int gram = (previous << 16 | next) & Integer.MAX_VALUE;
+			if (seen.put(gram, 0) == IntIntMap.MISSING) {
+				grams[count++] = gram;
+			}
+			previous = next;
+		}
+		return Arrays.copyOf(grams, count);
+	}
+
+	// Best score per document for a single query token
+	private IntIntMap scoreToken(String token, Set<Field> fields, IntPredicate filter) {
+		IntIntMap scores = new IntIntMap();
+		Postings exact = vocabulary.get(token);
+		if (exact != null) {
+			collect(exact, EXACT_SCORE, fields, filter, scores);
+		}
+		int expansions = 0;
+		for (Map.Entry<String, Postings> entry : vocabulary
+				.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+			collect(entry.getValue(), PREFIX_SCORE, fields, filter, scores);
+			if (++expansions == MAX_PREFIX_EXPANSIONS) {
+				break;
+			}
+		}
+		if (scores.size() == 0) {
+			int maxEdits = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+			if (maxEdits > 0) {
+				for (String candidate : fuzzyCandidates(token, maxEdits)) {
+					if (withinDistance(token, candidate, maxEdits)) {
+						collect(vocabulary.get(candidate), FUZZY_SCORE, fields, filter, scores);
+					}
+				}
+			}
+		}
+		return scores;
+	}
+
+	// Tokens sharing enough letter pairs with the token to be within maxEdits of it
+	private List<String> fuzzyCandidates(String token, int maxEdits) {
+		int[] grams = grams(token);
+		// Each edit breaks at most two of the token's pairs
+		int needed = grams.length - 2 * maxEdits;
+		List<String> candidates = new ArrayList<>();
+		if (needed <= 0) {
+			// Too few distinct pairs to filter on (e.g. "aaaaaaaa"); check every token
+			for (String candidate : tokens) {
+				if (Math.abs(candidate.length() - token.length()) <= maxEdits) {
+					candidates.add(candidate);
+				}
+			}
+			return candidates;
+		}
+		IntIntMap shared = new IntIntMap();
+		for (int gram : grams) {
+			int slot = gramSlots.get(gram);
+			if (slot == IntIntMap.MISSING) {
+				continue;
+			}
+			int[] ordinals = tokensByGram[slot];
+			for (int i = 0; i < gramSizes[slot]; i++) {
+				int count = shared.get(ordinals[i]);
+				shared.put(ordinals[i], count == IntIntMap.MISSING ? 1 : count + 1);
+			}
+		}
+		shared.forEach((ordinal, count) -> {
+			String candidate = tokens.get(ordinal);
+			if (count >= needed && Math.abs(candidate.length() - token.length()) <= maxEdits) {
+				candidates.add(candidate);
+			}
+		});
+		return candidates;
+	}
+
+	private void collect(Postings postings, int score, Set<Field> fields, IntPredicate filter, IntIntMap scores) {
+		for (Field field : fields) {
+			int f = field.ordinal();
+			int[] docs = postings.docs[f];
+			int size = postings.sizes[f];
+			if (size == 0) {
+				continue;
+			}
+			if (filter instanceof Scope && walkScope((Scope) filter, size)) {
+				// Look each scoped id up in the sorted postings
+				((Scope) filter).forEach(doc -> {
+					if (Arrays.binarySearch(docs, 0, size, doc) >= 0 && scores.get(doc) < score) {
+						scores.put(doc, score);
+					}
+				});
+				continue;
+			}
+			for (int i = 0; i < size; i++) {
+				int doc = docs[i];
+				if ((filter == null || filter.test(doc)) && scores.get(doc) < score) {
+					scores.put(doc, score);
+				}
+			}
+		}
+	}
+
+	// A binary search per scoped id beats a scan of the postings when the scope is much smaller
+	private static boolean walkScope(Scope scope, int postings) {
+		return (long) scope.size() * (32 - Integer.numberOfLeadingZeros(postings)) < postings;
+	}
+
+	private IntIntMap intersect(IntIntMap left, IntIntMap right) {
+		IntIntMap smaller = left.size() <= right.size() ? left : right;
+		IntIntMap larger = smaller == left ? right : left;
+		IntIntMap result = new IntIntMap(smaller.size());
+		smaller.forEach((doc, score) -> {
+			int other = larger.get(doc);
+			if (other != IntIntMap.MISSING) {
+				result.put(doc, score + other);
+			}
+		});
+		return result;
+	}
+
+	private int[] rank(IntIntMap scores, int queryLength, Set<Field> fields, int limit) {
+		long[] ranked = new long[scores.size()];
+		int[] count = { 0 };
+		int perfect = queryLength * EXACT_SCORE;
+		scores.forEach((doc, score) -> {
+			if (score == perfect && coversWholeField(doc, queryLength, fields)) {
+				score += FULL_FIELD_BONUS;
+			}
+			// Higher score first, then lower doc id (catalog order)
+			ranked[count[0]++] = ((long) (Integer.MAX_VALUE - score) << 32) | doc;
+		});
+		Arrays.sort(ranked);
+		int[] result = new int[Math.min(limit, ranked.length)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (int) ranked[i];
+		}
+		return result;
+	}
+
+	private boolean coversWholeField(int doc, int queryLength, Set<Field> fields) {
+		for (Field field : fields) {
+			byte[] lengths = fieldLengths[field.ordinal()];
+			if (doc < lengths.length && lengths[doc] == queryLength) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Levenshtein distance <= maxEdits, with a banded early exit
+	static boolean withinDistance(String a, String b, int maxEdits) {
+		if (Math.abs(a.length() - b.length()) > maxEdits) {
+			return false;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > maxEdits) {
+				return false;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()] <= maxEdits;
+	}
+}
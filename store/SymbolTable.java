@@ -0,0 +1,48 @@
+/**
+ * @author Bassam
+ * @author Joshua
+ * 
+ * Interns catalog strings (artists, album titles, genres) for the MusicStore.
+ * - Every distinct string is kept once and gets a dense int symbol id.
+ * - Synchronized: the catalog loader interns from several threads.
+ */
+package store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SymbolTable {
+	private Map<String, Integer> ids;
+	private List<String> symbols;
+
+	public SymbolTable() {
+		ids = new HashMap<>();
+		symbols = new ArrayList<>();
+	}
+
+	// Returns the canonical instance of the string
+	public synchronized String intern(String value) {
+		return value == null ? null : symbols.get(idOf(value));
+	}
+
+	// Returns the symbol id, adding the string if it's new
+	public synchronized int idOf(String value) {
+		Integer id = ids.get(value);
+		if (id == null) {
+			id = symbols.size();
+			ids.put(value, id);
+			symbols.add(value);
+		}
+		return id;
+	}
+
+	public synchronized String get(int id) {
+		return symbols.get(id);
+	}
+
+	public synchronized int size() {
+		return symbols.size();
+	}
+}
@@ -0,0 +1,86 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.Album;
+import store.CatalogLoader;
+import store.MusicStore;
+import store.SymbolTable;
+
+class CatalogLoaderTest {
+    @TempDir
+    Path dir;
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write("albums.txt", "First,Band A\r\nMissing,Nobody\nBroken,Band B\n\nSecond,Band A\n");
+        write("First_Band A.txt", "First,Band A,Rock,2001\r\nOne\r\n\r\n  Two  \r\n");
+        write("Broken_Band B.txt", "Broken,Band B\nSong\n");
+        StringBuilder big = new StringBuilder("Second,Band A,Pop,2002\n");
+        for (int i = 0; i < 10000; i++) {
+            big.append("Track ").append(i).append('\n');
+        }
+        write("Second_Band A.txt", big.toString());
+    }
+
+    @Test
+    void testLoadsInIndexOrder() {
+        CatalogLoader.LoadStats stats = new CatalogLoader.LoadStats();
+        List<Album> albums = new CatalogLoader(dir, 4, new SymbolTable()).load(stats);
+
+        assertEquals(2, albums.size());
+        assertEquals("First", albums.get(0).getTitle());
+        assertEquals("Second", albums.get(1).getTitle());
+        assertEquals(2002, albums.get(1).getYear());
+        assertEquals(10000, albums.get(1).getSongs().size()); // Memory-mapped path
+    }
+
+    @Test
+    void testTrimsLinesAndSkipsBlanks() {
+        List<Album> albums = new CatalogLoader(dir, 1, new SymbolTable()).load(new CatalogLoader.LoadStats());
+        List<String> titles = albums.get(0).getSongs().stream().map(s -> s.getTitle()).toList();
+        assertEquals(List.of("One", "Two"), titles);
+        assertEquals("Rock", albums.get(0).getGenre());
+    }
+
+    @Test
+    void testReportsPerFileErrorsAndStats() {
+        CatalogLoader.LoadStats stats = new CatalogLoader.LoadStats();
+        new CatalogLoader(dir, 2, new SymbolTable()).load(stats);
+
+        assertEquals(4, stats.getFiles());
+        assertEquals(2, stats.getErrors().size());
+        assertTrue(stats.getErrors().get(0).startsWith("Missing_Nobody.txt"));
+        assertTrue(stats.getErrors().get(1).startsWith("Broken_Band B.txt"));
+        assertTrue(stats.getBytes() > 0);
+    }
+
+    @Test
+    void testMissingIndexIsReported() throws IOException {
+        Files.delete(dir.resolve("albums.txt"));
+        MusicStore store = new MusicStore(dir);
+        assertTrue(store.getAlbums().isEmpty());
+        assertEquals(1, store.getLoadStats().getErrors().size());
+    }
+
+    @Test
+    void testStoreUsesLoader() {
+        MusicStore store = new MusicStore(dir);
+        assertNotNull(store.getAlbum("second"));
+        assertEquals(10002, store.getSongCount());
+    }
+}
@@ -0,0 +1,114 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.Album;
+import model.Song;
+import model.SongRanks;
+import store.CatalogSnapshot;
+import store.MusicStore;
+import store.SearchIndex.Field;
+
+class CatalogSnapshotTest {
+    @TempDir
+    Path dir;
+    private Path snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(dir.resolve("albums.txt"), "Sons,The Heavy\nMission Bell,Amos Lee\n");
+        Files.writeString(dir.resolve("Sons_The Heavy.txt"), "Sons,The Heavy,Rock,2019\nFire\nThe Thief\n");
+        Files.writeString(dir.resolve("Mission Bell_Amos Lee.txt"), "Mission Bell,Amos Lee,Singer/Songwriter,2011\nEl Camino\nFlower\n");
+        snapshot = dir.resolve("catalog.snap");
+        age(dir.resolve("albums.txt"));
+        age(dir.resolve("Sons_The Heavy.txt"));
+        age(dir.resolve("Mission Bell_Amos Lee.txt"));
+    }
+
+    // Pushes a file's mtime into the past so the snapshot written next is newer
+    private void age(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        MusicStore original = MusicStore.open(dir, snapshot);
+        assertTrue(Files.exists(snapshot));
+        assertTrue(CatalogSnapshot.isFresh(snapshot, dir));
+
+        MusicStore restored = CatalogSnapshot.read(snapshot);
+        assertEquals(original.getSongCount(), restored.getSongCount());
+        for (int id = 0; id < original.getSongCount(); id++) {
+            Song a = original.getSongById(id);
+            Song b = restored.getSongById(id);
+            assertEquals(a.getTitle(), b.getTitle());
+            assertEquals(a.getAlbumTitle(), b.getAlbumTitle());
+            assertEquals(id, b.getId());
+        }
+        Album album = restored.getAlbum("mission bell");
+        assertEquals("Singer/Songwriter", album.getGenre());
+        assertEquals(2011, album.getYear());
+        assertEquals(2, album.getSongs().size());
+    }
+
+    @Test
+    void testRestoredStoreIsSearchableAndExtensible() throws IOException {
+        MusicStore.open(dir, snapshot);
+        MusicStore restored = MusicStore.open(dir, snapshot);
+
+        List<Song> hits = restored.searchSongs("thief", EnumSet.of(Field.TITLE), null, 10);
+        assertEquals(1, hits.size());
+        assertSame(hits.get(0), restored.getSong("The Thief", "The Heavy", "Sons"));
+
+        Album sons = restored.getAlbum("Sons");
+        Song added = new Song("Short Change Hero", "The Heavy", "Sons");
+        sons.addSong(added);
+        assertEquals(List.of(added), restored.searchSongs("short change", EnumSet.of(Field.TITLE), null, 10));
+
+        // Ranks came from the snapshot and took the new song in; they match a full sort
+        Song early = new Song("A Early Song", "Aaron", "Sons");
+        sons.addSong(early);
+        List<Song> table = new java.util.ArrayList<>();
+        for (int id = 0; id < restored.getSongCount(); id++) {
+            table.add(restored.getSongById(id));
+        }
+        SongRanks ranks = restored.getSongRanks();
+        SongRanks sorted = new SongRanks(table);
+        assertEquals(table.size(), ranks.size());
+        for (int id = 0; id < table.size(); id++) {
+            assertEquals(sorted.titleRank(id), ranks.titleRank(id));
+            assertEquals(sorted.artistRank(id), ranks.artistRank(id));
+        }
+        assertEquals(0, ranks.titleRank(early.getId()));
+    }
+
+    @Test
+    void testModifiedSourceInvalidates() throws IOException {
+        MusicStore.open(dir, snapshot);
+        Files.writeString(dir.resolve("Sons_The Heavy.txt"), "Sons,The Heavy,Rock,2019\nFire\n");
+        Files.setLastModifiedTime(dir.resolve("Sons_The Heavy.txt"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertFalse(CatalogSnapshot.isFresh(snapshot, dir));
+        MusicStore reloaded = MusicStore.open(dir, snapshot);
+        assertEquals(1, reloaded.getAlbum("Sons").getSongs().size());
+    }
+
+    @Test
+    void testCorruptSnapshotFallsBackToText() throws IOException {
+        Files.writeString(snapshot, "garbage");
+        assertFalse(CatalogSnapshot.isFresh(snapshot, dir));
+        MusicStore store = MusicStore.open(dir, snapshot);
+        assertEquals(4, store.getSongCount());
+    }
+}
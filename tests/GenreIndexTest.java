@@ -0,0 +1,42 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import model.GenreIndex;
+import model.Song;
+
+class GenreIndexTest {
+
+    @Test
+    void testThresholdAppliesAtReadTime() {
+        GenreIndex index = new GenreIndex();
+        Song[] songs = new Song[3];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = new Song("Song " + i, "Artist", null);
+            index.add("Rock", i);
+        }
+        index.add("Jazz", 0);
+        assertEquals(Map.of("Rock", List.of(songs[0], songs[1], songs[2])), index.playlists(3, id -> songs[id]));
+        index.remove("Rock", 1);
+        assertTrue(index.playlists(3, id -> songs[id]).isEmpty());
+        assertEquals(2, index.playlists(1, id -> songs[id]).size());
+    }
+
+    @Test
+    void testEmptyBucketsAreDropped() {
+        GenreIndex index = new GenreIndex();
+        index.add("Pop", 4);
+        index.add("Pop", 4);
+        assertEquals(1, index.size("Pop"));
+        index.remove("Pop", 4);
+        index.remove("Pop", 4);
+        index.remove("Folk", 1);
+        assertEquals(0, index.size("Pop"));
+        assertTrue(index.playlists(0, id -> null).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import metrics.Histogram;
+
+class HistogramTest {
+
+    @Test
+    void testEmptySnapshot() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getValueAtPercentile(0.99));
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(20, snapshot.getCount());
+        assertEquals(10.5, snapshot.getMean(), 1e-9);
+        assertEquals(10, snapshot.getValueAtPercentile(0.5));
+        assertEquals(20, snapshot.getValueAtPercentile(1.0));
+        assertEquals(20, snapshot.getMax());
+    }
+
+    @Test
+    void testPercentilesWithinThreePercent() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30); // 1 ns up to ~10 s, log-uniform
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for (double p : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            long exact = values[(int) Math.ceil(p * values.length) - 1];
+            long reported = snapshot.getValueAtPercentile(p);
+            assertTrue(reported >= exact, "p" + p + " under-reported");
+            assertTrue(reported <= exact * 1.04 + 1, "p" + p + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMax());
+    }
+
+    @Test
+    void testHugeAndNegativeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5); // Recorded as 0
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(0.5));
+        assertEquals(Long.MAX_VALUE, snapshot.getValueAtPercentile(1.0));
+    }
+
+    @Test
+    void testConcurrentRecording() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.snapshot().getCount());
+    }
+}
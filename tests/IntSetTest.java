@@ -0,0 +1,68 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.IntIntMap;
+import model.IntSet;
+
+class IntSetTest {
+
+    @Test
+    void testAddContainsRemove() {
+        IntSet set = new IntSet();
+        assertTrue(set.add(7));
+        assertFalse(set.add(7));
+        assertTrue(set.contains(7));
+        assertFalse(set.contains(-1));
+        assertTrue(set.remove(7));
+        assertFalse(set.remove(7));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void testNegativeValuesRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new IntSet().add(-5));
+    }
+
+    @Test
+    void testMatchesHashSetUnderChurn() {
+        IntSet set = new IntSet(2);
+        Set<Integer> reference = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertEquals(reference.add(value), set.add(value));
+            } else {
+                assertEquals(reference.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(reference.size(), set.size());
+        assertArrayEquals(reference.stream().mapToInt(Integer::intValue).sorted().toArray(), set.toSortedArray());
+    }
+
+    @Test
+    void testIntIntMapUnderChurn() {
+        IntIntMap map = new IntIntMap();
+        java.util.Map<Integer, Integer> reference = new java.util.HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(300);
+            if (random.nextInt(3) > 0) {
+                Integer previous = reference.put(key, i);
+                assertEquals(previous == null ? IntIntMap.MISSING : previous, map.put(key, i));
+            } else {
+                Integer previous = reference.remove(key);
+                assertEquals(previous == null ? IntIntMap.MISSING : previous, map.remove(key));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        reference.forEach((k, v) -> assertEquals((int) v, map.get(k)));
+    }
+}
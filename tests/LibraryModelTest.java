@@ -5,9 +5,12 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import model.Album;
+import model.LibraryListener;
 import model.LibraryModel;
+import model.Playlist;
 import model.Song;
 import store.MusicStore;
+import store.SearchIndex.Field;
 
 public class LibraryModelTest {
 
@@ -102,4 +105,257 @@ public class LibraryModelTest {
         assertTrue(library.removeAlbum(album));
         assertTrue(library.searchAlbumsByTitle("Sons").isEmpty());
     }
+
+    @Test
+    public void testFrequentPlaysLimit() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+        library.playSong(thief);
+        library.playSong(fire);
+        library.playSong(fire);
+
+        library.setFrequentPlaysLimit(1);
+        assertEquals(List.of(fire), library.getFrequentPlays());
+    }
+
+    @Test
+    public void testRemoveSongDropsFrequentPlay() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        library.playSong(fire);
+
+        library.removeSong(fire);
+        assertFalse(library.getFrequentPlays().contains(fire));
+    }
+
+    @Test
+    public void testRemoveSongDropsRecentPlay() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        library.playSong(fire);
+
+        library.removeSong(fire);
+        assertTrue(library.getRecentPlays().isEmpty());
+    }
+
+    @Test
+    public void testRateSongFeedsTopRatedAndFavorites() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+
+        assertTrue(library.rateSong(fire, 4));
+        assertTrue(library.rateSong(thief, 5));
+
+        assertEquals(List.of(thief, fire), library.getTopRated());
+        assertEquals(List.of(thief), library.getFavorites());
+        assertEquals(thief, library.getSongsSortedByRating().get(0));
+        assertEquals(5, library.getRating(thief));
+    }
+
+    @Test
+    public void testRatingsStayInTheirOwnLibrary() {
+        LibraryModel other = new LibraryModel(store);
+        library.addAlbumFromStore("Sons");
+        other.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+
+        library.rateSong(fire, 5);
+
+        assertEquals(5, library.getRating(fire));
+        assertEquals(0, other.getRating(fire));
+        assertTrue(other.getFavorites().isEmpty());
+        assertEquals(0, fire.getRating()); // The catalog song is shared, so it holds no one's rating
+    }
+
+    @Test
+    public void testSmartShuffleWeighsByTheOwningLibrary() {
+        LibraryModel other = new LibraryModel(store);
+        library.addAlbumFromStore("Sons");
+        other.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+        library.rateSong(fire, 5);
+        library.rateSong(thief, 1);
+        other.rateSong(fire, 1);
+        other.rateSong(thief, 5);
+
+        assertTrue(library.getShuffleWeights().applyAsLong(fire) > library.getShuffleWeights().applyAsLong(thief));
+        assertTrue(other.getShuffleWeights().applyAsLong(fire) < other.getShuffleWeights().applyAsLong(thief));
+
+        Playlist pair = library.createPlaylist("Pair");
+        library.addSongToPlaylist("Pair", thief);
+        library.addSongToPlaylist("Pair", fire);
+        int fireFirst = 0;
+        for (int run = 0; run < 200; run++) {
+            if (pair.getSmartShuffleIterator(true).next() == fire) {
+                fireFirst++;
+            }
+        }
+        assertTrue(fireFirst > 140, "Fire led " + fireFirst + " of 200 shuffles");
+    }
+
+    @Test
+    public void testSearchIgnoresAccentsAndMatchesPartialTitles() {
+        assertTrue(library.addAlbumFromStore("Cuando Los Angeles Lloran"));
+
+        assertFalse(library.searchSongs("Maná", Field.ARTIST).isEmpty());
+        assertFalse(library.searchAlbums("cuando los angeles", Field.TITLE).isEmpty());
+        assertTrue(library.searchSongs("Adele", Field.ARTIST).isEmpty()); // Not in this library
+    }
+
+    @Test
+    public void testExactSearchesDoNotMatchPartialTitles() {
+        library.addAlbumFromStore("Sons");
+        library.addAlbumFromStore("Cuando Los Angeles Lloran");
+
+        assertTrue(library.searchSongsByTitle("Fir").isEmpty());
+        assertEquals(1, library.searchSongsByTitle("fire").size());
+        assertTrue(library.searchAlbumsByTitle("cuando los angeles").isEmpty());
+        assertEquals(11, library.searchSongsByArtist("the heavy").size());
+        assertTrue(library.searchSongsByArtist("heavy").isEmpty());
+        assertEquals(List.of("Sons"), library.searchAlbumsByArtist("The Heavy").stream().map(Album::getTitle).toList());
+    }
+
+    @Test
+    public void testConcurrentPlaysAreNotLost() throws InterruptedException {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+        int threads = 8;
+        int plays = 2000;
+        Thread[] players = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Song song = t % 2 == 0 ? fire : thief;
+            players[t] = new Thread(() -> {
+                for (int i = 0; i < plays; i++) {
+                    library.playSong(song);
+                }
+            });
+        }
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < plays; i++) {
+                library.getFrequentPlays();
+                library.getSongsSortedByTitle();
+                library.getPlayCount(fire);
+            }
+        });
+        for (Thread player : players) {
+            player.start();
+        }
+        reader.start();
+        for (Thread player : players) {
+            player.join();
+        }
+        reader.join();
+
+        assertEquals(threads / 2 * plays, library.getPlayCount(fire));
+        assertEquals(threads / 2 * plays, library.getPlayCount(thief));
+        assertEquals(threads / 2 * plays, fire.getPlayCount());
+        assertEquals(2, library.getFrequentPlays().size());
+    }
+
+    @Test
+    public void testRemoveSongOnlyTouchesPlaylistsHoldingIt() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+        Playlist mix = new Playlist("Mix", List.of(fire));
+        library.addPlaylist(mix); // Songs already present are indexed
+        Playlist other = library.createPlaylist("Other");
+        assertEquals(3, library.addSongsToPlaylist("Other", List.of(thief, fire, fire)));
+
+        assertEquals(2, library.getPlaylistsContaining(fire).size());
+        assertEquals(List.of(other), library.getPlaylistsContaining(thief));
+
+        library.removeSong(fire);
+        assertTrue(mix.getTrackList().isEmpty());
+        assertEquals(List.of(thief), other.getTrackList());
+        assertTrue(library.getPlaylistsContaining(fire).isEmpty());
+
+        library.removeAlbum(store.getAlbum("Sons"));
+        assertTrue(other.getTrackList().isEmpty());
+        assertTrue(library.getPlaylistsContaining(thief).isEmpty());
+    }
+
+    @Test
+    public void testPlaylistCreateRenameDelete() {
+        assertNotNull(library.createPlaylist("Road Trip"));
+        assertNull(library.createPlaylist("road trip")); // Names ignore case
+        assertTrue(library.renamePlaylist("road trip", "Drive"));
+        assertNull(library.getPlaylist("Road Trip"));
+        assertEquals("Drive", library.getPlaylist("drive").getName());
+        library.createPlaylist("Chill");
+        assertFalse(library.renamePlaylist("Drive", "CHILL"));
+        assertEquals(List.of("Chill", "Drive"), library.getPlaylists().stream().map(Playlist::getName).toList());
+        assertTrue(library.deletePlaylist("Drive"));
+        assertFalse(library.deletePlaylist("Drive"));
+    }
+
+    @Test
+    public void testBulkAddIsOneBatchOfLibrarySongs() {
+        List<List<Song>> batches = new java.util.ArrayList<>();
+        library.setListener(new LibraryListener() {
+            @Override
+            public void playlistSongsAdded(String name, List<Song> songs) {
+                batches.add(songs);
+            }
+        });
+        library.addSongFromStore("Fire");
+        library.createPlaylist("Mix");
+        Album sons = store.getAlbum("Sons");
+
+        assertEquals(1, library.addAlbumToPlaylist("Mix", sons)); // The Thief isn't in the library
+        library.addSongFromStore("The Thief");
+        assertEquals(2, library.addArtistToPlaylist("Mix", "The Heavy"));
+        assertEquals(-1, library.addAlbumToPlaylist("Missing", sons));
+        assertEquals(2, batches.size());
+        assertEquals(3, library.getPlaylist("Mix").size());
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        assertEquals(List.of(library.getPlaylist("Mix")), library.getPlaylistsContaining(fire));
+    }
+
+    @Test
+    public void testGenrePlaylistsFollowLibraryChanges(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) {
+        MusicStore catalog = new MusicStore(dir); // Empty catalog
+        Album rock = new Album("Loud", "Band", "Rock", 2020);
+        for (int i = 0; i < 10; i++) {
+            rock.addSong(new Song("Track " + i, "Band", "Loud"));
+        }
+        Album pop = new Album("Soft", "Singer", "Pop", 2021);
+        pop.addSong(new Song("Hit", "Singer", "Soft"));
+        catalog.addAlbum(rock);
+        catalog.addAlbum(pop);
+        LibraryModel genreLibrary = new LibraryModel(catalog);
+
+        genreLibrary.addAlbum(rock);
+        genreLibrary.addAlbum(pop);
+        genreLibrary.addSong(new Song("Loose", "Nobody", "No Such Album")); // No genre, no exception
+        assertEquals(java.util.Set.of("Rock"), genreLibrary.getGenrePlaylists().keySet());
+        assertEquals(rock.getSongs(), genreLibrary.getGenrePlaylists().get("Rock"));
+
+        genreLibrary.removeSong(rock.getSongs().get(0));
+        assertTrue(genreLibrary.getGenrePlaylists().isEmpty()); // Below the threshold now
+        genreLibrary.addSong(rock.getSongs().get(0));
+        assertEquals(10, genreLibrary.getGenrePlaylists().get("Rock").size());
+    }
+
+    @Test
+    public void testSortedViewsFollowRatingsAndRemovals() {
+        library.addAlbumFromStore("Sons");
+        Song fire = library.searchSongsByTitle("Fire").get(0);
+        Song thief = library.searchSongsByTitle("The Thief").get(0);
+        library.rateSong(thief, 5);
+        assertEquals(thief, library.getSongsSortedByRating().get(0));
+        library.rateSong(fire, 5);
+        library.rateSong(thief, 1);
+        assertEquals(List.of(fire, thief), library.getSongsSortedByRating().subList(0, 2)); // Unrated songs follow
+
+        model.SortedSongIndex.Page page = library.getSongsPage(model.SortedSongIndex.Order.TITLE, null, 1);
+        assertEquals(library.getSongsSortedByTitle().subList(0, 1), page.getSongs());
+        library.removeSong(thief);
+        assertFalse(library.getSongsSortedByTitle().contains(thief));
+        assertFalse(library.getSongsSortedByRating().contains(thief));
+    }
 }
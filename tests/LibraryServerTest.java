@@ -0,0 +1,188 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.Album;
+import model.Pbkdf2Hasher;
+import model.Song;
+import model.UserManager;
+import server.JsonReader;
+import server.LibraryServer;
+import service.LibraryService;
+import store.MusicStore;
+
+class LibraryServerTest {
+    @TempDir
+    Path tempDir;
+
+    private UserManager users;
+    private LibraryServer server;
+    private HttpClient client;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MusicStore store = new MusicStore(tempDir);
+        Album album = new Album("Sons", "The Heavy", "Rock", 2024);
+        album.addSong(new Song("Fire", "The Heavy", "Sons"));
+        album.addSong(new Song("Ashes \"Live\"", "The Heavy", "Sons"));
+        store.addAlbum(album);
+        users = new UserManager(store, new File(tempDir.toFile(), "users.dat"),
+                new File(tempDir.toFile(), "users.journal"));
+        users.setPasswordHasher(new Pbkdf2Hasher(1000));
+        server = new LibraryServer(new LibraryService(users, store), new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = "http://127.0.0.1:" + server.getPort() + "/api/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        users.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String signUp(String name) throws Exception {
+        HttpResponse<String> response = send("POST", "signup", null,
+                "{\"username\": \"" + name + "\", \"password\": \"pw\"}");
+        assertEquals(200, response.statusCode(), response.body());
+        return JsonReader.parseObject(response.body()).get("token");
+    }
+
+    @Test
+    void testLoginFlow() throws Exception {
+        String token = signUp("alice");
+        assertEquals(409, send("POST", "signup", null, "{\"username\":\"alice\",\"password\":\"x\"}").statusCode());
+        assertEquals(401, send("POST", "login", null, "{\"username\":\"alice\",\"password\":\"x\"}").statusCode());
+        assertEquals(200, send("POST", "login", null, "{\"username\":\"alice\",\"password\":\"pw\"}").statusCode());
+        assertEquals(401, send("GET", "songs", null, null).statusCode());
+        assertEquals(200, send("POST", "logout", token, null).statusCode());
+        assertEquals(401, send("GET", "songs", token, null).statusCode());
+    }
+
+    @Test
+    void testLibraryRoutes() throws Exception {
+        String token = signUp("bob");
+        assertEquals(404, send("POST", "songs", token, "{\"title\":\"Nope\"}").statusCode());
+        assertEquals(200, send("POST", "albums", token, "{\"title\":\"Sons\"}").statusCode());
+        assertEquals(200, send("POST", "play", token, "{\"title\":\"Fire\"}").statusCode());
+        HttpResponse<String> rated = send("POST", "rate", token, "{\"title\":\"Fire\",\"rating\":5}");
+        assertTrue(rated.body().contains("\"favorite\":true"), rated.body());
+        assertEquals(400, send("POST", "rate", token, "{\"title\":\"Fire\",\"rating\":\"x\"}").statusCode());
+
+        String songs = send("GET", "songs?sort=title", token, null).body();
+        assertTrue(songs.startsWith("[{\"id\":"), songs);
+        assertTrue(songs.indexOf("Ashes \\\"Live\\\"") < songs.indexOf("Fire"), songs);
+        assertTrue(send("GET", "search?q=fire&field=title", token, null).body().contains("\"playCount\":1"));
+        assertTrue(send("GET", "plays/recent", token, null).body().contains("Fire"));
+        assertTrue(send("GET", "search?q=heavy&type=albums", token, null).body().contains("\"year\":2024"));
+        assertEquals(200, send("DELETE", "songs/Fire", token, null).statusCode());
+        assertEquals(404, send("DELETE", "songs/Fire", token, null).statusCode());
+    }
+
+    @Test
+    void testPlaylistRoutes() throws Exception {
+        String token = signUp("carol");
+        send("POST", "albums", token, "{\"title\":\"Sons\"}");
+        assertEquals(200, send("POST", "playlists", token, "{\"name\":\"Road Trip\"}").statusCode());
+        HttpResponse<String> added = send("POST", "playlists/Road%20Trip/songs", token, "{\"artist\":\"The Heavy\"}");
+        assertEquals("{\"added\":2}", added.body());
+        assertEquals(200, send("DELETE", "playlists/Road%20Trip/songs/Fire", token, null).statusCode());
+        assertEquals(200, send("POST", "playlists/Road%20Trip/rename", token, "{\"name\":\"Drive\"}").statusCode());
+        String playlist = send("GET", "playlists/Drive", token, null).body();
+        assertTrue(playlist.startsWith("{\"name\":\"Drive\",\"songs\":[{"), playlist);
+        assertFalse(playlist.contains("Fire"), playlist);
+        assertEquals(200, send("DELETE", "playlists/Drive", token, null).statusCode());
+        assertEquals("[]", send("GET", "playlists", token, null).body());
+    }
+
+    @Test
+    void testBadRequests() throws Exception {
+        String token = signUp("dave");
+        assertEquals(404, send("GET", "nowhere", token, null).statusCode());
+        assertEquals(405, send("GET", "play", token, null).statusCode());
+        assertEquals(400, send("POST", "play", token, "{not json").statusCode());
+        assertEquals(400, send("GET", "songs?sort=sideways", token, null).statusCode());
+    }
+
+    @Test
+    void testSongPages() throws Exception {
+        String token = signUp("erin");
+        send("POST", "albums", token, "{\"title\":\"Sons\"}");
+        String first = send("GET", "songs?sort=title&limit=1", token, null).body();
+        assertTrue(first.startsWith("{\"songs\":[{\"id\":"), first);
+        assertTrue(first.contains("Ashes") && !first.contains("Fire"), first);
+        String next = first.substring(first.indexOf("\"next\":\"") + 8, first.lastIndexOf('"'));
+        String second = send("GET", "songs?sort=title&limit=1&after=" + next, token, null).body();
+        assertTrue(second.contains("Fire") && second.endsWith("\"next\":null}"), second);
+        assertEquals(400, send("GET", "songs?limit=1&after=nope", token, null).statusCode());
+        assertEquals(400, send("GET", "songs?limit=0", token, null).statusCode());
+    }
+
+    // A full pool is answered with 503 by the dispatcher instead of running the request there
+    @Test
+    void testFullPoolIsShed() throws Exception {
+        server.close();
+        server = new LibraryServer(new LibraryService(users, new MusicStore(tempDir)),
+                new InetSocketAddress("127.0.0.1", 0), 1, 1);
+        assumeFalse(server.usesVirtualThreads(), "Only the platform pool sheds");
+        server.start();
+        List<Socket> stalled = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) { // One holds the worker reading its body, one fills the queue
+                Socket socket = new Socket("127.0.0.1", server.getPort());
+                socket.getOutputStream().write(("POST /api/login HTTP/1.1\r\nHost: x\r\nContent-Length: 10\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                socket.getOutputStream().flush();
+                stalled.add(socket);
+                Thread.sleep(200);
+            }
+            HttpResponse<String> shed = client.send(HttpRequest.newBuilder(
+                    URI.create("http://127.0.0.1:" + server.getPort() + "/api/songs")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, shed.statusCode(), shed.body());
+            assertEquals("1", shed.headers().firstValue("Retry-After").orElse(null));
+        } finally {
+            for (Socket socket : stalled) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void testJsonReader() {
+        assertEquals("a \"b\"\n", JsonReader.parseObject("{\"k\": \"a \\\"b\\\"\\n\"}").get("k"));
+        assertEquals("5", JsonReader.parseObject("{\"n\":5,\"m\":null}").get("n"));
+        assertTrue(JsonReader.parseObject("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parseObject("{\"k\":[1]}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parseObject("{\"k\":1} x"));
+    }
+}
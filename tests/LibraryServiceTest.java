@@ -0,0 +1,169 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.Album;
+import model.Pbkdf2Hasher;
+import model.Song;
+import model.SortedSongIndex;
+import model.UserManager;
+import service.LibraryService;
+import service.LibraryService.SearchField;
+import service.PlaylistInfo;
+import service.Response;
+import service.SongInfo;
+import service.Status;
+import store.MusicStore;
+
+class LibraryServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private UserManager users;
+    private LibraryService service;
+
+    @BeforeEach
+    void setUp() {
+        MusicStore store = new MusicStore(tempDir); // Empty catalog
+        Album album = new Album("Sons", "The Heavy", "Rock", 2024);
+        album.addSong(new Song("Fire", "The Heavy", "Sons"));
+        album.addSong(new Song("Ashes", "The Heavy", "Sons"));
+        store.addAlbum(album);
+        users = new UserManager(store, new File(tempDir.toFile(), "users.dat"),
+                new File(tempDir.toFile(), "users.journal"));
+        users.setPasswordHasher(new Pbkdf2Hasher(1000));
+        service = new LibraryService(users, store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        users.close();
+    }
+
+    @Test
+    void testSignUpLoginLogout() {
+        Response<String> signUp = service.signUp("alice", "pw");
+        assertTrue(signUp.isOk());
+        assertEquals(Status.CONFLICT, service.signUp("alice", "other").getStatus());
+        assertEquals(Status.UNAUTHORIZED, service.login("alice", "wrong").getStatus());
+        assertEquals(Status.INVALID, service.login("", "pw").getStatus());
+
+        String token = service.login("alice", "pw").getValue();
+        assertEquals("alice", service.getUsername(token).getValue());
+        assertTrue(service.logout(token).isOk());
+        assertEquals(Status.UNAUTHORIZED, service.getUsername(token).getStatus());
+        assertEquals(Status.UNAUTHORIZED, service.searchSongs(null, SearchField.ANY, "fire").getStatus());
+    }
+
+    @Test
+    void testAddPlayAndRate() {
+        String token = service.signUp("bob", "pw").getValue();
+        assertEquals(Status.NOT_FOUND, service.addSong(token, "Nope").getStatus());
+        assertTrue(service.addSong(token, "Fire").isOk());
+        assertEquals(Status.UNCHANGED, service.addSong(token, "Fire").getStatus());
+        assertEquals(Status.NOT_FOUND, service.play(token, "Ashes").getStatus()); // Not in the library
+
+        SongInfo played = service.play(token, "Fire").getValue();
+        assertEquals(1, played.getPlayCount());
+        assertEquals("Rock", played.getGenre());
+        assertEquals(Status.INVALID, service.rate(token, "Fire", 9).getStatus());
+        SongInfo rated = service.rate(token, "Fire", 5).getValue();
+        assertEquals(5, rated.getRating());
+        assertTrue(rated.isFavorite());
+        assertEquals(List.of("Fire"), titles(service.getRecentPlays(token).getValue()));
+        assertEquals(List.of("Fire"), titles(service.getFavorites(token).getValue()));
+    }
+
+    @Test
+    void testAlbumsAndSearch() {
+        String token = service.signUp("carol", "pw").getValue();
+        assertEquals(Status.OK, service.addAlbum(token, "Sons").getStatus());
+        assertEquals(Status.UNCHANGED, service.addAlbum(token, "Sons").getStatus());
+        assertEquals(List.of("Ashes", "Fire"),
+                titles(service.getSongs(token, SortedSongIndex.Order.TITLE).getValue()));
+        assertEquals(2, service.searchSongs(token, SearchField.ARTIST, "heavy").getValue().size());
+        assertEquals("Sons", service.searchAlbums(token, SearchField.ANY, "heavy").getValue().get(0).getTitle());
+        assertEquals(List.of("Fire"), titles(service.searchStore(token, "fire", 10).getValue()));
+
+        assertTrue(service.removeAlbum(token, "Sons").isOk());
+        assertEquals(Status.NOT_FOUND, service.removeSong(token, "Fire").getStatus());
+    }
+
+    @Test
+    void testTitlesResolveExactly() {
+        String token = service.signUp("erin", "pw").getValue();
+        service.addAlbum(token, "Sons");
+        assertEquals(Status.NOT_FOUND, service.play(token, "Fir").getStatus()); // No partial matches
+        assertEquals("Fire", service.play(token, "FIRE").getValue().getTitle());
+        assertEquals(Status.NOT_FOUND, service.removeAlbum(token, "Son").getStatus());
+        assertTrue(service.removeAlbum(token, "sons").isOk());
+    }
+
+    @Test
+    void testLogoutOfDeadSessionStillReports() {
+        String token = service.signUp("frank", "pw").getValue();
+        assertTrue(service.logout(token).isOk());
+        Response<Void> again = service.logout(token);
+        assertEquals(Status.UNAUTHORIZED, again.getStatus());
+        assertTrue(again.getMessage().contains("saved"));
+    }
+
+    @Test
+    void testPlaylists() {
+        String token = service.signUp("dave", "pw").getValue();
+        service.addAlbum(token, "Sons");
+        assertTrue(service.createPlaylist(token, "Mix").isOk());
+        assertEquals(Status.CONFLICT, service.createPlaylist(token, "mix").getStatus());
+        assertEquals(2, service.addArtistToPlaylist(token, "Mix", "The Heavy").getValue());
+        assertEquals(Status.NOT_FOUND, service.addSongToPlaylist(token, "Nope", "Fire").getStatus());
+        assertTrue(service.removeSongFromPlaylist(token, "Mix", "Fire").isOk());
+        assertTrue(service.renamePlaylist(token, "Mix", "Heavy").isOk());
+
+        PlaylistInfo playlist = service.getPlaylist(token, "Heavy").getValue();
+        assertEquals(List.of("Ashes"), titles(playlist.getSongs()));
+        assertEquals(1, service.getPlaylists(token).getValue().size());
+        assertTrue(service.deletePlaylist(token, "Heavy").isOk());
+        assertEquals(Status.NOT_FOUND, service.getPlaylist(token, "Heavy").getStatus());
+    }
+
+    @Test
+    void testConcurrentSessions() throws InterruptedException {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            String name = "user" + t;
+            threads[t] = new Thread(() -> {
+                try {
+                    String token = service.signUp(name, "pw").getValue();
+                    assertTrue(service.addSong(token, "Fire").isOk());
+                    for (int i = 0; i < 50; i++) {
+                        service.play(token, "Fire");
+                    }
+                    assertEquals(50, service.getFrequentPlays(token).getValue().get(0).getPlayCount());
+                    assertTrue(service.logout(token).isOk());
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> failures.peek().toString());
+    }
+
+    private static List<String> titles(List<SongInfo> songs) {
+        return songs.stream().map(SongInfo::getTitle).toList();
+    }
+}
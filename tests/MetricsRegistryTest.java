@@ -0,0 +1,108 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import metrics.Gauge;
+import metrics.Meter;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import model.LibraryModel;
+import model.Song;
+import store.MusicStore;
+
+class MetricsRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMetricsAreCreatedOnceByName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("a"), registry.counter("a"));
+        assertSame(registry.histogram("b"), registry.histogram("b"));
+        assertThrows(IllegalArgumentException.class, () -> registry.meter("a"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("b", () -> 1));
+    }
+
+    @Test
+    void testValuesFlattenEveryMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("errors").add(3);
+        registry.gauge("songs", () -> 42);
+        Meter plays = registry.meter("plays");
+        plays.mark();
+        plays.mark();
+        registry.histogram("save").record(2_000_000);
+
+        Map<String, Number> values = registry.values();
+        assertEquals(3L, values.get("errors"));
+        assertEquals(42.0, values.get("songs"));
+        assertEquals(2L, values.get("plays.count"));
+        assertEquals(1L, values.get("save.count"));
+        assertEquals(2.0, values.get("save.maxMillis").doubleValue(), 0.1);
+    }
+
+    @Test
+    void testTextAndJson() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("errors").increment();
+        registry.gauge("ratio", () -> 0.5);
+        assertEquals("{\"errors\":1,\"ratio\":0.5}", registry.toJson());
+        String text = registry.toText();
+        assertTrue(text.startsWith("errors"), text);
+        assertTrue(text.contains("0.5"), text);
+    }
+
+    @Test
+    void testGaugeRemovedOnlyByItsOwner() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Gauge first = () -> 1;
+        Gauge second = () -> 2;
+        registry.gauge("size", first);
+        registry.gauge("size", second);
+        registry.removeGauge("size", first); // Replaced already; no effect
+        assertEquals(2.0, registry.values().get("size"));
+        registry.removeGauge("size", second);
+        assertNull(registry.values().get("size"));
+    }
+
+    @Test
+    void testReporterWritesWholeFile() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("errors").add(7);
+        Path file = tempDir.resolve("metrics.json");
+        MetricsReporter reporter = new MetricsReporter(registry, MetricsReporter.Format.JSON, file);
+        reporter.report();
+        assertEquals("{\"errors\":7}\n", Files.readString(file));
+        registry.counter("errors").increment();
+        reporter.close(); // Reports once more
+        assertEquals("{\"errors\":8}\n", Files.readString(file));
+    }
+
+    @Test
+    void testJmxExposesDefaultRegistry() throws Exception {
+        MetricsRegistry.getDefault().registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MetricsRegistry.JMX_NAME);
+        assertTrue(server.isRegistered(name));
+
+        MusicStore store = new MusicStore(tempDir);
+        Song song = new Song("Song", "Artist", "Album");
+        LibraryModel library = new LibraryModel(store);
+        library.addSong(song);
+        long before = ((Number) server.getAttribute(name, "library.plays.count")).longValue();
+        library.playSong(song);
+        assertEquals(before + 1, ((Number) server.getAttribute(name, "library.plays.count")).longValue());
+    }
+}
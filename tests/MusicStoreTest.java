@@ -5,6 +5,7 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import model.Album;
+import model.Song;
 import store.MusicStore;
 
 class MusicStoreTest {
@@ -41,5 +42,49 @@ class MusicStoreTest {
     @Test
     void testGetAlbumsMultiple() {
         assertTrue(musicStore.getAlbums().size() > 1);
+        assertEquals(musicStore.getAlbums().size(), musicStore.getAlbumCount());
+    }
+
+    @Test
+    void testGetAlbumIgnoresCase() {
+        assertEquals("Sons", musicStore.getAlbum("sONS").getTitle());
+    }
+
+    @Test
+    void testSongsAddedAfterRegistrationAreIndexed() {
+        Album album = musicStore.getAlbum("Test Album");
+        Song song = new Song("Late Addition", "Test Artist", "Test Album");
+        album.addSong(song);
+
+        assertTrue(musicStore.getSongsByTitle("late addition").contains(song));
+        assertSame(song, musicStore.getSong("Late Addition", "TEST ARTIST", "test album"));
+    }
+
+    @Test
+    void testGetAlbumsByArtist() {
+        List<Album> albums = musicStore.getAlbumsByArtist("the heavy");
+        assertFalse(albums.isEmpty());
+        assertTrue(albums.stream().allMatch(a -> a.getArtist().equalsIgnoreCase("The Heavy")));
+        assertTrue(musicStore.getAlbumsByArtist("Nobody").isEmpty());
+    }
+
+    @Test
+    void testDenseIds() {
+        Album album = musicStore.getAlbum("Test Album");
+        Song song = new Song("Numbered", "Test Artist", "Test Album");
+        album.addSong(song);
+
+        assertSame(album, musicStore.getAlbumById(album.getId()));
+        assertSame(song, musicStore.getSongById(song.getId()));
+        assertEquals(musicStore.getSongCount() - 1, song.getId());
+        assertNull(musicStore.getSongById(-1));
+    }
+
+    @Test
+    void testLoadedStringsAreInterned() {
+        List<Album> adele = musicStore.getAlbumsByArtist("Adele");
+        assertEquals(2, adele.size());
+        assertSame(adele.get(0).getArtist(), adele.get(1).getArtist());
+        assertSame(adele.get(0).getGenre(), adele.get(1).getGenre());
     }
 }
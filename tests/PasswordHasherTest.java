@@ -0,0 +1,58 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import model.Credentials;
+import model.PasswordHasher;
+import model.Pbkdf2Hasher;
+import model.Sha256Hasher;
+
+class PasswordHasherTest {
+    private static final byte[] SALT = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testSchemeRoundTrip() {
+        PasswordHasher pbkdf2 = PasswordHasher.forScheme(new Pbkdf2Hasher(1234).getScheme());
+        assertEquals(1234, ((Pbkdf2Hasher) pbkdf2).getIterations());
+        assertTrue(PasswordHasher.forScheme("sha256") instanceof Sha256Hasher);
+        assertThrows(IllegalArgumentException.class, () -> PasswordHasher.forScheme("md5"));
+    }
+
+    @Test
+    void testHashDependsOnCostSaltAndPassword() {
+        Pbkdf2Hasher hasher = new Pbkdf2Hasher(1000);
+        byte[] hash = hasher.hash("secret", SALT);
+        assertEquals(32, hash.length);
+        assertArrayEquals(hash, hasher.hash("secret", SALT));
+        assertFalse(java.util.Arrays.equals(hash, hasher.hash("Secret", SALT)));
+        assertFalse(java.util.Arrays.equals(hash, hasher.hash("secret", new byte[16])));
+        assertFalse(java.util.Arrays.equals(hash, new Pbkdf2Hasher(1001).hash("secret", SALT)));
+    }
+
+    @Test
+    void testCredentialsMatchOnlyTheirPassword() {
+        Credentials credentials = Credentials.create(new Pbkdf2Hasher(1000), "secret");
+        assertEquals("pbkdf2-sha256:1000", credentials.getScheme());
+        assertEquals(16, credentials.getSalt().length);
+        assertTrue(credentials.matches("secret"));
+        assertFalse(credentials.matches("secret "));
+        assertFalse(credentials.matches(""));
+    }
+
+    @Test
+    void testLegacyCredentialsStillVerify() {
+        Credentials legacy = Credentials.create(new Sha256Hasher(), "secret");
+        assertEquals(44, legacy.getHash().length());
+        assertTrue(legacy.matches("secret"));
+        assertFalse(legacy.matches("other"));
+    }
+
+    @Test
+    void testRejectsNonPositiveIterations() {
+        assertThrows(IllegalArgumentException.class, () -> new Pbkdf2Hasher(0));
+    }
+}
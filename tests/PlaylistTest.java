@@ -6,10 +6,16 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import model.Album;
+import model.LibraryModel;
 import model.Playlist;
 import model.Song;
+import store.MusicStore;
 
 class PlaylistTest {
+    private static final String NAME = "My Playlist";
+    private MusicStore store;
+    private LibraryModel library;
     private Playlist playlist;
     private Song song1;
     private Song song2;
@@ -17,10 +23,31 @@ class PlaylistTest {
 
     @BeforeEach
     void setUp() {
-        playlist = new Playlist("My Playlist");
-        song1 = new Song("Song 1", "Artist 1", null);
-        song2 = new Song("Song 2", "Artist 2", null);
-        duplicateSong = new Song("Song 1", "Artist 1", null); // Same details as `song1`
+        store = new MusicStore();
+        song1 = new Song("Song 1", "Artist 1", "First");
+        song2 = new Song("Song 2", "Artist 2", "Second");
+        duplicateSong = new Song("Song 1", "Artist 1", "Again"); // Same title and artist as `song1`
+        library = new LibraryModel(store);
+        addToLibrary(List.of(song1));
+        addToLibrary(List.of(song2));
+        addToLibrary(List.of(duplicateSong));
+        playlist = library.createPlaylist(NAME);
+    }
+
+    // Tracks change through the library, so every song needs to be in it; the songs share an album
+    private void addToLibrary(List<Song> songs) {
+        Album album = new Album(songs.get(0).getAlbumTitle(), songs.get(0).getArtist(), "Pop", 2020);
+        songs.forEach(album::addSong);
+        store.addAlbum(album);
+        songs.forEach(library::addSong);
+    }
+
+    private void add(Song song) {
+        assertTrue(library.addSongToPlaylist(NAME, song));
+    }
+
+    private boolean remove(Song song) {
+        return library.removeSongFromPlaylist(NAME, song);
     }
 
     @Test
@@ -35,7 +62,7 @@ class PlaylistTest {
 
     @Test
     void testAddSong() {
-        playlist.addSong(song1);
+        add(song1);
         List<Song> trackList = playlist.getTrackList();
         assertEquals(1, trackList.size());
         assertTrue(trackList.contains(song1));
@@ -43,21 +70,21 @@ class PlaylistTest {
 
     @Test
     void testRemoveSongExists() {
-        playlist.addSong(song1);
-        assertTrue(playlist.removeSong(song1));  // Return value check
+        add(song1);
+        assertTrue(remove(song1));  // Return value check
         assertFalse(playlist.getTrackList().contains(song1));
     }
 
     @Test
     void testRemoveSongNotExists() {
-        assertFalse(playlist.removeSong(song1)); 
+        assertFalse(remove(song1));
         assertTrue(playlist.getTrackList().isEmpty());
     }
 
     @Test
     void testAddDuplicateSongs() {
-        playlist.addSong(song1);
-        playlist.addSong(duplicateSong); // Same details as `song1`
+        add(song1);
+        add(duplicateSong); // Same details as `song1`
         List<Song> trackList = playlist.getTrackList();
         assertEquals(2, trackList.size());
         assertTrue(trackList.contains(song1));
@@ -66,16 +93,16 @@ class PlaylistTest {
 
     @Test
     void testRemoveDuplicateSongInstance() {
-        playlist.addSong(song1);
-        playlist.addSong(duplicateSong);
-        playlist.removeSong(song1); // Should only remove one instance
+        add(song1);
+        add(duplicateSong);
+        remove(song1); // Should only remove one instance
         assertEquals(1, playlist.getTrackList().size());
         assertTrue(playlist.getTrackList().contains(duplicateSong));
     }
 
     @Test
     void testGetTrackListDefensiveCopy() {
-        playlist.addSong(song1);
+        add(song1);
         List<Song> trackList = playlist.getTrackList();
         trackList.clear(); // Attempt to modify defensive copy
         assertEquals(1, playlist.getTrackList().size()); // Original list should remain unchanged
@@ -83,20 +110,110 @@ class PlaylistTest {
 
     @Test
     void testRemoveFromEmptyPlaylist() {
-        assertFalse(playlist.removeSong(song1)); // Ensures no exception is thrown
+        assertFalse(remove(song1)); // Ensures no exception is thrown
         assertTrue(playlist.getTrackList().isEmpty());
     }
 
     @Test
     void testMultipleAddAndRemoveOperations() {
-        playlist.addSong(song1);
-        playlist.addSong(song2);
-        playlist.removeSong(song1);
-        playlist.addSong(song1);
+        add(song1);
+        add(song2);
+        remove(song1);
+        add(song1);
 
         List<Song> trackList = playlist.getTrackList();
         assertEquals(2, trackList.size());
         assertTrue(trackList.contains(song1));
         assertTrue(trackList.contains(song2));
     }
+
+    @Test
+    void testContains() {
+        assertFalse(playlist.contains(song1));
+        add(song1);
+        assertTrue(playlist.contains(song1));
+        assertFalse(playlist.contains(duplicateSong)); // Same details, different song
+        remove(song1);
+        assertFalse(playlist.contains(song1));
+    }
+
+    @Test
+    void testRemoveAllCopies() {
+        add(song1);
+        add(song2);
+        add(song1);
+        assertTrue(library.removeSong(song1)); // Leaving the library leaves every playlist
+        assertEquals(List.of(song2), playlist.getTrackList());
+        assertFalse(remove(song1));
+    }
+
+    @Test
+    void testStartingTracks() {
+        Playlist mix = new Playlist("Mix", List.of(song2, song1, song2));
+        assertEquals(List.of(song2, song1, song2), mix.getTrackList());
+        assertTrue(library.addPlaylist(mix));
+        assertEquals(List.of(mix), library.getPlaylistsContaining(song1));
+    }
+
+    @Test
+    void testInsertAndMove() {
+        Song song3 = new Song("Song 3", "Artist 3", "Third");
+        add(song1);
+        add(song2);
+        assertFalse(library.insertPlaylistSong(NAME, 1, song3)); // Not in the library yet
+        addToLibrary(List.of(song3));
+        assertTrue(library.insertPlaylistSong(NAME, 1, song3));
+        assertEquals(List.of(song1, song3, song2), playlist.getTrackList());
+        assertTrue(library.movePlaylistSong(NAME, 0, 2));
+        assertEquals(List.of(song3, song2, song1), playlist.getTrackList());
+        assertTrue(library.movePlaylistSong(NAME, 2, 0));
+        assertEquals(List.of(song1, song3, song2), playlist.getTrackList());
+        assertFalse(library.insertPlaylistSong(NAME, 4, song1));
+        assertFalse(library.movePlaylistSong(NAME, 0, 3));
+        assertFalse(library.movePlaylistSong("Nope", 0, 1));
+        assertEquals(List.of(song1, song3, song2), playlist.getTrackList());
+    }
+
+    @Test
+    void testOrderSurvivesManyRemovals() {
+        List<Song> songs = new java.util.ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            songs.add(new Song("Song " + i, "Artist", "Many"));
+        }
+        addToLibrary(songs);
+        assertEquals(200, library.addSongsToPlaylist(NAME, songs));
+        for (int i = 0; i < 200; i += 2) {
+            assertTrue(remove(songs.get(i)));
+        }
+        assertTrue(library.insertPlaylistSong(NAME, 0, songs.get(0)));
+        List<Song> tracks = playlist.getTrackList();
+        assertEquals(101, tracks.size());
+        assertEquals(songs.get(0), tracks.get(0));
+        for (int i = 1; i < tracks.size(); i++) {
+            assertSame(songs.get(2 * i - 1), tracks.get(i));
+        }
+        assertTrue(remove(songs.get(199)));
+        assertEquals(100, playlist.size());
+    }
+
+    @Test
+    void testShuffleKeepsTheTracksItStartedWith() {
+        Song song3 = new Song("Song 3", "Artist 3", "Third");
+        addToLibrary(List.of(song3));
+        add(song1);
+        add(song2);
+        remove(song1);
+        add(song1);
+        java.util.Iterator<Song> shuffle = playlist.getShuffledIterator();
+        add(song3);
+        assertTrue(library.movePlaylistSong(NAME, 0, 2));
+        remove(song1);
+        assertTrue(library.insertPlaylistSong(NAME, 0, song3));
+        java.util.Set<Song> seen = new java.util.HashSet<>();
+        while (shuffle.hasNext()) {
+            seen.add(shuffle.next());
+        }
+        assertEquals(java.util.Set.of(song1, song2), seen);
+        assertEquals(List.of(song3, song3, song2), playlist.getTrackList());
+    }
 }
@@ -0,0 +1,74 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.RecentPlays;
+import model.Song;
+
+class RecentPlaysTest {
+    private RecentPlays recent;
+    private Song song1;
+    private Song song2;
+    private Song song3;
+
+    @BeforeEach
+    void setUp() {
+        recent = new RecentPlays(2);
+        song1 = new Song("Song 1", "Artist 1", null);
+        song2 = new Song("Song 2", "Artist 2", null);
+        song3 = new Song("Song 3", "Artist 3", null);
+    }
+
+    @Test
+    void testMostRecentFirst() {
+        recent.touch(song1);
+        recent.touch(song2);
+        assertEquals(List.of(song2, song1), recent.snapshot());
+    }
+
+    @Test
+    void testTouchMovesToFront() {
+        recent.touch(song1);
+        recent.touch(song2);
+        recent.touch(song1);
+        assertEquals(List.of(song1, song2), recent.snapshot());
+    }
+
+    @Test
+    void testEvictsLeastRecent() {
+        recent.touch(song1);
+        recent.touch(song2);
+        recent.touch(song3);
+        assertEquals(List.of(song3, song2), recent.snapshot());
+    }
+
+    @Test
+    void testExplicitEvict() {
+        recent.touch(song1);
+        recent.touch(song2);
+        assertTrue(recent.evict(song1));
+        assertFalse(recent.evict(song3));
+        assertEquals(List.of(song2), recent.snapshot());
+    }
+
+    @Test
+    void testIdentityKeyed() {
+        Song lookalike = new Song("Song 1", "Artist 1", null);
+        recent.touch(song1);
+        recent.touch(lookalike);
+        assertEquals(2, recent.size());
+    }
+
+    @Test
+    void testShrinkingCapacityTrims() {
+        recent.touch(song1);
+        recent.touch(song2);
+        recent.setCapacity(1);
+        assertEquals(List.of(song2), recent.snapshot());
+    }
+}
@@ -0,0 +1,114 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import store.SearchIndex;
+import store.SearchIndex.Field;
+
+class SearchIndexTest {
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndex();
+        index.add(0, Field.TITLE, "Fire");
+        index.add(0, Field.ARTIST, "The Heavy");
+        index.add(1, Field.TITLE, "Firestarter");
+        index.add(1, Field.ARTIST, "The Prodigy");
+        index.add(2, Field.TITLE, "Cuando Los Ángeles Lloran");
+        index.add(2, Field.ARTIST, "Maná");
+        index.add(3, Field.TITLE, "Set Fire to the Rain");
+        index.add(3, Field.ARTIST, "Adele");
+    }
+
+    @Test
+    void testTokenizeNormalizes() {
+        assertArrayEquals(new String[] { "mana", "don", "t", "stop" }, SearchIndex.tokenize("  MANÁ: Don't-Stop! "));
+        assertEquals(0, SearchIndex.tokenize(null).length);
+    }
+
+    @Test
+    void testExactTitleRanksFirst() {
+        int[] hits = index.search("fire", Field.TITLE, null, 10);
+        assertArrayEquals(new int[] { 0, 3, 1 }, hits);
+    }
+
+    @Test
+    void testAccentsAndCaseIgnored() {
+        assertArrayEquals(new int[] { 2 }, index.search("mana", Field.ARTIST, null, 10));
+        assertArrayEquals(new int[] { 2 }, index.search("Maná", Field.ARTIST, null, 10));
+        assertArrayEquals(new int[] { 2 }, index.search("cuando los angeles", Field.TITLE, null, 10));
+    }
+
+    @Test
+    void testPrefixQuery() {
+        assertArrayEquals(new int[] { 1 }, index.search("the prod", Field.ARTIST, null, 10));
+    }
+
+    @Test
+    void testFuzzyQuery() {
+        assertArrayEquals(new int[] { 1 }, index.search("prodigi", Field.ARTIST, null, 10));
+        assertEquals(0, index.search("zzzz", Field.ARTIST, null, 10).length);
+    }
+
+    @Test
+    void testFuzzyQueryTwoEdits() {
+        assertArrayEquals(new int[] { 1 }, index.search("fyrestartar", Field.TITLE, null, 10));
+        index.add(4, Field.TITLE, "Aaaaaaaa");
+        assertArrayEquals(new int[] { 4 }, index.search("aaaaaaaaa", Field.TITLE, null, 10));
+    }
+
+    @Test
+    void testScopeMatchesFilter() {
+        for (int doc = 4; doc < 2000; doc++) {
+            index.add(doc, Field.TITLE, "Fire " + doc);
+        }
+        int[] library = { 3, 500, 1999 };
+        SearchIndex.Scope scope = new SearchIndex.Scope() {
+            @Override
+            public boolean test(int doc) {
+                return doc == 3 || doc == 500 || doc == 1999;
+            }
+
+            @Override
+            public int size() {
+                return library.length;
+            }
+
+            @Override
+            public void forEach(IntConsumer action) {
+                for (int doc : library) {
+                    action.accept(doc);
+                }
+            }
+        };
+        int[] filtered = index.search("fire", Field.TITLE, scope::test, 10);
+        assertArrayEquals(new int[] { 3, 500, 1999 }, filtered);
+        assertArrayEquals(filtered, index.search("fire", Field.TITLE, scope, 10));
+        assertArrayEquals(new int[] { 500 }, index.search("fir 500", Field.TITLE, scope, 10));
+    }
+
+    @Test
+    void testFilterAndLimit() {
+        assertArrayEquals(new int[] { 3 }, index.search("fire", Field.TITLE, doc -> doc == 3, 10));
+        assertEquals(1, index.search("fire", Field.TITLE, null, 1).length);
+    }
+
+    @Test
+    void testAllTokensMustMatch() {
+        assertArrayEquals(new int[] { 3 }, index.search("fire adele", EnumSet.allOf(Field.class), null, 10));
+    }
+
+    @Test
+    void testComplete() {
+        List<String> completions = index.complete("set fi", 5);
+        assertEquals(List.of("fire", "firestarter"), completions);
+    }
+}
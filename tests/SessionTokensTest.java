@@ -0,0 +1,73 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.SessionTokens;
+
+class SessionTokensTest {
+    private AtomicLong now;
+    private SessionTokens tokens;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(1_000);
+        tokens = new SessionTokens(100, now::get);
+    }
+
+    @Test
+    void testIssuedTokenIdentifiesUser() {
+        String token = tokens.issue("alice");
+        assertEquals("alice", tokens.validate(token));
+        assertNotEquals(token, tokens.issue("alice"));
+        assertNull(tokens.validate("unknown"));
+        assertNull(tokens.validate(null));
+    }
+
+    @Test
+    void testTokenExpires() {
+        String token = tokens.issue("alice");
+        now.addAndGet(100);
+        assertNull(tokens.validate(token));
+        assertEquals(0, tokens.size());
+    }
+
+    @Test
+    void testUseRenewsTheSession() {
+        String token = tokens.issue("alice");
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(99);
+            assertEquals("alice", tokens.validate(token)); // 495 ms in, past the original 100 ms
+        }
+        now.addAndGet(100);
+        assertNull(tokens.validate(token));
+    }
+
+    @Test
+    void testRevoke() {
+        String first = tokens.issue("alice");
+        String second = tokens.issue("alice");
+        String other = tokens.issue("bob");
+        tokens.revoke(first);
+        assertNull(tokens.validate(first));
+        tokens.revokeAll("alice");
+        assertNull(tokens.validate(second));
+        assertEquals("bob", tokens.validate(other));
+    }
+
+    @Test
+    void testExpiredTokensAreSwept() {
+        for (int i = 0; i < 1000; i++) {
+            tokens.issue("user" + i);
+        }
+        now.addAndGet(100);
+        for (int i = 0; i < 24; i++) {
+            tokens.issue("late" + i);
+        }
+        assertEquals(24, tokens.size());
+    }
+}
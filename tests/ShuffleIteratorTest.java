@@ -6,8 +6,12 @@ import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import model.Album;
+import model.LibraryModel;
+import model.Playlist;
 import model.ShuffleIterator;
 import model.Song;
+import store.MusicStore;
 
 class ShuffleIteratorTest {
     private List<Song> songs;
@@ -99,4 +103,83 @@ class ShuffleIteratorTest {
 
         assertThrows(NoSuchElementException.class, iterator::next);
     }
+
+    @Test
+    void testSeededShufflesRepeat() {
+        List<Song> first = new ArrayList<>();
+        List<Song> second = new ArrayList<>();
+        new ShuffleIterator(songs, new SplittableRandom(42)).forEachRemaining(first::add);
+        new ShuffleIterator(songs, new SplittableRandom(42)).forEachRemaining(second::add);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testEveryOrderIsEquallyLikely() {
+        Map<List<Song>, Integer> counts = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 6000; i++) {
+            List<Song> order = new ArrayList<>();
+            new ShuffleIterator(songs, random).forEachRemaining(order::add);
+            counts.merge(order, 1, Integer::sum);
+        }
+        assertEquals(6, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 850 && count < 1150, "Biased shuffle: " + counts.values());
+        }
+    }
+
+    @Test
+    void testLargePlaylistStreamsWithoutRepeats() {
+        List<Song> big = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            big.add(new Song("Song " + i, "Artist", null));
+        }
+        Iterator<Song> iterator = new ShuffleIterator(big, new SplittableRandom(1));
+        Set<Song> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (iterator.hasNext()) {
+            assertTrue(seen.add(iterator.next()));
+        }
+        assertEquals(50_000, seen.size());
+    }
+
+    @Test
+    void testDrawingAFewSongsCostsOnlyThoseDraws() {
+        Set<Integer> drawn = new HashSet<>();
+        List<Song> huge = new AbstractList<>() {
+            @Override
+            public Song get(int index) {
+                assertTrue(drawn.add(index), "Drew position " + index + " twice");
+                return song1;
+            }
+
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE; // Far too many for any per-song array
+            }
+        };
+        ShuffleIterator iterator = new ShuffleIterator(huge, new SplittableRandom(7));
+        for (int i = 0; i < 1000; i++) {
+            assertSame(song1, iterator.next());
+        }
+        assertEquals(1000, drawn.size());
+        assertTrue(iterator.hasNext());
+    }
+
+    @Test
+    void testPlaylistChangesDoNotAffectRunningShuffle() {
+        Album album = new Album("Mix Album", "Artist 1", "Pop", 2020);
+        songs.forEach(album::addSong);
+        MusicStore store = new MusicStore();
+        store.addAlbum(album);
+        LibraryModel library = new LibraryModel(store);
+        library.addAlbum(album);
+        Playlist playlist = library.createPlaylist("Mix");
+        library.addSongsToPlaylist("Mix", songs);
+        Iterator<Song> iterator = playlist.getShuffledIterator();
+        assertTrue(library.removeSongFromPlaylist("Mix", song1));
+        List<Song> order = new ArrayList<>();
+        iterator.forEachRemaining(order::add);
+        assertEquals(3, order.size());
+        assertTrue(order.containsAll(songs));
+    }
 }
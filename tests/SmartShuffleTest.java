@@ -0,0 +1,129 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.Test;
+
+import model.Playlist;
+import model.SmartShuffle;
+import model.Song;
+
+class SmartShuffleTest {
+
+    private static List<Song> songs(int artists, int albums, int perAlbum) {
+        List<Song> songs = new ArrayList<>();
+        for (int a = 0; a < artists; a++) {
+            for (int b = 0; b < albums; b++) {
+                for (int s = 0; s < perAlbum; s++) {
+                    songs.add(new Song("Song " + s, "Artist " + a, "Album " + a + "-" + b));
+                }
+            }
+        }
+        return songs;
+    }
+
+    private static List<Song> drain(Iterator<Song> iterator) {
+        List<Song> order = new ArrayList<>();
+        iterator.forEachRemaining(order::add);
+        return order;
+    }
+
+    private static int backToBack(List<Song> order) {
+        int repeats = 0;
+        for (int i = 1; i < order.size(); i++) {
+            if (order.get(i).getArtist().equals(order.get(i - 1).getArtist())) {
+                repeats++;
+            }
+        }
+        return repeats;
+    }
+
+    @Test
+    void testEverySongPlaysOnce() {
+        List<Song> songs = songs(7, 3, 5);
+        songs.get(0).setRating(5);
+        List<Song> order = drain(new SmartShuffle(songs,
+                SmartShuffle.ratingAndRecency(Song::getRating, Song::getLastPlayed, 0), new SplittableRandom(3)));
+        assertEquals(songs.size(), order.size());
+        Set<Song> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.addAll(order);
+        assertEquals(songs.size(), seen.size());
+    }
+
+    @Test
+    void testEmptyPlaylist() {
+        SmartShuffle shuffle = new SmartShuffle(new ArrayList<>());
+        assertFalse(shuffle.hasNext());
+        assertThrows(NoSuchElementException.class, shuffle::next);
+    }
+
+    @Test
+    void testArtistsAreSpreadOut() {
+        List<Song> songs = songs(10, 2, 5);
+        for (long seed = 0; seed < 20; seed++) {
+            List<Song> order = drain(new SmartShuffle(songs, SmartShuffle.UNIFORM, new SplittableRandom(seed)));
+            assertTrue(backToBack(order) <= 2, "Artist repeated " + backToBack(order) + " times");
+        }
+    }
+
+    @Test
+    void testLargeArtistIsInterleaved() {
+        List<Song> songs = songs(1, 5, 10); // 50 songs by Artist 0
+        for (int i = 0; i < 50; i++) {
+            songs.add(new Song("Single", "Solo " + i, null));
+        }
+        List<Song> order = drain(new SmartShuffle(songs, SmartShuffle.UNIFORM, new SplittableRandom(11)));
+        assertTrue(backToBack(order) < 10, "Artist repeated " + backToBack(order) + " times");
+        long lateHalf = order.subList(50, 100).stream().filter(s -> s.getArtist().equals("Artist 0")).count();
+        assertTrue(lateHalf > 15 && lateHalf < 35);
+    }
+
+    @Test
+    void testHigherRatedSongsComeEarlier() {
+        List<Song> songs = songs(1, 1, 20);
+        for (int i = 0; i < 10; i++) {
+            songs.get(i).setRating(5);
+            songs.get(i + 10).setRating(1);
+        }
+        ToLongFunction<Song> weight = SmartShuffle.ratingAndRecency(Song::getRating, Song::getLastPlayed, 0);
+        SplittableRandom random = new SplittableRandom(5);
+        long topPositions = 0;
+        long bottomPositions = 0;
+        for (int run = 0; run < 200; run++) {
+            List<Song> order = drain(new SmartShuffle(songs, weight, random));
+            for (int i = 0; i < order.size(); i++) {
+                if (order.get(i).getRating() == 5) {
+                    topPositions += i;
+                } else {
+                    bottomPositions += i;
+                }
+            }
+        }
+        assertTrue(topPositions < bottomPositions * 0.7);
+    }
+
+    @Test
+    void testRecentPlaysWeighLess() {
+        Song fresh = new Song("Fresh", "A", null);
+        Song played = new Song("Played", "A", null);
+        long now = System.currentTimeMillis();
+        played.play();
+        ToLongFunction<Song> weight = SmartShuffle.ratingAndRecency(Song::getRating, Song::getLastPlayed, now);
+        assertTrue(weight.applyAsLong(played) < weight.applyAsLong(fresh));
+        assertTrue(weight.applyAsLong(played) > 0);
+        ToLongFunction<Song> later = SmartShuffle.ratingAndRecency(Song::getRating, Song::getLastPlayed,
+                now + SmartShuffle.RECENCY_WINDOW_MILLIS);
+        assertEquals(later.applyAsLong(fresh), later.applyAsLong(played));
+    }
+
+    @Test
+    void testSeededShufflesRepeat() {
+        Playlist playlist = new Playlist("Mix", songs(4, 2, 3));
+        assertEquals(drain(playlist.getSmartShuffleIterator(SmartShuffle.UNIFORM, new SplittableRandom(9))),
+                drain(playlist.getSmartShuffleIterator(SmartShuffle.UNIFORM, new SplittableRandom(9))));
+        assertEquals(24, drain(playlist.getSmartShuffleIterator(true)).size());
+    }
+}
@@ -0,0 +1,108 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.Song;
+import model.SongStats;
+
+class SongStatsTest {
+    private SongStats stats;
+    private List<Song> catalog;
+    private Song song1;
+    private Song song2;
+    private Song song3;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ArrayList<>();
+        stats = new SongStats(catalog::get);
+        song1 = catalogued("Song 1");
+        song2 = catalogued("Song 2");
+        song3 = catalogued("Song 3");
+        stats.add(song1);
+        stats.add(song2);
+        stats.add(song3);
+    }
+
+    private Song catalogued(String title) {
+        Song song = new Song(title, "Artist", "Album");
+        song.assignId(catalog.size());
+        catalog.add(song);
+        return song;
+    }
+
+    @Test
+    void testAddIsIdempotent() {
+        assertFalse(stats.add(song1));
+        assertEquals(3, stats.size());
+    }
+
+    @Test
+    void testRatingAndFavorite() {
+        stats.setRating(song2, 5);
+        assertEquals(5, stats.getRating(song2));
+        assertTrue(stats.isFavorite(song2));
+        assertEquals(List.of(song2), stats.getFavorites());
+
+        stats.setRating(song2, 9);
+        assertEquals(0, stats.getRating(song2));
+    }
+
+    @Test
+    void testStatsAreIndependentOfSong() {
+        stats.setRating(song1, 4);
+        assertEquals(0, song1.getRating());
+        assertFalse(stats.setRating(catalogued("Other"), 3));
+    }
+
+    @Test
+    void testRecordPlay() {
+        assertEquals(1, stats.recordPlay(song1, 100L));
+        assertEquals(2, stats.recordPlay(song1, 200L));
+        assertEquals(200L, stats.getLastPlayed(song1));
+        assertEquals(-1, stats.recordPlay(catalogued("Other"), 1L));
+    }
+
+    @Test
+    void testRejectsUncataloguedSongs() {
+        assertFalse(stats.add(new Song("Loose", "Artist", "Album")));
+    }
+
+    @Test
+    void testSortedByRatingIsStable() {
+        stats.setRating(song1, 3);
+        stats.setRating(song2, 5);
+        stats.setRating(song3, 3);
+        assertEquals(List.of(song2, song1, song3), stats.getSortedByRating(0));
+        assertEquals(List.of(song2), stats.getSortedByRating(4));
+    }
+
+    @Test
+    void testRemoveAndCompactKeepOrder() {
+        List<Song> extra = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Song song = catalogued("Extra " + i);
+            extra.add(song);
+            stats.add(song);
+        }
+        for (Song song : extra) {
+            stats.remove(song);
+        }
+        stats.setRating(song3, 5);
+        for (Song song : extra) {
+            stats.add(song);
+        }
+
+        List<Song> order = new ArrayList<>();
+        stats.forEach(order::add);
+        assertEquals(43, order.size());
+        assertEquals(List.of(song1, song2, song3), order.subList(0, 3));
+        assertEquals(List.of(song3), stats.getFavorites());
+    }
+}
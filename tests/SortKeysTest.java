@@ -0,0 +1,41 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.SortKeys;
+
+class SortKeysTest {
+
+    private static List<String> sorted(String... names) {
+        List<String> list = new ArrayList<>(List.of(names));
+        list.sort(Comparator.comparing(SortKeys::key, SortKeys::compare));
+        return list;
+    }
+
+    @Test
+    void testCaseAndAccentsSortNaturally() {
+        assertEquals(List.of("apple", "Banana", "cherry"), sorted("cherry", "Banana", "apple"));
+        assertEquals(List.of("Mana", "Maná", "Mango"), sorted("Mango", "Maná", "Mana"));
+    }
+
+    @Test
+    void testCaseDoesNotDistinguishKeys() {
+        assertEquals(0, SortKeys.compare(SortKeys.key("Fire"), SortKeys.key("FIRE")));
+        assertNotEquals(0, SortKeys.compare(SortKeys.key("Mana"), SortKeys.key("Maná")));
+    }
+
+    @Test
+    void testSortArtistDropsLeadingArticle() {
+        assertEquals("Heavy, The", SortKeys.sortArtist("The Heavy"));
+        assertEquals("Rush of Blood, A", SortKeys.sortArtist("A Rush of Blood"));
+        assertEquals("Theory of a Deadman", SortKeys.sortArtist("Theory of a Deadman"));
+        assertEquals("The", SortKeys.sortArtist("The"));
+        assertEquals("", SortKeys.sortArtist(null));
+    }
+}
@@ -0,0 +1,175 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.Song;
+import model.SongRanks;
+import model.SortedSongIndex;
+import model.SortedSongIndex.Order;
+import model.SortedSongIndex.Page;
+
+class SortedSongIndexTest {
+    private List<Song> catalog; // By id, as in the store
+    private SongRanks ranks; // Rebuilt after the catalog grows
+    private SortedSongIndex index;
+    private Song alpha;
+    private Song bravo;
+    private Song charlie;
+
+    private Song song(String title, String artist, int id) {
+        Song song = new Song(title, artist, null);
+        song.assignId(id);
+        while (catalog.size() <= id) {
+            catalog.add(null);
+        }
+        catalog.set(id, song);
+        ranks = null;
+        return song;
+    }
+
+    private SortedSongIndex newIndex() {
+        return new SortedSongIndex(() -> ranks != null ? ranks : (ranks = new SongRanks(catalog)));
+    }
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ArrayList<>();
+        index = newIndex();
+        alpha = song("Alpha", "Zed", 2);
+        bravo = song("Bravo", "Yan", 0);
+        charlie = song("Charlie", "Xia", 1);
+        index.add(charlie, 0);
+        index.add(alpha, 0);
+        index.add(bravo, 0);
+    }
+
+    @Test
+    void testOrders() {
+        assertEquals(List.of(alpha, bravo, charlie), index.all(Order.TITLE));
+        assertEquals(List.of(charlie, bravo, alpha), index.all(Order.ARTIST));
+        assertEquals(List.of(bravo, charlie, alpha), index.all(Order.RATING)); // Ties by id
+    }
+
+    @Test
+    void testRerateMovesOnlyInRatingOrder() {
+        index.rerate(alpha, 0, 5);
+        index.rerate(charlie, 0, 3);
+        assertEquals(List.of(alpha, charlie, bravo), index.all(Order.RATING));
+        assertEquals(List.of(alpha, bravo, charlie), index.all(Order.TITLE));
+        index.remove(alpha, 5);
+        assertEquals(List.of(charlie, bravo), index.all(Order.RATING));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testPagingWithCursors() {
+        for (int i = 0; i < 25; i++) {
+            index.add(song(String.format("Track %02d", i), "Band", 10 + i), 0);
+        }
+        List<Song> paged = new ArrayList<>();
+        Page page = index.page(Order.TITLE, null, 10);
+        int pages = 1;
+        paged.addAll(page.getSongs());
+        while (page.getNext() != null) {
+            page = index.page(Order.TITLE, page.getNext(), 10);
+            paged.addAll(page.getSongs());
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(index.all(Order.TITLE), paged);
+    }
+
+    @Test
+    void testCursorSurvivesRemovalOfItsSong() {
+        Page first = index.page(Order.TITLE, null, 1);
+        assertEquals(List.of(alpha), first.getSongs());
+        index.remove(alpha, 0);
+        assertEquals(List.of(bravo, charlie), index.page(Order.TITLE, first.getNext(), 5).getSongs());
+    }
+
+    @Test
+    void testCursorMustMatchOrder() {
+        Page first = index.page(Order.TITLE, null, 1);
+        assertThrows(IllegalArgumentException.class, () -> index.page(Order.ARTIST, first.getNext(), 1));
+        assertThrows(IllegalArgumentException.class, () -> index.page(Order.TITLE, null, 0));
+    }
+
+    @Test
+    void testCollatedOrders() {
+        SortedSongIndex collated = newIndex();
+        Song heavy = song("zebra", "The Heavy", 10);
+        Song adele = song("Apple", "Adele", 11);
+        Song mana = song("Maná", "Maná", 12);
+        Song harper = song("mango", "Ben Harper", 13);
+        for (Song s : List.of(heavy, adele, mana, harper)) {
+            collated.add(s, 0);
+        }
+        assertEquals(List.of(adele, mana, harper, heavy), collated.all(Order.TITLE));
+        assertEquals(List.of(adele, harper, heavy, mana), collated.all(Order.ARTIST)); // "Heavy, The" under H
+    }
+
+    @Test
+    void testRatingPagesRunDownTheRatings() {
+        index.rerate(charlie, 0, 4);
+        index.rerate(alpha, 0, 4);
+        Page first = index.page(Order.RATING, null, 2);
+        assertEquals(List.of(charlie, alpha), first.getSongs()); // Ids 1, 2
+        Page second = index.page(Order.RATING, first.getNext(), 2);
+        assertEquals(List.of(bravo), second.getSongs());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void testOrdersSurviveCatalogGrowth() {
+        Song early = song("Aardvark", "Aaron", 40); // Ranks first once the catalog is re-ranked
+        index.add(early, 0);
+        assertEquals(List.of(early, alpha, bravo, charlie), index.all(Order.TITLE));
+        assertEquals(List.of(early, charlie, bravo, alpha), index.all(Order.ARTIST));
+        index.remove(bravo, 0);
+        assertEquals(List.of(early, alpha, charlie), index.all(Order.TITLE));
+    }
+
+    @Test
+    void testLargeIndexStaysSortedThroughSplitsAndRemovals() {
+        SortedSongIndex large = newIndex();
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            songs.add(song(String.format("Song %05d", i), "Band", 10 + i));
+        }
+        List<Song> shuffled = new ArrayList<>(songs);
+        java.util.Collections.shuffle(shuffled, new java.util.Random(3));
+        for (Song s : shuffled) {
+            large.add(s, s.getId() % 6);
+        }
+        assertEquals(songs, large.all(Order.TITLE));
+        for (Song s : shuffled.subList(0, 3000)) {
+            large.remove(s, s.getId() % 6);
+        }
+        List<Song> kept = new ArrayList<>(songs);
+        kept.removeAll(shuffled.subList(0, 3000));
+        assertEquals(2000, large.size());
+        assertEquals(kept, large.all(Order.TITLE));
+
+        List<Song> paged = new ArrayList<>();
+        Page page = large.page(Order.RATING, null, 7);
+        paged.addAll(page.getSongs());
+        while (page.getNext() != null) {
+            page = large.page(Order.RATING, page.getNext(), 7);
+            paged.addAll(page.getSongs());
+        }
+        assertEquals(large.all(Order.RATING), paged);
+        assertEquals(2000, paged.size());
+        for (int i = 1; i < paged.size(); i++) {
+            Song previous = paged.get(i - 1);
+            Song next = paged.get(i);
+            int order = Integer.compare(next.getId() % 6, previous.getId() % 6);
+            assertTrue(order < 0 || (order == 0 && next.getId() > previous.getId()));
+        }
+    }
+}
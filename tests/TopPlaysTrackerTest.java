@@ -0,0 +1,111 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.Song;
+import model.TopPlaysTracker;
+
+class TopPlaysTrackerTest {
+    private TopPlaysTracker tracker;
+    private List<Song> songs;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new TopPlaysTracker(3);
+        songs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            songs.add(new Song("Song " + i, "Artist", "Album"));
+        }
+    }
+
+    private void play(Song song) {
+        song.play();
+        tracker.update(song, song.getPlayCount());
+    }
+
+    @Test
+    void testOrdersByPlayCount() {
+        play(songs.get(0));
+        play(songs.get(1));
+        play(songs.get(1));
+        play(songs.get(2));
+        play(songs.get(2));
+        play(songs.get(2));
+
+        assertEquals(List.of(songs.get(2), songs.get(1), songs.get(0)), tracker.getTopSongs());
+    }
+
+    @Test
+    void testKeepsOnlyCapacity() {
+        for (Song song : songs) {
+            play(song);
+        }
+        play(songs.get(4));
+
+        List<Song> top = tracker.getTopSongs();
+        assertEquals(3, top.size());
+        assertEquals(songs.get(4), top.get(0));
+    }
+
+    @Test
+    void testTiesKeepArrivalOrder() {
+        play(songs.get(3));
+        play(songs.get(1));
+
+        assertEquals(List.of(songs.get(3), songs.get(1)), tracker.getTopSongs());
+    }
+
+    @Test
+    void testRemoveRefillsFromCandidates() {
+        for (Song song : songs) {
+            play(song);
+        }
+        play(songs.get(0));
+        Song dropped = tracker.getTopSongs().get(0);
+        songs.remove(dropped);
+
+        tracker.remove(dropped, songs, Song::getPlayCount);
+
+        List<Song> top = tracker.getTopSongs();
+        assertEquals(3, top.size());
+        assertFalse(top.contains(dropped));
+    }
+
+    @Test
+    void testBatchRemoveRefillsOnce() {
+        for (int i = 0; i < songs.size(); i++) {
+            for (int plays = 0; plays <= i; plays++) {
+                play(songs.get(i));
+            }
+        }
+        List<Song> dropped = List.of(songs.get(4), songs.get(3));
+        songs.removeAll(dropped);
+        for (Song song : dropped) {
+            assertTrue(tracker.remove(song));
+        }
+        assertEquals(List.of(songs.get(2)), tracker.getTopSongs());
+
+        List<Song> scanned = new ArrayList<>();
+        tracker.refill(songs, song -> {
+            scanned.add(song);
+            return song.getPlayCount();
+        });
+
+        assertEquals(List.of(songs.get(0), songs.get(1)), scanned);
+        assertEquals(List.of(songs.get(2), songs.get(1), songs.get(0)), tracker.getTopSongs());
+        tracker.refill(songs, song -> {
+            throw new AssertionError("Nothing left to refill");
+        });
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TopPlaysTracker(0));
+    }
+}
@@ -0,0 +1,333 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.UserJournal;
+
+class UserJournalTest {
+    @TempDir
+    File dir;
+    private File journalFile;
+    private File snapshot;
+
+    @BeforeEach
+    void setUp() {
+        journalFile = new File(dir, "users.journal");
+        snapshot = new File(dir, "users.dat");
+    }
+
+    private List<String> recover(UserJournal journal) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.recover(snapshot, (in, location) -> records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // A record pointing back at the one before it
+    private static byte[] linked(long previous, String text) {
+        byte[] body = bytes(text);
+        return ByteBuffer.allocate(Long.BYTES + body.length).putLong(previous).put(body).array();
+    }
+
+    private static List<String> chain(UserJournal journal, long head) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.readChain(head, record -> ByteBuffer.wrap(record).getLong(), (in, location) -> {
+            in.readLong();
+            records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+
+    @Test
+    void testAppendedRecordsSurviveReopen() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertTrue(recover(journal).isEmpty());
+            journal.append(bytes("one"));
+            journal.append(bytes("two"));
+            journal.sync();
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("one", "two"), recover(journal));
+        }
+    }
+
+    @Test
+    void testSyncWaitsForGroupCommit() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 20)) {
+            recover(journal);
+            long before = journal.size();
+            journal.append(bytes("queued"));
+            journal.sync();
+            assertTrue(journal.size() > before);
+        }
+    }
+
+    @Test
+    void testConcurrentAppendsKeepTheirLocations() throws Exception {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            int threads = 4;
+            int perThread = 500;
+            long[] locations = new long[threads * perThread];
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int first = t * perThread;
+                workers[t] = new Thread(() -> {
+                    for (int i = first; i < first + perThread; i++) {
+                        locations[i] = journal.append(bytes("record " + i)); // Batches flush meanwhile
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            journal.sync();
+            List<String> records = new ArrayList<>();
+            journal.read(locations, locations.length,
+                    (in, location) -> records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            for (int i = 0; i < locations.length; i++) {
+                assertEquals("record " + i, records.get(i));
+            }
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(2000, recover(journal).size());
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("kept"));
+            journal.append(bytes("torn"));
+            journal.sync();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 2); // Crash mid-write
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("kept"), recover(journal));
+            journal.append(bytes("after"));
+            journal.sync();
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("kept", "after"), recover(journal));
+        }
+    }
+
+    @Test
+    void testCorruptRecordStopsReplay() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("good"));
+            journal.append(bytes("bad"));
+            journal.sync();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X'); // Checksum no longer matches
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("good"), recover(journal));
+        }
+    }
+
+    @Test
+    void testCompactionMovesRecordsIntoSnapshot() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("old"));
+            journal.compact(snapshot, out -> out.write(bytes("folded")));
+            journal.append(bytes("new"));
+            journal.sync();
+        }
+        assertTrue(snapshot.exists());
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("folded", "new"), recover(journal));
+        }
+    }
+
+    @Test
+    void testCompactionCarriesOverAppendsMadeMeanwhile() throws IOException {
+        long during;
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("folded"));
+            try (UserJournal.Compaction compaction = journal.beginCompaction(snapshot)) {
+                compaction.write(bytes("rewritten"));
+                during = journal.append(bytes("during")); // Not part of what the caller rewrote
+                journal.sync();
+                compaction.commit();
+                assertTrue(compaction.isTail(during));
+                during = compaction.relocate(during);
+            }
+            List<String> records = new ArrayList<>();
+            journal.read(new long[] {during}, 1,
+                    (in, location) -> records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            assertEquals(List.of("during"), records);
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("rewritten", "during"), recover(journal));
+        }
+    }
+
+    @Test
+    void testAbandonedCompactionLeavesJournalAlone() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("kept"));
+            try (UserJournal.Compaction compaction = journal.beginCompaction(snapshot)) {
+                compaction.write(bytes("never committed"));
+            }
+            journal.sync();
+        }
+        assertFalse(new File(snapshot.getPath() + ".tmp").exists());
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("kept"), recover(journal));
+        }
+    }
+
+    @Test
+    void testStaleJournalIsNotReplayedTwice() throws IOException {
+        File copy = new File(dir, "journal.copy");
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.append(bytes("record"));
+            journal.sync();
+        }
+        Files.copy(journalFile.toPath(), copy.toPath());
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.compact(snapshot, out -> out.write(bytes("record")));
+        }
+        // Crash between writing the snapshot and resetting the journal
+        Files.copy(copy.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertEquals(List.of("record"), recover(journal));
+        }
+    }
+
+    @Test
+    void testUnreadableSnapshotKeepsJournal() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.compact(snapshot, out -> out.write(bytes("folded")));
+            journal.append(bytes("after"));
+            journal.sync();
+        }
+        byte[] kept = Files.readAllBytes(journalFile.toPath());
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.write('X'); // Bad magic
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertThrows(IOException.class, () -> recover(journal));
+        }
+        assertArrayEquals(kept, Files.readAllBytes(journalFile.toPath()));
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.setLength(file.length() - 1); // Torn record
+        }
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertThrows(IOException.class, () -> recover(journal));
+        }
+        assertArrayEquals(kept, Files.readAllBytes(journalFile.toPath()));
+    }
+
+    @Test
+    void testJournalNewerThanSnapshotIsKept() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            journal.compact(snapshot, out -> out.write(bytes("folded")));
+            journal.append(bytes("after"));
+            journal.sync();
+        }
+        byte[] kept = Files.readAllBytes(journalFile.toPath());
+        Files.delete(snapshot.toPath());
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            assertThrows(IOException.class, () -> recover(journal));
+        }
+        assertArrayEquals(kept, Files.readAllBytes(journalFile.toPath()));
+    }
+
+    @Test
+    void testReadsChainsAcrossCompaction() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            long first = journal.append(linked(-1, "first"));
+            journal.append(bytes("unrelated"));
+            long second = journal.append(linked(first, "second"));
+            assertEquals(List.of("first", "second"), chain(journal, second));
+
+            long head;
+            try (UserJournal.Compaction compaction = journal.beginCompaction(snapshot)) {
+                long folded = compaction.write(linked(-1, "folded"));
+                long third = journal.append(linked(second, "third"));
+                long fourth = journal.append(linked(third, "fourth"));
+                compaction.commit(record -> {
+                    ByteBuffer buffer = ByteBuffer.wrap(record);
+                    long previous = buffer.getLong(0);
+                    buffer.putLong(0, compaction.isTail(previous) ? compaction.relocate(previous) : folded);
+                });
+                head = compaction.relocate(fourth);
+            }
+            assertEquals(List.of("folded", "third", "fourth"), chain(journal, head));
+            long fifth = journal.append(linked(head, "fifth"));
+            assertEquals(List.of("folded", "third", "fourth", "fifth"), chain(journal, fifth));
+        }
+    }
+
+    @Test
+    void testLoopingChainIsRejected() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            long first = journal.append(linked(-1, "first"));
+            long second = journal.append(linked(first + 1000, "second")); // Points forward
+            assertThrows(IOException.class, () -> chain(journal, second));
+        }
+    }
+
+    @Test
+    void testSecondWriterIsRejected() throws IOException {
+        UserJournal journal = new UserJournal(journalFile, 1);
+        try {
+            assertThrows(IOException.class, () -> new UserJournal(journalFile, 1));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void testReadsRecordsByLocation() throws IOException {
+        try (UserJournal journal = new UserJournal(journalFile, 1)) {
+            recover(journal);
+            long[] locations = new long[3];
+            journal.compact(snapshot, out -> {
+                locations[0] = out.write(bytes("snapshot"));
+            });
+            journal.append(bytes("skipped"));
+            locations[1] = journal.append(bytes("journal"));
+            locations[2] = journal.append(bytes("queued")); // Not flushed yet
+            List<String> records = new ArrayList<>();
+            journal.read(locations, 3, (in, location) -> records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            assertEquals(List.of("snapshot", "journal", "queued"), records);
+        }
+    }
+}
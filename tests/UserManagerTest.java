@@ -4,9 +4,16 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
+import model.Album;
+import model.LibraryModel;
+import model.Pbkdf2Hasher;
+import model.Sha256Hasher;
+import model.Song;
 import model.User;
 import model.UserManager;
 import store.MusicStore;
@@ -138,4 +145,326 @@ class UserManagerTest {
 
         assertDoesNotThrow(() -> userManager.saveUsers()); // Graceful failure expected
     }
+    private MusicStore catalog() {
+        MusicStore store = new MusicStore();
+        Album album = new Album("Journal Album", "Journal Artist", "Rock", 2020);
+        album.addSong(new Song("First", "Journal Artist", "Journal Album"));
+        album.addSong(new Song("Second", "Journal Artist", "Journal Album"));
+        store.addAlbum(album);
+        return store;
+    }
+
+    @Test
+    void testLibraryChangesAreRecoveredFromJournal(@TempDir File dir) {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.createUser("alice", "pw", store);
+        LibraryModel library = manager.getUser("alice").getLibrary();
+        library.addAlbumFromStore("Journal Album");
+        Song first = store.getSong("First", "Journal Artist", "Journal Album");
+        library.rateSong(first, 5);
+        library.playSong(first);
+        library.playSong(first);
+        manager.saveUsers();
+        manager.close();
+
+        MusicStore restarted = catalog(); // Fresh Song objects, as after a restart
+        UserManager reopened = new UserManager(restarted, snapshot, journal);
+        assertTrue(reopened.authenticate("alice", "pw"));
+        LibraryModel restored = reopened.getUser("alice").getLibrary();
+        first = restarted.getSong("First", "Journal Artist", "Journal Album");
+        assertEquals(2, restored.getSongCount());
+        assertEquals(1, restored.getAlbums().size());
+        assertEquals(5, restored.getRating(first));
+        assertEquals(2, restored.getPlayCount(first));
+        assertEquals(List.of(first), restored.getRecentPlays());
+        reopened.close();
+    }
+
+    @Test
+    void testCompactedStateIsRecovered(@TempDir File dir) throws IOException {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.createUser("bob", "pw", store);
+        LibraryModel library = manager.getUser("bob").getLibrary();
+        library.addSongFromStore("Second");
+        Song second = store.getSong("Second", "Journal Artist", "Journal Album");
+        library.rateSong(second, 3);
+        library.playSong(second);
+        manager.compact();
+        library.removeSong(second);
+        library.addAlbumFromStore("Journal Album");
+        manager.close();
+
+        MusicStore restarted = catalog();
+        UserManager reopened = new UserManager(restarted, snapshot, journal);
+        LibraryModel restored = reopened.getUser("bob").getLibrary();
+        second = restarted.getSong("Second", "Journal Artist", "Journal Album");
+        assertEquals(2, restored.getSongCount());
+        assertEquals(0, restored.getPlayCount(second)); // Removed after the snapshot, then re-added
+        assertTrue(restored.getRecentPlays().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    void testCompactionRunsAlongsideWriters(@TempDir File dir) throws Exception {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        manager.createUser("dee", "pw", store);
+        LibraryModel library = manager.getUser("dee").getLibrary();
+        library.addAlbumFromStore("Journal Album");
+        Song played = store.getSong("First", "Journal Artist", "Journal Album");
+        int plays = 2000;
+        Thread player = new Thread(() -> {
+            for (int i = 0; i < plays; i++) {
+                library.playSong(played);
+            }
+        });
+        player.start();
+        while (player.isAlive()) {
+            manager.compact(); // Plays keep landing while the snapshot is written
+        }
+        player.join();
+        manager.compact();
+        manager.createUser("late", "pw", store);
+        manager.getUser("late").getLibrary().addSongFromStore("Second");
+        manager.close();
+
+        MusicStore restarted = catalog();
+        UserManager reopened = new UserManager(restarted, snapshot, journal);
+        Song first = restarted.getSong("First", "Journal Artist", "Journal Album");
+        assertEquals(plays, reopened.getUser("dee").getLibrary().getPlayCount(first));
+        assertEquals(1, reopened.getUser("late").getLibrary().getSongCount());
+        reopened.close();
+    }
+
+    @Test
+    void testLibrariesLoadLazilyAndEvict(@TempDir File dir) {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal, 1);
+        manager.createUser("carol", "pw", store);
+        manager.getUser("carol").getLibrary().addSongFromStore("First");
+        manager.createUser("dave", "pw", store);
+        manager.getUser("dave").getLibrary().addAlbumFromStore("Journal Album");
+        assertEquals(1, manager.getCachedLibraryCount());
+        manager.close();
+
+        UserManager reopened = new UserManager(store, snapshot, journal, 1);
+        assertEquals(0, reopened.getCachedLibraryCount()); // Credentials only
+        assertTrue(reopened.authenticate("carol", "pw"));
+        assertEquals(1, reopened.getUser("carol").getLibrary().getSongCount());
+        assertEquals(2, reopened.getUser("dave").getLibrary().getSongCount());
+        assertEquals(1, reopened.getCachedLibraryCount());
+
+        LibraryModel carol = reopened.getUser("carol").getLibrary();
+        reopened.getUser("dave").getLibrary(); // Evicts carol from the cache
+        carol.addSongFromStore("Second"); // Still journaled while in use
+        assertSame(carol, reopened.getUser("carol").getLibrary());
+        reopened.close();
+
+        UserManager again = new UserManager(store, snapshot, journal, 1);
+        assertEquals(2, again.getUser("carol").getLibrary().getSongCount());
+        again.close();
+    }
+
+    @Test
+    void testCacheStaysBoundedUnderConcurrentUse(@TempDir File dir) throws InterruptedException {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal, 2);
+        manager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        int accounts = 6;
+        for (int i = 0; i < accounts; i++) {
+            manager.createUser("user" + i, "pw", store);
+        }
+        Song played = store.getSong("First", "Journal Artist", "Journal Album");
+        int threads = 4;
+        int plays = 200;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < plays; i++) {
+                    // Libraries are evicted and reloaded from the journal as the threads move between accounts
+                    LibraryModel library = manager.getUser("user" + (i + offset) % accounts).getLibrary();
+                    library.addSong(played);
+                    library.playSong(played);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(manager.getCachedLibraryCount() <= 2);
+        manager.close();
+
+        UserManager reopened = new UserManager(store, snapshot, journal);
+        int total = 0;
+        for (int i = 0; i < accounts; i++) {
+            total += reopened.getUser("user" + i).getLibrary().getPlayCount(played);
+        }
+        assertEquals(threads * plays, total);
+        reopened.close();
+    }
+
+    @Test
+    void testConcurrentSignUpsCreateEachNameOnce(@TempDir File dir) throws InterruptedException {
+        MusicStore store = catalog();
+        UserManager manager = new UserManager(store, new File(dir, "users.dat"), new File(dir, "users.journal"));
+        manager.setPasswordHasher(new Pbkdf2Hasher(1000)); // Up to 400 hashes; keep them cheap
+        int threads = 8;
+        AtomicInteger created = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String password = "pw" + t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    if (manager.createUserIfAbsent("user" + i, password, store)) {
+                        created.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(50, created.get());
+        assertFalse(manager.createUserIfAbsent("user0", "other", store));
+        manager.close();
+
+        UserManager reopened = new UserManager(store, new File(dir, "users.dat"), new File(dir, "users.journal"));
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(reopened.getUser("user" + i));
+        }
+        reopened.close();
+    }
+
+    @Test
+    void testOldHashIsUpgradedAtLogin(@TempDir File dir) {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.setPasswordHasher(new Sha256Hasher());
+        manager.createUser("erin", "pw", store);
+        assertEquals("sha256", manager.getUser("erin").getPasswordScheme());
+
+        Pbkdf2Hasher stronger = new Pbkdf2Hasher(1000);
+        manager.setPasswordHasher(stronger);
+        assertFalse(manager.authenticate("erin", "wrong"));
+        assertEquals("sha256", manager.getUser("erin").getPasswordScheme()); // Only a correct password upgrades
+        assertTrue(manager.authenticate("erin", "pw"));
+        assertEquals(stronger.getScheme(), manager.getUser("erin").getPasswordScheme());
+        manager.close();
+
+        UserManager reopened = new UserManager(store, snapshot, journal);
+        assertEquals(stronger.getScheme(), reopened.getUser("erin").getPasswordScheme());
+        assertTrue(reopened.authenticate("erin", "pw"));
+        reopened.close();
+    }
+
+    @Test
+    void testSessionTokenSkipsHashing() {
+        userManager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        userManager.createUser("frank", "pw", dummyStore);
+        assertNull(userManager.login("frank", "wrong"));
+        String token = userManager.login("frank", "pw");
+        assertNotNull(token);
+
+        long hashes = userManager.getHashMetrics().getHashes();
+        assertEquals("frank", userManager.getUserByToken(token).getUsername());
+        assertEquals(hashes, userManager.getHashMetrics().getHashes());
+        assertEquals(1, userManager.getHashMetrics().getTokenHits());
+
+        userManager.logout(token);
+        assertNull(userManager.getUserByToken(token));
+        assertNull(userManager.getUserByToken("forged"));
+    }
+
+    @Test
+    void testReplacingAccountEndsItsSessions() {
+        userManager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        userManager.createUser("gina", "old", dummyStore);
+        String token = userManager.login("gina", "old");
+        userManager.createUser("gina", "new", dummyStore);
+        assertNull(userManager.getUserByToken(token));
+    }
+
+    @Test
+    void testPlaylistsAreRecovered(@TempDir File dir) throws IOException {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        manager.createUser("hana", "pw", store);
+        LibraryModel library = manager.getUser("hana").getLibrary();
+        library.addAlbumFromStore("Journal Album");
+        Song first = store.getSong("First", "Journal Artist", "Journal Album");
+        Song second = store.getSong("Second", "Journal Artist", "Journal Album");
+        library.createPlaylist("Old");
+        library.addArtistToPlaylist("Old", "Journal Artist");
+        library.createPlaylist("Gone");
+        manager.compact();
+        library.renamePlaylist("Old", "Favorites");
+        library.addSongToPlaylist("Favorites", first);
+        library.removeSongFromPlaylist("Favorites", second);
+        library.deletePlaylist("Gone");
+        manager.close();
+
+        MusicStore restarted = catalog();
+        UserManager reopened = new UserManager(restarted, snapshot, journal);
+        LibraryModel restored = reopened.getUser("hana").getLibrary();
+        first = restarted.getSong("First", "Journal Artist", "Journal Album");
+        assertEquals(1, restored.getPlaylists().size());
+        assertEquals(List.of(first, first), restored.getPlaylist("Favorites").getTrackList());
+        reopened.close();
+    }
+
+    @Test
+    void testPlaylistOrderIsRecovered(@TempDir File dir) throws IOException {
+        MusicStore store = catalog();
+        File snapshot = new File(dir, "users.dat");
+        File journal = new File(dir, "users.journal");
+        UserManager manager = new UserManager(store, snapshot, journal);
+        manager.setPasswordHasher(new Pbkdf2Hasher(1000));
+        manager.createUser("ivy", "pw", store);
+        LibraryModel library = manager.getUser("ivy").getLibrary();
+        library.addAlbumFromStore("Journal Album");
+        Song first = store.getSong("First", "Journal Artist", "Journal Album");
+        Song second = store.getSong("Second", "Journal Artist", "Journal Album");
+        library.createPlaylist("Mix");
+        library.addSongsToPlaylist("Mix", List.of(first, second));
+        manager.compact(); // Some of the order comes from the snapshot, the rest from the journal
+        assertTrue(library.insertPlaylistSong("Mix", 1, second));
+        assertTrue(library.movePlaylistSong("Mix", 0, 2));
+        assertEquals(List.of(second, second, first), library.getPlaylist("Mix").getTrackList());
+        manager.close();
+
+        MusicStore restarted = catalog();
+        UserManager reopened = new UserManager(restarted, snapshot, journal);
+        first = restarted.getSong("First", "Journal Artist", "Journal Album");
+        second = restarted.getSong("Second", "Journal Artist", "Journal Album");
+        LibraryModel restored = reopened.getUser("ivy").getLibrary();
+        assertEquals(List.of(second, second, first), restored.getPlaylist("Mix").getTrackList());
+        reopened.compact();
+        reopened.close();
+
+        UserManager compacted = new UserManager(catalog(), snapshot, journal);
+        assertEquals(List.of("Second", "Second", "First"), compacted.getUser("ivy").getLibrary().getPlaylist("Mix")
+                .getTrackList().stream().map(Song::getTitle).toList());
+        compacted.close();
+    }
 }
@@ -5,6 +5,9 @@
  * AI-GENERATED CODE (with manual adjustments): 
  * - Handles user input/output for LA#2.
  * - Implements menus for login, search, and playlists.
+ * - A thin console client of LibraryService: it holds only its session
+ *   token and turns Responses into messages.
+ * - Logging out returns to the login menu in a loop, not by recursion.
  */
 package view;
 
@@ -13,38 +16,45 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
-import model.Album;
-import model.LibraryModel;
-import model.Song;
-import model.User;
 import model.UserManager;
+import service.AlbumInfo;
+import service.LibraryService;
+import service.LibraryService.SearchField;
+import service.PlaylistInfo;
+import service.Response;
+import service.SongInfo;
 import store.MusicStore;
 
 public class LibraryView {
-	private UserManager userManager;
-	private MusicStore store;
+	private LibraryService service;
 	private Scanner scanner;
-	private User currentUser;
+	private String token; // Current session, or null when logged out
 
 	public LibraryView(UserManager userManager, MusicStore store) {
-		this.userManager = userManager;
-		this.store = store;
+		this(new LibraryService(userManager, store));
+	}
+
+	public LibraryView(LibraryService service) {
+		this.service = service;
 		this.scanner = new Scanner(System.in);
 	}
 
 	public void start() {
-		System.out.println("1. Login\n2. Create Account");
-		int choice = scanner.nextInt();
-		scanner.nextLine();
+		while (true) {
+			System.out.println("1. Login\n2. Create Account");
+			int choice = scanner.nextInt();
+			scanner.nextLine();
 
-		if (choice == 1) {
-			login();
-		} else if (choice == 2) {
-			createAccount();
-		}
+			if (choice == 1) {
+				login();
+			} else if (choice == 2) {
+				createAccount();
+			}
 
-		if (currentUser != null) {
-			runMainMenu();
+			if (token == null) {
+				return;
+			}
+			runMainMenu(); // Returns on logout, back to the login menu
 		}
 	}
 
@@ -54,11 +64,12 @@ public class LibraryView {
 		System.out.print("Password: ");
 		String password = scanner.nextLine();
 
-		if (userManager.authenticate(username, password)) {
-			currentUser = userManager.getUser(username);
+		Response<String> response = service.login(username, password);
+		if (response.isOk()) {
+			token = response.getValue();
 			System.out.println("Login successful!");
 		} else {
-			System.out.println("Invalid credentials.");
+			System.out.println(response.getMessage());
 		}
 	}
 
@@ -67,13 +78,16 @@ public class LibraryView {
 		String username = scanner.nextLine();
 		System.out.print("New password: ");
 		String password = scanner.nextLine();
-		userManager.createUser(username, password, store);
-		currentUser = userManager.getUser(username);
+		Response<String> response = service.signUp(username, password);
+		if (!response.isOk()) {
+			System.out.println(response.getMessage());
+			return;
+		}
+		token = response.getValue();
 		System.out.println("Account created!");
 	}
 
 	private void runMainMenu() {
-		LibraryModel model = currentUser.getLibrary();
 		while (true) {
 			System.out.println(
 					"\n1. Search\n2. Add Song\n3. Add Album\n4. Play Song\n5. Remove Item\n6. View Playlists\n7. Logout");
@@ -82,16 +96,16 @@ public class LibraryView {
 
 			try {
 				switch (choice) {
-				case 1 -> searchMenu(model);
-				case 2 -> addSongMenu(model);
-				case 3 -> addAlbumMenu(model);
-				case 4 -> playSongMenu(model);
-				case 5 -> removeItemMenu(model);
-				case 6 -> playlistMenu(model);
+				case 1 -> searchMenu();
+				case 2 -> addSongMenu();
+				case 3 -> addAlbumMenu();
+				case 4 -> playSongMenu();
+				case 5 -> removeItemMenu();
+				case 6 -> playlistMenu();
 				case 7 -> {
-					userManager.saveUsers();
-					System.out.println("Logged out.");
-					start(); // Return to login menu after logout
+					Response<Void> response = service.logout(token);
+					token = null;
+					System.out.println(response.isOk() ? "Logged out." : response.getMessage());
 					return;
 				}
 				default -> System.out.println("Invalid option.");
@@ -104,7 +118,7 @@ public class LibraryView {
 	}
 
 	// 1. Search Menu
-	private void searchMenu(LibraryModel model) {
+	private void searchMenu() {
 		System.out.println("Search for:");
 		System.out.println("1. Song by Title\n2. Song by Artist\n3. Album by Title\n4. Album by Artist");
 		int choice = scanner.nextInt();
@@ -114,63 +128,52 @@ public class LibraryView {
 		String term = scanner.nextLine();
 
 		switch (choice) {
-		case 1 -> {
-			List<Song> results = model.searchSongsByTitle(term);
-			displaySongs(results);
-		}
-		case 2 -> {
-			List<Song> results = model.searchSongsByArtist(term);
-			displaySongs(results);
-		}
-		case 3 -> {
-			List<Album> results = model.searchAlbumsByTitle(term);
-			displayAlbums(results);
-		}
-		case 4 -> {
-			List<Album> results = model.searchAlbumsByArtist(term);
-			displayAlbums(results);
-		}
+		case 1 -> displaySongs(service.searchSongs(token, SearchField.TITLE, term));
+		case 2 -> displaySongs(service.searchSongs(token, SearchField.ARTIST, term));
+		case 3 -> displayAlbums(service.searchAlbums(token, SearchField.TITLE, term));
+		case 4 -> displayAlbums(service.searchAlbums(token, SearchField.ARTIST, term));
 		default -> System.out.println("Invalid option.");
 		}
 	}
 
 	// 2. Add Song Menu
-	private void addSongMenu(LibraryModel model) {
+	private void addSongMenu() {
 		System.out.print("Enter song title to add: ");
 		String title = scanner.nextLine();
-		if (model.addSongFromStore(title)) {
+		Response<SongInfo> response = service.addSong(token, title);
+		if (response.isOk()) {
 			System.out.println("Song added!");
 		} else {
-			System.out.println("Song not found in store.");
+			System.out.println(response.getMessage() != null ? response.getMessage() : "Song already in library.");
 		}
 	}
 
 	// 3. Add Album Menu
-	private void addAlbumMenu(LibraryModel model) {
+	private void addAlbumMenu() {
 		System.out.print("Enter album title to add: ");
 		String title = scanner.nextLine();
-		if (model.addAlbumFromStore(title)) {
+		Response<AlbumInfo> response = service.addAlbum(token, title);
+		if (response.getValue() != null) {
 			System.out.println("Album added!");
 		} else {
-			System.out.println("Album not found in store.");
+			System.out.println(response.getMessage());
 		}
 	}
 
 	// 4. Play Song Menu
-	private void playSongMenu(LibraryModel model) {
+	private void playSongMenu() {
 		System.out.print("Enter song title to play: ");
 		String title = scanner.nextLine();
-		List<Song> results = model.searchSongsByTitle(title);
-		if (!results.isEmpty()) {
-			model.playSong(results.get(0));
-			System.out.println("Now playing: " + results.get(0).getTitle());
+		Response<SongInfo> response = service.play(token, title);
+		if (response.isOk()) {
+			System.out.println("Now playing: " + response.getValue().getTitle());
 		} else {
-			System.out.println("Song not found.");
+			System.out.println(response.getMessage());
 		}
 	}
 
 	// 5. Remove Item Menu
-	private void removeItemMenu(LibraryModel model) {
+	private void removeItemMenu() {
 		System.out.println("1. Remove Song\n2. Remove Album");
 		int choice = scanner.nextInt();
 		scanner.nextLine();
@@ -179,83 +182,133 @@ public class LibraryView {
 		String title = scanner.nextLine();
 
 		switch (choice) {
-		case 1 -> {
-			Song song = findSongByTitle(model, title);
-			if (song != null && model.removeSong(song)) {
-				System.out.println("Song removed.");
-			} else {
-				System.out.println("Song not found.");
-			}
-		}
-		case 2 -> {
-			Album album = findAlbumByTitle(model, title);
-			if (album != null && model.removeAlbum(album)) {
-				System.out.println("Album removed.");
-			} else {
-				System.out.println("Album not found.");
-			}
-		}
+		case 1 -> report(service.removeSong(token, title), "Song removed.");
+		case 2 -> report(service.removeAlbum(token, title), "Album removed.");
 		default -> System.out.println("Invalid option.");
 		}
 	}
 
 	// 6. Playlist Menu
-	private void playlistMenu(LibraryModel model) {
-		System.out.println("1. Recent Plays\n2. Frequent Plays\n3. Genre Playlists");
+	private void playlistMenu() {
+		System.out.println("1. Recent Plays\n2. Frequent Plays\n3. Genre Playlists\n4. My Playlists"
+				+ "\n5. Create Playlist\n6. Delete Playlist\n7. Rename Playlist\n8. Add Song to Playlist"
+				+ "\n9. Add Album to Playlist\n10. Add Artist to Playlist\n11. Add Search Results to Playlist"
+				+ "\n12. Remove Song from Playlist");
 		int choice = scanner.nextInt();
 		scanner.nextLine();
 
 		switch (choice) {
-		case 1 -> displaySongs(model.getRecentPlays(), "Recent Plays");
-		case 2 -> displaySongs(model.getFrequentPlays(), "Frequent Plays");
+		case 1 -> displaySongs(service.getRecentPlays(token), "Recent Plays");
+		case 2 -> displaySongs(service.getFrequentPlays(token), "Frequent Plays");
 		case 3 -> {
-			Map<String, List<Song>> genrePlaylists = model.getGenrePlaylists();
-			genrePlaylists.forEach((genre, songs) -> {
+			Response<Map<String, List<SongInfo>>> response = service.getGenrePlaylists(token);
+			if (!response.isOk()) {
+				System.out.println(response.getMessage());
+				return;
+			}
+			response.getValue().forEach((genre, songs) -> {
 				System.out.println("Genre: " + genre);
 				displaySongs(songs);
 			});
 		}
+		case 4 -> {
+			Response<List<PlaylistInfo>> response = service.getPlaylists(token);
+			if (!response.isOk()) {
+				System.out.println(response.getMessage());
+			} else if (response.getValue().isEmpty()) {
+				System.out.println("No playlists yet.");
+			} else {
+				response.getValue().forEach(p -> displaySongs(Response.ok(p.getSongs()), p.getName()));
+			}
+		}
+		case 5 -> report(service.createPlaylist(token, prompt("New playlist name: ")), "Playlist created.");
+		case 6 -> report(service.deletePlaylist(token, prompt("Playlist to delete: ")), "Playlist deleted.");
+		case 7 -> {
+			String name = prompt("Playlist to rename: ");
+			report(service.renamePlaylist(token, name, prompt("New name: ")), "Playlist renamed.");
+		}
+		case 8 -> {
+			String name = prompt("Playlist: ");
+			reportAdded(service.addSongToPlaylist(token, name, prompt("Song title: ")));
+		}
+		case 9 -> {
+			String name = prompt("Playlist: ");
+			reportAdded(service.addAlbumToPlaylist(token, name, prompt("Album title: ")));
+		}
+		case 10 -> {
+			String name = prompt("Playlist: ");
+			reportAdded(service.addArtistToPlaylist(token, name, prompt("Artist: ")));
+		}
+		case 11 -> {
+			String name = prompt("Playlist: ");
+			reportAdded(service.addSearchResultsToPlaylist(token, name, prompt("Search: ")));
+		}
+		case 12 -> {
+			String name = prompt("Playlist: ");
+			report(service.removeSongFromPlaylist(token, name, prompt("Song title: ")),
+					"Song removed from playlist.");
+		}
 		default -> System.out.println("Invalid option.");
 		}
 	}
 
-	// Helper Methods
-	private Song findSongByTitle(LibraryModel model, String title) {
-		List<Song> results = model.searchSongsByTitle(title);
-		return results.isEmpty() ? null : results.get(0);
+	private String prompt(String message) {
+		System.out.print(message);
+		return scanner.nextLine();
 	}
 
-	private Album findAlbumByTitle(LibraryModel model, String title) {
-		List<Album> results = model.searchAlbumsByTitle(title);
-		return results.isEmpty() ? null : results.get(0);
+	private void report(Response<?> response, String success) {
+		System.out.println(response.isOk() ? success : response.getMessage());
 	}
 
-	private void displaySongs(List<Song> songs) {
+	private void reportAdded(Response<Integer> response) {
+		if (response.isOk()) {
+			System.out.println(response.getValue() + " song(s) added to playlist.");
+		} else {
+			System.out.println(response.getMessage());
+		}
+	}
+
+	// Helper Methods
+	private void displaySongs(Response<List<SongInfo>> response) {
+		if (!response.isOk()) {
+			System.out.println(response.getMessage());
+			return;
+		}
+		displaySongs(response.getValue());
+	}
+
+	private void displaySongs(List<SongInfo> songs) {
 		if (songs.isEmpty()) {
 			System.out.println("No songs found.");
 			return;
 		}
-		for (Song song : songs) {
+		for (SongInfo song : songs) {
 			System.out.println("Title: " + song.getTitle() + "\nArtist: " + song.getArtist() + "\nAlbum: "
-					+ song.getAlbumTitle() + "\nRating: " + song.getRating() + "\n--------------------");
+					+ song.getAlbum() + "\nRating: " + song.getRating() + "\n--------------------");
 		}
 	}
 
-	private void displaySongs(List<Song> songs, String playlistName) {
+	private void displaySongs(Response<List<SongInfo>> response, String playlistName) {
 		System.out.println("Playlist: " + playlistName);
-		displaySongs(songs);
+		displaySongs(response);
 	}
 
-	private void displayAlbums(List<Album> albums) {
+	private void displayAlbums(Response<List<AlbumInfo>> response) {
+		if (!response.isOk()) {
+			System.out.println(response.getMessage());
+			return;
+		}
+		List<AlbumInfo> albums = response.getValue();
 		if (albums.isEmpty()) {
 			System.out.println("No albums found.");
 			return;
 		}
-		for (Album album : albums) {
+		for (AlbumInfo album : albums) {
 			System.out.println("Album: " + album.getTitle() + "\nArtist: " + album.getArtist() + "\nGenre: "
 					+ album.getGenre() + "\nYear: " + album.getYear() + "\nSongs:\n--------------------");
-			for (Song song : album.getSongs()) {
-				System.out.println("- " + song.getTitle());
+			for (String song : album.getSongs()) {
+				System.out.println("- " + song);
 			}
 			System.out.println("--------------------");
 		}
@@ -5,14 +5,35 @@ Main for runing the program
 */
 package view;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
 import model.UserManager;
+import store.CatalogSnapshot;
 import store.MusicStore;
 
 public class Main {
 	public static void main(String[] args) {
-		MusicStore store = new MusicStore();
+		startMetrics();
+		MusicStore store = MusicStore.open(Path.of(""), Path.of(CatalogSnapshot.DEFAULT_FILE));
 		UserManager userManager = new UserManager(store);
+		Runtime.getRuntime().addShutdownHook(new Thread(userManager::close)); // Flush the journal on exit
 		LibraryView view = new LibraryView(userManager, store);
 		view.start();
 	}
+
+	// Metrics are always on JMX; -Dmetrics.file=metrics.json (or .txt) also dumps them every metrics.interval seconds
+	private static void startMetrics() {
+		MetricsRegistry.getDefault().registerMBean();
+		String file = System.getProperty("metrics.file");
+		if (file == null) {
+			return;
+		}
+		MetricsReporter reporter = new MetricsReporter(MetricsRegistry.getDefault(),
+				file.endsWith(".json") ? MetricsReporter.Format.JSON : MetricsReporter.Format.TEXT, Path.of(file));
+		reporter.start(Long.getLong("metrics.interval", 60), TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(reporter::close));
+	}
 }